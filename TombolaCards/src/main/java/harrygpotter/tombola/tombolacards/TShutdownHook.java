@@ -18,13 +18,17 @@
  */
 package harrygpotter.tombola.tombolacards;
 
+import harrygpotter.tombola.tombolalib.TCardArchive;
 import harrygpotter.tombola.tombolalib.TCardFormat;
 import harrygpotter.tombola.tombolalib.TFileFormatter;
 import harrygpotter.tombola.tombolalib.TSeriesList;
+import harrygpotter.tombola.tombolalib.TTombolaRuntimeException;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This class implements ad hook to have the possibility to execute 'emergency' code 
@@ -39,14 +43,21 @@ class TShutdownHook extends Thread {
     
     private Map<String, Object> envMap;
     private Map<String, Object> internalMap;
+    private final List<Process> workerProcesses = new CopyOnWriteArrayList<>();
     
     TShutdownHook(Map<String, Object> env, Map<String, Object> internal) {
         this.envMap = env;
         this.internalMap = internal;
     }
     
+    // Register a local worker process, to be destroyed when TombolaCards ends.
+    void addWorkerProcess(Process worker) {
+        workerProcesses.add(worker);
+    }
+
     public void run() {
         // System.out.print("TombolaCard is cheking memory before shutting down...");
+        workerProcesses.forEach(Process::destroy);
         boolean somethingToSave = (boolean) internalMap.get("unsavedWork");
         if (somethingToSave) {
             TSeriesList tsl = (TSeriesList) internalMap.get("seriesList");
@@ -62,6 +73,8 @@ class TShutdownHook extends Thread {
                         fileName = readLine;
                     }
                     TFileFormatter tff = new TFileFormatter(TCardFormat.CSV_PLUS);
+                    tff.setCardArchive((TCardArchive) internalMap.get("cardArchive"), (TCardArchive.TDuplicatePolicy) envMap.get("duplicatePolicy"));
+                    tff.setNearDuplicateThreshold((int) envMap.get("nearDuplicateThreshold"));
                     tsl.compareByCard();
                     tsl.compareByRow();
                     tsl.sortBestToWorstByCard();
@@ -72,9 +85,19 @@ class TShutdownHook extends Thread {
                         System.out.print("\n<OK!> File has been properly saved.\n");
                     } catch (IOException ex) {
                         System.err.print("<ERROR!> " + ex.getMessage());
+                    } catch (TTombolaRuntimeException trex) {
+                        System.err.print(trex.getMessage());
                     }
                 }
             }                
         }     
+        TCardArchive archive = (TCardArchive) internalMap.get("cardArchive");
+        if (archive != null) {
+            try {
+                archive.close();
+            } catch (IOException ex) {
+                System.err.print("<ERROR!> Card archive not properly closed: " + ex.getMessage());
+            }
+        }
     }    
 }
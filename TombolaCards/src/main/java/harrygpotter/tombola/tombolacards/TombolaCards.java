@@ -21,17 +21,29 @@ package harrygpotter.tombola.tombolacards;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.nio.file.StandardOpenOption;
 import harrygpotter.tombola.tombolacards.interactive.ICommand;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import harrygpotter.tombola.tombolalib.TCardArchive;
 import harrygpotter.tombola.tombolalib.TCardFormat;
 import harrygpotter.tombola.tombolalib.TFileFormatter;
+import harrygpotter.tombola.tombolalib.TGameAuditor;
 import harrygpotter.tombola.tombolalib.TSimpleLogger;
 import harrygpotter.tombola.tombolalib.TMakeSix;
 import harrygpotter.tombola.tombolalib.TSeriesList;
+import harrygpotter.tombola.tombolalib.TSetFactoryCheckpoint;
+import harrygpotter.tombola.tombolalib.TSetFactoryWorker;
+import harrygpotter.tombola.tombolalib.TDistributedSetFactory;
+import harrygpotter.tombola.tombolalib.TTombolaRuntimeException;
 import harrygpotter.tombola.tombolalib.TUtils;
 import harrygpotter.tombola.tombolacards.interactive.*;
 import java.util.Arrays;
@@ -55,6 +67,7 @@ public class TombolaCards {
 
     private static final String TT_VERSION = "1.1";
     private static final String TT_DEFAULT_OUTPUT_FILENAME = "CardSeries001.csv";
+    private static final String WORKER_READY_MESSAGE = "TombolaCards worker listening on port ";
     //TODO(2.0) Still not used: private static final String TT_DEFAULT_CONFIG_FILE = "./conf/tombolaCards.cfg";
 
     private Map<String, Object> environment;
@@ -97,6 +110,12 @@ public class TombolaCards {
         envMap.put("randomSeed", null);
         envMap.put("timeLimit", ITSetFactory.MAX_ITERATIONS_MILLISECS);
         envMap.put("iteractionLimit", ITSetFactory.MAX_ITERATIONS);
+        envMap.put("checkpointFile", null);
+        envMap.put("checkpointInterval", TSetFactoryCheckpoint.DEFAULT_CHECKPOINT_INTERVAL);
+        envMap.put("workers", null);
+        envMap.put("cardArchive", null);
+        envMap.put("duplicatePolicy", TCardArchive.TDuplicatePolicy.REJECT);
+        envMap.put("nearDuplicateThreshold", 0);
 
         internalMap.put("prompt", ">>");
         internalMap.put("rPrompt", "<<");
@@ -104,7 +123,9 @@ public class TombolaCards {
         internalMap.put("notifyConclusion",false);
         internalMap.put("unsavedWork", false);
         // TODO(1.1): Please, review this hook and its usage
-        Runtime.getRuntime().addShutdownHook(new TShutdownHook(envMap, internalMap));
+        TShutdownHook shutdownHook = new TShutdownHook(envMap, internalMap);
+        internalMap.put("shutdownHook", shutdownHook);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
 
         // Program invoked with no command line parameter.
         // Header and Help info are printed, then TombolaCards ends.
@@ -147,11 +168,47 @@ public class TombolaCards {
                 }
                 arg = arg.toUpperCase();
                 switch (arg) {
+                    case "A":
+                        envMap.put("cardArchive", argArg);
+                        break;
+                    case "AF":
+                        envMap.put("duplicatePolicy", TCardArchive.TDuplicatePolicy.FLAG);
+                        break;
+                    case "AN":
+                        try {
+                            int tempNear = Integer.parseInt(argArg);
+                            if (tempNear < 1 || tempNear > 15) {
+                                System.err.println("<FATAL!> Near duplicate threshold must be in the [1..15] range");
+                                System.exit(-1);
+                            }
+                            envMap.put("nearDuplicateThreshold", tempNear);
+                        } catch (NumberFormatException nfe) {
+                            System.err.println("<FATAL!> Near duplicate threshold not recognized [" + argArg + "]");
+                            System.exit(-1);
+                        }
+                        break;
+                    case "C":
+                        envMap.put("checkpointFile", argArg);
+                        break;
+                    case "CI":
+                        try {
+                            long interval = Long.parseLong(argArg);
+                            if (interval < 0) {
+                                throw new NumberFormatException();
+                            }
+                            envMap.put("checkpointInterval", interval * 1000);
+                        } catch (NumberFormatException nfe) {
+                            System.err.println("<FATAL!> Checkpoint interval [" + argArg + "] must be a positive number of seconds.");
+                            System.exit(-1);
+                        }
+                        break;
                     case "E":
                         if (argArg.equalsIgnoreCase("RANDOM")) {
                             envMap.put("method", TUtils.AVAILABLE_GENERATION_METHODS[0]);
                         } else if (argArg.equalsIgnoreCase("PROGRESSIVE")) {
                             envMap.put("method", TUtils.AVAILABLE_GENERATION_METHODS[1]);
+                        } else if (argArg.equalsIgnoreCase("DISTRIBUTED")) {
+                            envMap.put("method", TUtils.AVAILABLE_GENERATION_METHODS[2]);
                         } else {
                             System.err.println("<FATAL!> Euristic method [" + argArg + "] not recognized. Run TombolaCards with no parameters to see the help.");
                             System.exit(-1);
@@ -160,6 +217,17 @@ public class TombolaCards {
                     case "F":
                         envMap.put("fileFormat", TCardFormat.valueOf(argArg));
                         break;
+                    case "GA":
+                        if (argArg == null || argArg.trim().isEmpty()) {
+                            System.err.println("<FATAL!> Option -GA needs at least a game record file.");
+                            System.exit(-1);
+                        }
+                        @SuppressWarnings("unchecked")
+                        List<String> records = (List<String>) internalMap.computeIfAbsent("auditFiles", (k) -> new ArrayList<String>());
+                        for (String r : argArg.split(",")) {
+                            records.add(r.trim());
+                        }
+                        break;
                     case "H":
                         TombolaCards.printInfo(envMap);
                         System.exit(0);
@@ -226,6 +294,9 @@ public class TombolaCards {
                     case "R":
                         envMap.put("inputFile", argArg);
                         break;
+                    case "RC":
+                        envMap.put("resumeFile", argArg);
+                        break;
                     case "S":
                         if (argArg!=null && argArg.length()>0) {
                             try {
@@ -260,6 +331,32 @@ public class TombolaCards {
                     case "W":
                         envMap.put("fileOverwrite", true);
                         break;
+                    case "WK":
+                        envMap.put("workers", envMap.get("workers") == null ? argArg : envMap.get("workers") + "," + argArg);
+                        envMap.put("method", TUtils.AVAILABLE_GENERATION_METHODS[2]);
+                        break;
+                    case "WL":
+                        try {
+                            internalMap.put("launchWorkers", Integer.parseInt(argArg));
+                        } catch (NumberFormatException nfe) {
+                            System.err.println("<FATAL!> Number of workers to launch [" + argArg + "] not recognized.");
+                            System.exit(-1);
+                        }
+                        envMap.put("method", TUtils.AVAILABLE_GENERATION_METHODS[2]);
+                        break;
+                    case "WS":
+                        try {
+                            // -WS=<port> listens on the loopback address, -WS=<address>:<port> on the given one.
+                            int colon = argArg.lastIndexOf(':');
+                            if (colon >= 0) {
+                                internalMap.put("workerAddress", argArg.substring(0, colon).trim());
+                            }
+                            internalMap.put("workerPort", Integer.parseInt(argArg.substring(colon + 1).trim()));
+                        } catch (NumberFormatException nfe) {
+                            System.err.println("<FATAL!> Worker port [" + argArg + "] not recognized.");
+                            System.exit(-1);
+                        }
+                        break;
                     default:
                         System.err.println("<FATAL!> Parameter [" + arg + "] not recognized. Run TombolaCards with no parameters to see the help.");
                         System.exit(-1);
@@ -267,12 +364,64 @@ public class TombolaCards {
             }
         }   // End of for loop to parse parameters
 
+        // Audit mode: TombolaCards just verifies the archived games
+        if (internalMap.get("auditFiles") != null) {
+            @SuppressWarnings("unchecked")
+            List<String> records = (List<String>) internalMap.get("auditFiles");
+            runAudit(records);
+            return;
+        }
+
+        // Worker mode: TombolaCards just serves candidate series to a distributed set factory
+        if (internalMap.get("workerPort") != null) {
+            runWorker((String) internalMap.get("workerAddress"), (int) internalMap.get("workerPort"));
+            return;
+        }
+        if (internalMap.get("launchWorkers") != null) {
+            launchLocalWorkers((int) internalMap.get("launchWorkers"), envMap, internalMap);
+        }
+
         //Some initialization "special cases". If the heuristic is pure random, maepc and maxepr values are not considered.
         if (((String) envMap.get("method")).equalsIgnoreCase(TUtils.AVAILABLE_GENERATION_METHODS[0])) {
             envMap.put("maxepc", 15);
             envMap.put("maxepr", 5);
         }
 
+        // Resuming from a checkpoint, generation parameters are the ones of the interrupted process.
+        TSetFactoryCheckpoint checkpoint = null;
+        String resumeFile = (String) envMap.get("resumeFile");
+        if (resumeFile != null) {
+            if (envMap.get("inputFile") != null) {
+                System.err.println("<FATAL!> Options -R and -RC cannot be used together.");
+                System.exit(-1);
+            }
+            try {
+                checkpoint = TSetFactoryCheckpoint.readCheckpointFile(resumeFile);
+            } catch (IOException | TTombolaRuntimeException ex) {
+                System.err.println("<FATAL!> Impossible to read checkpoint file [" + resumeFile + "]: " + ex.getMessage());
+                System.exit(-1);
+            }
+            if (checkpoint == null) {
+                System.err.println("<FATAL!> Checkpoint file [" + resumeFile + "] does not contain any complete checkpoint.");
+                System.exit(-1);
+            }
+            for (String m : TUtils.AVAILABLE_GENERATION_METHODS) {
+                if (TUtils.getSetFactoryByType(m).getMethodName().equals(checkpoint.getSetFactoryMethod())) {
+                    envMap.put("method", m);
+                }
+            }
+            if (!numberFound) {
+                envMap.put("desiredSeries", checkpoint.getDesiredSeries());
+            }
+            envMap.put("maxepc", checkpoint.getMaxEqualPerCard());
+            envMap.put("maxepr", checkpoint.getMaxEqualPerRow());
+            envMap.put("randomSeed", checkpoint.getRandomSeed());
+            envMap.put("avoidEmptyColumn", checkpoint.isEmptyColumnAvoided());
+            if (envMap.get("checkpointFile") == null) {
+                envMap.put("checkpointFile", resumeFile);
+            }
+        }
+
         // Some initialization echo to the screen. Maybe this can be moved in the executeBacth()/executeInteractive() methods.
         if (!(boolean) envMap.get("unattended")) {
             TombolaCards.printInitialBanner();
@@ -318,6 +467,35 @@ public class TombolaCards {
             }
         }   // End of if inputFile != null
 
+        if (checkpoint != null) {
+            tsl = checkpoint.getSeriesList();
+            int toGo = (int) envMap.get("desiredSeries") - tsl.size();
+            mustGenerate = (toGo > 0);
+            internalMap.put("checkpoint", checkpoint);
+            if (!(boolean) envMap.get("unattended")) {
+                System.out.println(String.format("Resuming from checkpoint: %d series (%d cards) already generated in %s.", tsl.size(), tsl.size() * 6, TUtils.prettyMilliseconds(checkpoint.getElapsedMillisecs())));
+                if (mustGenerate) {
+                    System.out.printf("There are still %d series (%d cards) to generate.%n", toGo, toGo * 6);
+                } else {
+                    System.out.println("Nothing more to generate.");
+                }
+            }
+        }
+
+        // The archive of issued cards stays open (and locked) until TombolaCards ends.
+        if (envMap.get("cardArchive") != null) {
+            try {
+                TCardArchive archive = TCardArchive.open((String) envMap.get("cardArchive"));
+                internalMap.put("cardArchive", archive);
+                if (!(boolean) envMap.get("unattended")) {
+                    System.out.printf("Card archive [%s] holds %,d already issued cards.%n", archive.getFileName(), archive.size());
+                }
+            } catch (IOException ioe) {
+                System.err.println("<FATAL!> Impossible to open the card archive: " + ioe.getMessage());
+                System.exit(-1);
+            }
+        }
+
         //TODO(1.2) Improve the management of the name of the whole series list.
         if (tsl==null) {
             tsl = new TSeriesList("Series list freshly generated by TombolaCards");
@@ -373,6 +551,7 @@ public class TombolaCards {
             TTCommandSave cmdSave = new TTCommandSave();
             TTCommandSet cmdSet = new TTCommandSet();
             TTCommandShow cmdShow = new TTCommandShow();
+            TTCommandSimilar cmdSimilar = new TTCommandSimilar();
             TTCommandSort cmdSort = new TTCommandSort();
             TTCommandStats cmdStats = new TTCommandStats();
             TTCommandStatus cmdStatus = new TTCommandStatus();
@@ -389,6 +568,7 @@ public class TombolaCards {
             cmdSave.setEnvironment(environment, internals);
             cmdSet.setEnvironment(environment, internals);
             cmdShow.setEnvironment(environment, internals);
+            cmdSimilar.setEnvironment(environment, internals);
             cmdSort.setEnvironment(environment, internals);
             cmdStats.setEnvironment(environment, internals);
             cmdStatus.setEnvironment(environment, internals);
@@ -411,8 +591,9 @@ public class TombolaCards {
             this.commands.put("SAVE", cmdSave);
             this.commands.put("SET", cmdSet);
             this.commands.put("SHOW", cmdShow);            
+            this.commands.put("SIMILAR", cmdSimilar);
             //this.commands.put("SORT", cmdSort);
-            //this.commands.put("STATS", cmdStats);            
+            this.commands.put("STATS", cmdStats);
             this.commands.put("STATUS", cmdStatus);
             this.commands.put("STOP", cmdStop);
             this.commands.put("PAUSE", cmdStop);
@@ -473,18 +654,31 @@ public class TombolaCards {
                 System.err.println("<FATAL!> Chosen Set Series generation method does not exist.");
                 System.exit(-2);
             }
-            factory.setSeriesList(tsl);
+            if (factory instanceof TDistributedSetFactory) {
+                if (environment.get("workers") == null) {
+                    System.err.println("<FATAL!> DISTRIBUTED method needs workers. Use -WK or -WL options to set them.");
+                    System.exit(-2);
+                }
+                ((TDistributedSetFactory) factory).addWorkers((String) environment.get("workers"));
+            }
+            TSetFactoryCheckpoint checkpoint = (TSetFactoryCheckpoint) internals.get("checkpoint");
+            if (checkpoint != null) {
+                factory.resumeFromCheckpoint(checkpoint);
+            } else {
+                factory.setSeriesList(tsl);
+                TMakeSix builder;
+                if (this.environment.get("randomSeed") == null) {
+                    builder = new TMakeSix((boolean)environment.get("avoidEmptyColumn"));
+                } else {
+                    builder = new TMakeSix((long)this.environment.get("randomSeed"),(boolean)environment.get("avoidEmptyColumn"));
+                }
+                factory.setSeriesBuilder(builder);
+            }
             factory.setDesiredSeries((int) environment.get("desiredSeries"));
             factory.setMaxEqualPerCard(dMaxEpc);
             factory.setMaxEqualPerRow(dMaxEpr);
-            TMakeSix builder;
-            if (this.environment.get("randomSeed") == null) {
-                builder = new TMakeSix((boolean)environment.get("avoidEmptyColumn"));
-            } else {
-                builder = new TMakeSix((long)this.environment.get("randomSeed"),(boolean)environment.get("avoidEmptyColumn"));
-            }
-
-            factory.setSeriesBuilder(builder);
+            factory.setCheckpointFile((String) environment.get("checkpointFile"), (long) environment.get("checkpointInterval"));
+            factory.setCardArchive((TCardArchive) internals.get("cardArchive"));
             
             factory.setLogger((ITLogger) internals.get("logger"));
             int pingCounter = tsl.size();
@@ -528,6 +722,8 @@ public class TombolaCards {
         }
 
         TFileFormatter tff = new TFileFormatter((TCardFormat) environment.get("fileFormat"), (boolean)environment.get("useJolly"));
+        tff.setCardArchive((TCardArchive) internals.get("cardArchive"), (TCardArchive.TDuplicatePolicy) environment.get("duplicatePolicy"));
+        tff.setNearDuplicateThreshold((int) environment.get("nearDuplicateThreshold"));
         try {
             if(overWrite) {
                 File f = new File((String)environment.get("fileName"));
@@ -540,6 +736,8 @@ public class TombolaCards {
             internals.put("unsavedWork", false);
         } catch (IOException ioex) {
             ioex.printStackTrace();
+        } catch (TTombolaRuntimeException trex) {
+            System.err.println(trex.getMessage());
         }
 
     }
@@ -599,6 +797,82 @@ public class TombolaCards {
         }
     }
 
+    private static void runAudit(List<String> recordFiles) {
+        List<TGameAuditor.TAuditResult> results = new TGameAuditor().audit(recordFiles);
+        int failed = 0;
+        for (TGameAuditor.TAuditResult r : results) {
+            System.out.println(r);
+            failed += (r.isVerified() ? 0 : 1);
+        }
+        System.out.println(String.format("%d game(s) audited, %d verified, %d with discrepancies.", results.size(), results.size() - failed, failed));
+        if (failed > 0) {
+            System.exit(-5);
+        }
+    }
+
+    private static void runWorker(String address, int port) {
+        try {
+            // Port 0 means TombolaCards has been launched by a coordinator, that reads the port from
+            // the standard output and keeps the standard input open: worker ends when it is closed.
+            // Workers have no authentication, so they listen on the loopback address unless told otherwise.
+            InetAddress bindAddress = (address == null || port == 0 ? InetAddress.getLoopbackAddress() : InetAddress.getByName(address));
+            TSetFactoryWorker worker = new TSetFactoryWorker(port, bindAddress);
+            System.out.println(WORKER_READY_MESSAGE + worker.getPort());
+            System.out.flush();
+            if (port == 0) {
+                Thread watchdog = new Thread(() -> {
+                    try {
+                        while (System.in.read() >= 0) {
+                            // Nothing to do, just wait for the end of the stream
+                        }
+                    } catch (IOException ioe) {
+                        // Coordinator is gone anyway
+                    }
+                    worker.close();
+                });
+                watchdog.setDaemon(true);
+                watchdog.start();
+            }
+            worker.run();
+        } catch (IOException ioe) {
+            System.err.println("<FATAL!> Impossible to start the worker: " + ioe.getMessage());
+            System.exit(-4);
+        }
+    }
+
+    private static void launchLocalWorkers(int n, Map<String, Object> envMap, Map<String, Object> internalMap) {
+        if (n < 1) {
+            return;
+        }
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        TShutdownHook shutdownHook = (TShutdownHook) internalMap.get("shutdownHook");
+        StringBuilder endpoints = new StringBuilder();
+        try {
+            // All the processes are started before waiting for them, so their start-up overlaps
+            for (int i = 0; i < n; i++) {
+                ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), TombolaCards.class.getName(), "-WS=0");
+                pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+                Process p = pb.start();
+                processes.add(p);
+                // Local workers must not survive TombolaCards.
+                shutdownHook.addWorkerProcess(p);
+            }
+            for (Process p : processes) {
+                String line = new BufferedReader(new InputStreamReader(p.getInputStream())).readLine();
+                if (line == null || !line.startsWith(WORKER_READY_MESSAGE)) {
+                    throw new IOException("worker process did not start properly");
+                }
+                endpoints.append(endpoints.length() > 0 ? "," : "").append("127.0.0.1:").append(line.substring(WORKER_READY_MESSAGE.length()).trim());
+            }
+        } catch (IOException ioe) {
+            System.err.println("<FATAL!> Impossible to launch local worker processes: " + ioe.getMessage());
+            System.exit(-4);
+        }
+        String others = (String) envMap.get("workers");
+        envMap.put("workers", others == null ? endpoints.toString() : others + "," + endpoints);
+    }
+
     private static void printInitialBanner() {
         System.out.println("\nHello Tombola World!");
         System.out.println("TombolaCards version: " + TT_VERSION);
@@ -618,14 +892,23 @@ public class TombolaCards {
         System.out.println("  nSeries              The number of series (6 cards each) you want to generate.\n");
 
         System.out.println("  options are case insensitive and can be used in the order you prefer. Asterisks indicate default values\n");
+        System.out.println("  -A=<file_name>       Use the specified archive of already issued cards: new series never repeat archived cards,");
+        System.out.println("                       saved cards are added to the archive. The archive is created if it does not exist");
+        System.out.println("  -AF                  Save the file even if it contains archived cards, listing them in the final comments");
+        System.out.println("  -AN=<k>              List in the final comments the cards with at least k numbers equal to an archived card");
+        System.out.println("  -C=<file_name>       Periodically save the progress of the series generation in the specified checkpoint file");
+        System.out.println("  -CI=<seconds>        Set the minimum interval between two checkpoints (default: " + ((Long) envMap.get("checkpointInterval")) / 1000 + " seconds)");
         System.out.println("  -E=<method>          Set the euristic method used to generate the set of series. Available methods:");
         System.out.println("     *RANDOM              Use a pure random generetor method. MPC/MPR values are not used");
         System.out.println("      PROGRESSIVE         Progressively add a new series to the set only if MPC/MPR critera are met");
+        System.out.println("      DISTRIBUTED         Like PROGRESSIVE, but candidate series are generated by worker processes (see -WK, -WL)");
         System.out.println("  -F=<file_format>     Set the format used to store cards in the output file. Available formats:");
         System.out.println("     *CSV");
         System.out.println("      CSV_PLUS");
         System.out.println("      CSV_PACKED");
         System.out.println("      CSV_PACKED_PLUS");
+        System.out.println("  -GA=<file_name,...>  Audit the specified game record files, replaying the games, and exit. No other options are considered");
+        System.out.println("                        Exit status is not zero if a discrepancy is found in any of them");
         System.out.println("  -H                   If this option is present, TombolaCards prints this help and exit. No other options are considered.");
         System.out.println("  -I                   Enter the interactive mode!. nSeries is set by default to: " + envMap.get("desiredSeries") + " series, " + ((Integer) envMap.get("desiredSeries")) * 6 + " cards");
         System.out.println("  -J=[*ON | OFF]       Enable or disable the use of Jolly numbers (default: ON)");
@@ -639,12 +922,19 @@ public class TombolaCards {
         System.out.println("  -Q=[*ON | OFF]       Enable or disable the control to avoid entirely empty card columns  (default: ON)");
         System.out.println("  -R=<file_name>       Read the series from the specified file_name before start the series generation");
         System.out.println("                        Use this options to continue a previous work and/or add other series to a preexisting series file");
+        System.out.println("  -RC=<file_name>      Resume an interrupted series generation from the specified checkpoint file");
+        System.out.println("                        Generation parameters are read from the checkpoint file, new checkpoints are appended to it");
         System.out.println("  -S=random_seed       Let the  user to specify the seed for the pseudorandom number generator used to generate the cards");
         System.out.println("                        Using the same seed (and algorithm, etc.) let you rigenerate the same cards.");
         System.out.println("  -T=<file_name>       Specifies a log file where trace detailed information about the series generation (default: "+envMap.get("traceLogFileName")+")");
         System.out.println("  -U                   Use the Unattended mode, that is no interaction with the user are required");
         System.out.println("  -V                   Use verbose mode, print to the screen more detailed information during series creation");
         System.out.println("  -W                   Overwrite the specified output file if it already exists");
+        System.out.println("  -WK=<host:port,...>  Use the TombolaCards workers listening on the specified hosts and ports (implies -E=DISTRIBUTED)");
+        System.out.println("                        A worker listed more than once is used with more connections, i.e. more of its cores");
+        System.out.println("  -WL=<n>              Launch n local worker processes, ended together with TombolaCards (implies -E=DISTRIBUTED)");
+        System.out.println("  -WS=[address:]<port> Run TombolaCards as a worker listening on the specified port. No other options are considered");
+        System.out.println("                        Workers have no authentication: they listen on the loopback address unless an address is given");
         // System.out.println("  -X                If present, extendended statistics information saved in the output file.");
         System.out.println("\nFor further information, please, take a look at http://pages.github.io/tombolaStudio/TombolaCards");
     }
@@ -18,8 +18,11 @@
  */
 package harrygpotter.tombola.tombolacards.interactive;
 
+import harrygpotter.tombola.tombolalib.TCardArchive;
+import harrygpotter.tombola.tombolalib.TDistributedSetFactory;
 import harrygpotter.tombola.tombolalib.TMakeSix;
 import harrygpotter.tombola.tombolalib.TSeriesList;
+import harrygpotter.tombola.tombolalib.TSetFactoryCheckpoint;
 import harrygpotter.tombola.tombolalib.TTombolaRuntimeException;
 import harrygpotter.tombola.tombolalib.TUtils;
 import java.util.StringTokenizer;
@@ -58,7 +61,23 @@ public class TTCommandRun extends TTAbstractCommand {
             isf = TUtils.getSetFactoryByType((String) this.envMap.get("method"));
             internals.put("setFactory", isf);
             logger.info("Series Set Factory just created [" + isf.getClass().getSimpleName() + "]");
+            if (isf instanceof TDistributedSetFactory) {
+                if (this.envMap.get("workers") == null) {
+                    internals.put("setFactory", null);
+                    sResult = "<ERROR!> DISTRIBUTED method needs workers. Restart TombolaCards using -WK or -WL options to set them.";
+                    return -1;
+                }
+                ((TDistributedSetFactory) isf).addWorkers((String) this.envMap.get("workers"));
+            }
+            TSetFactoryCheckpoint checkpoint = (TSetFactoryCheckpoint) internals.remove("checkpoint");
+            if (checkpoint != null) {
+                // TombolaCards has been launched to resume an interrupted process.
+                isf.resumeFromCheckpoint(checkpoint);
+                logger.info("Series generation resumed from checkpoint file [" + checkpoint.getFileName() + "]");
+            }
         }
+        isf.setCheckpointFile((String) this.envMap.get("checkpointFile"), (long) this.envMap.get("checkpointInterval"));
+        isf.setCardArchive((TCardArchive) this.internals.get("cardArchive"));
         isf.setSeriesList((TSeriesList) this.internals.get("seriesList"));
         isf.setDesiredSeries((int) this.envMap.get("desiredSeries"));
         isf.setMaxEqualPerCard((int) this.envMap.get("maxepc"));
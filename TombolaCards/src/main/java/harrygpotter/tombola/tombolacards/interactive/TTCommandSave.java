@@ -18,9 +18,11 @@
  */
 package harrygpotter.tombola.tombolacards.interactive;
 
+import harrygpotter.tombola.tombolalib.TCardArchive;
 import harrygpotter.tombola.tombolalib.TCardFormat;
 import harrygpotter.tombola.tombolalib.TFileFormatter;
 import harrygpotter.tombola.tombolalib.TSeriesList;
+import harrygpotter.tombola.tombolalib.TTombolaRuntimeException;
 import java.io.IOException;
 import java.util.StringTokenizer;
 import harrygpotter.tombola.tombolalib.ITSetFactory;
@@ -45,7 +47,8 @@ public class TTCommandSave extends TTAbstractCommand {
      *
      * @return 0 is no errors occurr and cards are saved in file, -1 if there are
      *         no cards in memory to store, -2 if the card generation process is still
-     *         running, -3 if the chosen card format is unreconized or unsupported.
+     *         running, -3 if the chosen card format is unreconized or unsupported,
+     *         -4 if cards already issued have been found in the card archive.
      */    
     @Override
     public int execute(StringTokenizer st) {
@@ -86,6 +89,7 @@ public class TTCommandSave extends TTAbstractCommand {
         
         echo(String.format("Going to save %d series (%d cards) on file %s using %s format.%n", tsl.size(), tsl.size() * 6, fileName, cardFormat.name()));
         TFileFormatter tff = new TFileFormatter(cardFormat);
+        tff.setCardArchive((TCardArchive) internals.get("cardArchive"), (TCardArchive.TDuplicatePolicy) envMap.get("duplicatePolicy"));
         try {
             
             tsl.compareByCard();
@@ -99,6 +103,9 @@ public class TTCommandSave extends TTAbstractCommand {
             internals.put("unsavedWork", false);
         } catch (IOException ex) {
             echo("<ERROR!> " + ex.getMessage());
+        } catch (TTombolaRuntimeException trex) {
+            sResult = trex.getMessage();
+            return -4;
         }
         return 0;
     }
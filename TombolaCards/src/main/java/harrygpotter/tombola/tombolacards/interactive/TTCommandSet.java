@@ -19,6 +19,7 @@
 package harrygpotter.tombola.tombolacards.interactive;
 
 import harrygpotter.tombola.tombolalib.TCardFormat;
+import harrygpotter.tombola.tombolalib.TDistributedSetFactory;
 import harrygpotter.tombola.tombolalib.TSeriesList;
 import harrygpotter.tombola.tombolalib.TUtils;
 import java.util.Iterator;
@@ -203,6 +204,9 @@ public class TTCommandSet extends TTAbstractCommand {
                         } else {
                             if (isf != null) {
                                 isf = TUtils.getSetFactoryByType((String)envMap.get("method"));
+                                if (isf instanceof TDistributedSetFactory && envMap.get("workers") != null) {
+                                    ((TDistributedSetFactory) isf).addWorkers((String) envMap.get("workers"));
+                                }
                                 this.internals.put("setFactory", isf);
                                 ITLogger logger = (ITLogger) internals.get("logger");
                                 logger.info("Series Set Factory just created [" + isf.getClass().getSimpleName()+"]");                                
@@ -241,6 +245,28 @@ public class TTCommandSet extends TTAbstractCommand {
                     this.envMap.put("fileOverwrite", Boolean.valueOf(sNewValue));
                     sResult = "<OK!> fileOverwrite set to " + this.envMap.get("fileOverwrite");
                     break;
+                case "CHECKPOINT":
+                case "CHECKPOINTFILE":
+                    if (sNewValue.trim().equalsIgnoreCase("OFF")) {
+                        this.envMap.put("checkpointFile", null);
+                    } else {
+                        this.envMap.put("checkpointFile", sNewValue.trim());
+                    }
+                    sResult = "<OK!> checkpointFile set to " + this.envMap.get("checkpointFile");
+                    break;
+                case "CHECKPOINTINTERVAL":
+                    try {
+                        lTemp = Long.parseLong(sNewValue);
+                        if (lTemp < 0) {
+                            sResult = "<ERROR> Checkpoint interval cannot be negative.";
+                            return -5;
+                        }
+                        this.envMap.put("checkpointInterval", lTemp);
+                        sResult = String.format("<OK!> checkpointInterval set to %,d milliseconds (%s).", lTemp, TUtils.prettyMilliseconds(lTemp));
+                    } catch (NumberFormatException nfe) {
+                        sResult = "<ERROR!> '"+ sNewValue +"' NOT recognized as a valid number for checkpointInterval. Current value NOT changed.";
+                    }
+                    break;
                 case "LOG":
                 case "TRACELOGFILENAME":
                     this.envMap.put("traceLogFileName", sNewValue.trim());
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolacards.interactive;
+
+import harrygpotter.tombola.tombolalib.TCard;
+import harrygpotter.tombola.tombolalib.TCardList;
+import harrygpotter.tombola.tombolalib.TCardSimilarityIndex;
+import harrygpotter.tombola.tombolalib.TSeriesList;
+import harrygpotter.tombola.tombolalib.TTombolaRuntimeException;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * This class, used when TombolaCards is in interactive mode, implements the
+ * "SIMILAR" command allowing the user to find the cards in memory sharing many
+ * numbers with a given card or with a row of it, or all the couples of "twin"
+ * cards.
+ *
+ * @author Harry G. Potter (harry.g.potter@gmail.com)
+ * @version 1.1
+ * @since 1.8
+ */
+public class TTCommandSimilar extends TTAbstractCommand {
+
+    /**
+     * Execute the SIMILAR command. Here follow the supported sintax:<br>
+     * SIMILAR &lt;label&gt; | C&lt;nCard&gt; [k]<br>
+     * SIMILAR &lt;label&gt; | C&lt;nCard&gt; ROW &lt;nRow&gt; [k]<br>
+     * SIMILAR ALL [k]<br>
+     * If k is not specified, current maxepc (or maxepr, for rows) value is used.
+     *
+     * @param st tokenizer containing the remaining part of the command line,
+     * enabling the retrieval of optional command parameters.
+     *
+     * @return 0 if the search has been executed, -1 if there are no cards in
+     * memory, -2 if parameters are missing or wrong, -3 if the card has not
+     * been found.
+     */
+    @Override
+    public int execute(StringTokenizer st) {
+        String[] params = parseParameter(st);
+        TSeriesList tsl = (TSeriesList) internals.get("seriesList");
+        if (tsl == null || tsl.size() < 1) {
+            sResult = "<ERROR> There are no cards in memory to search.";
+            return -1;
+        }
+        if (params.length == 0) {
+            sResult = "<ERROR> You should indicate the card to compare, or ALL.\n        Type HELP SIMILAR to get more information.";
+            return -2;
+        }
+        TCardList cards = new TCardList(tsl);
+        TCardSimilarityIndex index = new TCardSimilarityIndex(cards);
+        try {
+            if (params[0].equalsIgnoreCase("ALL")) {
+                int k = (params.length > 1 ? Integer.parseInt(params[1]) : (int) envMap.get("maxepc"));
+                List<TCard[]> couples = index.findSimilarCouples(k);
+                for (TCard[] couple : couples) {
+                    System.out.printf("   [%s] - [%s]: %2d equal numbers%n", couple[0].getLabel(), couple[1].getLabel(),
+                            couple[0].getFingerprint().countEqualNumbers(couple[1].getFingerprint()));
+                }
+                sResult = String.format("Found %d couples of cards sharing at least %d numbers out of %d cards.", couples.size(), k, index.size());
+                return 0;
+            }
+            TCard target = findCard(cards, params[0]);
+            if (target == null) {
+                sResult = "<ERROR> Card [" + params[0] + "] not found in memory.";
+                return -3;
+            }
+            if (params.length > 2 && params[1].equalsIgnoreCase("ROW")) {
+                int row = Integer.parseInt(params[2]);
+                int k = (params.length > 3 ? Integer.parseInt(params[3]) : (int) envMap.get("maxepr"));
+                List<TCard> similar = index.findSimilarRows(target, row, k);
+                for (TCard c : similar) {
+                    System.out.printf("   [%s]%n", c.getLabel());
+                }
+                sResult = String.format("Found %d cards with a row sharing at least %d numbers with row %d of card [%s].", similar.size(), k, row, target.getLabel());
+                return 0;
+            }
+            int k = (params.length > 1 ? Integer.parseInt(params[1]) : (int) envMap.get("maxepc"));
+            List<TCard> similar = index.findSimilarCards(target, k);
+            for (TCard c : similar) {
+                System.out.printf("   [%s]: %2d equal numbers%n", c.getLabel(), c.getFingerprint().countEqualNumbers(target.getFingerprint()));
+            }
+            sResult = String.format("Found %d cards sharing at least %d numbers with card [%s].", similar.size(), k, target.getLabel());
+        } catch (NumberFormatException nfe) {
+            sResult = "<ERROR> Row index and minimum amount of equal numbers must be integer numbers.";
+            return -2;
+        } catch (TTombolaRuntimeException trex) {
+            sResult = trex.getMessage();
+            return -2;
+        }
+        return 0;
+    }
+
+    // A card can be indicated by its label or, just like SHOW command does, by its position.
+    private TCard findCard(TCardList cards, String param) {
+        TCard card = cards.getByLabel(param);
+        if (card == null && param.length() > 1 && (param.charAt(0) == 'C' || param.charAt(0) == 'c')) {
+            try {
+                int i = Integer.parseInt(param.substring(1));
+                if (i >= 0 && i < cards.size()) {
+                    card = cards.get(i);
+                }
+            } catch (NumberFormatException nfe) {
+                // Not a card position, so the card does not exist.
+            }
+        }
+        return card;
+    }
+}
@@ -18,22 +18,72 @@
  */
 package harrygpotter.tombola.tombolacards.interactive;
 
+import harrygpotter.tombola.tombolalib.TSeriesList;
+import harrygpotter.tombola.tombolalib.TSeriesListAnalysis;
+import java.io.IOException;
 import java.util.StringTokenizer;
 
 /**
- * This class, used when TombolaCards is in interactive mode, implements the "HELP" 
- * command providing the user a short description for all available interactive commands.
- * 
+ * This class, used when TombolaCards is in interactive mode, implements the
+ * "STATS" command, printing (or saving on a file) the full quality analysis of
+ * the series of cards in memory.
+ *
  * @author Harry G. Potter (harry.g.potter@gmail.com)
  * @version 1.1
  * @since 1.8
+ * @see TSeriesListAnalysis
  */
 public class TTCommandStats extends TTAbstractCommand {
-   // Currently just a placeholder to remember me what I have to do for next version.
-   // TODO(1.2)
-    
+
+    private static final int DEFAULT_WORST_PAIRS = 10;
+
+    /**
+     * Execute the STATS command. Here follow the supported sintax:<br>
+     * STATS [k] [filename]<br>
+     * where k is the amount of worst couples of cards to report (default 10)
+     * and filename, if present, is the file where the report is saved instead
+     * of being printed on the screen.
+     *
+     * @param st tokenizer containing the remaining part of the command line,
+     * enabling the retrieval of optional command parameters.
+     *
+     * @return 0 if the analysis has been executed, -1 if there are no cards in
+     * memory, -2 if parameters are wrong, -3 if the report cannot be saved.
+     */
     @Override
     public int execute(StringTokenizer st) {
-        return -1;
+        String[] params = parseParameter(st);
+        TSeriesList tsl = (TSeriesList) internals.get("seriesList");
+        if (tsl == null || tsl.size() < 1) {
+            sResult = "<ERROR> There are no cards in memory to analyze.";
+            return -1;
+        }
+        int k = DEFAULT_WORST_PAIRS;
+        String fileName = null;
+        int p = 0;
+        if (p < params.length && params[p].matches("\\d+")) {
+            k = Integer.parseInt(params[p++]);
+        }
+        if (p < params.length) {
+            fileName = params[p++];
+        }
+        if (p < params.length) {
+            sResult = "<ERROR> Too many parameters.\n        Type HELP STATS to get more information.";
+            return -2;
+        }
+        TSeriesListAnalysis analysis = tsl.seriesListAnalysis(k);
+        if (fileName == null) {
+            analysis.printReport(System.out);
+            sResult = String.format("Analysis of %d cards completed.", analysis.getCardCount());
+            return 0;
+        }
+        try {
+            analysis.writeReport(fileName);
+        } catch (IOException ioex) {
+            sResult = "<ERROR> Cannot save the report on [" + fileName + "]: " + ioex.getMessage();
+            return -3;
+        }
+        sResult = String.format("Analysis of %d cards saved on [%s].", analysis.getCardCount(), fileName);
+        return 0;
     }
 }
@@ -1,28 +1,81 @@
 /*
- * To change this license header, choose License Headers in Project Properties.
- * To change this template file, choose Tools | Templates
- * and open the template in the editor.
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 package harrygpotter.tombola.tombolalib;
 
 /**
+ * Interface implemented by the <i>fun figures</i>: curious facts about a game,
+ * or about all the games of an event, that can be announced to the players,
+ * such as a number that nobody has on their cards or a long streak of numbers
+ * from the same decade.&nbsp;Figures are evaluated by a
+ * {@linkplain TFunFigureEngine} after each extraction, reading the aggregates it
+ * maintains incrementally.
  *
- * @author Harry G. Potter (harry[.]g[.]potter[@]gmail[.]com)
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TFunFigureEngine
  */
 public interface ITFunFigure {
 
+    /**
+     * The scope of a figure: a single game, the event made of many games, or
+     * the whole community of players.
+     */
     public enum TFigureCategory {
         GAME, EVENT, COMMUNITY
     }
 
+    /**
+     * Return the identifier of the figure, unique within an engine.
+     *
+     * @return the identifier of the figure.
+     */
     String getID();
 
+    /**
+     * Return the message announcing the figure, as of its last evaluation.
+     *
+     * @return the message announcing the figure, an empty string if nothing
+     * was worth announcing.
+     */
     String getMessage();
 
+    /**
+     * Return the scope of the figure.
+     *
+     * @return the scope of the figure.
+     */
     TFigureCategory getCategory();
 
     // int getLevel();
+    /**
+     * Return the values the message is made of, as of the last evaluation.
+     *
+     * @return the values of the figure.
+     */
     Object[] getValues();
 
+    /**
+     * Evaluate the figure against the current state of the game.
+     *
+     * @return the level of interest of the figure, 0 if there is nothing worth
+     * announcing right now.
+     */
     int evaluate();
-}
+}           // End Of File - Rel.(1.1)
@@ -1,26 +1,92 @@
 /*
- * To change this license header, choose License Headers in Project Properties.
- * To change this template file, choose Tools | Templates
- * and open the template in the editor.
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 package harrygpotter.tombola.tombolalib;
 
 /**
- * TODO(2.0) I'm working here
+ * Interface implemented by the objects that want to follow a
+ * {@linkplain TGame}: displays, statistics, fun figures and so on.&nbsp;Events
+ * are published by the game on its {@linkplain TGameEventBus} and delivered to
+ * each observer by the bus executor, never by the thread driving the game, so
+ * a slow observer cannot delay the extractions.&nbsp;Events are delivered to an
+ * observer one at a time and in order but, if it falls behind, older events
+ * are skipped and it receives the most recent one: gaps in
+ * {@linkplain TGameEvent#getSequence()} tell how many events have been
+ * coalesced, while the extracted numbers carried by each event are always
+ * complete.<br>
+ * Observers must not change the game, and should read its state only through
+ * the events: when an event is delivered the game may have already moved on.
  *
- * @author Harry G. Potter (harry[.]g[.]potter[@]gmail[.]com)
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TGame#addObserver(ITGameObserver)
+ * @see TGameEventBus
  */
 public interface ITGameObserver {
 
+    /**
+     * Called, by the thread adding the observer, when the observer is added to
+     * a game.
+     *
+     * @param game the game that is going to be observed.
+     */
     void startGameObservation(TGame game);
 
-    void beforeStart();
+    /**
+     * Called when the first number of the game is extracted, before the cards
+     * are checked.
+     *
+     * @param event the {@linkplain TGameEvent.TEventType#STARTED} event.
+     */
+    void beforeStart(TGameEvent event);
 
-    void afterEnd();
+    /**
+     * Called after the game is over, that is when the last award has been
+     * assigned.
+     *
+     * @param event the {@linkplain TGameEvent.TEventType#ENDED} event.
+     */
+    void afterEnd(TGameEvent event);
 
-    void postExtractionEvaluation();
+    /**
+     * Called after a number has been extracted and checked on all the cards,
+     * or after the last extraction has been undone.
+     *
+     * @param event the {@linkplain TGameEvent.TEventType#EXTRACTED} or
+     * {@linkplain TGameEvent.TEventType#UNDONE} event.
+     */
+    void postExtractionEvaluation(TGameEvent event);
 
-    void postAssignmentEvaluation();
+    /**
+     * Called after one or more awards have been assigned, either directly or
+     * resolving a contention.
+     *
+     * @param event the {@linkplain TGameEvent.TEventType#ASSIGNED} event,
+     * carrying the awards won.
+     */
+    void postAssignmentEvaluation(TGameEvent event);
 
+    /**
+     * Called, by the thread removing the observer, when the observer is removed
+     * from the game.&nbsp;No other event is delivered after this call returns.
+     *
+     * @param game the game that was observed.
+     */
     void stopGameObservation(TGame game);
-}
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.List;
+
+/**
+ * Interface implemented by the objects that want to follow the games hosted
+ * by a {@linkplain TGameRoom}.&nbsp;The methods are called by the thread that
+ * drives the room while it holds the room lock, so they must return quickly:
+ * any slow work (sending data on the network, writing files) must be handed
+ * over to other threads.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TGameRoom
+ * @see TGameHost
+ */
+public interface ITRoomListener {
+
+    /**
+     * Called after a number has been extracted in the room and all the awards
+     * reached by the cards have been assigned.
+     *
+     * @param room the room where the number has been extracted.
+     * @param number the extracted number.
+     * @param count the extraction count, 1 for the first number of the game.
+     * @param wonAwards the awards won with this extraction, an empty list if
+     * there are no winners.
+     */
+    void numberExtracted(TGameRoom room, int number, int count, List<TAward> wonAwards);
+
+    /**
+     * Called each time the status of the room changes.
+     *
+     * @param room the room whose status has changed.
+     * @param status the new status of the room.
+     */
+    void statusChanged(TGameRoom room, TGameRoom.TRoomStatus status);
+}           // End Of File - Rel.(1.1)
@@ -280,6 +280,58 @@ public interface ITSetFactory extends Runnable {
      */
     ITLogger getLogger();
 
+    /**
+     * Set the file where the factory will periodically save the progress of
+     * the generation process, so that it can be resumed if interrupted.&nbsp;It
+     * cannot be changed while the generation process is running.&nbsp;Pass a
+     * null file name to disable checkpoints.
+     *
+     * @param fileName the checkpoint file name, or null to disable checkpoints
+     * @param intervalMillisecs the minimum interval, in milliseconds, between
+     * two checkpoints written while the process is running.&nbsp;A checkpoint
+     * is always written when the process is stopped or completed.
+     * @see TSetFactoryCheckpoint
+     */
+    void setCheckpointFile(String fileName, long intervalMillisecs);
+
+    /**
+     * @return the name of the checkpoint file currently used, or null if
+     * checkpoints are disabled.
+     */
+    String getCheckpointFile();
+
+    /**
+     * Prepare the factory to continue a generation process previously
+     * interrupted, taking series list, quality parameters, counters and the
+     * exact state of the series builder from the checkpoint.&nbsp;It replaces
+     * the TMakeSix and TSeriesList objects currently set, and can be invoked
+     * only during the INITIALIZING or READY phase.
+     *
+     * @param checkpoint the checkpoint read with
+     * {@linkplain TSetFactoryCheckpoint#readCheckpointFile(String)}
+     */
+    void resumeFromCheckpoint(TSetFactoryCheckpoint checkpoint);
+
+    /**
+     * Set the archive of the cards already issued.&nbsp;Series containing
+     * even a single card already present in the archive are discarded and
+     * regenerated, so that the new set does not repeat cards sold in the
+     * past.&nbsp;The factory only reads the archive: cards are added to it
+     * when the set is saved (see
+     * {@linkplain TFileFormatter#setCardArchive(TCardArchive, TCardArchive.TDuplicatePolicy)}).
+     *
+     * @param archive the archive of issued cards, or null to disable the
+     * check
+     * @see TCardArchive
+     */
+    void setCardArchive(TCardArchive archive);
+
+    /**
+     * @return the archive of issued cards currently used, or null if none has
+     * been set.
+     */
+    TCardArchive getCardArchive();
+
     /**
      * Invoke this method to start the generation process after you set all
      * parameters/components needed (setDesiredSeries, setSeriesBuilder,
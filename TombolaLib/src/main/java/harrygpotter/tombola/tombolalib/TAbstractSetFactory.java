@@ -18,6 +18,8 @@
  */
 package harrygpotter.tombola.tombolalib;
 
+import java.io.IOException;
+
 /**
  * Abstract class providing standard, basic implementation of <i>common</i>
  * methods for the {@link ITSetFactory} interface. Who wants to provide a new heuristic to generate set
@@ -52,6 +54,23 @@ public abstract class TAbstractSetFactory implements ITSetFactory {
     protected long ts_startExecution, ts_EndExecution, tp_Elapsed;
     protected long iterationCounter;
 
+    protected TSetFactoryCheckpoint checkpoint = null;
+    protected long checkpointInterval = TSetFactoryCheckpoint.DEFAULT_CHECKPOINT_INTERVAL;
+    protected long ts_lastCheckpoint;
+    protected long resumedIterations = 0;
+    protected long resumedElapsed = 0;
+    protected TCardArchive cardArchive = null;
+
+    // Counters published by TSetFactoryMetrics. They are plain fields, updated by the
+    // generation thread(s) and read without synchronization: JMX clients may see slightly stale values.
+    protected long candidateCounter;
+    protected long rejectedByEpc;
+    protected long rejectedByEpr;
+    protected long rejectedAsIssued;
+    protected long ts_runStart;
+    private long ts_lastAcceptedNanos;
+    private final TLatencyHistogram acceptanceLatency = new TLatencyHistogram();
+
     /**
      * Default constructor for the class.&nbsp;It leaves the object in the
      * "INITIALIZING" status, because, even if default values are provided for
@@ -97,6 +116,89 @@ public abstract class TAbstractSetFactory implements ITSetFactory {
         return this.logger;
     }
 
+    /**
+     * Set the file where the progress of the generation process is
+     * periodically saved.&nbsp;It cannot be changed while the generation
+     * process is running.
+     *
+     * @param fileName the checkpoint file name, or null to disable checkpoints
+     * @param intervalMillisecs the minimum interval, in milliseconds, between
+     * two checkpoints written while the process is running.
+     */
+    @Override
+    public void setCheckpointFile(String fileName, long intervalMillisecs) {
+        if (status == TStatus.RUNNING || status == TStatus.STOPPING) {
+            throw new TTombolaRuntimeException("Checkpoint file cannot be set when in the " + status + " status!");
+        }
+        if (intervalMillisecs < 0) {
+            throw new TTombolaRuntimeException("<ERROR!> A negative checkpoint interval does not make sense.");
+        }
+        this.checkpoint = (fileName == null ? null : new TSetFactoryCheckpoint(fileName));
+        this.checkpointInterval = intervalMillisecs;
+    }
+
+    /**
+     * @return the name of the checkpoint file currently used, or null if
+     * checkpoints are disabled.
+     */
+    @Override
+    public String getCheckpointFile() {
+        return (this.checkpoint == null ? null : this.checkpoint.getFileName());
+    }
+
+    /**
+     * Prepare the factory to continue an interrupted generation process.&nbsp;
+     * Series list, series builder, max equal numbers per card and per row,
+     * desired number of series and process counters are taken from the
+     * checkpoint.&nbsp;The desired number of series can still be changed
+     * afterwards.
+     *
+     * @param checkpoint the checkpoint read with
+     * {@linkplain TSetFactoryCheckpoint#readCheckpointFile(String)}
+     */
+    @Override
+    public void resumeFromCheckpoint(TSetFactoryCheckpoint checkpoint) {
+        if (status != TStatus.INITIALIZING && status != TStatus.READY) {
+            throw new TTombolaRuntimeException("A generation process cannot be resumed when in the " + status + " status!");
+        }
+        if (checkpoint == null || checkpoint.getSeriesList() == null) {
+            throw new TTombolaRuntimeException("<ERROR!> The checkpoint does not contain a valid generation process state.");
+        }
+        this.seriesBuilder = checkpoint.prepareSeriesBuilder();
+        this.seriesList = checkpoint.getSeriesList();
+        this.maxepc = checkpoint.getMaxEqualPerCard();
+        this.maxepr = checkpoint.getMaxEqualPerRow();
+        this.desiredSeries = Math.max(checkpoint.getDesiredSeries(), 1);
+        this.resumedIterations = checkpoint.getIterations();
+        this.resumedElapsed = checkpoint.getElapsedMillisecs();
+        checkInitialization();
+    }
+
+    /**
+     * Set the archive of the cards already issued, used to discard series
+     * containing old cards.&nbsp;It cannot be changed while the generation
+     * process is running.
+     *
+     * @param archive the archive of issued cards, or null to disable the
+     * check
+     */
+    @Override
+    public void setCardArchive(TCardArchive archive) {
+        if (status == TStatus.RUNNING || status == TStatus.STOPPING) {
+            throw new TTombolaRuntimeException("Card archive cannot be set when in the " + status + " status!");
+        }
+        this.cardArchive = archive;
+    }
+
+    /**
+     * @return the archive of issued cards currently used, or null if none has
+     * been set.
+     */
+    @Override
+    public TCardArchive getCardArchive() {
+        return this.cardArchive;
+    }
+
     /**
      * Set the number of series that the heuristic will try to
      * generate.&nbsp;This value must be set in the INITIALIZING status to
@@ -505,20 +607,175 @@ public abstract class TAbstractSetFactory implements ITSetFactory {
         // Controlli da fare sempre all'inizio delle parti più interne dei cicli
         if (status == TStatus.STOPPING) {
             status = TStatus.STOPPED;
+            ts_EndExecution = System.currentTimeMillis();
             logger.info("Card Generation process has been stopped, as requested.");
             return -1;
         }
         if (this.limitCount > 0 && this.iterationCounter > this.limitCount) {
             status = TStatus.STOPPED;
+            ts_EndExecution = System.currentTimeMillis();
             logger.error("Process stopped becouse loop iteration limit has been reached");
             return -2;
         }
         if (this.limitMilliSecs > 0 && this.tp_Elapsed > this.limitMilliSecs) {
             status = TStatus.STOPPED;
+            ts_EndExecution = System.currentTimeMillis();
             logger.error("Process stopped becouse loop iteration limit has been reached");
             return -3; // UHM... questi return sono da pensare bene...
         }
         return 0;
     }
+
+    /**
+     * Protected helper designed to be invoked as one of the first instructions
+     * of the run() method.&nbsp;It initializes the execution timestamp and the
+     * iteration counter (continuing the counts of a resumed process, if any)
+     * and, when a checkpoint file has been set, opens a new checkpoint session
+     * immediately saving the initial state of the process.
+     */
+    protected void prepareExecution() {
+        this.ts_startExecution = System.currentTimeMillis() - this.resumedElapsed;
+        this.iterationCounter = this.resumedIterations;
+        this.tp_Elapsed = this.resumedElapsed;
+        this.resumedElapsed = 0;
+        this.resumedIterations = 0;
+        this.candidateCounter = 0;
+        this.rejectedByEpc = 0;
+        this.rejectedByEpr = 0;
+        this.rejectedAsIssued = 0;
+        this.acceptanceLatency.reset();
+        this.ts_runStart = System.currentTimeMillis();
+        this.ts_lastAcceptedNanos = System.nanoTime();
+        if (this.checkpoint != null) {
+            this.checkpoint.startSession(this.getMethodName(), this.seriesBuilder);
+            this.saveCheckpoint(true);
+        }
+    }
+
+    /**
+     * Protected helper designed to be invoked within the run() method soon
+     * after a new series has been added to the series list.&nbsp;It captures
+     * the current state of the process and, if the checkpoint interval has
+     * elapsed (or if forced), appends it to the checkpoint file.&nbsp;It does
+     * nothing if no checkpoint file has been set.
+     *
+     * @param force true to write the checkpoint regardless of the interval.
+     */
+    protected void saveCheckpoint(boolean force) {
+        if (this.checkpoint == null) {
+            return;
+        }
+        this.checkpoint.capture(seriesList, seriesBuilder, iterationCounter, tp_Elapsed, maxepc, maxepr, desiredSeries);
+        long now = System.currentTimeMillis();
+        if (force || now - this.ts_lastCheckpoint >= this.checkpointInterval) {
+            this.writeCheckpoint();
+            this.ts_lastCheckpoint = now;
+        }
+    }
+
+    /**
+     * Protected helper designed to be invoked within the run() method when
+     * the process is stopped or completed (before the series list is sorted).
+     * It writes the last state captured by
+     * {@linkplain TAbstractSetFactory#saveCheckpoint(boolean)}, so that a
+     * resumed process continues exactly from the last accepted series.
+     */
+    protected void flushCheckpoint() {
+        if (this.checkpoint != null) {
+            this.writeCheckpoint();
+            this.ts_lastCheckpoint = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Protected helper designed to be invoked within the run() method before
+     * a candidate series is accepted.
+     *
+     * @param sx the candidate series
+     * @return true if a card archive has been set and it already contains at
+     * least one card of the series, so that the series must be discarded.
+     */
+    protected boolean isAlreadyIssued(TSeries sx) {
+        return this.cardArchive != null && this.cardArchive.containsAny(sx);
+    }
+
+    /**
+     * Protected helper designed to be invoked within the run() method soon
+     * after a new series has been added to the series list.&nbsp;It records
+     * the time spent to find it, published as a latency histogram by
+     * {@link TSetFactoryMetrics}.
+     */
+    protected void seriesAccepted() {
+        long now = System.nanoTime();
+        long searchTime = now - this.ts_lastAcceptedNanos;
+        this.acceptanceLatency.record(searchTime);
+        this.ts_lastAcceptedNanos = now;
+        TFlightEvents.TSeriesAcceptedEvent ev = TFlightEvents.newSeriesAccepted();
+        if (ev != null) {
+            ev.method = this.getMethodName();
+            ev.acceptedSeries = this.seriesList.size();
+            ev.candidates = this.candidateCounter;
+            ev.searchTime = searchTime;
+            ev.maxEqualPerCard = this.maxepc;
+            ev.maxEqualPerRow = this.maxepr;
+            ev.commit();
+        }
+    }
+
+    /**
+     * Helper generating a new candidate series with the series builder,
+     * counting it and, if enabled, emitting the corresponding Flight Recorder
+     * event.
+     *
+     * @return the new candidate series.
+     */
+    TSeries nextCandidate() {   // Only package visibility
+        TFlightEvents.TSeriesCandidateEvent ev = TFlightEvents.beginSeriesCandidate();
+        TSeries sx = new TSeries(this.seriesBuilder.prepareSix());
+        this.candidateCounter++;
+        if (ev != null) {
+            ev.method = this.getMethodName();
+            ev.candidate = this.candidateCounter;
+            ev.commit();
+        }
+        return sx;
+    }
+
+    /**
+     * Helper ending the Flight Recorder event of a candidate screening.
+     *
+     * @param ev the event returned by TFlightEvents.beginSeriesScreening(),
+     * null if it is not enabled.
+     * @param outcome the outcome of the screening.
+     * @param comparedSeries the amount of accepted series compared with the
+     * candidate.
+     */
+    void screeningDone(TFlightEvents.TSeriesScreeningEvent ev, String outcome, int comparedSeries) {  // Only package visibility
+        if (ev != null) {
+            ev.method = this.getMethodName();
+            ev.outcome = outcome;
+            ev.comparedSeries = comparedSeries;
+            ev.commit();
+        }
+    }
+
+    /**
+     * Return the histogram of the time spent to find each accepted series
+     * during the current (or last) execution of the generation process.
+     *
+     * @return the acceptance latency histogram.
+     */
+    TLatencyHistogram getAcceptanceLatency() {   // Only package visibility
+        return this.acceptanceLatency;
+    }
+
+    private void writeCheckpoint() {
+        try {
+            this.checkpoint.write();
+        } catch (IOException ioe) {
+            // An unwritable checkpoint must not stop the generation process.
+            logger.error("Impossible to write the checkpoint file " + this.checkpoint.getFileName() + ": " + ioe.getMessage());
+        }
+    }
     //TODO(2.0) Review all literals, check what is error and what is warning, etc...
 }           // End Of File - Rel.(1.1)
@@ -21,6 +21,7 @@ package harrygpotter.tombola.tombolalib;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -35,6 +36,14 @@ import java.util.List;
  */
 public class TAwardList extends ArrayList<TAward> implements Serializable {
 
+    // Dispatch table used while numbers are extracted: for each score a card can reach
+    //  (see TCard#checkExtraction) it holds the index of the first not assigned award the
+    //  score lets the card contend, -1 if there is none. It depends only on which awards
+    //  are assigned, so it is rebuilt just when the list changes or an award changes status.
+    private transient int[] dispatchTable = null;
+    private transient int dispatchModCount = -1;
+    private transient int unassignedCount = 0;
+
     /**
      * Add another award to the award list.&nbsp;It is just the standard
      * <code>add</code> method for a List object, overwritten in order to
@@ -68,6 +77,75 @@ public class TAwardList extends ArrayList<TAward> implements Serializable {
         return avla;
     }
 
+    /**
+     * Return the first award not already assigned that a card can contend
+     * reaching the score passed as input parameter, that is the first one whose
+     * category is equal to the score, or to the score minus 5 or 10.&nbsp;Unlike
+     * {@link TAwardList#getAvailableAwards()}, this method does not create any
+     * object: it just looks up a table prepared in advance, so it can be safely
+     * used for each card checked during a number extraction.
+     *
+     * @param score the score reached by a card, as returned by
+     * {@link TCard#checkExtraction(int)}.
+     *
+     * @return the first award that can be contended with the given score, null
+     * if there is none.
+     *
+     * @see TAwardList#refreshDispatchTable()
+     */
+    public TAward getAwardByScore(int score) {
+        int[] table = currentDispatchTable();
+        if (score < 0 || score >= table.length || table[score] < 0) {
+            return null;
+        }
+        return this.get(table[score]);
+    }
+
+    /**
+     * Return the number of awards not already assigned to a card.&nbsp;As
+     * {@link TAwardList#getAwardByScore(int)} does, this method reads the value
+     * from the dispatch table, without scanning the list.
+     *
+     * @return the number of awards that are still to be won.
+     */
+    public int getUnassignedCount() {
+        currentDispatchTable();
+        return this.unassignedCount;
+    }
+
+    /**
+     * Rebuild the dispatch table used by {@link TAwardList#getAwardByScore(int)}
+     * and {@link TAwardList#getUnassignedCount()}.&nbsp;Changes to the list
+     * itself are detected automatically, but changes to the status of an award
+     * are not: this method must be called each time an award is assigned to a
+     * card or given back.&nbsp;{@link TGame} does it by itself.
+     */
+    public void refreshDispatchTable() {
+        int[] table = new int[TAward.TOMBOLA + 1];
+        Arrays.fill(table, -1);
+        int unassigned = 0;
+        for (int i = this.size() - 1; i >= 0; i--) {
+            // Going backward, the first award of the list wins the table slot.
+            TAward aw = this.get(i);
+            if (!aw.isAssigned()) {
+                unassigned++;
+                for (int score = aw.getCategory(); score < table.length; score += 5) {
+                    table[score] = i;
+                }
+            }
+        }
+        this.unassignedCount = unassigned;
+        this.dispatchTable = table;
+        this.dispatchModCount = this.modCount;
+    }
+
+    private int[] currentDispatchTable() {
+        if (dispatchTable == null || dispatchModCount != this.modCount) {
+            refreshDispatchTable();
+        }
+        return dispatchTable;
+    }
+
     /**
      * Return the list of all awards for which there are cards waiting for an explicit
      * confirmation or deny of their candidature.
@@ -80,6 +80,7 @@ public class TCard implements Serializable {
     private int jollyIndex = -1;
     private String notes;
     private String owner;
+    private transient String checkSum;          // Zero offset checksum, evaluated on first use
 
     private int maxepc = 0;
     private int maxepr = 0;
@@ -452,6 +453,18 @@ public class TCard implements Serializable {
         return -1;
     }
 
+    /**
+     * Return the canonical fingerprint of the card, that is a 128 bits value
+     * depending only on the 15 numbers of the card.&nbsp;Two cards have the
+     * same fingerprint if and only if they contain the same numbers.
+     *
+     * @return the fingerprint of the card
+     * @see TCardArchive
+     */
+    public TCardFingerprint getFingerprint() {
+        return TCardFingerprint.of(this.numbers);
+    }
+
     /**
      * Return a string of notes related to this card if previously set by
      * <code>setNotes()</code>
@@ -590,6 +603,19 @@ public class TCard implements Serializable {
      * <code>"0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ"</code>
      */
     public String evaluateCheckSum(long offset) {
+        if (offset == 0) {
+            // The zero offset checksum is used by labels, formatters and indexes: it is evaluated once.
+            String cached = this.checkSum;
+            if (cached == null) {
+                cached = this.computeCheckSum(0);
+                this.checkSum = cached;
+            }
+            return cached;
+        }
+        return this.computeCheckSum(offset);
+    }
+
+    private String computeCheckSum(long offset) {
         //                 012345678901234567890123456789012345
         String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
         long sum = 0;
@@ -621,6 +647,49 @@ public class TCard implements Serializable {
         this.lastMatched = -1;
     }
 
+    // Only package visibility
+    // Mark at once all the numbers of the card whose bit is set in the extracted numbers mask
+    //  (bit n-1 for number n), as if they had been checked one at a time during the previous
+    //  'checks' extractions of the sacchetto, that gives the order they came out in, so that the
+    //  last score, row and jolly usage are the ones checkExtraction() would have left. Used
+    //  for cards joining a game late: it returns the total score.
+    int checkExtractedMask(long low, long high, int checks, TSacchetto sacchetto) {
+        resetGameStatus();
+        int lastPosition = -1;
+        int lastMoment = -1;
+        for (int i = 0; i < 15; i++) {
+            int n = numbers[i];
+            if ((((n <= 64 ? low : high) >>> (n - 1)) & 1L) != 0) {
+                matched[i] = true;
+                rowScores[i / 5]++;
+                int moment = sacchetto.getExtractionMoment(n);
+                if (moment > lastMoment) {
+                    lastMoment = moment;
+                    lastPosition = i;
+                }
+            }
+        }
+        this.performedChecks = checks;
+        if (checks > 0) {
+            this.lastChecked = sacchetto.getLastExtracted();
+        }
+        if (lastPosition >= 0) {
+            int matchedRow = lastPosition / 5;
+            int result = rowScores[matchedRow];
+            for (int row = 0; row < 3; row++) {
+                if (row != matchedRow && rowScores[row] == 5) {
+                    result += 5;
+                }
+            }
+            this.lastMatchingRow = matchedRow;
+            this.lastMatchingScore = result;
+            this.lastMatched = numbers[lastPosition];
+            // As in checkExtraction(), any later extraction not on the card clears the jolly usage.
+            this.jollyChecked = (result != 15 && lastPosition == jollyIndex && lastMatched == lastChecked);
+        }
+        return getTotalScore();
+    }
+
     /**
      * This is the fundamental method to let check if a card gain an award
      * during a Tombola game. It must be invoked at each number extraction, for
@@ -851,7 +920,8 @@ public class TCard implements Serializable {
      * checked, false otherwise.
      */
     public boolean isMatched(int row, int column) {
-        return this.isMatched(this.getLinearIndex(row, column));
+        int index = this.getLinearIndex(row, column);
+        return (index >= 0 && this.matched[index]);
     }
 
     /**
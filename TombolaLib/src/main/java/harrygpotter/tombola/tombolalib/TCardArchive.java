@@ -0,0 +1,535 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A TCardArchive object keeps track, on a binary file, of the fingerprints of
+ * all the cards ever issued, so that cards already sold or printed in previous
+ * sets are not issued again.&nbsp;Each card is identified by its
+ * {@linkplain TCardFingerprint}, so two cards are considered equal when they
+ * contain the same 15 numbers, regardless of labels, jolly and numbers
+ * disposition.<br>
+ * The archive file is an open addressing hash table (linear probing, load
+ * factor kept under 0.5) of 16 bytes slots, so checking or adding a card costs
+ * a constant number of disk accesses whatever the size of the archive.&nbsp;An
+ * in-memory Bloom filter, rebuilt when the archive is opened, stays in front
+ * of the file: as most of the checked cards are new ones, they are usually
+ * discarded without reading the disk at all.<br>
+ * Cards that are not equal but share many numbers with an issued card (near
+ * duplicates) can be looked for with
+ * {@linkplain TCardArchive#findNearDuplicates(TSeriesList, int)}: unlike the
+ * other checks, it reads the whole archive, so it is meant to be run once on a
+ * whole set of series, before it is issued.<br>
+ * The archive file is locked while open, so it cannot be used by two processes
+ * at the same time.&nbsp;All the methods are synchronized, so the same archive
+ * can be shared by set factories and formatters running on different threads.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TCardFingerprint
+ * @see ITSetFactory#setCardArchive(TCardArchive)
+ * @see TFileFormatter#setCardArchive(TCardArchive, TCardArchive.TDuplicatePolicy)
+ * @since 1.8
+ */
+public class TCardArchive implements Closeable {
+
+    /**
+     * What to do when a card already present in the archive is going to be
+     * issued again.
+     */
+    public enum TDuplicatePolicy {
+        /**
+         * The operation is refused, raising an exception.
+         */
+        REJECT,
+        /**
+         * The operation goes on, but duplicated cards are reported.
+         */
+        FLAG
+    }
+
+    private static final byte[] MAGIC = "TCRDIDX1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 16;
+    private static final long INITIAL_CAPACITY = 1 << 14;
+    private static final int SCAN_BUFFER_SLOTS = 4096;
+    private static final int BLOOM_BITS_PER_SLOT = 16;
+    private static final int BLOOM_HASHES = 7;
+
+    private final String fileName;
+    private FileChannel channel;
+    private FileLock lock;
+    private long capacity;
+    private long count;
+    private long[] bloom;
+    private long bloomMask;
+    private final ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+
+    private TCardArchive(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Open an archive file, creating an empty one if it does not exist
+     * yet.&nbsp;The whole file is read once to rebuild the Bloom filter.
+     *
+     * @param fileName the name of the archive file
+     * @return the opened archive
+     * @throws IOException if the file cannot be opened or it is not a valid
+     * card archive
+     */
+    public static TCardArchive open(String fileName) throws IOException {
+        TCardArchive archive = new TCardArchive(fileName);
+        archive.openChannel(new File(fileName).toPath());
+        return archive;
+    }
+
+    private void openChannel(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lock = channel.tryLock();
+            if (lock == null) {
+                throw new IOException("card archive " + fileName + " is already in use by another process");
+            }
+            if (channel.size() == 0) {
+                capacity = INITIAL_CAPACITY;
+                count = 0;
+                writeHeader(channel, capacity, count);
+                channel.write(ByteBuffer.allocate(1), HEADER_SIZE + capacity * SLOT_SIZE - 1);
+                channel.force(true);
+                bloom = newBloom(capacity);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                readFully(channel, header, 0);
+                byte[] magic = new byte[MAGIC.length];
+                header.get(magic);
+                capacity = header.getLong();
+                if (!Arrays.equals(magic, MAGIC) || Long.bitCount(capacity) != 1
+                        || channel.size() < HEADER_SIZE + capacity * SLOT_SIZE) {
+                    throw new IOException(fileName + " is not a valid card archive");
+                }
+                rebuild();
+            }
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return the name of the archive file.
+     */
+    public String getFileName() {
+        return this.fileName;
+    }
+
+    /**
+     * @return the number of different cards stored in the archive.
+     */
+    public synchronized long size() {
+        return this.count;
+    }
+
+    /**
+     * Check if a card with the given fingerprint has already been issued.
+     *
+     * @param fp the fingerprint of the card
+     * @return true if the card is present in the archive
+     */
+    public synchronized boolean contains(TCardFingerprint fp) {
+        long h = fp.hash64();
+        if (!bloomMayContain(h)) {
+            return false;
+        }
+        try {
+            return probe(fp, h) < 0;
+        } catch (IOException ioe) {
+            throw new TTombolaRuntimeException("<ERROR!> Card archive " + fileName + " cannot be read: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Check if a card has already been issued.
+     *
+     * @param card the card to check
+     * @return true if a card with the same numbers is present in the archive
+     */
+    public boolean contains(TCard card) {
+        return contains(card.getFingerprint());
+    }
+
+    /**
+     * Check if at least one of the six cards of a series has already been
+     * issued.
+     *
+     * @param series the series to check
+     * @return true if at least one card of the series is present in the
+     * archive
+     */
+    public synchronized boolean containsAny(TSeries series) {
+        for (int i = 0; i < 6; i++) {
+            if (contains(series.getCard(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add a card to the archive.
+     *
+     * @param fp the fingerprint of the card
+     * @return true if the card has been added, false if it was already present
+     */
+    public synchronized boolean add(TCardFingerprint fp) {
+        long h = fp.hash64();
+        try {
+            long pos = bloomMayContain(h) ? probe(fp, h) : probe(null, h);
+            if (pos < 0) {
+                return false;
+            }
+            writeSlot(channel, pos, fp);
+            count++;
+            bloomAdd(h);
+            if (count * 2 > capacity) {
+                grow();
+            }
+            return true;
+        } catch (IOException ioe) {
+            throw new TTombolaRuntimeException("<ERROR!> Card archive " + fileName + " cannot be updated: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Add a card to the archive.
+     *
+     * @param card the card to add
+     * @return true if the card has been added, false if it was already present
+     */
+    public boolean add(TCard card) {
+        return add(card.getFingerprint());
+    }
+
+    /**
+     * Add all the cards of a list of series to the archive, then force the
+     * changes to the disk.
+     *
+     * @param seriesList the list of series whose cards have been issued
+     * @return the number of cards actually added (cards already present are
+     * not counted)
+     */
+    public synchronized int addSeriesList(TSeriesList seriesList) {
+        int added = 0;
+        for (TSeries series : seriesList) {
+            for (int i = 0; i < 6; i++) {
+                if (add(series.getCard(i))) {
+                    added++;
+                }
+            }
+        }
+        flush();
+        return added;
+    }
+
+    /**
+     * Look for the cards of a list of series that have already been issued,
+     * or that appear more than once within the list itself.
+     *
+     * @param seriesList the list of series to check
+     * @return the duplicated cards, in list order (empty if none)
+     */
+    public synchronized List<TCard> findDuplicates(TSeriesList seriesList) {
+        List<TCard> duplicates = new ArrayList<>();
+        Set<TCardFingerprint> seen = new HashSet<>();
+        for (TSeries series : seriesList) {
+            for (int i = 0; i < 6; i++) {
+                TCard card = series.getCard(i);
+                TCardFingerprint fp = card.getFingerprint();
+                if (!seen.add(fp) || contains(fp)) {
+                    duplicates.add(card);
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Look for the cards of a list of series sharing at least <i>k</i> numbers
+     * with a card already issued, or with another card of the list
+     * itself.&nbsp;The cards of the list are indexed by a
+     * {@linkplain TCardSimilarityIndex}, then the archive is read sequentially
+     * once, querying the index with each archived card: the cost grows with
+     * the size of the archive times the number of cards of the list divided by
+     * 64, that is a few seconds for millions of archived cards.&nbsp;Exact
+     * duplicates, sharing all their 15 numbers, are returned as well.
+     *
+     * @param seriesList the list of series to check
+     * @param k the minimum amount of equal numbers that makes two cards near
+     * duplicates, in the [1..15] range
+     * @return the near duplicated cards, in list order (empty if none)
+     * @see TCardArchive#findDuplicates(TSeriesList)
+     */
+    public synchronized List<TCard> findNearDuplicates(TSeriesList seriesList, int k) {
+        TCardList cards = new TCardList(seriesList);
+        TCardSimilarityIndex index = new TCardSimilarityIndex(cards);
+        Set<TCard> found = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TCard[] couple : index.findSimilarCouples(k)) {
+            found.add(couple[0]);
+            found.add(couple[1]);
+        }
+        if (count > 0) {
+            for (TCardFingerprint fp : new TSlotScanner(channel, capacity)) {
+                found.addAll(index.findSimilarCards(fp, k));
+            }
+        }
+        List<TCard> nearDuplicates = new ArrayList<>();
+        for (TCard card : cards) {
+            if (found.contains(card)) {
+                nearDuplicates.add(card);
+            }
+        }
+        return nearDuplicates;
+    }
+
+    /**
+     * Force all the changes to the archive file to be written on the disk.
+     */
+    public synchronized void flush() {
+        try {
+            writeHeader(channel, capacity, count);
+            channel.force(false);
+        } catch (IOException ioe) {
+            throw new TTombolaRuntimeException("<ERROR!> Card archive " + fileName + " cannot be updated: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Write pending changes and release the archive file.
+     *
+     * @throws IOException if the file cannot be written or closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            try {
+                writeHeader(channel, capacity, count);
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // Return the slot position holding fp (as -1) or the free slot where it
+    // should be stored. A null fp just looks for the free slot.
+    private long probe(TCardFingerprint fp, long h) throws IOException {
+        long mask = capacity - 1;
+        long i = h & mask;
+        while (true) {
+            long pos = HEADER_SIZE + i * SLOT_SIZE;
+            slot.clear();
+            readFully(channel, slot, pos);
+            long high = slot.getLong();
+            long low = slot.getLong();
+            if (high == 0 && low == 0) {
+                return pos;
+            }
+            if (fp != null && high == fp.getHighBits() && low == fp.getLowBits()) {
+                return -1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    // Double the table: slots are rehashed into a temporary file that then
+    // replaces the archive, so a crash leaves the old archive untouched.
+    private void grow() throws IOException {
+        Path path = new File(fileName).toPath();
+        Path tmp = new File(fileName + ".tmp").toPath();
+        long newCapacity = capacity * 2;
+        try (FileChannel target = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            writeHeader(target, newCapacity, count);
+            target.write(ByteBuffer.allocate(1), HEADER_SIZE + newCapacity * SLOT_SIZE - 1);
+            long mask = newCapacity - 1;
+            ByteBuffer free = ByteBuffer.allocate(SLOT_SIZE);
+            for (TCardFingerprint fp : new TSlotScanner(channel, capacity)) {
+                long i = fp.hash64() & mask;
+                while (true) {
+                    long pos = HEADER_SIZE + i * SLOT_SIZE;
+                    free.clear();
+                    readFully(target, free, pos);
+                    if (free.getLong(0) == 0 && free.getLong(8) == 0) {
+                        writeSlot(target, pos, fp);
+                        break;
+                    }
+                    i = (i + 1) & mask;
+                }
+            }
+            target.force(true);
+        }
+        lock.release();
+        channel.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openChannel(path);
+    }
+
+    // Scan the whole table recounting cards and rebuilding the Bloom filter.
+    // The count in the header is only updated on flush and close, so it is not trusted.
+    private void rebuild() throws IOException {
+        bloom = newBloom(capacity);
+        count = 0;
+        for (TCardFingerprint fp : new TSlotScanner(channel, capacity)) {
+            bloomAdd(fp.hash64());
+            count++;
+        }
+    }
+
+    private long[] newBloom(long slots) {
+        long bits = Math.max(64, slots * BLOOM_BITS_PER_SLOT);
+        bloomMask = bits - 1;
+        return new long[(int) (bits >>> 6)];
+    }
+
+    private void bloomAdd(long h) {
+        long h2 = TCardFingerprint.mix(h) | 1;
+        for (int k = 0; k < BLOOM_HASHES; k++) {
+            long bit = (h + k * h2) & bloomMask;
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private boolean bloomMayContain(long h) {
+        long h2 = TCardFingerprint.mix(h) | 1;
+        for (int k = 0; k < BLOOM_HASHES; k++) {
+            long bit = (h + k * h2) & bloomMask;
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeHeader(FileChannel fc, long capacity, long count) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).putLong(capacity).putLong(count).putLong(0);
+        header.flip();
+        while (header.hasRemaining()) {
+            fc.write(header, HEADER_SIZE - header.remaining());
+        }
+    }
+
+    private static void writeSlot(FileChannel fc, long pos, TCardFingerprint fp) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(SLOT_SIZE);
+        b.putLong(fp.getHighBits()).putLong(fp.getLowBits());
+        b.flip();
+        while (b.hasRemaining()) {
+            fc.write(b, pos + b.position());
+        }
+    }
+
+    private static void readFully(FileChannel fc, ByteBuffer b, long pos) throws IOException {
+        while (b.hasRemaining()) {
+            if (fc.read(b, pos + b.position()) < 0) {
+                throw new IOException("unexpected end of card archive");
+            }
+        }
+        b.flip();
+    }
+
+    // Sequential, buffered iteration over the non empty slots of a table.
+    private static class TSlotScanner implements Iterable<TCardFingerprint> {
+
+        private final FileChannel fc;
+        private final long slots;
+
+        TSlotScanner(FileChannel fc, long slots) {
+            this.fc = fc;
+            this.slots = slots;
+        }
+
+        @Override
+        public Iterator<TCardFingerprint> iterator() {
+            return new Iterator<TCardFingerprint>() {
+                private final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SLOTS * SLOT_SIZE);
+                private long read = 0;
+                private TCardFingerprint next = advance();
+
+                private TCardFingerprint advance() {
+                    try {
+                        while (true) {
+                            if (!buffer.hasRemaining() || read == 0) {
+                                if (read >= slots) {
+                                    return null;
+                                }
+                                int n = (int) Math.min(SCAN_BUFFER_SLOTS, slots - read);
+                                buffer.clear().limit(n * SLOT_SIZE);
+                                readFully(fc, buffer, HEADER_SIZE + read * SLOT_SIZE);
+                                read += n;
+                            }
+                            long high = buffer.getLong();
+                            long low = buffer.getLong();
+                            if (high != 0 || low != 0) {
+                                return new TCardFingerprint(high, low);
+                            }
+                        }
+                    } catch (IOException ioe) {
+                        throw new TTombolaRuntimeException("<ERROR!> Card archive cannot be read: " + ioe.getMessage());
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public TCardFingerprint next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    TCardFingerprint current = next;
+                    next = advance();
+                    return current;
+                }
+            };
+        }
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.Serializable;
+
+/**
+ * Canonical, 128 bits fingerprint of a tombola card.&nbsp;As a card contains 15
+ * different numbers in the [1..90] range, the fingerprint is simply the 90 bits
+ * map of its numbers (bit <i>n-1</i> set if number <i>n</i> is on the card),
+ * stored in two long values.&nbsp;It is therefore exact (two cards have the
+ * same fingerprint if and only if they contain the same numbers) and does not
+ * depend on labels, jolly numbers or on the order numbers are stored within
+ * the card rows.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TCard#getFingerprint()
+ * @see TCardArchive
+ * @since 1.8
+ */
+public final class TCardFingerprint implements Serializable {
+
+    private final long high;
+    private final long low;
+
+    /**
+     * Create a fingerprint from its two 64 bits halves.
+     *
+     * @param high the most significant bits (numbers from 65 to 90)
+     * @param low the least significant bits (numbers from 1 to 64)
+     */
+    public TCardFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Evaluate the fingerprint of a set of tombola numbers.
+     *
+     * @param numbers the numbers of the card, in any order
+     * @return the fingerprint of the numbers
+     */
+    public static TCardFingerprint of(int[] numbers) {
+        long h = 0;
+        long l = 0;
+        for (int n : numbers) {
+            if (n < 1 || n > TUtils.NOVANTA) {
+                throw new TTombolaRuntimeException("<ERROR!> Number " + n + " cannot be on a tombola card.");
+            }
+            if (n <= 64) {
+                l |= 1L << (n - 1);
+            } else {
+                h |= 1L << (n - 65);
+            }
+        }
+        return new TCardFingerprint(h, l);
+    }
+
+    /**
+     * Parse the 32 hexadecimal digits representation returned by
+     * {@linkplain TCardFingerprint#toString()}.
+     *
+     * @param hex the hexadecimal representation of the fingerprint
+     * @return the fingerprint
+     */
+    public static TCardFingerprint parse(String hex) {
+        if (hex == null || hex.length() != 32) {
+            throw new TTombolaRuntimeException("<ERROR!> A card fingerprint must be made of 32 hexadecimal digits.");
+        }
+        return new TCardFingerprint(Long.parseUnsignedLong(hex.substring(0, 16), 16), Long.parseUnsignedLong(hex.substring(16), 16));
+    }
+
+    /**
+     * @return the most significant 64 bits of the fingerprint.
+     */
+    public long getHighBits() {
+        return this.high;
+    }
+
+    /**
+     * @return the least significant 64 bits of the fingerprint.
+     */
+    public long getLowBits() {
+        return this.low;
+    }
+
+    /**
+     * @param number a tombola number, in the [1..90] range
+     * @return true if the card with this fingerprint contains the number
+     */
+    public boolean contains(int number) {
+        return number <= 64 ? (low & (1L << (number - 1))) != 0 : (high & (1L << (number - 65))) != 0;
+    }
+
+    /**
+     * Count the numbers shared with the card with another fingerprint.
+     *
+     * @param other the fingerprint of the other card
+     * @return the amount of equal numbers between the two cards
+     */
+    public int countEqualNumbers(TCardFingerprint other) {
+        return Long.bitCount(this.high & other.high) + Long.bitCount(this.low & other.low);
+    }
+
+    /**
+     * Return a well spread 64 bits hash of the fingerprint, suitable for hash
+     * tables and Bloom filters.
+     *
+     * @return a 64 bits hash of the fingerprint
+     */
+    public long hash64() {
+        return mix(this.low ^ mix(this.high + 0x9E3779B97F4A7C15L));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof TCardFingerprint)) {
+            return false;
+        }
+        TCardFingerprint other = (TCardFingerprint) obj;
+        return this.high == other.high && this.low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash64());
+    }
+
+    /**
+     * @return the fingerprint as a string of 32 hexadecimal digits.
+     */
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", this.high, this.low);
+    }
+
+    // Finalizer of the SplitMix64 generator
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}           // End Of File - Rel.(1.1)
@@ -19,6 +19,12 @@
 package harrygpotter.tombola.tombolalib;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * TCardList is an {@linkplain ArrayList} specialization class helping to
@@ -28,7 +34,12 @@ import java.util.ArrayList;
  * objects target this need.&nbsp;During a game, instead, cards must be managed
  * one at a time and TCardList objects are here to serve.&nbsp;In TCardList
  * class are also implemented import methods and constructors to convert a
- * TSeriesList object to a TCardList one.
+ * TSeriesList object to a TCardList one.<br>
+ * Cards can be looked up by label, by checksum and by owner in constant time, using an
+ * index built on first use, extended in constant time when a card is appended
+ * with {@linkplain TCardList#add(TCard)} and rebuilt automatically when cards are
+ * otherwise added or removed.&nbsp;Lookups can be executed concurrently by many threads, as long
+ * as the list itself is not modified at the same time.
  *
  * @author Harry G. Potter harry.g.potter@gmail.com
  * @version 1.1
@@ -38,6 +49,8 @@ import java.util.ArrayList;
  */
 public class TCardList extends ArrayList<TCard> {
 
+    private transient volatile TCardIndex index = null;
+
     /**
      * Default constructor. It returns a new, empty TCardList object.
      */
@@ -77,6 +90,24 @@ public class TCardList extends ArrayList<TCard> {
         this.forEach(c -> c.resetGameStatus());
     }
     
+    /**
+     * Append the card at the end of the list.&nbsp;If the lookup index of the
+     * list is up to date, the card is appended to it too, in constant time.
+     *
+     * @param card the card to append
+     * @return true, as specified by {@linkplain java.util.Collection#add(Object)}
+     */
+    @Override
+    public boolean add(TCard card) {
+        TCardIndex current = this.index;
+        boolean upToDate = (current != null && current.modCount == this.modCount);
+        super.add(card);
+        if (upToDate) {
+            appendToIndex(current, card);
+        }
+        return true;
+    }
+
     /**
      * Add to this TCardList all cards contained in the TCardList passed as
      * argument.&nbsp;For example, you can use this method to add billboard cards
@@ -98,6 +129,144 @@ public class TCardList extends ArrayList<TCard> {
         return result;
     }
 
+    /**
+     * Return the card with the given label, in constant time.&nbsp;If more
+     * cards have the same label, the first one in the list is returned.
+     *
+     * @param label the label of the card to look for
+     * @return the card with the given label, null if there is no such card
+     * in the list.
+     * @see TCardList#refreshIndex()
+     */
+    public TCard getByLabel(String label) {
+        if (label == null) {
+            return null;
+        }
+        TCardIndex current = currentIndex();
+        TCard card = current.byLabel.get(label);
+        if (card != null && !label.equals(card.getLabel())) {
+            // The card has been relabeled after the index was built.
+            card = reindex().byLabel.get(label);
+        }
+        return card;
+    }
+
+    /**
+     * Return the cards whose checksum (evaluated using
+     * {@linkplain TCard#evaluateCheckSum(long)} with zero as offset) is equal
+     * to the given one, in constant time.&nbsp;As checksums are made of just two
+     * characters, more cards usually share the same checksum, so it is mostly
+     * used to double check a label read by a human operator.
+     *
+     * @param checksum the two characters checksum
+     * @return the (unmodifiable) list of cards with the given checksum, empty
+     * if there is none.
+     */
+    public List<TCard> getByChecksum(String checksum) {
+        List<TCard> result = (checksum == null ? null : currentIndex().byChecksum.get(checksum.toUpperCase()));
+        return (result == null ? Collections.emptyList() : Collections.unmodifiableList(result));
+    }
+
+    /**
+     * Return the cards owned by the given player (see
+     * {@linkplain TCard#getOwner()}), in the same order they have within the
+     * list, in constant time.
+     *
+     * @param owner the name of the player owning the cards
+     * @return the (unmodifiable) list of cards owned by the player, empty if
+     * there is none.
+     * @see TCardList#refreshIndex()
+     */
+    public List<TCard> getByOwner(String owner) {
+        if (owner == null) {
+            return Collections.emptyList();
+        }
+        List<TCard> result = currentIndex().byOwner.get(owner);
+        if (result != null) {
+            for (int i = 0; i < result.size(); i++) {
+                if (!owner.equals(result.get(i).getOwner())) {
+                    // Cards have been given to another owner after the index was built.
+                    result = reindex().byOwner.get(owner);
+                    break;
+                }
+            }
+        }
+        return (result == null ? Collections.emptyList() : Collections.unmodifiableList(result));
+    }
+
+    /**
+     * Return the names of the players owning at least one card of the list,
+     * in the order their first card appears within the list.
+     *
+     * @return the (unmodifiable) set of the owners of the cards.
+     */
+    public Set<String> getOwners() {
+        return Collections.unmodifiableSet(currentIndex().byOwner.keySet());
+    }
+
+    /**
+     * Rebuild the label, checksum and owner index of the list.&nbsp;The index is
+     * automatically rebuilt when cards are added or removed, so this method is
+     * needed only to make the first lookup faster or after cards have been
+     * relabeled (for example with
+     * {@linkplain TSeriesList#prepareLabels()}) or given to other owners.
+     */
+    public void refreshIndex() {
+        reindex();
+    }
+
+    // The index is rebuilt when the list has been structurally modified since its creation.
+    private TCardIndex currentIndex() {
+        TCardIndex current = this.index;
+        if (current == null || current.modCount != this.modCount) {
+            current = reindex();
+        }
+        return current;
+    }
+
+    private synchronized TCardIndex reindex() {
+        TCardIndex newIndex = new TCardIndex(this.size());
+        for (TCard c : this) {
+            newIndex.put(c);
+        }
+        newIndex.modCount = this.modCount;
+        this.index = newIndex;
+        return newIndex;
+    }
+
+    // A card appended to the list is appended to the index too, unless the index has been
+    //  replaced in the meanwhile.
+    private synchronized void appendToIndex(TCardIndex current, TCard card) {
+        if (current == this.index) {
+            current.put(card);
+            current.modCount = this.modCount;
+        }
+    }
+
+    // Published through the volatile index field: after that it changes only when cards are
+    //  appended to the list, that must not happen while other threads are looking cards up.
+    private static class TCardIndex {
+
+        private volatile int modCount;
+        private final Map<String, TCard> byLabel;
+        private final Map<String, List<TCard>> byChecksum = new HashMap<>();
+        private final Map<String, List<TCard>> byOwner = new LinkedHashMap<>();
+
+        TCardIndex(int size) {
+            this.byLabel = new HashMap<>(size * 2);
+        }
+
+        void put(TCard c) {
+            if (c.getLabel() != null && c.getLabel().length() > 0) {
+                byLabel.putIfAbsent(c.getLabel(), c);
+            }
+            byChecksum.computeIfAbsent(c.evaluateCheckSum(0), k -> new ArrayList<>()).add(c);
+            if (c.getOwner() != null && c.getOwner().length() > 0) {
+                byOwner.computeIfAbsent(c.getOwner(), k -> new ArrayList<>()).add(c);
+            }
+        }
+    }
+
     /**
      * Helper method that let you remove a whole subset of cards from this 
      * TCardList collection.
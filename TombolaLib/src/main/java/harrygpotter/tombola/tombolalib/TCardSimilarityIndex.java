@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A TCardSimilarityIndex object answers questions like "which cards share at
+ * least <i>k</i> numbers with this card?" or "which cards have a row sharing at
+ * least <i>k</i> numbers with this row?" on large sets of cards, for instance
+ * to investigate complaints about "twin cards".&nbsp;Where
+ * {@linkplain TSeriesList#getCurrentMEPC()} and
+ * {@linkplain TSeriesListStats} only report maximum values and distributions,
+ * this class tells which cards are involved.<br>
+ * For each number (and for each row position) the index keeps a posting
+ * bitmap with a bit for each card containing the number.&nbsp;A query adds up
+ * the bitmaps of the target numbers with a bit sliced counter, 64 cards at a
+ * time, and then only visits the cards reaching the threshold.<br>
+ * Pay attention: a query is not proportional to the size of its result alone,
+ * but costs about 15 * 10 word operations for every 64 cards of the set (i.e.
+ * roughly 2.5 operations per card) plus the size of the result.&nbsp;Since
+ * every number is on one card out of six, the posting of a single number
+ * already lists a sixth of the set, so no query on these postings can visit
+ * less than that: the bit sliced counter stays below this bound, and answers
+ * in well under a millisecond on 100,000 cards.&nbsp;A cost proportional to the
+ * result only would need an entry for each subset of <i>k</i> numbers of each
+ * card, that is up to 3003 entries per card.<br>
+ * The index is a snapshot of the cards at the time it is created: it must be
+ * created again if the set of cards changes.&nbsp;Once created, it can be
+ * queried concurrently by many threads.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TCard#compareByCard(TCard)
+ * @see TCard#compareByRow(TCard)
+ * @since 1.8
+ */
+public class TCardSimilarityIndex {
+
+    private final TCard[] cards;
+    private final int words;
+    // cardPostings[n-1] has a bit set for each card containing number n,
+    // rowPostings[r][n-1] for each card containing n on its row r.
+    private final long[][] cardPostings = new long[TUtils.NOVANTA][];
+    private final long[][][] rowPostings = new long[3][TUtils.NOVANTA][];
+
+    /**
+     * Create the index of the cards of a list.
+     *
+     * @param cards the cards to index
+     */
+    public TCardSimilarityIndex(List<TCard> cards) {
+        if (cards == null) {
+            throw new TTombolaRuntimeException("<ERROR!> A similarity index cannot be created on a null card list.");
+        }
+        this.cards = cards.toArray(new TCard[0]);
+        this.words = (this.cards.length + 63) >>> 6;
+        for (int n = 0; n < TUtils.NOVANTA; n++) {
+            cardPostings[n] = new long[words];
+            for (int r = 0; r < 3; r++) {
+                rowPostings[r][n] = new long[words];
+            }
+        }
+        for (int i = 0; i < this.cards.length; i++) {
+            for (int p = 0; p < 15; p++) {
+                int n = this.cards[i].getNumber(p) - 1;
+                cardPostings[n][i >>> 6] |= 1L << i;
+                rowPostings[p / 5][n][i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Create the index of all the cards of a list of series.
+     *
+     * @param seriesList the series whose cards must be indexed
+     */
+    public TCardSimilarityIndex(TSeriesList seriesList) {
+        this(new TCardList(seriesList));
+    }
+
+    /**
+     * @return the number of indexed cards.
+     */
+    public int size() {
+        return this.cards.length;
+    }
+
+    /**
+     * Return all the indexed cards sharing at least <i>k</i> numbers with the
+     * target card.&nbsp;The target card itself, if indexed, is not returned.
+     *
+     * @param target the card to compare
+     * @param k the minimum amount of equal numbers, in the [1..15] range
+     * @return the cards sharing at least k numbers with the target, in index
+     * order.
+     */
+    public List<TCard> findSimilarCards(TCard target, int k) {
+        checkThreshold(k, 15);
+        long[][] postings = new long[15][];
+        for (int p = 0; p < 15; p++) {
+            postings[p] = cardPostings[target.getNumber(p) - 1];
+        }
+        List<TCard> result = new ArrayList<>();
+        collect(postings, k, target, result);
+        return result;
+    }
+
+    /**
+     * Return all the indexed cards sharing at least <i>k</i> numbers with the
+     * card having the given fingerprint, for instance a card read from a
+     * {@linkplain TCardArchive}.
+     *
+     * @param target the fingerprint of the card to compare
+     * @param k the minimum amount of equal numbers, in the [1..15] range
+     * @return the cards sharing at least k numbers with the target, in index
+     * order.
+     */
+    public List<TCard> findSimilarCards(TCardFingerprint target, int k) {
+        checkThreshold(k, 15);
+        int count = Long.bitCount(target.getHighBits()) + Long.bitCount(target.getLowBits());
+        if (count > 15) {
+            throw new TTombolaRuntimeException("<ERROR!> Fingerprint " + target + " does not belong to a tombola card.");
+        }
+        long[][] postings = new long[count][];
+        int p = 0;
+        for (int n = 1; n <= TUtils.NOVANTA; n++) {
+            if (target.contains(n)) {
+                postings[p++] = cardPostings[n - 1];
+            }
+        }
+        List<TCard> result = new ArrayList<>();
+        collect(postings, k, null, result);
+        return result;
+    }
+
+    /**
+     * Return all the indexed cards having a row that shares at least
+     * <i>k</i> numbers with the target row (i.e.&nbsp;rows are compared just
+     * like {@linkplain TCard#compareByRow(TCard)} does).
+     *
+     * @param rowNumbers the (up to 5) numbers of the target row
+     * @param k the minimum amount of equal numbers, in the [1..5] range
+     * @return the cards having a row sharing at least k numbers with the
+     * target row, in index order.
+     */
+    public List<TCard> findSimilarRows(int[] rowNumbers, int k) {
+        if (rowNumbers == null || rowNumbers.length < 1 || rowNumbers.length > 5) {
+            throw new TTombolaRuntimeException("<ERROR!> A row is made of 1 to 5 numbers.");
+        }
+        checkThreshold(k, rowNumbers.length);
+        long[] found = new long[words];
+        long[][] postings = new long[rowNumbers.length][];
+        for (int r = 0; r < 3; r++) {
+            for (int p = 0; p < rowNumbers.length; p++) {
+                if (rowNumbers[p] < 1 || rowNumbers[p] > TUtils.NOVANTA) {
+                    throw new TTombolaRuntimeException("<ERROR!> Number " + rowNumbers[p] + " cannot be on a tombola card.");
+                }
+                postings[p] = rowPostings[r][rowNumbers[p] - 1];
+            }
+            for (int w = 0; w < words; w++) {
+                found[w] |= atLeast(postings, w, k);
+            }
+        }
+        List<TCard> result = new ArrayList<>();
+        for (int w = 0; w < words; w++) {
+            addCards(found[w], w, null, result);
+        }
+        return result;
+    }
+
+    /**
+     * Return all the indexed cards, other than the target card itself, having
+     * a row that shares at least <i>k</i> numbers with a row of the target
+     * card.
+     *
+     * @param target the card whose row must be compared
+     * @param row the index of the row to compare, in the [0..2] range
+     * @param k the minimum amount of equal numbers, in the [1..5] range
+     * @return the cards having a row sharing at least k numbers with the
+     * target row, in index order.
+     */
+    public List<TCard> findSimilarRows(TCard target, int row, int k) {
+        if (row < 0 || row > 2) {
+            throw new TTombolaRuntimeException("<ERROR!> Row index must be in the [0..2] range.");
+        }
+        int[] rowNumbers = new int[5];
+        for (int p = 0; p < 5; p++) {
+            rowNumbers[p] = target.getNumber(row * 5 + p);
+        }
+        List<TCard> result = findSimilarRows(rowNumbers, k);
+        result.removeIf(c -> c == target);
+        return result;
+    }
+
+    /**
+     * Return all the couples of indexed cards sharing at least <i>k</i>
+     * numbers.&nbsp;Each couple is returned once, as a two elements array
+     * ordered by index position.&nbsp;Pay attention: each card is compared with
+     * all the following ones, so the cost grows with the square of the number
+     * of cards (divided by 64).
+     *
+     * @param k the minimum amount of equal numbers, in the [1..15] range
+     * @return the couples of cards sharing at least k numbers.
+     */
+    public List<TCard[]> findSimilarCouples(int k) {
+        checkThreshold(k, 15);
+        List<TCard[]> result = new ArrayList<>();
+        long[][] postings = new long[15][];
+        for (int i = 0; i < cards.length; i++) {
+            for (int p = 0; p < 15; p++) {
+                postings[p] = cardPostings[cards[i].getNumber(p) - 1];
+            }
+            int first = i + 1;
+            for (int w = first >>> 6; w < words; w++) {
+                long mask = atLeast(postings, w, k);
+                if (w == first >>> 6) {
+                    mask &= -1L << first;      // Only cards following the i-th one
+                }
+                while (mask != 0) {
+                    result.add(new TCard[]{cards[i], cards[(w << 6) + Long.numberOfTrailingZeros(mask)]});
+                    mask &= mask - 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    private void collect(long[][] postings, int k, TCard exclude, List<TCard> result) {
+        for (int w = 0; w < words; w++) {
+            addCards(atLeast(postings, w, k), w, exclude, result);
+        }
+    }
+
+    private void addCards(long mask, int w, TCard exclude, List<TCard> result) {
+        while (mask != 0) {
+            TCard c = cards[(w << 6) + Long.numberOfTrailingZeros(mask)];
+            if (c != exclude) {
+                result.add(c);
+            }
+            mask &= mask - 1;
+        }
+    }
+
+    // Bit sliced counter: sums the w-th word of all the postings in four bit
+    // planes, then returns the bits (cards) whose count is at least k.
+    private static long atLeast(long[][] postings, int w, int k) {
+        long p0 = 0, p1 = 0, p2 = 0, p3 = 0;
+        for (long[] posting : postings) {
+            long carry = posting[w];
+            long t = p0 & carry;
+            p0 ^= carry;
+            carry = t;
+            t = p1 & carry;
+            p1 ^= carry;
+            carry = t;
+            t = p2 & carry;
+            p2 ^= carry;
+            p3 |= t;
+        }
+        // Compare the four bit counters with k, from the most significant plane.
+        long greater = 0;
+        long equal = -1L;
+        if ((k & 8) != 0) {
+            equal &= p3;
+        } else {
+            greater |= equal & p3;
+            equal &= ~p3;
+        }
+        if ((k & 4) != 0) {
+            equal &= p2;
+        } else {
+            greater |= equal & p2;
+            equal &= ~p2;
+        }
+        if ((k & 2) != 0) {
+            equal &= p1;
+        } else {
+            greater |= equal & p1;
+            equal &= ~p1;
+        }
+        if ((k & 1) != 0) {
+            equal &= p0;
+        } else {
+            greater |= equal & p0;
+        }
+        return greater | equal;
+    }
+
+    private static void checkThreshold(int k, int max) {
+        if (k < 1 || k > max) {
+            throw new TTombolaRuntimeException("<ERROR!> The minimum amount of equal numbers must be in the [1.." + max + "] range.");
+        }
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+/**
+ * Enum class used by {@linkplain TGame#verifyClaim(String, int)} and
+ * {@linkplain TGame#verifyClaim(TCard, int)} methods to notify the outcome of
+ * the verification of a card claimed by a player to have won an award.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TGame
+ * @see TCardList#getByLabel(String)
+ * @since 1.8
+ */
+public enum TClaimResult {
+
+    /**
+     * The claim is correct: extracted numbers give the card the claimed score
+     * and at least one award of the claimed category has not been assigned
+     * yet, or has been assigned with the very last extraction.
+     */
+    VALID,
+
+    /**
+     * Extracted numbers give the card the claimed score, but all the awards of
+     * the claimed category had already been assigned before the last
+     * extraction.
+     */
+    TOO_LATE,
+
+    /**
+     * Extracted numbers do not give the card the claimed score.
+     */
+    NOT_REACHED,
+
+    /**
+     * The claimed card does not participate to the game (for example, the
+     * label is misspelled).
+     */
+    UNKNOWN_CARD,
+
+    /**
+     * The claimed category does not correspond to any award of the game.
+     */
+    UNKNOWN_AWARD,
+
+    /**
+     * The game has not started yet, so there is nothing to verify.
+     */
+    NOT_STARTED
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class implements the same heuristic of {@linkplain TProgressiveSetFactory}
+ * distributing the generation and the screening of candidate series on a set of
+ * {@linkplain TSetFactoryWorker} objects, reached by TCP connections and
+ * possibly running on other processes or machines.&nbsp;The coordinator ships
+ * to each worker the series accepted so far and asks it for a candidate
+ * respecting MaxEPC/MaxEPR limits; the candidate is then re-checked against the
+ * whole list (other workers could have added series in the meantime) and, if
+ * still valid, added to the list and shipped to all the workers with their
+ * next request.<br>
+ * Pay attention: as candidates from different workers are accepted in the
+ * order they arrive, the generated list cannot be reproduced using the same
+ * random seed, differently from the other set factories.&nbsp;The only
+ * exception is a process using a single worker connection: the worker plays
+ * the series builder itself, so the list is the same a
+ * {@linkplain TProgressiveSetFactory} produces with the same seed.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see ITSetFactory
+ * @see TSetFactoryWorker
+ * @see TProgressiveSetFactory
+ */
+public class TDistributedSetFactory extends TAbstractSetFactory {
+
+    /**
+     * Default maximum number of candidates a worker generates for each request
+     * before giving back the control to the coordinator.
+     */
+    public static final long DEFAULT_CANDIDATE_BUDGET = 5000;
+
+    private static final String MY_NAME = "Distributed Control & Add Factory 1.0";
+    private static final int CONNECTION_TIMEOUT = 10000;   // 10 seconds
+    private static final int READ_TIMEOUT = 120000;        // 2 minutes, a whole candidate budget
+
+    private final List<InetSocketAddress> workers = new ArrayList<>();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Object commitLock = new Object();
+    private long candidateBudget = DEFAULT_CANDIDATE_BUDGET;
+    private long generatedCards;
+
+    /**
+     * Return a symbolic name identifying the used heuristic algorithm.
+     *
+     * @return a symbolic name identifying the used heuristic algorithm.
+     */
+    @Override
+    public String getMethodName() {
+        return MY_NAME;
+    }
+
+    /**
+     * Add a worker to the ones used by the generation process.&nbsp;The same
+     * worker can be added more than once: a connection is opened for each
+     * time it has been added, so that more cores of the same machine can be
+     * used.
+     *
+     * @param host the host name or address where the worker is running
+     * @param port the TCP port the worker is listening on
+     */
+    public void addWorker(String host, int port) {
+        if (status == TStatus.RUNNING || status == TStatus.STOPPING) {
+            throw new TTombolaRuntimeException("Workers cannot be added when in the " + status + " status!");
+        }
+        this.workers.add(InetSocketAddress.createUnresolved(host, port));
+    }
+
+    /**
+     * Add the workers listed in a string with the format
+     * <code>host:port[,host:port ...]</code>.
+     *
+     * @param endpoints the comma separated list of workers to add
+     * @see TDistributedSetFactory#addWorker(String, int)
+     */
+    public void addWorkers(String endpoints) {
+        for (String endpoint : endpoints.split(",")) {
+            int i = endpoint.lastIndexOf(':');
+            if (i < 1) {
+                throw new TTombolaRuntimeException("<ERROR!> Worker [" + endpoint + "] must be specified as host:port.");
+            }
+            try {
+                this.addWorker(endpoint.substring(0, i).trim(), Integer.parseInt(endpoint.substring(i + 1).trim()));
+            } catch (NumberFormatException nfe) {
+                throw new TTombolaRuntimeException("<ERROR!> Worker [" + endpoint + "] has not a valid port number.");
+            }
+        }
+    }
+
+    /**
+     * @return the number of worker connections the generation process will
+     * open.
+     */
+    public int getWorkerCount() {
+        return this.workers.size();
+    }
+
+    /**
+     * Set the maximum number of candidates a worker generates for each request
+     * before giving back the control to the coordinator.&nbsp;Lower values make
+     * the process more responsive to stop requests and limits, higher values
+     * reduce the network traffic.
+     *
+     * @param budget the maximum number of candidates for each request.
+     */
+    public void setCandidateBudget(long budget) {
+        if (budget < 1) {
+            throw new TTombolaRuntimeException("<ERROR!> Candidate budget must be a positive number.");
+        }
+        this.candidateBudget = budget;
+    }
+
+    /**
+     * Start the series generation process, after checking that at least a
+     * worker has been set.
+     */
+    @Override
+    public void requestStart() {
+        if (this.workers.isEmpty()) {
+            throw new TTombolaRuntimeException("<WARNING!> At least a worker must be added to start a distributed series generation.");
+        }
+        super.requestStart();
+    }
+
+    /**
+     * This method opens a connection for each worker and waits until the
+     * desired number of series has been accepted, or until the process is
+     * stopped or all the connections are lost.
+     */
+    @Override
+    public void run() {
+        status = TStatus.RUNNING;
+        prepareExecution();
+        seriesList.setMakeSixSeed(this.seriesBuilder.getRandomSeed());
+        seriesList.setMakeSixMethod(TMakeSix.MAKESIX_METHOD_NAME);
+        seriesList.setSetFactoryMethod(this.getMethodName());
+        generatedCards = seriesList.getMakeSixCounter();
+
+        // The first worker of a new process uses the seed of the series builder, so that a single
+        //  worker produces the same list of TProgressiveSetFactory; the other seeds are drawn from
+        //  the series builder, whose state is saved within the checkpoints: a resumed process
+        //  gets new seeds and does not screen again the same candidates.
+        boolean fresh = seriesList.isEmpty() && seriesBuilder.getCardCounter() == 0;
+        CountDownLatch ended = new CountDownLatch(workers.size());
+        for (int w = 0; w < workers.size(); w++) {
+            InetSocketAddress worker = workers.get(w);
+            long seed = (w == 0 && fresh ? seriesBuilder.getRandomSeed() : seriesBuilder.nextSeed());
+            Thread t = new Thread(() -> {
+                try {
+                    drive(worker, seed);
+                } catch (IOException | RuntimeException ex) {
+                    if (status == TStatus.RUNNING) {
+                        logger.error("Connection with worker " + worker + " lost: " + ex.getMessage());
+                    } else {
+                        logger.verbose("Connection with worker " + worker + " closed: " + ex.getMessage());
+                    }
+                } finally {
+                    ended.countDown();
+                }
+            }, "TDistributedSetFactory-" + worker);
+            t.setDaemon(true);
+            t.start();
+        }
+        try {
+            boolean stopped = false;
+            while (!stopped && !ended.await(100, TimeUnit.MILLISECONDS)) {
+                synchronized (commitLock) {
+                    this.tp_Elapsed = System.currentTimeMillis() - ts_startExecution;
+                    stopped = (status == TStatus.RUNNING && checkForStop() < 0);
+                }
+            }
+            if (stopped) {
+                // No need to wait for the candidates being generated: they would be discarded.
+                closeConnections();
+            }
+            // Workers end their current request and close the connection, but a stuck one is not waited forever.
+            if (!ended.await(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                closeConnections();
+                if (!ended.await(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    logger.error("Some worker connections did not end in time, they are abandoned.");
+                }
+            }
+        } catch (InterruptedException ie) {
+            status = TStatus.STOPPED;
+            closeConnections();
+            logger.error("Process interrupted while waiting for workers.");
+        }
+        if (status != TStatus.STOPPED && seriesList.size() < desiredSeries) {
+            status = TStatus.STOPPED;
+            logger.error("Process stopped because no worker is available anymore.");
+        }
+        flushCheckpoint();
+        if (status == TStatus.STOPPED) {
+            ts_EndExecution = System.currentTimeMillis();
+            return;
+        }
+        seriesList.compareByCard();
+        seriesList.compareByRow();
+        seriesList.sortBestToWorstByCard();
+        boolean commentFound = false;
+        if (seriesList.getComments() != null) {
+            for (String s : seriesList.getComments()) {
+                commentFound |= s.equalsIgnoreCase("Series are sorted from 'best' to 'worst' considering maximum equal number between cards.");
+            }
+        }
+        if (!commentFound) {
+            seriesList.addComment("Series are sorted from 'best' to 'worst' considering maximum equal number between cards.");
+        }
+        seriesList.prepareLabels();
+        this.status = TStatus.COMPLETED;
+        ts_EndExecution = System.currentTimeMillis();
+        tp_Elapsed = ts_EndExecution - ts_startExecution;
+        logger.info("Well done! Process Naturally ended using " + workers.size() + " workers.");
+    }
+
+    // Conversation with a single worker, executed by a dedicated thread
+    private void drive(InetSocketAddress worker, long seed) throws IOException {
+        try (Socket s = new Socket()) {
+            connections.add(s);
+            s.connect(new InetSocketAddress(worker.getHostString(), worker.getPort()), CONNECTION_TIMEOUT);
+            s.setTcpNoDelay(true);
+            s.setSoTimeout(READ_TIMEOUT);
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), TSetFactoryWorker.STANDARD_CHARSET));
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), TSetFactoryWorker.STANDARD_CHARSET));
+            out.write(TSetFactoryWorker.MSG_INIT + TSetFactoryWorker.SEPARATOR + seed
+                    + TSetFactoryWorker.SEPARATOR + seriesBuilder.isEmptyColumnAvoided() + "\n");
+            out.flush();
+            if (!TSetFactoryWorker.MSG_OK.equals(in.readLine())) {
+                throw new IOException("unexpected answer to session initialization");
+            }
+            logger.verbose("Worker " + worker + " connected.");
+            int shipped = 0;
+            StringBuilder request = new StringBuilder();
+            while (status == TStatus.RUNNING) {
+                int epc;
+                int epr;
+                // The request is prepared holding the lock, but sent after releasing it:
+                //  a slow worker must not keep the others waiting.
+                request.setLength(0);
+                synchronized (commitLock) {
+                    if (seriesList.size() >= desiredSeries) {
+                        break;
+                    }
+                    for (; shipped < seriesList.size(); shipped++) {
+                        request.append(TSetFactoryWorker.MSG_ACCEPTED).append(TSetFactoryWorker.SEPARATOR)
+                                .append(TSetFactoryCheckpoint.seriesToString(seriesList.get(shipped))).append('\n');
+                    }
+                    epc = this.maxepc;
+                    epr = this.maxepr;
+                }
+                out.append(request);
+                out.write(TSetFactoryWorker.MSG_NEXT + TSetFactoryWorker.SEPARATOR + candidateBudget
+                        + TSetFactoryWorker.SEPARATOR + epc + TSetFactoryWorker.SEPARATOR + epr + "\n");
+                out.flush();
+                String answer = in.readLine();
+                if (answer == null) {
+                    throw new IOException("connection closed by the worker");
+                }
+                String[] tokens = answer.split(TSetFactoryWorker.SEPARATOR, -1);
+                long iterations = Long.parseLong(tokens[1]);
+                synchronized (commitLock) {
+                    this.iterationCounter += iterations;
+                    this.candidateCounter += iterations;
+                    this.generatedCards += iterations * 6;
+                    if (tokens[0].equals(TSetFactoryWorker.MSG_CANDIDATE)) {
+                        commit(TSetFactoryCheckpoint.stringToSeries(tokens, 2));
+                    }
+                }
+            }
+            out.write(TSetFactoryWorker.MSG_QUIT + "\n");
+            out.flush();
+        } finally {
+            connections.removeIf(c -> c.isClosed());
+        }
+    }
+
+    // Close the connections still open, so that the threads blocked reading from them fail at once.
+    private void closeConnections() {
+        for (Socket s : connections) {
+            try {
+                s.close();
+            } catch (IOException ioe) {
+                // Nothing more to do.
+            }
+        }
+        connections.clear();
+    }
+
+    // Final re-check of a pre-screened candidate. Must be invoked holding the commitLock.
+    private void commit(TSeries sx) {
+        if (status != TStatus.RUNNING || seriesList.size() >= desiredSeries) {
+            return;
+        }
+        TFlightEvents.TSeriesScreeningEvent screening = TFlightEvents.beginSeriesScreening();
+        for (int i = 0; i < seriesList.size(); i++) {
+            if (sx.compareByCard(seriesList.get(i)) > this.maxepc) {
+                this.rejectedByEpc++;
+                screeningDone(screening, TFlightEvents.SCREENING_REJECTED_EPC, i + 1);
+                seriesList.resetAllCompareResult();
+                return;
+            }
+            if (sx.compareByRow(seriesList.get(i)) > this.maxepr) {
+                this.rejectedByEpr++;
+                screeningDone(screening, TFlightEvents.SCREENING_REJECTED_EPR, i + 1);
+                seriesList.resetAllCompareResult();
+                return;
+            }
+        }
+        if (isAlreadyIssued(sx)) {
+            // Workers do not know the card archive, so the check is made here.
+            this.rejectedAsIssued++;
+            screeningDone(screening, TFlightEvents.SCREENING_REJECTED_ISSUED, seriesList.size());
+            seriesList.resetAllCompareResult();
+            return;
+        }
+        screeningDone(screening, TFlightEvents.SCREENING_ACCEPTED, seriesList.size());
+        seriesList.add(sx);
+        seriesAccepted();
+        seriesList.setMakeSixCounter(this.generatedCards);
+        int setSize = seriesList.size();
+        logger.verbose("[OK. " + setSize + "/" + setSize * 6 + "] ");
+        this.tp_Elapsed = System.currentTimeMillis() - ts_startExecution;
+        saveCheckpoint(false);
+    }
+}           // End Of File - Rel.(1.1)
@@ -29,8 +29,10 @@ import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Random;
 import java.util.StringTokenizer;
+import java.util.function.Consumer;
 
 /**
  * TFileFormatter objects are responsible for serialize/de-serialize whole sets
@@ -72,6 +74,9 @@ public class TFileFormatter {
     private final String autoDetectSequence = commentPrefix + "#$#";
     private final DateTimeFormatter timestampFormatter = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
     private final Charset standard_charset = Charset.forName("UTF-8");
+    private TCardArchive cardArchive = null;
+    private TCardArchive.TDuplicatePolicy duplicatePolicy = TCardArchive.TDuplicatePolicy.REJECT;
+    private int nearDuplicateThreshold = 0;
 
     public TFileFormatter(TCardFormat format, boolean useJolly, boolean useHeader, boolean skipComments, String csvDelimiter, String commentPrefix) {
         if (format != null) {
@@ -175,6 +180,54 @@ public class TFileFormatter {
         }
     }
 
+    /**
+     * Set the archive of the cards already issued.&nbsp;Before a set of series
+     * is written, its cards are checked against the archive (and against each
+     * other): with the REJECT policy the file is not written at all if a
+     * duplicated card is found, with the FLAG policy the file is written
+     * anyway, listing the duplicated cards in its final comments.&nbsp;After
+     * the file has been successfully written, all its cards are added to the
+     * archive.
+     *
+     * @param archive the archive of issued cards, or null to disable the
+     * check
+     * @param policy what to do when duplicated cards are found
+     * @see TCardArchive
+     */
+    public void setCardArchive(TCardArchive archive, TCardArchive.TDuplicatePolicy policy) {
+        this.cardArchive = archive;
+        this.duplicatePolicy = (policy == null ? TCardArchive.TDuplicatePolicy.REJECT : policy);
+    }
+
+    public TCardArchive getCardArchive() {
+        return this.cardArchive;
+    }
+
+    public TCardArchive.TDuplicatePolicy getDuplicatePolicy() {
+        return this.duplicatePolicy;
+    }
+
+    /**
+     * Set how many equal numbers make a card a near duplicate of a card already
+     * issued or of another card of the same set.&nbsp;When a card archive has
+     * been set, near duplicated cards are listed in the final comments of the
+     * written files, but they never prevent a file from being written.
+     *
+     * @param k the minimum amount of equal numbers, in the [1..15] range, or 0
+     * (the default) to disable the check
+     * @see TCardArchive#findNearDuplicates(TSeriesList, int)
+     */
+    public void setNearDuplicateThreshold(int k) {
+        if (k < 0 || k > 15) {
+            throw new TTombolaRuntimeException("<ERROR!> The near duplicate threshold must be in the [1..15] range, or 0.");
+        }
+        this.nearDuplicateThreshold = k;
+    }
+
+    public int getNearDuplicateThreshold() {
+        return this.nearDuplicateThreshold;
+    }
+
     /**
      * This method streams a set of series of cards to a file. It uses passed
      * parameters to write a textual, both human and machine readable file
@@ -214,8 +267,11 @@ public class TFileFormatter {
      * {@linkplain java.nio.file.StandardOpenOption}.
      * @return the number of series written in the file, -1 in case of error.
      * @throws IOException is there are issues during the spool on the text file
+     * @throws TTombolaRuntimeException if a card archive has been set with the
+     * REJECT policy and the set contains cards already issued
      * @see TCardFormat
      * @see TCardFormatter
+     * @see TFileFormatter#setCardArchive(TCardArchive, TCardArchive.TDuplicatePolicy)
      */
     public int writeSeriesFile(String fileName, TSeriesList cardSet, TCardFormat format, OpenOption options) throws IOException {
         int result = -1;
@@ -229,10 +285,25 @@ public class TFileFormatter {
         if (writeFmt == null) {
             writeFmt = this.format;
         }
+        List<TCard> duplicates = null;
+        if (this.cardArchive != null) {
+            duplicates = this.cardArchive.findDuplicates(cardSet);
+            if (!duplicates.isEmpty() && this.duplicatePolicy == TCardArchive.TDuplicatePolicy.REJECT) {
+                throw new TTombolaRuntimeException("<ERROR!> " + duplicates.size() + " cards of the set have already been issued (first one is "
+                        + describeCard(duplicates.get(0)) + "). File " + fileName + " has not been written.");
+            }
+        }
+        List<TCard> nearDuplicates = null;
+        if (this.cardArchive != null && this.nearDuplicateThreshold > 0) {
+            nearDuplicates = this.cardArchive.findNearDuplicates(cardSet, this.nearDuplicateThreshold);
+            // Exact duplicates are already listed on their own.
+            nearDuplicates.removeAll(duplicates);
+        }
         // TODO(2.0) maybe some other controls are needed... what about a special fileName to stream to
         //  standard output or error?
         Path path = Paths.get(fileName);
-        BufferedWriter bw = Files.newBufferedWriter(path, standard_charset, options);
+        TFlightEvents.TFileEvent ev = TFlightEvents.beginFile();
+        BufferedWriter bw = TUtils.newBufferedWriter(path, standard_charset, options);
         if (!this.getSkipComments() && writeFmt != TCardFormat.MSWORD_MAILMARGE) {
             bw.write(autoDetectSequence + TUtils.LIB_NAME + csv_delimiter + TUtils.LIB_VERSION + csv_delimiter + format + "\n");
             bw.write(commentPrefix + "\n");
@@ -286,12 +357,35 @@ public class TFileFormatter {
                     bw.write(String.format("%s %2d cards have at least a row with %2d numbers equal to a row in an another card%n", commentPrefix, tslsi.getMaxEPRdistribution()[i], i));
                 }
             }
+            if (duplicates != null && !duplicates.isEmpty()) {
+                bw.write(commentPrefix + "\n");
+                bw.write(String.format("%s WARNING! %d cards have already been issued, or are repeated in this file:%n", commentPrefix, duplicates.size()));
+                for (TCard card : duplicates) {
+                    bw.write(String.format("%s   %s%n", commentPrefix, describeCard(card)));
+                }
+            }
+            if (nearDuplicates != null && !nearDuplicates.isEmpty()) {
+                bw.write(commentPrefix + "\n");
+                bw.write(String.format("%s WARNING! %d cards have at least %d numbers equal to an issued card, or to another card in this file:%n",
+                        commentPrefix, nearDuplicates.size(), this.nearDuplicateThreshold));
+                for (TCard card : nearDuplicates) {
+                    bw.write(String.format("%s   %s%n", commentPrefix, describeCard(card)));
+                }
+            }
             bw.write(String.format("%s%n%s END OF CARD FILE%n", commentPrefix, commentPrefix));
         }
         bw.close();
+        fileDone(ev, path, TFlightEvents.FILE_WRITE, writeFmt, result);
+        if (this.cardArchive != null) {
+            this.cardArchive.addSeriesList(cardSet);
+        }
         return result;
     }
 
+    private String describeCard(TCard card) {
+        return (card.getLabel() != null ? "card " + card.getLabel() + " " : "card ") + "[" + card.getFingerprint() + "]";
+    }
+
     /**
      * This method reads a list of series of cards from a file previously
      * created using
@@ -335,69 +429,103 @@ public class TFileFormatter {
         if (fileName == null) {
             return null;
         }
+        TSeriesList set = new TSeriesList(fileName);
+        streamSeriesFile(fileName, format, set::add);
+        if (set.isEmpty()) {
+            return null;
+        }
+        set.compareByCard();
+        set.compareByRow();
+        set.setMakeSixMethod("Just read from another file");
+        set.setSetFactoryMethod("Just read from another file");
+        return set;
+    }
+
+    /**
+     * Read a text file containing series of cards, passing each series to the
+     * given consumer as soon as its six cards have been read, instead of
+     * collecting them in a {@linkplain TSeriesList}.&nbsp;Series are verified,
+     * but not compared each other, so very large files can be processed (for
+     * example printed) with constant memory and without the quadratic cost of
+     * {@linkplain TSeriesList#compareByCard()}.
+     *
+     * @param fileName String containing the full or absolute path and file name
+     * to read
+     * @param format the file format, or AUTO (or null) to detect it from the
+     * header line, see
+     * {@linkplain TFileFormatter#readSeriesFile(String, TCardFormat)}.
+     * @param consumer the object receiving each series, in file order.
+     * @return the number of series read.
+     * @throws java.io.IOException is issues raise when truing t read the
+     * specified text file
+     */
+    public int streamSeriesFile(String fileName, TCardFormat format, Consumer<TSeries> consumer) throws IOException, TTombolaRuntimeException {
         if (format == null) {
             format = TCardFormat.AUTO;
         }
         Path fileToRead = Paths.get(fileName);
-        TSeriesList set = null;
+        TFlightEvents.TFileEvent ev = TFlightEvents.beginFile();
         int i = 0;
-        BufferedReader br = Files.newBufferedReader(fileToRead, this.standard_charset);
-        String line;
-        if (format == TCardFormat.AUTO) {
-            // First line should allow for file format detection
-            if ((line = br.readLine()).length() > 0 && line.startsWith(autoDetectSequence)) {
-                StringTokenizer st = new StringTokenizer(line, csv_delimiter);
-                String libName = st.nextToken();
-                String libVersion = st.nextToken();
-                // TODO(2.0) Controllare compatibilità con versione di libreria.
-                String sFileformat = st.nextToken();
-                format = TCardFormat.valueOf(sFileformat);
-            } else {
-                throw new TTombolaRuntimeException("[ERROR] Impossible to AUTO detect input card series file format.");
-            }
-        }
-        TCard[] tempSeries = new TCard[6];
-        TCardFormatter fmt = new TCardFormatter(format, this.getUseJolly(), this.getCsvDelimiter());
-        while ((line = br.readLine()) != null) {
-            // Here line is not null for sure
-            if (!line.startsWith(commentPrefix) && line.length() > 0) {
-                TCard newCard = null;
-                try {
-                    newCard = fmt.stringToCard(line);
-                    // System.out.println("\nDEBUG: " + newCard.asString());
-                } catch (NumberFormatException nfe) {
-                    // Do Nothing, simpli skip the lines;
-                    // (TODO2.0) are we sure?
-                    // Should we use the log to trace the error?
-                    // nfe.printStackTrace();
+        int series = 0;
+        try (BufferedReader br = TUtils.newBufferedReader(fileToRead, this.standard_charset)) {
+            String line;
+            if (format == TCardFormat.AUTO) {
+                // First line should allow for file format detection
+                if ((line = br.readLine()) != null && line.length() > 0 && line.startsWith(autoDetectSequence)) {
+                    StringTokenizer st = new StringTokenizer(line, csv_delimiter);
+                    String libName = st.nextToken();
+                    String libVersion = st.nextToken();
+                    // TODO(2.0) Controllare compatibilità con versione di libreria.
+                    String sFileformat = st.nextToken();
+                    format = TCardFormat.valueOf(sFileformat);
+                } else {
+                    throw new TTombolaRuntimeException("[ERROR] Impossible to AUTO detect input card series file format.");
                 }
+            }
+            TCard[] tempSeries = new TCard[6];
+            TCardFormatter fmt = new TCardFormatter(format, this.getUseJolly(), this.getCsvDelimiter());
+            while ((line = br.readLine()) != null) {
+                // Here line is not null for sure
+                if (!line.startsWith(commentPrefix) && line.length() > 0) {
+                    TCard newCard = null;
+                    try {
+                        newCard = fmt.stringToCard(line);
+                    } catch (NumberFormatException nfe) {
+                        // Do Nothing, simpli skip the lines;
+                        // (TODO2.0) are we sure?
+                        // Should we use the log to trace the error?
+                    }
 
-                if (newCard != null) {
-                    tempSeries[i % 6] = newCard;
-                    i++;
-                }
-                if ((i != 0) && (i % 6 == 0)) {
-                    //System.out.println("i=" + i + " Aggiungo la serie al set");
-                    if (set == null) {
-                        set = new TSeriesList(fileName);
+                    if (newCard != null) {
+                        tempSeries[i % 6] = newCard;
+                        i++;
+                    }
+                    if ((i != 0) && (i % 6 == 0) && newCard != null) {
+                        TSeries newSeriesObj = new TSeries(tempSeries);
+                        int errorInSeries = newSeriesObj.verifySeries();
+                        if (errorInSeries > -1) {
+                            throw new TTombolaRuntimeException("[ERROR] Read cards do not form a correct series of six cards. Error in card [" + errorInSeries + "].");
+                        }
+                        consumer.accept(newSeriesObj);
+                        series++;
+                        tempSeries = new TCard[6];
                     }
-                    TSeries newSeriesObj = new TSeries(tempSeries);
-                    int errorInSeries = newSeriesObj.verifySeries();
-                    if (errorInSeries > -1) {
-                        throw new TTombolaRuntimeException("[ERROR] Read cards do not form a correct series of six cards. Error in card [" + errorInSeries + "].");
-                    };
-                    set.add(newSeriesObj);
-                    tempSeries = new TCard[6];
                 }
-            }
-        } // End of while cycle to read cards.
-        br.close();
-        if (set != null) {
-            set.compareByCard();
-            set.compareByRow();
-            set.setMakeSixMethod("Just read from another file");
-            set.setSetFactoryMethod("Just read from another file");
+            } // End of while cycle to read cards.
+        }
+        fileDone(ev, fileToRead, TFlightEvents.FILE_READ, format, series);
+        return series;
+    }
+
+    // Commit the Flight Recorder event of a file read or write, if enabled.
+    private void fileDone(TFlightEvents.TFileEvent ev, Path path, String operation, TCardFormat fmt, int series) throws IOException {
+        if (ev != null) {
+            ev.path = path.toString();
+            ev.operation = operation;
+            ev.format = String.valueOf(fmt);
+            ev.series = series;
+            ev.bytes = Files.size(path);
+            ev.commit();
         }
-        return set;
     }
 }           // End Of File - Rel.(1.1)
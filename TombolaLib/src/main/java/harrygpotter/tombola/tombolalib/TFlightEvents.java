@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Custom JDK Flight Recorder events emitted by TombolaLib, so that a
+ * recording taken in production shows which phase of the series generation
+ * or of a game is slow: candidate generation and screening, accepted series,
+ * extractions, award assignments, file reads and writes and html rendering.
+ * <p>
+ * Each <code>beginXxx()</code> method returns null when its event is not
+ * enabled in any running recording, so that, when Flight Recorder is off,
+ * instrumented code just checks a flag and creates no object.&nbsp;The
+ * high frequency candidate and screening events are disabled by default:
+ * enable <code>harrygpotter.tombola.SeriesCandidate</code> and
+ * <code>harrygpotter.tombola.SeriesScreening</code> in the recording settings
+ * to have them.&nbsp;If the JVM has no Flight Recorder at all, no event is
+ * ever emitted.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TGame
+ * @see TAbstractSetFactory
+ * @since 1.8
+ */
+final class TFlightEvents {    // Only package visibility
+
+    static final String SCREENING_ACCEPTED = "ACCEPTED";
+    static final String SCREENING_REJECTED_EPC = "REJECTED_EPC";
+    static final String SCREENING_REJECTED_EPR = "REJECTED_EPR";
+    static final String SCREENING_REJECTED_ISSUED = "REJECTED_ISSUED";
+
+    static final String FILE_READ = "READ";
+    static final String FILE_WRITE = "WRITE";
+
+    private static final EventType SERIES_CANDIDATE = typeOf(TSeriesCandidateEvent.class);
+    private static final EventType SERIES_SCREENING = typeOf(TSeriesScreeningEvent.class);
+    private static final EventType SERIES_ACCEPTED = typeOf(TSeriesAcceptedEvent.class);
+    private static final EventType EXTRACTION = typeOf(TExtractionEvent.class);
+    private static final EventType ASSIGNMENT = typeOf(TAssignmentEvent.class);
+    private static final EventType FILE_IO = typeOf(TFileEvent.class);
+    private static final EventType HTML_BLOCK = typeOf(THtmlBlockEvent.class);
+
+    private TFlightEvents() {
+        // Just static members
+    }
+
+    private static EventType typeOf(Class<? extends Event> eventClass) {
+        try {
+            return EventType.getEventType(eventClass);
+        } catch (Throwable t) {
+            // Flight Recorder is not available in this JVM: events are never enabled.
+            return null;
+        }
+    }
+
+    private static boolean isEnabled(EventType type) {
+        return type != null && type.isEnabled();
+    }
+
+    static TSeriesCandidateEvent beginSeriesCandidate() {
+        if (!isEnabled(SERIES_CANDIDATE)) {
+            return null;
+        }
+        TSeriesCandidateEvent ev = new TSeriesCandidateEvent();
+        ev.begin();
+        return ev;
+    }
+
+    static TSeriesScreeningEvent beginSeriesScreening() {
+        if (!isEnabled(SERIES_SCREENING)) {
+            return null;
+        }
+        TSeriesScreeningEvent ev = new TSeriesScreeningEvent();
+        ev.begin();
+        return ev;
+    }
+
+    static TSeriesAcceptedEvent newSeriesAccepted() {
+        return isEnabled(SERIES_ACCEPTED) ? new TSeriesAcceptedEvent() : null;
+    }
+
+    static TExtractionEvent beginExtraction() {
+        if (!isEnabled(EXTRACTION)) {
+            return null;
+        }
+        TExtractionEvent ev = new TExtractionEvent();
+        ev.begin();
+        return ev;
+    }
+
+    static TAssignmentEvent beginAssignment() {
+        if (!isEnabled(ASSIGNMENT)) {
+            return null;
+        }
+        TAssignmentEvent ev = new TAssignmentEvent();
+        ev.begin();
+        return ev;
+    }
+
+    static TFileEvent beginFile() {
+        if (!isEnabled(FILE_IO)) {
+            return null;
+        }
+        TFileEvent ev = new TFileEvent();
+        ev.begin();
+        return ev;
+    }
+
+    static THtmlBlockEvent beginHtmlBlock() {
+        if (!isEnabled(HTML_BLOCK)) {
+            return null;
+        }
+        THtmlBlockEvent ev = new THtmlBlockEvent();
+        ev.begin();
+        return ev;
+    }
+
+    @Name("harrygpotter.tombola.SeriesCandidate")
+    @Label("Series Candidate Generated")
+    @Category({"TombolaLib", "Series Generation"})
+    @Description("A candidate series of six cards has been generated")
+    @Enabled(false)
+    @StackTrace(false)
+    static class TSeriesCandidateEvent extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("Candidate")
+        @Description("Ordinal of the candidate within the current execution")
+        long candidate;
+    }
+
+    @Name("harrygpotter.tombola.SeriesScreening")
+    @Label("Series Screening Finished")
+    @Category({"TombolaLib", "Series Generation"})
+    @Description("A candidate series has been compared with the accepted ones and with the card archive")
+    @Enabled(false)
+    @StackTrace(false)
+    static class TSeriesScreeningEvent extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("Outcome")
+        String outcome;
+
+        @Label("Compared Series")
+        @Description("Accepted series compared with the candidate before the outcome was known")
+        int comparedSeries;
+    }
+
+    @Name("harrygpotter.tombola.SeriesAccepted")
+    @Label("Series Accepted")
+    @Category({"TombolaLib", "Series Generation"})
+    @Description("A new series has been added to the series list")
+    @StackTrace(false)
+    static class TSeriesAcceptedEvent extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("Accepted Series")
+        int acceptedSeries;
+
+        @Label("Candidates")
+        @Description("Candidates generated in the current execution so far")
+        long candidates;
+
+        @Label("Search Time")
+        @Description("Time spent to find the series since the previous one has been accepted")
+        @Timespan(Timespan.NANOSECONDS)
+        long searchTime;
+
+        @Label("Max Equal Per Card")
+        int maxEqualPerCard;
+
+        @Label("Max Equal Per Row")
+        int maxEqualPerRow;
+    }
+
+    @Name("harrygpotter.tombola.Extraction")
+    @Label("Extraction Processed")
+    @Category({"TombolaLib", "Game"})
+    @Description("A number has been extracted and checked against all the cards of a game")
+    @StackTrace(false)
+    static class TExtractionEvent extends Event {
+
+        @Label("Game")
+        String game;
+
+        @Label("Number")
+        int number;
+
+        @Label("Extraction Count")
+        int extractionCount;
+
+        @Label("Cards")
+        int cards;
+
+        @Label("Matched Cards")
+        int matchedCards;
+
+        @Label("Candidates")
+        int candidates;
+
+        @Label("Parallel Checking")
+        boolean parallel;
+
+        @Label("Result")
+        String result;
+    }
+
+    @Name("harrygpotter.tombola.Assignment")
+    @Label("Awards Assigned")
+    @Category({"TombolaLib", "Game"})
+    @Description("Candidate cards have been evaluated to assign awards, or a contention has been resolved")
+    @StackTrace(false)
+    static class TAssignmentEvent extends Event {
+
+        @Label("Game")
+        String game;
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Extraction Count")
+        int extractionCount;
+
+        @Label("Result")
+        String result;
+    }
+
+    @Name("harrygpotter.tombola.File")
+    @Label("Series File Read/Write")
+    @Category({"TombolaLib", "I/O"})
+    @Description("A file of series of cards has been read or written")
+    static class TFileEvent extends Event {
+
+        @Label("Path")
+        String path;
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Format")
+        String format;
+
+        @Label("Series")
+        int series;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("harrygpotter.tombola.HtmlBlock")
+    @Label("Html Block Rendered")
+    @Category({"TombolaLib", "Printing"})
+    @Description("A block of cards has been rendered through an html template and written to the output file")
+    @StackTrace(false)
+    static class THtmlBlockEvent extends Event {
+
+        @Label("Output")
+        String output;
+
+        @Label("Block")
+        int block;
+
+        @Label("Cards")
+        int cards;
+
+        @Label("Characters")
+        int characters;
+    }
+}           // End Of File - Rel.(1.1)
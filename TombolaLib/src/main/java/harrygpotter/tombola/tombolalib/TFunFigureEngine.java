@@ -0,0 +1,520 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import static harrygpotter.tombola.tombolalib.TUtils.NOVANTA;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A TFunFigureEngine object evaluates a catalogue of <i>fun figures</i> (see
+ * {@linkplain ITFunFigure}) while a game is played.&nbsp;It observes the game
+ * (see {@link TGame#addObserver(ITGameObserver)}), so it never slows down the
+ * extractions, and keeps up to date a few aggregates whose update costs only
+ * the cards containing the extracted number: figures are then evaluated
+ * reading the aggregates, without scanning the cards or the history of the
+ * sacchetto.&nbsp;The figures are:
+ * <ul>
+ * <li><b>LONGEST_WAIT</b>: the number still in the sacchetto that has not come
+ * out for the longest time, counting the extractions of all the games observed
+ * by the engine;</li>
+ * <li><b>ROUND_TOP</b>: the card that matched the most numbers in the last
+ * round of {@value #ROUND_SIZE} extractions;</li>
+ * <li><b>DECADE_STREAK</b>: numbers of the same decade extracted in a row;</li>
+ * <li><b>NOBODY_HAS</b>: an extracted number that is on no card.</li>
+ * </ul>
+ * An engine can observe many games, one after the other, for example all the
+ * games of an event.&nbsp;Its methods can be invoked by any thread.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see ITFunFigure
+ * @see ITGameObserver
+ */
+public class TFunFigureEngine implements ITGameObserver {
+
+    /**
+     * Number of extractions making a round, for the ROUND_TOP figure.
+     */
+    public static final int ROUND_SIZE = 10;
+
+    /**
+     * Minimum length of a streak of numbers from the same decade worth being
+     * announced.
+     */
+    public static final int MIN_STREAK = 3;
+
+    /**
+     * Minimum number of extractions a number must have been waited for to be
+     * announced as the longest waiting one.
+     */
+    public static final int LONG_WAIT = 45;
+
+    // Event scope aggregates: lastSeen[n-1] is the value of totalExtractions when n was extracted
+    //  the last time, 0 if never.
+    private long totalExtractions = 0;
+    private final long[] lastSeen = new long[NOVANTA];
+
+    // Game scope aggregates
+    private TCardList cards = null;
+    private int indexedCards = 0;
+    private final int[][] postings = new int[NOVANTA][];
+    private final int[] postingCount = new int[NOVANTA];
+    private final int[] sequence = new int[NOVANTA];
+    private final long[] previousSeen = new long[NOVANTA];
+    private int count = 0;
+    private long extractedLow = 0, extractedHigh = 0;
+    private int streak = 0, longestStreak = 0;
+    private int nobodyCount = 0;
+    // roundHits[i] counts the numbers matched by the i-th card in the round roundStamp[i].
+    private int[] roundHits = new int[0];
+    private int[] roundStamp = new int[0];
+    private int round = -1, bestCard = -1, bestHits = 0;
+
+    private final List<ITFunFigure> figures;
+    private List<ITFunFigure> latest = Collections.emptyList();
+    private long lastEvaluationNanos = 0;
+
+    /**
+     * Build an engine with the whole catalogue of figures.&nbsp;Add it as an
+     * observer to a game to start evaluating them.
+     */
+    public TFunFigureEngine() {
+        List<ITFunFigure> catalogue = new ArrayList<>();
+        catalogue.add(new TLongestWait());
+        catalogue.add(new TRoundTop());
+        catalogue.add(new TDecadeStreak());
+        catalogue.add(new TNobodyHas());
+        this.figures = Collections.unmodifiableList(catalogue);
+        for (int n = 0; n < NOVANTA; n++) {
+            postings[n] = new int[0];
+        }
+    }
+
+    /**
+     * Return the (unmodifiable) list of all the figures of the engine.
+     *
+     * @return the list of all the figures of the engine.
+     */
+    public List<ITFunFigure> getFigures() {
+        return figures;
+    }
+
+    /**
+     * Return the figure with the given identifier.
+     *
+     * @param id the identifier of the figure, for example "NOBODY_HAS".
+     *
+     * @return the figure with the given identifier, null if there is none.
+     */
+    public ITFunFigure getFigure(String id) {
+        for (ITFunFigure f : figures) {
+            if (f.getID().equals(id)) {
+                return f;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the figures worth announcing after the last event received by the
+     * engine, the most interesting first.
+     *
+     * @return the (unmodifiable) list of the figures worth announcing.
+     */
+    public synchronized List<ITFunFigure> getLatestFigures() {
+        return latest;
+    }
+
+    /**
+     * Return the time, in nanoseconds, spent to update the aggregates and
+     * evaluate all the figures after the last event.
+     *
+     * @return the time spent handling the last event, in nanoseconds.
+     */
+    public synchronized long getLastEvaluationNanos() {
+        return lastEvaluationNanos;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // ITGameObserver methods
+
+    @Override
+    public synchronized void startGameObservation(TGame game) {
+        cards = (game == null ? null : game.getCards());
+        indexedCards = 0;
+        Arrays.fill(postingCount, 0);
+        count = 0;
+        extractedLow = extractedHigh = 0;
+        streak = longestStreak = nobodyCount = 0;
+        round = bestCard = -1;
+        bestHits = 0;
+        roundHits = new int[0];
+        roundStamp = new int[0];
+        refreshCards();
+        if (game != null && game.getSacchetto() != null) {
+            // The game could have already been started.
+            TSacchetto sacchetto = game.getSacchetto();
+            for (int i = 0; i < sacchetto.getExtractedCount(); i++) {
+                extracted(sacchetto.getExtractedAt(i));
+            }
+        }
+        latest = Collections.emptyList();
+    }
+
+    @Override
+    public void beforeStart(TGameEvent event) {
+        // Nothing to do: everything happens at each extraction.
+    }
+
+    @Override
+    public synchronized void postExtractionEvaluation(TGameEvent event) {
+        long start = System.nanoTime();
+        if (event.getType() == TGameEvent.TEventType.UNDONE) {
+            undone(event);
+        } else {
+            // Numbers of coalesced events come first (their order is unknown), then the event one.
+            for (int n = 1; n <= NOVANTA; n++) {
+                if (n != event.getNumber() && event.isExtracted(n) && !isExtracted(n)) {
+                    extracted(n);
+                }
+            }
+            if (event.isExtracted(event.getNumber()) && !isExtracted(event.getNumber())) {
+                extracted(event.getNumber());
+            }
+        }
+        evaluateAll();
+        lastEvaluationNanos = System.nanoTime() - start;
+    }
+
+    @Override
+    public void postAssignmentEvaluation(TGameEvent event) {
+        // Nothing to do: no figure depends on awards.
+    }
+
+    @Override
+    public synchronized void afterEnd(TGameEvent event) {
+        postExtractionEvaluation(event);
+    }
+
+    @Override
+    public synchronized void stopGameObservation(TGame game) {
+        cards = null;
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    private boolean isExtracted(int n) {
+        return (((n <= 64 ? extractedLow : extractedHigh) >>> (n - 1)) & 1L) != 0;
+    }
+
+    private void mark(int n, boolean extracted) {
+        long bit = 1L << (n - 1);
+        if (n <= 64) {
+            extractedLow = (extracted ? extractedLow | bit : extractedLow & ~bit);
+        } else {
+            extractedHigh = (extracted ? extractedHigh | bit : extractedHigh & ~bit);
+        }
+    }
+
+    // Index the cards added since the last call, including the cards joining the game late.
+    private void refreshCards() {
+        if (cards == null) {
+            return;
+        }
+        int size = cards.size();
+        if (size <= indexedCards) {
+            return;
+        }
+        roundHits = Arrays.copyOf(roundHits, size);
+        roundStamp = Arrays.copyOf(roundStamp, size);
+        Arrays.fill(roundStamp, indexedCards, size, -1);
+        for (int i = indexedCards; i < size; i++) {
+            TCard c = cards.get(i);
+            for (int k = 0; k < 15; k++) {
+                int n = c.getNumber(k) - 1;
+                if (postingCount[n] == postings[n].length) {
+                    postings[n] = Arrays.copyOf(postings[n], Math.max(16, postings[n].length * 2));
+                }
+                postings[n][postingCount[n]++] = i;
+            }
+        }
+        indexedCards = size;
+    }
+
+    private void extracted(int n) {
+        refreshCards();
+        sequence[count] = n;
+        previousSeen[count] = lastSeen[n - 1];
+        count++;
+        mark(n, true);
+        totalExtractions++;
+        lastSeen[n - 1] = totalExtractions;
+        streak = (count > 1 && TUtils.decina(sequence[count - 2]) == TUtils.decina(n) ? streak + 1 : 1);
+        longestStreak = Math.max(longestStreak, streak);
+        nobodyCount += (postingCount[n - 1] == 0 ? 1 : 0);
+        countRound(count - 1);
+    }
+
+    // Update the round aggregates with the number extracted at the given moment.
+    private void countRound(int moment) {
+        int r = moment / ROUND_SIZE;
+        if (r != round) {
+            round = r;
+            bestCard = -1;
+            bestHits = 0;
+        }
+        int n = sequence[moment] - 1;
+        int[] p = postings[n];
+        for (int k = 0; k < postingCount[n]; k++) {
+            int i = p[k];
+            if (roundStamp[i] != round) {
+                roundStamp[i] = round;
+                roundHits[i] = 0;
+            }
+            if (++roundHits[i] > bestHits) {
+                bestHits = roundHits[i];
+                bestCard = i;
+            }
+        }
+    }
+
+    private void undone(TGameEvent event) {
+        int n = event.getNumber();
+        if (count == 0 || sequence[count - 1] != n) {
+            // Out of sync (coalesced events): forget all the numbers put back into the sacchetto.
+            resynchronize(event);
+            return;
+        }
+        count--;
+        mark(n, false);
+        lastSeen[n - 1] = previousSeen[count];
+        totalExtractions--;
+        nobodyCount -= (postingCount[n - 1] == 0 ? 1 : 0);
+        recountStreaks();
+        // The round aggregates are rebuilt replaying the current round: at most ROUND_SIZE numbers.
+        int from = (count == 0 ? 0 : ((count - 1) / ROUND_SIZE) * ROUND_SIZE);
+        forgetRound(n);
+        for (int moment = from; moment < count; moment++) {
+            forgetRound(sequence[moment]);
+        }
+        round = -1;
+        bestCard = -1;
+        bestHits = 0;
+        for (int moment = from; moment < count; moment++) {
+            countRound(moment);
+        }
+    }
+
+    // Reset the round hits of the cards containing the number.
+    private void forgetRound(int n) {
+        int[] p = postings[n - 1];
+        for (int k = 0; k < postingCount[n - 1]; k++) {
+            roundStamp[p[k]] = -1;
+        }
+    }
+
+    private void resynchronize(TGameEvent event) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (event.isExtracted(sequence[i])) {
+                sequence[kept] = sequence[i];
+                previousSeen[kept++] = previousSeen[i];
+            } else {
+                mark(sequence[i], false);
+                lastSeen[sequence[i] - 1] = previousSeen[i];
+                totalExtractions--;
+                nobodyCount -= (postingCount[sequence[i] - 1] == 0 ? 1 : 0);
+            }
+        }
+        count = kept;
+        recountStreaks();
+        Arrays.fill(roundStamp, -1);
+        round = -1;
+        bestCard = -1;
+        bestHits = 0;
+        for (int moment = (count == 0 ? 0 : ((count - 1) / ROUND_SIZE) * ROUND_SIZE); moment < count; moment++) {
+            countRound(moment);
+        }
+    }
+
+    private void recountStreaks() {
+        streak = longestStreak = 0;
+        for (int i = 0; i < count; i++) {
+            streak = (i > 0 && TUtils.decina(sequence[i - 1]) == TUtils.decina(sequence[i]) ? streak + 1 : 1);
+            longestStreak = Math.max(longestStreak, streak);
+        }
+    }
+
+    private void evaluateAll() {
+        List<ITFunFigure> worth = new ArrayList<>();
+        int[] levels = new int[figures.size()];
+        for (ITFunFigure f : figures) {
+            int level = f.evaluate();
+            if (level > 0) {
+                levels[worth.size()] = level;
+                worth.add(f);
+            }
+        }
+        // Few figures: a simple insertion sort by decreasing level.
+        for (int i = 1; i < worth.size(); i++) {
+            for (int j = i; j > 0 && levels[j] > levels[j - 1]; j--) {
+                int l = levels[j];
+                levels[j] = levels[j - 1];
+                levels[j - 1] = l;
+                worth.set(j, worth.set(j - 1, worth.get(j)));
+            }
+        }
+        latest = Collections.unmodifiableList(worth);
+    }
+
+    // ---------------------------------------------------------------------------------
+    // The catalogue of figures. Each of them reads the engine aggregates holding the engine lock.
+
+    private abstract class TFigure implements ITFunFigure {
+
+        private final String id;
+        private final TFigureCategory category;
+        private final String format;
+        protected Object[] values = new Object[0];
+        protected int level = 0;
+
+        TFigure(String id, TFigureCategory category, String format) {
+            this.id = id;
+            this.category = category;
+            this.format = format;
+        }
+
+        @Override
+        public String getID() {
+            return id;
+        }
+
+        @Override
+        public TFigureCategory getCategory() {
+            return category;
+        }
+
+        @Override
+        public String getMessage() {
+            synchronized (TFunFigureEngine.this) {
+                return (level == 0 || values.length == 0 ? "" : String.format(format, values));
+            }
+        }
+
+        @Override
+        public Object[] getValues() {
+            synchronized (TFunFigureEngine.this) {
+                return values.clone();
+            }
+        }
+
+        @Override
+        public int evaluate() {
+            synchronized (TFunFigureEngine.this) {
+                level = evaluateLocked();
+                return level;
+            }
+        }
+
+        abstract int evaluateLocked();
+    }
+
+    private class TLongestWait extends TFigure {
+
+        TLongestWait() {
+            super("LONGEST_WAIT", TFigureCategory.EVENT, "Number %d is the longest waiting one: it has not come out for %d extractions");
+        }
+
+        @Override
+        int evaluateLocked() {
+            int number = -1;
+            long wait = -1;
+            for (int n = 1; n <= NOVANTA; n++) {
+                if (!isExtracted(n) && totalExtractions - lastSeen[n - 1] > wait) {
+                    wait = totalExtractions - lastSeen[n - 1];
+                    number = n;
+                }
+            }
+            if (number < 0) {
+                values = new Object[0];
+                return 0;
+            }
+            values = new Object[]{number, wait};
+            return (wait >= LONG_WAIT ? (int) Math.min(wait / ROUND_SIZE, Integer.MAX_VALUE) : 0);
+        }
+    }
+
+    private class TRoundTop extends TFigure {
+
+        TRoundTop() {
+            super("ROUND_TOP", TFigureCategory.GAME, "Card <<%s>> matched %d of the last %d numbers, more than any other card");
+        }
+
+        @Override
+        int evaluateLocked() {
+            if (bestCard < 0 || cards == null) {
+                values = new Object[0];
+                return 0;
+            }
+            values = new Object[]{cards.get(bestCard).getLabel(), bestHits, count - round * ROUND_SIZE};
+            // Worth announcing only when the round is complete.
+            return (count % ROUND_SIZE == 0 ? bestHits : 0);
+        }
+    }
+
+    private class TDecadeStreak extends TFigure {
+
+        TDecadeStreak() {
+            super("DECADE_STREAK", TFigureCategory.GAME, "%d numbers in a row from %d to %d! The longest streak of the game is %d");
+        }
+
+        @Override
+        int evaluateLocked() {
+            if (count == 0) {
+                values = new Object[0];
+                return 0;
+            }
+            int decade = TUtils.decina(sequence[count - 1]);
+            values = new Object[]{streak, Math.max(decade * 10, 1), (decade == 8 ? NOVANTA : decade * 10 + 9), longestStreak};
+            return (streak >= MIN_STREAK ? streak : 0);
+        }
+    }
+
+    private class TNobodyHas extends TFigure {
+
+        TNobodyHas() {
+            super("NOBODY_HAS", TFigureCategory.GAME, "Nobody has number %d on their cards! It happened %d time(s) in this game");
+        }
+
+        @Override
+        int evaluateLocked() {
+            if (count == 0) {
+                values = new Object[0];
+                return 0;
+            }
+            int n = sequence[count - 1];
+            values = new Object[]{n, nobodyCount};
+            return (postingCount[n - 1] == 0 ? 1 : 0);
+        }
+    }
+}           // End Of File - Rel.(1.1)
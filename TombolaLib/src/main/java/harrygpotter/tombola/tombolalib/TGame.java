@@ -20,7 +20,16 @@ package harrygpotter.tombola.tombolalib;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * TombolaGame class is a funny piece of code, where a Tombola game match can be
@@ -39,6 +48,16 @@ public class TGame implements Serializable {
 
     public static int DEFAULT_SUPERBOMBOLA = 40;
 
+    /**
+     * Minimum number of playing cards for which, when a checking pool has been
+     * set (see {@link TGame#setCheckingPool(ForkJoinPool)}), cards are checked
+     * in parallel after each extraction.
+     */
+    public static final int PARALLEL_CHECKING_THRESHOLD = 16384;
+
+    // Smallest slice of the card list checked by a single fork/join task.
+    private static final int MIN_CHECKING_SLICE = 2048;
+
     private String id;
     private String label;
     private TGameStatus status = TGameStatus.INITIALIZING;
@@ -67,8 +86,53 @@ public class TGame implements Serializable {
     //  It is used for data analysis and statistics purposes.
     private final int[][] conflictVector = new int[6][90];
 
+    // Bit n-1 of extractedLow/extractedHigh is set when number n has been extracted. They are
+    //  changed only while holding the game lock: other threads read the published copies below.
+    private long extractedLow = 0L;
+    private long extractedHigh = 0L;
+
+    // Lock free view of the game state, used to verify claims from many threads while the game
+    //  runs. publishState() copies the extracted numbers and the extraction count at the end of
+    //  each state changing action, and replaces claimState only when the cards or the awards have
+    //  changed: readers use an optimistic read of stateLock, so that they never wait for the game
+    //  and an extraction does not allocate anything.
+    private final StampedLock stateLock = new StampedLock();
+    private long publishedLow = 0L;
+    private long publishedHigh = 0L;
+    private int publishedCount = 0;
+    private volatile TClaimState claimState = TClaimState.EMPTY;
+    private final int[] claimableScratch = new int[TAward.TOMBOLA + 1];
+    private final int[] lastWinScratch = new int[TAward.TOMBOLA + 1];
+
+    // Cards of the game as seen by claim verification, indexed by label. Late cards are appended
+    //  to it in constant time and it is published together with the rest of the claim state.
+    private TCardRoster roster = TCardRoster.EMPTY;
+
+    // Per player aggregates, updated incrementally at each extraction: cardViews[i] is the view
+    //  of the owner of the i-th card (null if the card has no owner) and cardSlots[i] the position
+    //  of the card within that view.
+    private transient Map<String, TPlayerView> playerViews = Collections.emptyMap();
+    private transient TPlayerView[] cardViews = new TPlayerView[0];
+    private transient int[] cardSlots = new int[0];
+
+    // Positions, within the card list, of the cards containing each number: the first
+    //  cardsByNumberCount[n-1] items of cardsByNumber[n-1] are the cards containing n. Used to
+    //  undo an extraction touching only the cards affected by it.
+    private transient int[][] cardsByNumber = new int[TUtils.NOVANTA][0];
+    private final int[] cardsByNumberCount = new int[TUtils.NOVANTA];
+
+    // When not null, cards are checked by this pool and checkResults[i] receives the result of
+    //  the i-th card, then read in card order as if the cards had been checked one at a time.
+    private transient ForkJoinPool checkingPool = null;
+    private transient int[] checkResults = new int[0];
+
+    // Observers are notified through the event bus, created on first use.
+    private transient volatile TGameEventBus eventBus = null;
+
+    // When not null, each extraction is measured and recorded here, to be published through JMX.
+    private transient volatile TGameMetrics metrics = null;
+
     // TODO(2.0) private int superTombola = 91;
-    // TODO(2.0) private ITGameObserver funFactsEval = null;
     // TODO(2.0) private TFunFacts funFactsEval = null; * DELETE *
 
     /**
@@ -288,7 +352,12 @@ public class TGame implements Serializable {
         }
         this.cards = cards;        
         this.cards.resetGameStatus();
+        this.cards.refreshIndex();
+        this.buildPlayerViews();
+        this.buildNumberIndex();
+        this.buildRoster();
         this.checkInitialization();
+        this.publishState();
     }
 
     /**
@@ -325,6 +394,119 @@ public class TGame implements Serializable {
         this.confirmCandidateOn = confirmCandidateOn;
     }
 
+    /**
+     * Set the fork/join pool used to check the cards in parallel after each
+     * extraction, when they are at least
+     * {@link TGame#PARALLEL_CHECKING_THRESHOLD}.&nbsp;The card list is split in
+     * slices checked by different threads, then the results are read back in
+     * card order, so candidates, awards and log messages are exactly the same
+     * as with the sequential check.&nbsp;Use null (the default) to always check
+     * cards sequentially, or {@linkplain ForkJoinPool#commonPool()} if there is
+     * no need for a dedicated pool.
+     *
+     * @param pool the pool used to check the cards, null to check them
+     * sequentially.
+     */
+    public void setCheckingPool(ForkJoinPool pool) {
+        if (status != TGameStatus.INITIALIZING && status != TGameStatus.READY) {
+            throw new TTombolaRuntimeException("Parallel checking of cards can be set only before the game has started.");
+        }
+        this.checkingPool = pool;
+    }
+
+    /**
+     * Return the fork/join pool used to check the cards in parallel, null if
+     * they are checked sequentially.
+     *
+     * @return the pool used to check the cards, null if they are checked
+     * sequentially.
+     *
+     * @see TGame#setCheckingPool(ForkJoinPool)
+     */
+    public ForkJoinPool getCheckingPool() {
+        return this.checkingPool;
+    }
+
+    /**
+     * Set the event bus used to notify the observers of this game, for
+     * example to choose the executor delivering the events (see
+     * {@linkplain TGameEventBus}).&nbsp;It can be set only before the game has
+     * started and before any observer has been added.
+     *
+     * @param eventBus the event bus used to notify the observers.
+     */
+    public synchronized void setEventBus(TGameEventBus eventBus) {
+        if (status != TGameStatus.INITIALIZING && status != TGameStatus.READY) {
+            throw new TTombolaRuntimeException("The event bus can be set only before the game has started.");
+        }
+        if (this.eventBus != null && this.eventBus.hasObservers()) {
+            throw new TTombolaRuntimeException("The event bus cannot be changed once observers have been added to the game.");
+        }
+        eventBus.attach(this);
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Return the event bus used to notify the observers of this game, creating
+     * a default one if none has been set.
+     *
+     * @return the event bus used to notify the observers of this game.
+     *
+     * @see TGame#setEventBus(TGameEventBus)
+     */
+    public synchronized TGameEventBus getEventBus() {
+        if (this.eventBus == null) {
+            TGameEventBus defaultBus = new TGameEventBus();
+            defaultBus.attach(this);
+            this.eventBus = defaultBus;
+        }
+        return this.eventBus;
+    }
+
+    /**
+     * Return the metrics object of this game, enabling it on the first
+     * invocation: from then on, the latency, the amount of matched cards and
+     * the amount of candidates of each extraction are recorded, so that they
+     * can be published through JMX (see
+     * {@linkplain TGameMetrics#register(TGame)}).&nbsp;Until this method is
+     * invoked, extractions are not measured at all.
+     *
+     * @return the metrics object of this game.
+     */
+    public synchronized TGameMetrics getMetrics() {
+        if (this.metrics == null) {
+            this.metrics = new TGameMetrics(this);
+        }
+        return this.metrics;
+    }
+
+    /**
+     * Add an observer that will be notified, asynchronously, of the main events
+     * of the game: start, extractions, assigned awards and end.&nbsp;Observers
+     * are notified by the threads of the event bus, so they never slow down
+     * the game.
+     *
+     * @param observer the observer to add.
+     *
+     * @see ITGameObserver
+     * @see TGame#getEventBus()
+     */
+    public void addObserver(ITGameObserver observer) {
+        getEventBus().addObserver(observer);
+    }
+
+    /**
+     * Remove an observer of the game.
+     *
+     * @param observer the observer to remove.
+     *
+     * @return true if the observer has been removed, false if it was not
+     * observing the game.
+     */
+    public boolean removeObserver(ITGameObserver observer) {
+        return getEventBus().removeObserver(observer);
+    }
+
     /**
      * Return the elapsed time, in milliseconds, since the beginning of this
      * tombola game.&nbsp;If the game hasn't already been started, this method
@@ -387,6 +569,8 @@ public class TGame implements Serializable {
             throw new TTombolaRuntimeException("Awards set cannot be changed during the game. It can be set only during the initialization phase.");
         }
         this.awards = awards;
+        awards.refreshDispatchTable();
+        publishState();
         checkInitialization();
     }
 
@@ -465,19 +649,71 @@ public class TGame implements Serializable {
 
 
     /**
-     * !!!STILL NOT IMPLEMENTED!!! Allow to add a card late after the game as been
-     * already started, recovering all numbers previously extracted.
-     * 
-     * @param newCard the card to be extracted.
+     * Add a card to a game that has already been started, for example when it
+     * has been sold late to a player.&nbsp;The card is brought up to date at
+     * once, marking all its numbers already extracted, and it is registered in
+     * the card list, in the label index used to verify claims and in the view
+     * of its owner, so that it can play from the next extraction on.&nbsp;Numbers
+     * extracted before the card joined the game do not let it win anything: the
+     * awards the card has already reached are just logged.<br>
+     * A late card can be added only between two extractions, while the game is
+     * ready or playing, and it must have a label not used by any other card of
+     * the game (claims look cards up by label).&nbsp;Claims can be verified by
+     * other threads while the card is being added: the card is appended to the
+     * label index of the game in constant time, and it becomes visible to them
+     * together with the game state.&nbsp;Lookups on the {@linkplain TCardList}
+     * itself, instead, should not be used while late cards can be added.
+     *
+     * @param newCard the card to be added.
      * @return true is the card has been really added, false otherwise
      */
-    public boolean addLateCard(TCard newCard) {
-        // TODO(2.0) Still not implemented
-        // When a card could be added to an already started game?
-        // You will need to check all already extracted numbers, without considering a win for the card
-        // You have to compare with available prizes
-        // You have to log the event...
-        return false;
+    public synchronized boolean addLateCard(TCard newCard) {
+        if (status != TGameStatus.READY && status != TGameStatus.PLAYING) {
+            logger.gameLog(ITLogger.TLogLevel.WAR, id, exCount, lastEx,
+                    "Attention! Late cards can be added only between two extractions, while the game is running.");
+            return false;
+        }
+        if (newCard == null || newCard.getLabel() == null || newCard.getLabel().length() < 1 || roster.byLabel.containsKey(newCard.getLabel())) {
+            logger.gameLog(ITLogger.TLogLevel.WAR, id, exCount, lastEx,
+                    "Attention! A late card must have a label not used by any other card of the game.");
+            return false;
+        }
+        int score = newCard.checkExtractedMask(extractedLow, extractedHigh, exCount, sacchetto);
+        if (score == 15) {
+            logger.gameLog(ITLogger.TLogLevel.WAR, id, exCount, lastEx,
+                    String.format("Card <<%s>> has not been added: all its numbers have already been extracted.", newCard.getLabel()));
+            newCard.resetGameStatus();
+            return false;
+        }
+        int[] joinRows = new int[3];
+        for (int row = 0; row < 3; row++) {
+            joinRows[row] = newCard.getScoreOnRow(row);
+        }
+        cards.add(newCard);
+        registerLateCard(newCard, cards.size() - 1);
+        indexCardNumbers(newCard, cards.size() - 1);
+        roster = roster.append(new TCardEntry(newCard, roster.size, joinRows, score, exCount));
+        publishState();
+
+        String owner = newCard.getOwner();
+        if (owner != null && owner.length() > 0) {
+            owner = ", owned by " + owner + ",";
+        } else {
+            owner = "";
+        }
+        logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
+                String.format("Card <<%s>>%s joined the game late, with %d number(s) already matched", newCard.getLabel(), owner, score));
+        // The card cannot win the awards it has already reached with the numbers extracted before:
+        //  the scores it joined with are stored in the roster, so that such claims are refused too.
+        int best = newCard.getBestRowScore();
+        for (int i = 0; i < awards.size(); i++) {
+            TAward aw = awards.get(i);
+            if (!aw.isAssigned() && aw.getCategory() <= best) {
+                logger.gameLog(ITLogger.TLogLevel.WAR, id, exCount, lastEx,
+                        String.format("Card <<%s>> had already reached the award <<%s>> before joining the game, so it cannot win it", newCard.getLabel(), aw.getLabel()));
+            }
+        }
+        return true;
     }
 
     /**
@@ -582,15 +818,18 @@ public class TGame implements Serializable {
         }
 
         // Now <extracted> contains a good Tombola number to work with
+        TGameMetrics m = this.metrics;
+        long ts_extraction = (m != null ? System.nanoTime() : 0L);
+        TFlightEvents.TExtractionEvent ev = TFlightEvents.beginExtraction();
         status = TGameStatus.BUSY;
         lastMatchingCount = 0;
 
         // Tabellone cards are check apart here to assure they always display the current status
         // of the game, both if they participate to the game (are included in cards properties) or not.
         if (this.tabellone != null) {
-            tabellone.forEach((boardCard) -> {
-                boardCard.checkExtraction(extracted);
-            });
+            for (int i = 0; i < tabellone.size(); i++) {
+                tabellone.get(i).checkExtraction(extracted);
+            }
         }
         if (exCount == 0) {
             // This is the first extracted number of the game...
@@ -615,72 +854,138 @@ public class TGame implements Serializable {
             logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
                     "Explicit confirmation of candidate cards to win awards is set to <" + this.confirmCandidateOn + ">");
 
-            // TODO(2.0) funFactsEvaluation...
-            // if (funFactsEval != null) {
-            //   logger.verbose(gameLogEntry(String.format("Fantastic, fun figures crowler <<%s>> has been activated.", "MISSING")));
-            // }
+            // Labels could have been changed after the cards have been set: claims must find them.
+            this.cards.refreshIndex();
+            this.buildRoster();
+            // ...and so could have been owners, so player views are built again.
+            this.buildPlayerViews();
         }
 
         exCount++;
         lastEx = extracted;
-        logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
-                String.format("Number <<%2d>> has been extracted", extracted));
+        if (extracted <= 64) {
+            extractedLow |= 1L << (extracted - 1);
+        } else {
+            extractedHigh |= 1L << (extracted - 1);
+        }
+        if (isLogging(ITLogger.TLogLevel.INF)) {
+            logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
+                    String.format("Number <<%2d>> has been extracted", extracted));
+        }
+        if (exCount == 1) {
+            fireEvent(TGameEvent.TEventType.STARTED, extracted, null);
+        }
 
         // Step 0: All lists of cards candidate to be appointed an award are cleaned
-        awards.forEach(aw -> aw.getCandidatesList().clear());
-        awards.forEach(aw -> aw.getValidatingList().clear());
-        // Step 1: Look for card(s) to candidate to an available award
+        for (int i = 0; i < awards.size(); i++) {
+            TAward aw = awards.get(i);
+            if (!aw.getCandidatesList().isEmpty()) {
+                aw.getCandidatesList().clear();
+            }
+            if (!aw.getValidatingList().isEmpty()) {
+                aw.getValidatingList().clear();
+            }
+        }
+        // Step 1: Look for card(s) to candidate to an available award. The award a card
+        //  can grab with its score is looked up in the award list dispatch table, so that
+        //  nothing is allocated here until a card actually becomes a candidate.
         boolean candidateFlag = false;
-        int firstAvailableValue = awards.getFirstAvailableAward().getCategory();
-        for (TCard c : cards) {
-            int result = c.checkExtraction(extracted);
-            lastMatchingCount += (result > 0 ? 1 : 0);
-            if (result >= firstAvailableValue) {
-                // On the c card has been checked the number just extracted.
-                // Let's check if there is an award to grab
-                for (TAward aw : awards.getAvailableAwards()) {
-                    if (aw.getCategory() == result || aw.getCategory() == (result - 5) || aw.getCategory() == (result - 10)) {
-                        // c card is a candidate to win the aw award.
-                        candidateFlag = true;
-                        if (this.confirmCandidateOn) {
-                            aw.setStatus(TAward.TAwardStatus.VALIDATING);
-                            aw.getValidatingList().add(c);
-                        } else {
-                            aw.setStatus(TAward.TAwardStatus.CONTENDED);
-                            aw.getCandidatesList().add(c);
-                        }
-
-                        String owner = c.getOwner();
-                        if (owner != null && owner.length() > 0) {
-                            owner = ", owned by " + owner + ",";
-                        } else {
-                            owner = "";
-                        }
-                        String sConfirmation = "";
-                        if (this.confirmCandidateOn) {
-                            sConfirmation = ", waiting for explicit acceptance or deny";
-                        }
-                        logger.gameLog(ITLogger.TLogLevel.CAN, id, exCount, lastEx,
-                                String.format("Card <<%s>>%s is candidate to the award <<%s>>%s", c.getLabel(), owner, aw.getLabel(), sConfirmation));
-                        // !!! Very important "break" instruction: so this card cannot participate to other award check whitin this same extraction.
-                        break;
+        int candidateCount = 0;
+        boolean parallel = (checkingPool != null && cards.size() >= PARALLEL_CHECKING_THRESHOLD);
+        if (parallel) {
+            checkInParallel(extracted);
+        }
+        for (int i = 0; i < cards.size(); i++) {
+            TCard c = cards.get(i);
+            int result = (parallel ? checkResults[i] : c.checkExtraction(extracted));
+            if (result > 0) {
+                lastMatchingCount++;
+                TPlayerView view = cardViews[i];
+                if (view != null) {
+                    view.update(cardSlots[i], c.getBestRowScore(), c.getTotalScore());
+                }
+            }
+            TAward aw = awards.getAwardByScore(result);
+            if (aw != null) {
+                // On the c card has been checked the number just extracted and
+                // c card is a candidate to win the aw award. Note that a card can
+                // participate to just one award check whitin the same extraction.
+                candidateFlag = true;
+                candidateCount++;
+                if (this.confirmCandidateOn) {
+                    aw.setStatus(TAward.TAwardStatus.VALIDATING);
+                    aw.getValidatingList().add(c);
+                } else {
+                    aw.setStatus(TAward.TAwardStatus.CONTENDED);
+                    aw.getCandidatesList().add(c);
+                }
+
+                if (isLogging(ITLogger.TLogLevel.CAN)) {
+                    String owner = c.getOwner();
+                    if (owner != null && owner.length() > 0) {
+                        owner = ", owned by " + owner + ",";
+                    } else {
+                        owner = "";
                     }
+                    String sConfirmation = "";
+                    if (this.confirmCandidateOn) {
+                        sConfirmation = ", waiting for explicit acceptance or deny";
+                    }
+                    logger.gameLog(ITLogger.TLogLevel.CAN, id, exCount, lastEx,
+                            String.format("Card <<%s>>%s is candidate to the award <<%s>>%s", c.getLabel(), owner, aw.getLabel(), sConfirmation));
                 }
             }
         }
-        logger.gameLog(ITLogger.TLogLevel.VER, id, exCount, lastEx,
-                String.format("%d cards out of %d have matched the extracted number.", lastMatchingCount, cards.size()));
+        if (isLogging(ITLogger.TLogLevel.VER)) {
+            logger.gameLog(ITLogger.TLogLevel.VER, id, exCount, lastEx,
+                    String.format("%d cards out of %d have matched the extracted number.", lastMatchingCount, cards.size()));
+        }
+
+        fireEvent(TGameEvent.TEventType.EXTRACTED, extracted, null);
 
         // If explicit candidates confirmation is set to true, award are not automatically assigned
         //  and explicit confirmation/deny of cards is required.
         if (candidateFlag && this.confirmCandidateOn) {
             this.status = TGameStatus.ACCEPTING;
+            publishState();
             this.lastResultCode = TGameResultCode.ACCEPT_OR_DENY;
+            extractionDone(m, ts_extraction, ev, parallel, candidateCount, lastResultCode);
             return this.lastResultCode;
         }
-        return assign();
+        TGameResultCode result = assign();
+        extractionDone(m, ts_extraction, ev, parallel, candidateCount, result);
+        return result;
     }   // End of ExtractNumber
 
+    // Feed the metrics object and the Flight Recorder, when enabled, at the end of an extraction.
+    private void extractionDone(TGameMetrics m, long ts_extraction, TFlightEvents.TExtractionEvent ev,
+            boolean parallel, int candidateCount, TGameResultCode result) {
+        if (m != null) {
+            m.recordExtraction(System.nanoTime() - ts_extraction, lastMatchingCount, candidateCount, result);
+        }
+        if (ev != null) {
+            ev.game = this.id;
+            ev.number = this.lastEx;
+            ev.extractionCount = this.exCount;
+            ev.cards = this.cards.size();
+            ev.matchedCards = this.lastMatchingCount;
+            ev.candidates = candidateCount;
+            ev.parallel = parallel;
+            ev.result = String.valueOf(result);
+            ev.commit();
+        }
+    }
+
+    private void assignmentDone(TFlightEvents.TAssignmentEvent ev, String operation, TGameResultCode result) {
+        if (ev != null) {
+            ev.game = this.id;
+            ev.operation = operation;
+            ev.extractionCount = this.exCount;
+            ev.result = String.valueOf(result);
+            ev.commit();
+        }
+    }
+
     /**
      * When {@link TGame#setConfirmCandidateOn(boolean)} is set to true, all cards that
      * are candidate to be appointed an award after a number extraction require explicit
@@ -838,6 +1143,14 @@ public class TGame implements Serializable {
      * as well as the next action to perform to properly continue the game.
      */
     public TGameResultCode assign() {
+        TFlightEvents.TAssignmentEvent ev = TFlightEvents.beginAssignment();
+        TGameResultCode result = assignAwards();
+        assignmentDone(ev, "ASSIGN", result);
+        return result;
+    }
+
+    // Body of assign(), kept apart so that the Flight Recorder event covers all its exit points.
+    private TGameResultCode assignAwards() {
         if (this.status != TGameStatus.BUSY) {
             logger.gameLog(ITLogger.TLogLevel.WAR, id, exCount, lastEx, "You should not proceed to assign award jet. Complete cards accept/deny phase before.");
             return this.lastResultCode;
@@ -847,7 +1160,8 @@ public class TGame implements Serializable {
 
         // ----------------------------
         // Step 2: Assign award where there is JUST ONE candidate card.
-        for (TAward aw : awards) {
+        for (int a = 0; a < awards.size(); a++) {
+            TAward aw = awards.get(a);
             if (aw.isContended() && aw.getCandidatesList().size() == 1) {
                 // Award aw is contented and there is just one candidate card.
                 TCard winner = aw.getCandidatesList().get(0);
@@ -874,6 +1188,7 @@ public class TGame implements Serializable {
                 thereIsLoneWinner = true;
                 aw.getWinnerList().add(winner);
                 aw.getWithJollyList().add(winner.hasLastScoreUsedJolly());
+                registerWin(winner, aw);
                 aw.setWinningNumber(lastEx);
                 aw.setWinningOrdinal(exCount);
 
@@ -885,7 +1200,8 @@ public class TGame implements Serializable {
 
         // At this point, there are no awards in contended status whit just one candidate.
         // Step 3: Look for multiple candidate for the same award and manage/resolve conflicts
-        for (TAward aw : awards) {
+        for (int a = 0; a < awards.size(); a++) {
+            TAward aw = awards.get(a);
             int numCandidates = aw.getCandidatesList().size();
             if (aw.getStatus() == TAward.TAwardStatus.CONTENDED && numCandidates > 1) {
                 //concurrentNominations += numCandidati;
@@ -902,6 +1218,11 @@ public class TGame implements Serializable {
                 thereAreContenders = true;
             }
         }
+        if (thereIsLoneWinner) {
+            awards.refreshDispatchTable();
+            fireEvent(TGameEvent.TEventType.ASSIGNED, lastEx, awards.getWonsByExtractionCount(exCount));
+        }
+        publishState();
         if (thereAreContenders) {
             this.status = TGameStatus.RESOLVING;
             this.lastResultCode = TGameResultCode.MULTICANDIDATES;
@@ -913,6 +1234,7 @@ public class TGame implements Serializable {
             this.ts_end = System.currentTimeMillis();
             logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
                     String.format("Congratulations my dear, Tombola Game <<%s>> is over after %s. Thanks a lot and see you again", id, TUtils.prettyMilliseconds(this.getElapsedTime())));
+            fireEvent(TGameEvent.TEventType.ENDED, lastEx, awards.getWonsByExtractionCount(exCount));
             this.lastResultCode = TGameResultCode.GAME_OVER;
             return this.lastResultCode;
         }
@@ -1007,6 +1329,14 @@ public class TGame implements Serializable {
      *
      */
     public TGameResultCode resolveCandidates(int[] winnerIndexes) {
+        TFlightEvents.TAssignmentEvent ev = TFlightEvents.beginAssignment();
+        TGameResultCode result = resolveContention(winnerIndexes);
+        assignmentDone(ev, "RESOLVE", result);
+        return result;
+    }
+
+    // Body of resolveCandidates(int[]), kept apart so that the Flight Recorder event covers all its exit points.
+    private TGameResultCode resolveContention(int[] winnerIndexes) {
         TGameResultCode resolveResult = TGameResultCode.WINNER;
         if (this.status != TGameStatus.RESOLVING) {
             logger.gameLog(ITLogger.TLogLevel.ERR, id, exCount, lastEx,
@@ -1022,6 +1352,7 @@ public class TGame implements Serializable {
             for (int j : winnerIndexes) {
                 aw.getWinnerList().add(aw.getCandidatesList().get(j));
                 aw.getWithJollyList().add(aw.getCandidatesList().get(j).hasLastScoreUsedJolly());
+                registerWin(aw.getCandidatesList().get(j), aw);
                 aw.getCandidatesList().remove(j);
                 logger.gameLog(ITLogger.TLogLevel.CAN, id, exCount, lastEx,
                         String.format("User has resolved in favor of card <<%s>>", aw.getWinnerList().get(winIdx).getLabel()));
@@ -1073,6 +1404,7 @@ public class TGame implements Serializable {
                     // Here we can be supposed that candidate list contains just one card
                     awards.get(i + 1).getWinnerList().add(aw.getCandidatesList().get(0));
                     awards.get(i + 1).getWithJollyList().add(aw.getCandidatesList().get(0).hasLastScoreUsedJolly());
+                    registerWin(aw.getCandidatesList().get(0), awards.get(i + 1));
                     awards.get(i + 1).setStatus(TAward.TAwardStatus.ASSIGNED);
                     awards.get(i + 1).setWinningNumber(lastEx);
                     awards.get(i + 1).setWinningOrdinal(exCount);
@@ -1106,6 +1438,9 @@ public class TGame implements Serializable {
             logger.gameLog(ITLogger.TLogLevel.ERR, id, exCount, lastEx, "Too many winners proposed to this award!");
         }
 
+        awards.refreshDispatchTable();
+        publishState();
+        fireEvent(TGameEvent.TEventType.ASSIGNED, lastEx, awards.getWonsByExtractionCount(exCount));
         if (resolveResult == TGameResultCode.WINNER) {
             status = TGameStatus.PLAYING;
             // Here the number extraction can be considered concluded. If there are still other candidates
@@ -1117,6 +1452,7 @@ public class TGame implements Serializable {
             this.ts_end = System.currentTimeMillis();
             logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
                     String.format("Congratulation my dears, Tombola Game <%s> is Over after %s. Thanks you and see you again.", id, TUtils.prettyMilliseconds(this.getElapsedTime())));
+            fireEvent(TGameEvent.TEventType.ENDED, lastEx, awards.getWonsByExtractionCount(exCount));
             this.lastResultCode = TGameResultCode.GAME_OVER;
             return this.lastResultCode;
         }
@@ -1126,82 +1462,144 @@ public class TGame implements Serializable {
 
     /**
      * This method, as you can imagine, allows the rollback of the last
-     * extracted number during a tombola game.&nbsp;Perhaps it requires to be
-     * checked, tested and fixed a bit...
+     * extracted number during a tombola game.&nbsp;It is kept for
+     * compatibility and just calls {@link TGame#undoLastExtraction()}.
      *
      * @return WRONG_NUMBER TGameResultCode value if the call to rollback() is
      * invalid for some reason (no number has been already extracted, or the
-     * game is already ended or not in a proper status), NOWINNER is the
-     * rollback process "seems" to succeed.
+     * game is not in a proper status), NOWINNER if the rollback process
+     * succeeded.
+     *
+     * @see TGame#undoLastExtraction()
      */
     public TGameResultCode rollback() {
+        return undoLastExtraction();
+    }
+
+    /**
+     * Undo the last extraction, for example when the number has been called by
+     * mistake: the number is put back into the sacchetto (that is shaken
+     * again), unmarked on the cards and on the billboard, and the awards
+     * assigned or contended because of it become available again.&nbsp;Only
+     * the cards containing the number are touched, so the cost does not depend
+     * on how many cards are playing.&nbsp;The awards to restore are the ones
+     * whose winning ordinal is the undone extraction, plus the ones still
+     * waiting for a contention to be resolved or candidates to be confirmed:
+     * between two extractions all the other awards not assigned jet are
+     * available, so no other record is needed.<br>
+     * It can be called after an extraction has been completed, while a
+     * contention is being resolved or candidates confirmed, and even after the
+     * game is over.
+     *
+     * @return WRONG_NUMBER TGameResultCode value if there is nothing to undo or
+     * the game is not in a proper status, NOWINNER if the extraction has been
+     * undone.
+     */
+    public synchronized TGameResultCode undoLastExtraction() {
         // Step 0: Correct status checking
-        if (this.exCount < 1 || this.lastEx < 1 || this.lastEx > 90) {
-            this.lastResultCode = TGameResultCode.WRONG_NUMBER;
-            return this.lastResultCode;
-        }
-        if (this.getStatus() != TGameStatus.ENDED || this.getStatus() != TGameStatus.PLAYING || this.getStatus() != TGameStatus.RESOLVING) {
+        if (exCount < 1 || lastEx < 1 || lastEx > TUtils.NOVANTA
+                || (status != TGameStatus.PLAYING && status != TGameStatus.RESOLVING && status != TGameStatus.ACCEPTING && status != TGameStatus.ENDED)) {
+            if (logger != null) {
+                logger.gameLog(ITLogger.TLogLevel.WAR, id, exCount, lastEx,
+                        "Attention! There is no completed extraction to undo right now.");
+            }
             this.lastResultCode = TGameResultCode.WRONG_NUMBER;
             return this.lastResultCode;
         }
+        int undone = lastEx;
         logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
-                String.format("Oh my God, that's a twist! We're going to rollback the last extraction. Number %d is going back into the ballot box.", lastEx));
-        // Step 1: Roolback the last number from all playing cards
+                String.format("Oh my God, that's a twist! We're going to rollback the last extraction. Number %d is going back into the ballot box.", undone));
+
+        // Step 1: Unmark the number just on the cards containing it
+        int[] positions = cardsByNumber[undone - 1];
         int cardCount = 0;
-        for (TCard c : cards) {
-            int result = c.uncheckExtraction(lastEx);
+        for (int k = 0; k < cardsByNumberCount[undone - 1]; k++) {
+            int i = positions[k];
+            TCard c = cards.get(i);
+            int result = c.uncheckExtraction(undone);
             if (result == -2) {
                 logger.gameLog(ITLogger.TLogLevel.WAR, id, exCount, lastEx,
-                        String.format("It seemes that on card <<%s>> owned by <<%s>> the number %d is present but not already marked. It was a mistake?", c.getLabel(), c.getOwner(), lastEx));
+                        String.format("It seemes that on card <<%s>> owned by <<%s>> the number %d is present but not already marked. It was a mistake?", c.getLabel(), c.getOwner(), undone));
             } else if (result >= 0) {
-                logger.gameLog(ITLogger.TLogLevel.VER, id, exCount, lastEx,
-                        String.format("Last extracted number, %d, has been rolled back on card <<%s>> owned by <<%s>>", lastEx, c.getLabel(), c.getOwner()));
                 cardCount++;
+                if (cardViews[i] != null) {
+                    cardViews[i].update(cardSlots[i], c.getBestRowScore(), c.getTotalScore());
+                }
             }
         }
         logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
-                String.format("Number %d has been unmarked on %d cards out of %d total playing cards", lastEx, cardCount, cards.size()));
-
-        // Step 2: Eventually Undo assiged / deciding awards with the last number
-        for (TAward aw : awards) {
-            if (aw.getWinningOrdinal() == exCount && aw.getWinningNumber() == lastEx) {
-                // It must be rolled back
-                if (aw.isAssigned()) {
-                    aw.setStatus(TAward.TAwardStatus.AVAILABLE);
-                    aw.setWinningNumber(-1);
-                    aw.setWinningOrdinal(-1);
-                    for (TCard w : aw.getWinnerList()) {
-                        logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
-                                String.format("Award <<%s>> is available again. Sorry card <<%s>> owned by <<%s>>, you have to give it back now.", aw.getLabel(), w.getLabel(), w.getOwner()));
+                String.format("Number %d has been unmarked on %d cards out of %d total playing cards", undone, cardCount, cards.size()));
+
+        // Step 2: Undo the awards assigned or contended with the last number
+        for (int a = 0; a < awards.size(); a++) {
+            TAward aw = awards.get(a);
+            if (aw.isAssigned() && aw.getWinningOrdinal() == exCount) {
+                for (TCard w : aw.getWinnerList()) {
+                    logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
+                            String.format("Award <<%s>> is available again. Sorry card <<%s>> owned by <<%s>>, you have to give it back now.", aw.getLabel(), w.getLabel(), w.getOwner()));
+                    TPlayerView view = (w.getOwner() == null ? null : playerViews.get(w.getOwner()));
+                    if (view != null) {
+                        view.removeAward(aw);
                     }
-                    aw.getWinnerList().clear();
                 }
-                if (aw.isContended()) {
-                    aw.setStatus(TAward.TAwardStatus.AVAILABLE);
-                    aw.setWinningNumber(-1);
-                    aw.setWinningOrdinal(-1);
-                    for (TCard c : aw.getCandidatesList()) {
-                        logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
-                                String.format("Award <<%s>> is no more contended by card <<%s>> owned by <<%s>>", aw.getLabel(), c.getLabel(), c.getOwner()));
-                    }
-                    aw.getCandidatesList().clear();
+                aw.getWinnerList().clear();
+                aw.getWithJollyList().clear();
+                aw.setWinningNumber(-1);
+                aw.setWinningOrdinal(-1);
+                aw.setStatus(TAward.TAwardStatus.AVAILABLE);
+            } else if (!aw.isAssigned() && aw.getStatus() != TAward.TAwardStatus.AVAILABLE) {
+                for (TCard c : aw.getCandidatesList()) {
+                    logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
+                            String.format("Award <<%s>> is no more contended by card <<%s>> owned by <<%s>>", aw.getLabel(), c.getLabel(), c.getOwner()));
                 }
+                aw.setStatus(TAward.TAwardStatus.AVAILABLE);
+            }
+            if (!aw.getCandidatesList().isEmpty()) {
+                aw.getCandidatesList().clear();
+            }
+            if (!aw.getValidatingList().isEmpty()) {
+                aw.getValidatingList().clear();
             }
         }
 
         // Step 3: Finally re-put the extracted number in the sacchetto again
         // and unmark also from the tabbellone.
         if (this.tabellone != null) {
-            tabellone.forEach((boardCard) -> {
-                boardCard.uncheckExtraction(lastEx);
-            });
+            for (int i = 0; i < tabellone.size(); i++) {
+                tabellone.get(i).uncheckExtraction(undone);
+            }
         }
         sacchetto.rollBack();
-        int temp = lastEx;
-        lastEx = sacchetto.getLastExtracted();
+        if (undone <= 64) {
+            extractedLow &= ~(1L << (undone - 1));
+        } else {
+            extractedHigh &= ~(1L << (undone - 1));
+        }
+        for (int i = 0; i < 6; i++) {
+            winVector[i][exCount - 1] = 0;
+            conflictVector[i][exCount - 1] = 0;
+        }
+        exCount--;
+        lastMatchingCount = 0;
+        if (exCount == 0) {
+            // Back to the very beginning: also cards not containing the number forget the check.
+            cards.resetGameStatus();
+            buildPlayerViews();
+            // ...and late cards can now win everything, as the cards that were there from the start.
+            buildRoster();
+            lastEx = 0;
+            status = TGameStatus.READY;
+        } else {
+            lastEx = sacchetto.getLastExtracted();
+            status = TGameStatus.PLAYING;
+            // Late cards containing the undone number joined with scores they do not have any more.
+            roster.clampLateCards(exCount);
+        }
+        awards.refreshDispatchTable();
+        publishState();
         logger.gameLog(ITLogger.TLogLevel.INF, id, exCount, lastEx,
-                String.format("Now everithing has been restored as %d has never been extracted, I hope!", temp));
-        // TODO(2.0) Verify the return codes. Maybe it is preferable to use new and ad hoc TGame statuses...
+                String.format("Now everithing has been restored as %d has never been extracted, I hope!", undone));
+        fireEvent(TGameEvent.TEventType.UNDONE, undone, null);
         this.lastResultCode = TGameResultCode.NOWINNER;
         return this.lastResultCode;
     }
@@ -1218,8 +1616,480 @@ public class TGame implements Serializable {
         return this.lastResultCode;
     }
 
+    /**
+     * Check, without changing anything, if a number has already been extracted
+     * in this game.&nbsp;It does not wait for the extraction in progress, if
+     * any, so it can be safely invoked from any thread while the game runs.
+     *
+     * @param number the number to check, in the [1..90] range
+     * @return true if the number has already been extracted.
+     */
+    public boolean isExtracted(int number) {
+        if (number < 1 || number > TUtils.NOVANTA) {
+            return false;
+        }
+        long stamp = stateLock.tryOptimisticRead();
+        long mask = (number <= 64 ? publishedLow : publishedHigh);
+        if (!stateLock.validate(stamp)) {
+            stamp = stateLock.readLock();
+            try {
+                mask = (number <= 64 ? publishedLow : publishedHigh);
+            } finally {
+                stateLock.unlockRead(stamp);
+            }
+        }
+        return ((mask >>> (number - 1)) & 1L) != 0;
+    }
+
+    /**
+     * Verify, in constant time, the claim of a player shouting to have won an
+     * award with a card.&nbsp;The card is found by label, and its numbers are
+     * checked against the numbers extracted so far; the claim is valid if the
+     * card reaches the category of the award and at least one award of that
+     * category is still to be assigned (or has been assigned with the very last
+     * extraction, typically to the claiming card itself).&nbsp;A card that
+     * joined the game late can claim only the awards it has reached after it
+     * joined: the others are refused as {@linkplain TClaimResult#TOO_LATE}.<br>
+     * This method never waits for the extraction in progress, so it can be
+     * invoked by many threads (i.e. many operators) while the game runs: the
+     * answer is consistent with the game state after, at least, the last
+     * completed extraction.
+     *
+     * @param cardLabel the label of the claimed card
+     * @param category the category of the claimed award, for instance
+     * {@linkplain TAward#TERNO} or {@linkplain TAward#TOMBOLA}
+     * @return the outcome of the verification
+     * @see TClaimResult
+     * @see TGame#addLateCard(TCard)
+     */
+    public TClaimResult verifyClaim(String cardLabel, int category) {
+        long stamp = stateLock.tryOptimisticRead();
+        TClaimResult result = evaluateClaim(cardLabel, null, category);
+        if (!stateLock.validate(stamp)) {
+            stamp = stateLock.readLock();
+            try {
+                result = evaluateClaim(cardLabel, null, category);
+            } finally {
+                stateLock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Verify, in constant time, the claim of a player shouting to have won an
+     * award with a card.&nbsp;See {@linkplain TGame#verifyClaim(String, int)}
+     * for details.
+     *
+     * @param card the claimed card. It must be one of the cards participating
+     * to the game.
+     * @param category the category of the claimed award
+     * @return the outcome of the verification
+     */
+    public TClaimResult verifyClaim(TCard card, int category) {
+        if (card == null) {
+            return TClaimResult.UNKNOWN_CARD;
+        }
+        long stamp = stateLock.tryOptimisticRead();
+        TClaimResult result = evaluateClaim(card.getLabel(), card, category);
+        if (!stateLock.validate(stamp)) {
+            stamp = stateLock.readLock();
+            try {
+                result = evaluateClaim(card.getLabel(), card, category);
+            } finally {
+                stateLock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return how many numbers had been extracted when a card joined the
+     * game.&nbsp;The numbers extracted until then are marked on the card, but
+     * they cannot let it win anything.
+     *
+     * @param card one of the cards participating to the game.
+     * @return 0 for the cards playing from the start, the extraction count at
+     * which the card has been added for late cards (see
+     * {@linkplain TGame#addLateCard(TCard)}), -1 if the card is not playing
+     * this game.
+     * @see TGameRecord
+     */
+    public int getJoinOrdinal(TCard card) {
+        TCardEntry entry = (card == null ? null : this.claimState.roster.lookup(card.getLabel()));
+        return (entry == null || entry.card != card ? -1 : entry.joinOrdinal);
+    }
+
+    /**
+     * Return the view collecting the state of all the cards owned by a player:
+     * best scores, awards won and cards one number away from an award.&nbsp;The
+     * view is updated incrementally at each extraction, so reading it costs
+     * nothing however many cards are playing.&nbsp;Owners are read from the
+     * cards when they are set and again when the first number is extracted.
+     *
+     * @param owner the name of the player, as returned by
+     * {@linkplain TCard#getOwner()}
+     * @return the view of the player, null if the player owns no card in this
+     * game.
+     * @see TPlayerView
+     */
+    public TPlayerView getPlayerView(String owner) {
+        return (owner == null ? null : playerViews.get(owner));
+    }
+
+    /**
+     * Return the views of all the players owning at least one card in this
+     * game, in the order their first card appears within the card list.
+     *
+     * @return the (unmodifiable) collection of the player views.
+     * @see TGame#getPlayerView(String)
+     */
+    public Collection<TPlayerView> getPlayerViews() {
+        return Collections.unmodifiableCollection(playerViews.values());
+    }
+
     // ---------------------------------------------------------------------------------
 
+    // Build the player views from the current state of the cards, using the owner index of the card list.
+    private void buildPlayerViews() {
+        Map<String, TPlayerView> views = new LinkedHashMap<>();
+        TPlayerView[] viewsByCard = new TPlayerView[cards.size()];
+        int[] slots = new int[cards.size()];
+        Map<TCard, Integer> positions = new IdentityHashMap<>(cards.size() * 2);
+        for (int i = 0; i < cards.size(); i++) {
+            positions.put(cards.get(i), i);
+        }
+        for (String owner : cards.getOwners()) {
+            List<TCard> owned = cards.getByOwner(owner);
+            TPlayerView view = new TPlayerView(owner, owned);
+            views.put(owner, view);
+            for (int k = 0; k < owned.size(); k++) {
+                int i = positions.get(owned.get(k));
+                viewsByCard[i] = view;
+                slots[i] = k;
+            }
+        }
+        if (awards != null) {
+            for (TAward aw : awards) {
+                for (TCard w : aw.getWinnerList()) {
+                    TPlayerView view = views.get(w.getOwner());
+                    if (view != null) {
+                        view.addAward(aw);
+                    }
+                }
+            }
+        }
+        this.playerViews = views;
+        this.cardViews = viewsByCard;
+        this.cardSlots = slots;
+    }
+
+    // Publish an event to the observers, if any: nothing is allocated when there are none.
+    private void fireEvent(TGameEvent.TEventType type, int number, List<TAward> wonAwards) {
+        TGameEventBus bus = this.eventBus;
+        if (bus != null && bus.hasObservers()) {
+            bus.publish(type, exCount, number, (type == TGameEvent.TEventType.EXTRACTED ? lastMatchingCount : 0),
+                    extractedLow, extractedHigh, wonAwards);
+        }
+    }
+
+    // Check all the cards in slices on the checking pool, storing the results in checkResults.
+    private void checkInParallel(int extracted) {
+        if (checkResults.length < cards.size()) {
+            checkResults = new int[cards.size() + cards.size() / 8];
+        }
+        int slice = Math.max(MIN_CHECKING_SLICE, cards.size() / (checkingPool.getParallelism() * 4));
+        checkingPool.invoke(new TCheckingTask(cards, checkResults, extracted, 0, cards.size(), slice));
+    }
+
+    // Check the cards in [from, to), splitting the range until it is not larger than a slice.
+    private static class TCheckingTask extends RecursiveAction {
+
+        private final TCardList cards;
+        private final int[] results;
+        private final int extracted, from, to, slice;
+
+        TCheckingTask(TCardList cards, int[] results, int extracted, int from, int to, int slice) {
+            this.cards = cards;
+            this.results = results;
+            this.extracted = extracted;
+            this.from = from;
+            this.to = to;
+            this.slice = slice;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= slice) {
+                for (int i = from; i < to; i++) {
+                    results[i] = cards.get(i).checkExtraction(extracted);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TCheckingTask(cards, results, extracted, from, middle, slice),
+                        new TCheckingTask(cards, results, extracted, middle, to, slice));
+            }
+        }
+    }
+
+    // Build the positions of the cards containing each number.
+    private void buildNumberIndex() {
+        int average = Math.max(cards.size() / 6, 1);
+        for (int n = 0; n < TUtils.NOVANTA; n++) {
+            cardsByNumber[n] = new int[average];
+            cardsByNumberCount[n] = 0;
+        }
+        for (int i = 0; i < cards.size(); i++) {
+            indexCardNumbers(cards.get(i), i);
+        }
+    }
+
+    private void indexCardNumbers(TCard card, int position) {
+        for (int k = 0; k < 15; k++) {
+            int n = card.getNumber(k) - 1;
+            if (cardsByNumberCount[n] == cardsByNumber[n].length) {
+                cardsByNumber[n] = Arrays.copyOf(cardsByNumber[n], cardsByNumber[n].length * 2);
+            }
+            cardsByNumber[n][cardsByNumberCount[n]++] = position;
+        }
+    }
+
+    // Register in the player views a card appended to the card list at the given position.
+    private void registerLateCard(TCard card, int position) {
+        if (position >= cardViews.length) {
+            cardViews = Arrays.copyOf(cardViews, Math.max(position + 1, cardViews.length * 2));
+            cardSlots = Arrays.copyOf(cardSlots, cardViews.length);
+        }
+        String owner = card.getOwner();
+        if (owner == null || owner.length() < 1) {
+            return;
+        }
+        TPlayerView view = playerViews.get(owner);
+        if (view == null) {
+            view = new TPlayerView(owner, Collections.emptyList());
+            playerViews.put(owner, view);
+        }
+        cardViews[position] = view;
+        cardSlots[position] = view.addCard(card);
+    }
+
+    private void registerWin(TCard winner, TAward aw) {
+        TPlayerView view = (winner.getOwner() == null ? null : playerViews.get(winner.getOwner()));
+        if (view != null) {
+            view.addAward(aw);
+        }
+    }
+
+    // Invoked within a read of stateLock by the callers, that evaluate it again if the read was not
+    //  valid: each published field is read just once, so that the result is consistent when it is.
+    //  If the expected card is not null, the card found by label must be the very same object.
+    private TClaimResult evaluateClaim(String cardLabel, TCard expected, int category) {
+        TClaimState state = this.claimState;
+        long low = this.publishedLow;
+        long high = this.publishedHigh;
+        int count = this.publishedCount;
+        TCardEntry entry = state.roster.lookup(cardLabel);
+        if (entry == null || (expected != null && entry.card != expected)) {
+            return TClaimResult.UNKNOWN_CARD;
+        }
+        TCard card = entry.card;
+        int[] claimable = state.claimable;
+        if (count == 0 || claimable == null) {
+            return TClaimResult.NOT_STARTED;
+        }
+        if (category < 0 || category >= claimable.length || claimable[category] < 0) {
+            return TClaimResult.UNKNOWN_AWARD;
+        }
+        int best = 0;
+        int total = 0;
+        boolean reachedAfterJoin = false;
+        for (int row = 0; row < 3; row++) {
+            int score = 0;
+            for (int k = 0; k < 5; k++) {
+                int n = card.getNumber(row * 5 + k);
+                score += (int) (((n <= 64 ? low : high) >>> (n - 1)) & 1L);
+            }
+            best = Math.max(best, score);
+            total += score;
+            // A late card wins on a row only if the row reached the category after the card joined.
+            reachedAfterJoin |= (score >= category && (entry.joinRows == null || entry.joinRows[row] < category));
+        }
+        boolean reached = (category == TAward.TOMBOLA ? total == 15 : best >= category);
+        if (!reached) {
+            return TClaimResult.NOT_REACHED;
+        }
+        if (category == TAward.TOMBOLA) {
+            reachedAfterJoin = (entry.joinRows == null || entry.joinTotal < 15);
+        }
+        if (!reachedAfterJoin) {
+            return TClaimResult.TOO_LATE;
+        }
+        // An award assigned with the very last extraction can still be claimed, typically by its winner.
+        return (claimable[category] > 0 || state.lastWin[category] == count ? TClaimResult.VALID : TClaimResult.TOO_LATE);
+    }
+
+    // Publish the lock free view of the game state used by claim verification. The award counters
+    //  are evaluated in scratch arrays, and a new claim state is allocated only if they or the
+    //  roster have changed: an extraction without winners just copies three numbers.
+    private void publishState() {
+        int[] claimable = this.claimableScratch;
+        int[] lastWin = this.lastWinScratch;
+        Arrays.fill(claimable, -1);
+        Arrays.fill(lastWin, 0);
+        if (awards != null) {
+            for (int i = 0; i < awards.size(); i++) {
+                TAward aw = awards.get(i);
+                int c = aw.getCategory();
+                if (c >= 0 && c < claimable.length) {
+                    claimable[c] = Math.max(claimable[c], 0);
+                    if (!aw.isAssigned()) {
+                        claimable[c]++;
+                    } else {
+                        lastWin[c] = Math.max(lastWin[c], aw.getWinningOrdinal());
+                    }
+                }
+            }
+        }
+        TClaimState previous = this.claimState;
+        TClaimState next = previous;
+        if (awards == null) {
+            if (previous.roster != roster || previous.claimable != null) {
+                next = new TClaimState(null, null, roster);
+            }
+        } else if (previous.roster != roster || !Arrays.equals(claimable, previous.claimable)
+                || !Arrays.equals(lastWin, previous.lastWin)) {
+            next = new TClaimState(claimable.clone(), lastWin.clone(), roster);
+        }
+        long stamp = stateLock.writeLock();
+        try {
+            this.publishedLow = extractedLow;
+            this.publishedHigh = extractedHigh;
+            this.publishedCount = exCount;
+            this.claimState = next;
+        } finally {
+            stateLock.unlockWrite(stamp);
+        }
+    }
+
+    // Build the roster from scratch, with all the cards of the list taking part to the game from the start.
+    private void buildRoster() {
+        TCardRoster newRoster = new TCardRoster(cards.size());
+        for (int i = 0; i < cards.size(); i++) {
+            TCard c = cards.get(i);
+            newRoster = newRoster.append(new TCardEntry(c, i, null, 0, 0));
+        }
+        this.roster = newRoster;
+    }
+
+    // Immutable snapshot of what claim verification needs besides the extracted numbers: the cards
+    //  and, for each award category, how many awards are still to be assigned (-1 if not used) and
+    //  the extraction count at which the last one has been assigned (0 if none).
+    private static final class TClaimState implements Serializable {
+
+        private static final long serialVersionUID = 2L;
+
+        static final TClaimState EMPTY = new TClaimState(null, null, TCardRoster.EMPTY);
+
+        final int[] claimable;
+        final int[] lastWin;
+        final TCardRoster roster;
+
+        TClaimState(int[] claimable, int[] lastWin, TCardRoster roster) {
+            this.claimable = claimable;
+            this.lastWin = lastWin;
+            this.roster = roster;
+        }
+    }
+
+    // A card as seen by claim verification. Original cards have null joinRows; late cards keep the
+    //  row scores and the total score they had when they joined the game, and the extraction count
+    //  at that moment.
+    private static final class TCardEntry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final TCard card;
+        final int position;
+        final int[] joinRows;
+        final int joinTotal;
+        final int joinOrdinal;
+
+        TCardEntry(TCard card, int position, int[] joinRows, int joinTotal, int joinOrdinal) {
+            this.card = card;
+            this.position = position;
+            this.joinRows = joinRows;
+            this.joinTotal = joinTotal;
+            this.joinOrdinal = joinOrdinal;
+        }
+    }
+
+    // The card array and its label index, published together. Both are shared by the successive
+    //  rosters of a game, and only appended to: a roster sees just the first size entries, so that
+    //  a card appended by the game thread is not visible to claims until its roster is published.
+    private static final class TCardRoster implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        static final TCardRoster EMPTY = new TCardRoster(0);
+
+        final TCardEntry[] entries;
+        final Map<String, TCardEntry> byLabel;
+        final int size;
+
+        TCardRoster(int capacity) {
+            this(new TCardEntry[Math.max(capacity, 1)], new ConcurrentHashMap<>(Math.max(capacity, 1) * 2), 0);
+        }
+
+        private TCardRoster(TCardEntry[] entries, Map<String, TCardEntry> byLabel, int size) {
+            this.entries = entries;
+            this.byLabel = byLabel;
+            this.size = size;
+        }
+
+        // Append an entry in amortized constant time. Cards with a label already used are not indexed.
+        TCardRoster append(TCardEntry entry) {
+            TCardEntry[] array = (size < entries.length ? entries : Arrays.copyOf(entries, entries.length * 2));
+            array[size] = entry;
+            String label = entry.card.getLabel();
+            if (label != null && label.length() > 0) {
+                byLabel.putIfAbsent(label, entry);
+            }
+            return new TCardRoster(array, byLabel, size + 1);
+        }
+
+        TCardEntry lookup(String label) {
+            TCardEntry entry = (label == null ? null : byLabel.get(label));
+            if (entry == null || entry.position >= size || !label.equals(entry.card.getLabel())) {
+                return null;
+            }
+            return entry;
+        }
+
+        // Lower the join scores and extraction of late cards to the current ones, after an extraction
+        //  has been undone. Late cards are always appended after the original ones, so just they are visited.
+        void clampLateCards(int exCount) {
+            for (int i = size - 1; i >= 0 && entries[i].joinRows != null; i--) {
+                TCardEntry entry = entries[i];
+                int[] rows = new int[3];
+                boolean changed = (entry.joinOrdinal > exCount);
+                for (int row = 0; row < 3; row++) {
+                    rows[row] = Math.min(entry.joinRows[row], entry.card.getScoreOnRow(row));
+                    changed |= (rows[row] != entry.joinRows[row]);
+                }
+                if (changed) {
+                    TCardEntry clamped = new TCardEntry(entry.card, i, rows, Math.min(entry.joinTotal, entry.card.getTotalScore()),
+                            Math.min(entry.joinOrdinal, exCount));
+                    entries[i] = clamped;
+                    byLabel.replace(entry.card.getLabel(), entry, clamped);
+                }
+            }
+        }
+    }
+
+    private boolean isLogging(ITLogger.TLogLevel level) {
+        return level.ordinal() <= logger.getLevel().ordinal();
+    }
+
     private void checkInitialization() {
         if (status == TGameStatus.INITIALIZING) {
             if (sacchetto != null && logger != null
@@ -1234,6 +2104,6 @@ public class TGame implements Serializable {
 
     private boolean isGameOver() {
         // A game is ended when there are no more awards to win
-        return awards.stream().noneMatch((aw) -> (!aw.isAssigned()));
+        return awards.getUnassignedCount() == 0;
     }
 }           // End Of File - Rel.(1.1)
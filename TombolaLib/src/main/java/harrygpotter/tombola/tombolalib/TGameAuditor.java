@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Batch verifier of archived games: it reads a list of
+ * {@linkplain TGameRecord} files and, for each of them, replays the game with
+ * a {@linkplain TGameSolver} on the recorded cards and extraction order,
+ * reporting any difference between the recorded outcome and the derived one:
+ * awards won at a different extraction or with a different number, winners
+ * that could not win, numbers extracted after the end of the game, sequences
+ * not produced by the recorded seed and so on.
+ * <p>
+ * Games are verified in parallel, one task per record, on a
+ * {@linkplain ForkJoinPool}; card files shared by many records are read (and
+ * their solvers built) just once.&nbsp;Contentions are verified against the
+ * contenders reported by the solver: the recorded winners of the awards won
+ * at the same extraction for the same category must be different cards, each
+ * of them a contender of that group of awards.&nbsp;As the solver does not
+ * know about 'ex aequo' resolutions, a contention resolved with more winners
+ * that leaves a following award of the same category unassigned is reported
+ * as a discrepancy too, and must be checked by hand.</p>
+ * <p>
+ * Cards that joined the game late are replayed from the extraction after
+ * which they joined, as the game did.&nbsp;Batches of records can be verified
+ * from the command line too, see {@linkplain TGameAuditor#main(String[])}.</p>
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TGameRecord
+ * @see TGameSolver
+ * @since 1.8
+ */
+public class TGameAuditor {
+
+    private final ForkJoinPool pool;
+    private final Map<String, TCardList> cardLists = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> cardLabels = new ConcurrentHashMap<>();
+    private final Map<String, TGameSolver> solvers = new ConcurrentHashMap<>();
+
+    /**
+     * Build an auditor verifying the games on the common ForkJoinPool.
+     */
+    public TGameAuditor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Build an auditor verifying the games on the given pool.
+     *
+     * @param pool the pool running the verification tasks.
+     */
+    public TGameAuditor(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new TTombolaRuntimeException("<ERROR!> The auditor needs a valid ForkJoinPool.");
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * Verify all the given game records, in parallel.
+     *
+     * @param recordFiles the full or relative paths of the record files.
+     * @return the results of the verification, in the same order of the
+     * record files.
+     */
+    public List<TAuditResult> audit(List<String> recordFiles) {
+        List<ForkJoinTask<TAuditResult>> tasks = new ArrayList<>(recordFiles.size());
+        for (String file : recordFiles) {
+            tasks.add(pool.submit(() -> auditFile(file)));
+        }
+        List<TAuditResult> results = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<TAuditResult> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    /**
+     * Verify a single game record, in the calling thread.
+     *
+     * @param record the record to verify.
+     * @return the result of the verification.
+     */
+    public TAuditResult audit(TGameRecord record) {
+        TAuditResult result = new TAuditResult(null, record.getGameId());
+        String key = record.getCardFilePath().toString();
+        TCardList cards;
+        try {
+            cards = cardLists.computeIfAbsent(key, TGameAuditor::readCards);
+        } catch (UncheckedIOException | TTombolaRuntimeException ex) {
+            result.report("Cannot read the card file " + key + ": " + ex.getMessage());
+            return result;
+        }
+        Set<String> labels = cardLabels.computeIfAbsent(key, (k) -> labelsOf(cards));
+        TGameSolver solver;
+        if (record.getLateCards().isEmpty()) {
+            solver = solvers.computeIfAbsent(key + "|" + signatureOf(record.getAwards()),
+                    (k) -> new TGameSolver(cards, record.getAwards()));
+        } else {
+            // Late cards belong to this game only: they are appended to the cards of the file, as
+            //  the game did, and the solver is not cached.
+            TCardList all = new TCardList();
+            all.addAll(cards);
+            int[] joins = new int[cards.size() + record.getLateCards().size()];
+            labels = new HashSet<>(labels);
+            for (int i = 0; i < record.getLateCards().size(); i++) {
+                TCard late = record.getLateCards().get(i);
+                if (!labels.add(late.getLabel())) {
+                    result.report("Late card <<" + late.getLabel() + ">> has the label of another card of the game");
+                }
+                joins[all.size()] = record.getJoinOrdinal(i);
+                all.add(late);
+            }
+            solver = new TGameSolver(all, record.getAwards(), joins);
+        }
+        verify(record, solver, labels, result);
+        return result;
+    }
+
+    /**
+     * Forget all the card files read so far, for example because they have
+     * been changed.
+     */
+    public void clearCache() {
+        solvers.clear();
+        cardLabels.clear();
+        cardLists.clear();
+    }
+
+    /**
+     * Command line entry point: verify the game record files passed as
+     * arguments, printing one line for each of them and then the total.&nbsp;The
+     * exit status is 0 if all the games have been verified, 1 if at least one
+     * discrepancy has been found, 2 if no record file has been given.
+     *
+     * @param args the full or relative paths of the record files.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: TGameAuditor <record_file> [<record_file> ...]");
+            System.exit(2);
+        }
+        List<TAuditResult> results = new TGameAuditor().audit(Arrays.asList(args));
+        int failed = 0;
+        for (TAuditResult r : results) {
+            System.out.println(r);
+            failed += (r.isVerified() ? 0 : 1);
+        }
+        System.out.println(String.format("%d game(s) audited, %d verified, %d with discrepancies.", results.size(), results.size() - failed, failed));
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    private TAuditResult auditFile(String file) {
+        TGameRecord record;
+        try {
+            record = TGameRecord.readRecordFile(file);
+        } catch (IOException | TTombolaRuntimeException ex) {
+            TAuditResult result = new TAuditResult(file, null);
+            result.report("Cannot read the game record: " + ex.getMessage());
+            return result;
+        }
+        TAuditResult result = audit(record);
+        result.recordFile = file;
+        return result;
+    }
+
+    private static TCardList readCards(String fileName) {
+        try {
+            TSeriesList seriesList = new TFileFormatter().readSeriesFile(fileName, TCardFormat.AUTO);
+            if (seriesList == null || seriesList.isEmpty()) {
+                throw new TTombolaRuntimeException("<ERROR!> No card found.");
+            }
+            return new TCardList(seriesList);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static Set<String> labelsOf(TCardList cards) {
+        Set<String> labels = new HashSet<>(2 * cards.size());
+        cards.forEach((c) -> labels.add(c.getLabel()));
+        return labels;
+    }
+
+    private static String signatureOf(TAwardList awards) {
+        StringBuilder sb = new StringBuilder();
+        awards.forEach((a) -> sb.append(a.getCategory()).append(','));
+        return sb.toString();
+    }
+
+    private static void verify(TGameRecord record, TGameSolver solver, Set<String> labels, TAuditResult result) {
+        int[] order = record.getReplayOrder();
+        if (record.isSeeded() && record.getExtractionOrder() != null) {
+            int[] seedOrder = new TSacchetto(record.getRandomSeed()).getExtractionOrder();
+            if (order.length > seedOrder.length || !Arrays.equals(order, Arrays.copyOf(seedOrder, order.length))) {
+                result.report("The extraction sequence is not the one of the seed " + record.getRandomSeed());
+            }
+        }
+        TGameSolver.TSolution solution;
+        try {
+            solution = solver.solve(order);
+        } catch (TTombolaRuntimeException ex) {
+            result.report("The extraction sequence cannot be replayed: " + ex.getMessage());
+            return;
+        }
+        if (solution.isGameOver() && record.getExtractionOrder() != null && order.length > solution.getEndOrdinal()) {
+            result.report(String.format("%d number(s) extracted after the end of the game, at extraction %d",
+                    order.length - solution.getEndOrdinal(), solution.getEndOrdinal()));
+        }
+
+        // Awards won at the same extraction for the same category share their contenders.
+        TAwardList awards = record.getAwards();
+        Map<Long, Set<String>> eligible = new HashMap<>();
+        Map<Long, Set<String>> assigned = new HashMap<>();
+        Set<Long> contended = new HashSet<>();
+        for (int a = 0; a < awards.size(); a++) {
+            if (solution.getWinningOrdinal(a) > 0) {
+                long group = groupOf(awards.get(a), solution.getWinningOrdinal(a));
+                Set<String> set = eligible.computeIfAbsent(group, (g) -> new HashSet<>());
+                solution.getWinners(a).forEach((c) -> set.add(c.getLabel()));
+                if (!solution.getContenders(a).isEmpty()) {
+                    solution.getContenders(a).forEach((c) -> set.add(c.getLabel()));
+                    contended.add(group);
+                }
+            }
+        }
+        for (int a = 0; a < awards.size(); a++) {
+            String award = "Award <<" + awards.get(a).getLabel() + ">>: ";
+            List<String> recorded = record.getWinnerLabels(a);
+            for (String label : recorded) {
+                if (!labels.contains(label)) {
+                    result.report(award + "card <<" + label + ">> is not in the card file");
+                }
+            }
+            int ordinal = solution.getWinningOrdinal(a);
+            if (record.getWinningOrdinal(a) != ordinal || record.getWinningNumber(a) != solution.getWinningNumber(a)) {
+                result.report(String.format("%srecorded as won at extraction %d with number %d, it is won at extraction %d with number %d",
+                        award, record.getWinningOrdinal(a), record.getWinningNumber(a), ordinal, solution.getWinningNumber(a)));
+                continue;
+            }
+            if (ordinal == 0) {
+                if (!recorded.isEmpty()) {
+                    result.report(award + "it is not won, but it has recorded winners " + recorded);
+                }
+                continue;
+            }
+            long group = groupOf(awards.get(a), ordinal);
+            if (contended.contains(group)) {
+                if (recorded.isEmpty()) {
+                    result.report(award + "no winner recorded");
+                }
+                Set<String> used = assigned.computeIfAbsent(group, (g) -> new HashSet<>());
+                for (String label : recorded) {
+                    if (!eligible.get(group).contains(label)) {
+                        result.report(award + "card <<" + label + ">> was not a contender");
+                    } else if (!used.add(label)) {
+                        result.report(award + "card <<" + label + ">> already won an award of the same contention");
+                    }
+                }
+            } else {
+                List<String> expected = new ArrayList<>();
+                solution.getWinners(a).forEach((c) -> expected.add(c.getLabel()));
+                if (!new HashSet<>(recorded).equals(new HashSet<>(expected)) || recorded.size() != expected.size()) {
+                    result.report(award + "recorded winners " + recorded + ", the winners are " + expected);
+                }
+            }
+        }
+    }
+
+    private static long groupOf(TAward award, int ordinal) {
+        return ((long) award.getCategory() << 32) | ordinal;
+    }
+
+    /**
+     * The result of the verification of a game record.
+     */
+    public static class TAuditResult {
+
+        private String recordFile;
+        private final String gameId;
+        private final List<String> discrepancies = new ArrayList<>();
+
+        TAuditResult(String recordFile, String gameId) {  // Only package visibility
+            this.recordFile = recordFile;
+            this.gameId = gameId;
+        }
+
+        private void report(String discrepancy) {
+            discrepancies.add(discrepancy);
+        }
+
+        /**
+         * @return the record file verified, null if the record has been
+         * passed directly to {@linkplain TGameAuditor#audit(TGameRecord)}.
+         */
+        public String getRecordFile() {
+            return recordFile;
+        }
+
+        /**
+         * @return the id of the verified game, null if the record could not
+         * be read.
+         */
+        public String getGameId() {
+            return gameId;
+        }
+
+        /**
+         * @return true if no discrepancy has been found.
+         */
+        public boolean isVerified() {
+            return discrepancies.isEmpty();
+        }
+
+        /**
+         * @return the discrepancies found, empty if the game has been
+         * verified.
+         */
+        public List<String> getDiscrepancies() {
+            return Collections.unmodifiableList(discrepancies);
+        }
+
+        @Override
+        public String toString() {
+            String name = (gameId != null ? gameId : recordFile);
+            if (discrepancies.isEmpty()) {
+                return "Game <<" + name + ">> verified.";
+            }
+            return "Game <<" + name + ">>: " + discrepancies.size() + " discrepancies. " + String.join("; ", discrepancies);
+        }
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable event published by a {@linkplain TGame} to its observers (see
+ * {@linkplain ITGameObserver}).&nbsp;Besides the kind of event and the
+ * extraction it refers to, each event carries the set of all the numbers
+ * extracted so far, so an observer receiving just the most recent of many
+ * events can still show the state of the game correctly.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TGameEventBus
+ */
+public class TGameEvent {
+
+    /**
+     * The kinds of events published by a game.
+     */
+    public enum TEventType {
+        /**
+         * The first number of the game has been extracted.
+         */
+        STARTED,
+        /**
+         * A number has been extracted and checked on all the cards.
+         */
+        EXTRACTED,
+        /**
+         * One or more awards have been assigned.
+         */
+        ASSIGNED,
+        /**
+         * The last extraction has been undone.
+         */
+        UNDONE,
+        /**
+         * The last award has been assigned and the game is over.
+         */
+        ENDED
+    }
+
+    private final TEventType type;
+    private final String gameId;
+    private final long sequence;
+    private final int count;
+    private final int number;
+    private final int matchingCount;
+    private final long extractedLow, extractedHigh;
+    private final List<TAward> wonAwards;
+    private final long timestamp;
+
+    // Only package visibility
+    TGameEvent(TEventType type, String gameId, long sequence, int count, int number, int matchingCount,
+            long extractedLow, long extractedHigh, List<TAward> wonAwards) {
+        this.type = type;
+        this.gameId = gameId;
+        this.sequence = sequence;
+        this.count = count;
+        this.number = number;
+        this.matchingCount = matchingCount;
+        this.extractedLow = extractedLow;
+        this.extractedHigh = extractedHigh;
+        this.wonAwards = (wonAwards == null || wonAwards.isEmpty()
+                ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(wonAwards)));
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Return the kind of this event.
+     *
+     * @return the kind of this event.
+     */
+    public TEventType getType() {
+        return type;
+    }
+
+    /**
+     * Return the id of the game that published this event.
+     *
+     * @return the id of the game.
+     */
+    public String getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Return the sequence number of this event, starting from 0 for the first
+     * event published by the game.
+     *
+     * @return the sequence number of this event.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Return the extraction count when the event has been published, 1 for the
+     * first number of the game.
+     *
+     * @return the extraction count.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Return the last extracted number when the event has been published (for
+     * an UNDONE event, the number put back into the sacchetto), 0 if no number
+     * has been extracted.
+     *
+     * @return the number the event refers to.
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Return how many cards have matched the extracted number, for EXTRACTED
+     * events; 0 for other events.
+     *
+     * @return how many cards have matched the extracted number.
+     */
+    public int getMatchingCount() {
+        return matchingCount;
+    }
+
+    /**
+     * Return true if the given number had been extracted when the event has
+     * been published.
+     *
+     * @param n a number between 1 and 90.
+     *
+     * @return true if the number had been extracted.
+     */
+    public boolean isExtracted(int n) {
+        return n >= 1 && n <= TUtils.NOVANTA && (((n <= 64 ? extractedLow : extractedHigh) >>> (n - 1)) & 1L) != 0;
+    }
+
+    /**
+     * Return the (unmodifiable) list of the awards won so far with the current
+     * extraction, for ASSIGNED and ENDED events; an empty list for other
+     * events.&nbsp;Please note that awards are live objects of the game.
+     *
+     * @return the list of the awards won.
+     */
+    public List<TAward> getWonAwards() {
+        return wonAwards;
+    }
+
+    /**
+     * Return the system time at which the event has been published.
+     *
+     * @return the system time at which the event has been published.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s #%d of game <%s>: count %d, number %d", type, sequence, gameId, count, number);
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A TGameEventBus object delivers the events published by a {@linkplain TGame}
+ * to its observers (see {@linkplain ITGameObserver}) without ever blocking the
+ * thread driving the game.&nbsp;Events are stored in a bounded, lock free ring
+ * and each observer has its own cursor over it: publishing an event just
+ * writes it in the ring and, for the observers that are idle, submits a drain
+ * task to the bus executor.&nbsp;An observer that falls behind by more than the
+ * ring capacity skips to the most recent event, so slow observers get
+ * coalesced events instead of slowing down the game or filling the memory.
+ * <br>
+ * Only extractions are coalesced: STARTED, ASSIGNED, UNDONE and ENDED events
+ * change the awards or the status of the game, so they are also kept in a
+ * separate log and delivered, in order, even to an observer that skips
+ * them.&nbsp;They are a handful for each game (one for each award, plus the
+ * undone extractions), so the log does not grow with the extractions.
+ * <br>
+ * Exceptions thrown by an observer are caught and counted (see
+ * {@link TGameEventBus#getObserverErrors()}), so a broken observer cannot
+ * affect the game or the other observers.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TGame#setEventBus(TGameEventBus)
+ * @see ITGameObserver
+ */
+public class TGameEventBus {
+
+    /**
+     * Default number of events kept in the ring of a bus.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private final Executor executor;
+    private final AtomicReferenceArray<TGameEvent> ring;
+    // next: the sequence number to be assigned to the next event; published: events up to
+    //  published - 1 can be read from the ring.
+    private final AtomicLong next = new AtomicLong(0);
+    private volatile long published = 0;
+    private final AtomicLong errors = new AtomicLong(0);
+    // The events that are never skipped, in sequence order.
+    private final List<TGameEvent> milestones = new CopyOnWriteArrayList<>();
+    private final List<TObserverChannel> channels = new CopyOnWriteArrayList<>();
+    private volatile TGame game = null;
+
+    /**
+     * Build an event bus with the default capacity, delivering events using
+     * the {@linkplain ForkJoinPool#commonPool()} threads.
+     */
+    public TGameEventBus() {
+        this(DEFAULT_CAPACITY, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Build an event bus with the given capacity, delivering events by means
+     * of the given executor.&nbsp;The executor runs at most one task at a time
+     * for each observer.
+     *
+     * @param capacity how many events are kept for the observers that are
+     * falling behind, at least 2.
+     * @param executor the executor running the tasks that deliver the events
+     * to the observers.
+     */
+    public TGameEventBus(int capacity, Executor executor) {
+        if (capacity < 2 || executor == null) {
+            throw new TTombolaRuntimeException("<ERROR!> An event bus needs a capacity of at least two events and an executor.");
+        }
+        this.capacity = capacity;
+        this.executor = executor;
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Add an observer to the bus.&nbsp;Its
+     * {@link ITGameObserver#startGameObservation(TGame)} method is invoked at
+     * once, by the calling thread, then it receives the events published from
+     * now on.
+     *
+     * @param observer the observer to add.
+     */
+    public void addObserver(ITGameObserver observer) {
+        if (observer == null) {
+            throw new TTombolaRuntimeException("<ERROR!> A null observer cannot be added to an event bus.");
+        }
+        TObserverChannel channel = new TObserverChannel(observer, published);
+        observer.startGameObservation(game);
+        channels.add(channel);
+    }
+
+    /**
+     * Remove an observer from the bus.&nbsp;Its
+     * {@link ITGameObserver#stopGameObservation(TGame)} method is invoked by the
+     * calling thread, after the event being delivered to it, if any, has been
+     * completed.
+     *
+     * @param observer the observer to remove.
+     *
+     * @return true if the observer has been removed, false if it was not
+     * observing the game.
+     */
+    public boolean removeObserver(ITGameObserver observer) {
+        for (TObserverChannel channel : channels) {
+            if (channel.observer == observer) {
+                channels.remove(channel);
+                channel.close();
+                observer.stopGameObservation(game);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return true if at least one observer has been added to the bus.
+     *
+     * @return true if at least one observer has been added to the bus.
+     */
+    public boolean hasObservers() {
+        return !channels.isEmpty();
+    }
+
+    /**
+     * Return the number of events published so far.
+     *
+     * @return the number of events published so far.
+     */
+    public long getPublishedCount() {
+        return published;
+    }
+
+    /**
+     * Return how many times an observer has thrown an exception while handling
+     * an event.
+     *
+     * @return how many times an observer has thrown an exception.
+     */
+    public long getObserverErrors() {
+        return errors.get();
+    }
+
+    // Only package visibility
+    void attach(TGame game) {
+        if (this.game != null && this.game != game) {
+            throw new TTombolaRuntimeException("<ERROR!> An event bus can be used by just one game.");
+        }
+        this.game = game;
+    }
+
+    // Only package visibility
+    // Publish an event: the sequence number is claimed atomically, so events published by
+    //  different threads are never lost, and they are made visible strictly in order.
+    void publish(TGameEvent.TEventType type, int count, int number, int matchingCount,
+            long extractedLow, long extractedHigh, List<TAward> wonAwards) {
+        long sequence = next.getAndIncrement();
+        TGameEvent event = new TGameEvent(type, game.getId(), sequence, count, number, matchingCount,
+                extractedLow, extractedHigh, wonAwards);
+        ring.set((int) (sequence % capacity), event);
+        while (published != sequence) {
+            Thread.onSpinWait();
+        }
+        if (type != TGameEvent.TEventType.EXTRACTED) {
+            // Appended in sequence order, as events are published one at a time here.
+            milestones.add(event);
+        }
+        published = sequence + 1;
+        for (TObserverChannel channel : channels) {
+            channel.schedule();
+        }
+    }
+
+    // The cursor of an observer over the ring, drained by at most one task at a time.
+    private class TObserverChannel implements Runnable {
+
+        private final ITGameObserver observer;
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private volatile boolean closed = false;
+        private long cursor;
+
+        TObserverChannel(ITGameObserver observer, long cursor) {
+            this.observer = observer;
+            this.cursor = cursor;
+        }
+
+        void schedule() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException ex) {
+                    // The executor has been shut down: events will be delivered, if ever, by the next schedule().
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        synchronized void close() {
+            // Waits for the running drain, if any, as it holds the lock while delivering.
+            closed = true;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                drain();
+                scheduled.set(false);
+                if (closed || published <= cursor || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        private synchronized void drain() {
+            long end = published;
+            while (!closed && cursor < end) {
+                if (end - cursor > capacity) {
+                    // Too far behind: skip to the most recent event.
+                    skipTo(end - 1);
+                }
+                TGameEvent event = ring.get((int) (cursor % capacity));
+                if (event == null || event.getSequence() != cursor) {
+                    // Overwritten while reading: the publisher has moved on, so skip again.
+                    end = published;
+                    skipTo(Math.max(cursor, end - 1));
+                    continue;
+                }
+                cursor++;
+                deliver(event);
+                if (cursor == end) {
+                    end = published;
+                }
+            }
+        }
+
+        // Move the cursor forward, delivering anyway the skipped events that cannot be coalesced.
+        private void skipTo(long target) {
+            for (TGameEvent event : milestones) {
+                if (closed || event.getSequence() >= target) {
+                    break;
+                }
+                if (event.getSequence() >= cursor) {
+                    deliver(event);
+                }
+            }
+            cursor = target;
+        }
+
+        private void deliver(TGameEvent event) {
+            try {
+                switch (event.getType()) {
+                    case STARTED:
+                        observer.beforeStart(event);
+                        break;
+                    case EXTRACTED:
+                    case UNDONE:
+                        observer.postExtractionEvaluation(event);
+                        break;
+                    case ASSIGNED:
+                        observer.postAssignmentEvaluation(event);
+                        break;
+                    case ENDED:
+                        observer.afterEnd(event);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (RuntimeException ex) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+}           // End Of File - Rel.(1.1)
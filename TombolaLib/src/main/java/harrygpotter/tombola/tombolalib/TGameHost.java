@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A TGameHost object runs many tombola games at the same time, each one within
+ * its own {@linkplain TGameRoom}.&nbsp;Rooms are created, started, paused and
+ * closed independently, and numbers are extracted automatically at the period
+ * chosen for each room.&nbsp;There is no thread dedicated to a room: all the
+ * extractions are scheduled on a small pool of threads shared by the host, so
+ * that thousands of small rooms can be run together.
+ * <p>
+ * Each room needs its own card list and award list, because cards and awards
+ * keep the status of the game they are playing: the host refuses to create a
+ * room with a list, a card or an award already used by another one (for
+ * example two card lists built from the same {@linkplain TSeriesList}).</p>
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TGameRoom
+ * @see TGame
+ */
+public class TGameHost implements AutoCloseable {
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Map<String, TGameRoom> rooms = new ConcurrentHashMap<>();
+    // Card and award lists, cards and awards currently used by a room, compared by identity.
+    private final Map<Object, TGameRoom> inUse = new IdentityHashMap<>();
+    private final Random seeds = new Random();
+    private volatile boolean closed = false;
+
+    /**
+     * Build a game host using a thread for each available processor to run the
+     * extractions of all its rooms.
+     */
+    public TGameHost() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Build a game host using the specified number of threads to run the
+     * extractions of all its rooms.
+     *
+     * @param threads the number of threads shared by all the rooms of the host.
+     */
+    public TGameHost(int threads) {
+        if (threads < 1) {
+            throw new TTombolaRuntimeException("<ERROR!> A game host needs at least a thread to run its rooms.");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = new ScheduledThreadPoolExecutor(threads, (Runnable r) -> {
+            Thread t = new Thread(r, "TGameHost-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // Paused and closed rooms must not leave their cancelled tasks in the queue.
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Create a new room whose game logs nothing and uses a random seed for its
+     * ballot box.&nbsp;See
+     * {@link TGameHost#createRoom(String, TCardList, TAwardList, ITLogger, long, long)}.
+     *
+     * @param id the id of the room, unique within the host.
+     * @param cards the cards playing in the room.
+     * @param awards the awards that can be won in the room.
+     * @param periodMillis the period, in milliseconds, between two extractions.
+     *
+     * @return the new room, not started jet.
+     */
+    public TGameRoom createRoom(String id, TCardList cards, TAwardList awards, long periodMillis) {
+        long seed;
+        synchronized (seeds) {
+            seed = seeds.nextLong();
+        }
+        return createRoom(id, cards, awards, TSimpleLogger.getLoggerByName(TSimpleLogger.NULL_LOGGER), seed, periodMillis);
+    }
+
+    /**
+     * Create a new room, ready to be started with {@link TGameRoom#start()}.
+     *
+     * @param id the id of the room, unique within the host.
+     * @param cards the cards playing in the room.&nbsp;Neither the list nor its
+     * cards can be used by another room of the host.
+     * @param awards the awards that can be won in the room.&nbsp;Neither the
+     * list nor its awards can be used by another room of the host.
+     * @param logger the logger used by the game of the room.
+     * @param seed the seed used to shake the ballot box of the room and to
+     * resolve contentions between cards.
+     * @param periodMillis the period, in milliseconds, between two extractions.
+     *
+     * @return the new room, not started jet.
+     */
+    public TGameRoom createRoom(String id, TCardList cards, TAwardList awards, ITLogger logger, long seed, long periodMillis) {
+        if (closed) {
+            throw new TTombolaRuntimeException("<ERROR!> The game host has been closed, no more rooms can be created.");
+        }
+        if (periodMillis < 1) {
+            throw new TTombolaRuntimeException("<ERROR!> The period between two extractions must be at least a millisecond.");
+        }
+        if (cards == null || awards == null || awards.isEmpty()) {
+            throw new TTombolaRuntimeException("<ERROR!> A room needs a not empty list of cards and of awards.");
+        }
+        synchronized (inUse) {
+            if (id == null || rooms.containsKey(id)) {
+                throw new TTombolaRuntimeException("<ERROR!> Room id <" + id + "> is missing or already used in this host.");
+            }
+            if (inUse.containsKey(cards) || inUse.containsKey(awards)) {
+                throw new TTombolaRuntimeException("<ERROR!> Cards and awards of room <" + id + "> are already used by another room.");
+            }
+            for (TCard c : cards) {
+                if (inUse.containsKey(c)) {
+                    throw new TTombolaRuntimeException("<ERROR!> Card <" + c.getLabel() + "> of room <" + id + "> is already used by another room.");
+                }
+            }
+            for (TAward aw : awards) {
+                if (inUse.containsKey(aw)) {
+                    throw new TTombolaRuntimeException("<ERROR!> Award <" + aw.getLabel() + "> of room <" + id + "> is already used by another room.");
+                }
+            }
+            TGameRoom room = new TGameRoom(this, id, cards, awards, logger, seed, periodMillis);
+            inUse.put(cards, room);
+            inUse.put(awards, room);
+            cards.forEach(c -> inUse.put(c, room));
+            awards.forEach(aw -> inUse.put(aw, room));
+            rooms.put(id, room);
+            return room;
+        }
+    }
+
+    /**
+     * Return the room with the given id, null if there is no such room in the
+     * host.
+     *
+     * @param id the id of the room.
+     *
+     * @return the room with the given id, or null.
+     */
+    public TGameRoom getRoom(String id) {
+        return rooms.get(id);
+    }
+
+    /**
+     * Return a snapshot of the rooms currently hosted: rooms created or closed
+     * after the call are not reflected in the returned list.
+     *
+     * @return the list of the rooms currently hosted.
+     */
+    public List<TGameRoom> getRooms() {
+        return new ArrayList<>(rooms.values());
+    }
+
+    /**
+     * Return the number of rooms currently hosted, ended rooms included.
+     *
+     * @return the number of rooms currently hosted.
+     */
+    public int getRoomCount() {
+        return rooms.size();
+    }
+
+    /**
+     * Return the number of rooms whose numbers are currently extracted.
+     *
+     * @return the number of rooms in RUNNING status.
+     */
+    public int getRunningCount() {
+        int count = 0;
+        for (TGameRoom room : rooms.values()) {
+            count += (room.getStatus() == TGameRoom.TRoomStatus.RUNNING ? 1 : 0);
+        }
+        return count;
+    }
+
+    /**
+     * Close all the rooms and stop the threads of the host.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (TGameRoom room : getRooms()) {
+            room.close();
+        }
+        scheduler.shutdownNow();
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    // Only package visibility
+    ScheduledExecutorService getScheduler() {
+        if (closed) {
+            throw new TTombolaRuntimeException("<ERROR!> The game host has been closed, its rooms cannot be started.");
+        }
+        return scheduler;
+    }
+
+    // Only package visibility
+    void removeRoom(TGameRoom room) {
+        synchronized (inUse) {
+            if (rooms.remove(room.getId(), room)) {
+                // Only the objects registered by this very room are released.
+                TCardList cards = room.getGame().getCards();
+                TAwardList awards = room.getGame().getAwards();
+                inUse.remove(cards, room);
+                inUse.remove(awards, room);
+                cards.forEach(c -> inUse.remove(c, room));
+                awards.forEach(aw -> inUse.remove(aw, room));
+            }
+        }
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import javax.management.ObjectName;
+
+/**
+ * Standard MBean publishing, through JMX, the health of a live game: the
+ * latency percentiles of the extractions, the amount of cards matched by each
+ * extraction and the amount of candidates and contentions.&nbsp;The object is
+ * fed by the game itself at the end of each extraction (see
+ * {@linkplain TGame#getMetrics()}), without creating any object, while
+ * percentiles are computed only when a JMX client asks for them.&nbsp;Use
+ * {@linkplain TGameMetrics#register(TGame)} to make them visible to standard
+ * tools like jconsole or VisualVM.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TGameMetricsMBean
+ * @see TSetFactoryMetrics
+ * @since 1.8
+ */
+public class TGameMetrics implements TGameMetricsMBean {
+
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    private final TGame game;
+    private final TLatencyHistogram extractionLatency = new TLatencyHistogram();
+
+    // Written only by the thread extracting numbers (TGame.extractNumber is synchronized),
+    //  read by the JMX threads.
+    private volatile long measured;
+    private volatile long matchedSum;
+    private volatile int lastMatched;
+    private volatile int maxMatched;
+    private volatile int lastCandidates;
+    private volatile long totalCandidates;
+    private volatile long contentions;
+
+    /**
+     * Build the metrics object of a game.&nbsp;Client code should obtain it
+     * from {@linkplain TGame#getMetrics()}, so that the game feeds it.
+     *
+     * @param game the game to monitor.
+     */
+    TGameMetrics(TGame game) {    // Only package visibility
+        this.game = game;
+    }
+
+    /**
+     * Register the metrics of a game on the platform MBean server, with the
+     * object name <code>harrygpotter.tombola:type=Game,name=&lt;id&gt;</code>,
+     * enabling them if needed.
+     *
+     * @param game the game to monitor.
+     * @return the object name used to register the metrics, to be passed to
+     * {@linkplain TSetFactoryMetrics#unregister(ObjectName)}.
+     */
+    public static ObjectName register(TGame game) {
+        if (game == null) {
+            throw new TTombolaRuntimeException("<ERROR!> A game is required to register its metrics.");
+        }
+        return TSetFactoryMetrics.registerMBean(game.getMetrics(), "Game", game.getId());
+    }
+
+    // Invoked by the game at the end of each extraction.
+    void recordExtraction(long nanos, int matched, int candidates, TGameResultCode result) {   // Only package visibility
+        extractionLatency.record(nanos);
+        measured++;
+        matchedSum += matched;
+        lastMatched = matched;
+        if (matched > maxMatched) {
+            maxMatched = matched;
+        }
+        lastCandidates = candidates;
+        totalCandidates += candidates;
+        if (result == TGameResultCode.MULTICANDIDATES) {
+            contentions++;
+        }
+    }
+
+    @Override
+    public String getGameId() {
+        return game.getId();
+    }
+
+    @Override
+    public String getStatus() {
+        return String.valueOf(game.getStatus());
+    }
+
+    @Override
+    public int getCardCount() {
+        TCardList cards = game.getCards();
+        return cards == null ? 0 : cards.size();
+    }
+
+    @Override
+    public int getExtractionCount() {
+        return game.getExtractionCount();
+    }
+
+    @Override
+    public long getMeasuredExtractions() {
+        return measured;
+    }
+
+    @Override
+    public double getExtractionLatencyMeanMicros() {
+        return extractionLatency.getMean() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getExtractionLatencyP50Micros() {
+        return extractionLatency.getPercentile(50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getExtractionLatencyP90Micros() {
+        return extractionLatency.getPercentile(90) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getExtractionLatencyP99Micros() {
+        return extractionLatency.getPercentile(99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getExtractionLatencyMaxMicros() {
+        return extractionLatency.getMax() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public int getLastCardsMatched() {
+        return lastMatched;
+    }
+
+    @Override
+    public double getMeanCardsMatched() {
+        long n = measured;
+        return n == 0 ? 0.0 : (double) matchedSum / n;
+    }
+
+    @Override
+    public int getMaxCardsMatched() {
+        return maxMatched;
+    }
+
+    @Override
+    public int getLastCandidates() {
+        return lastCandidates;
+    }
+
+    @Override
+    public long getTotalCandidates() {
+        return totalCandidates;
+    }
+
+    @Override
+    public long getContentions() {
+        return contentions;
+    }
+
+    @Override
+    public void resetStatistics() {
+        // Serialized with the extractions, so that no measure is half reset.
+        synchronized (game) {
+            extractionLatency.reset();
+            measured = 0;
+            matchedSum = 0;
+            lastMatched = 0;
+            maxMatched = 0;
+            lastCandidates = 0;
+            totalCandidates = 0;
+            contentions = 0;
+        }
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+/**
+ * JMX management interface of {@link TGameMetrics}, listing the attributes
+ * published for a live game.&nbsp;Latencies are expressed in microseconds
+ * and refer to the extractions measured since the metrics have been enabled
+ * (or since the last {@linkplain TGameMetricsMBean#resetStatistics()}).
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TGameMetrics
+ * @since 1.8
+ */
+public interface TGameMetricsMBean {
+
+    /**
+     * Return the id of the monitored game.
+     *
+     * @return the id of the game.
+     */
+    String getGameId();
+
+    /**
+     * Return the current status of the game, as a String.
+     *
+     * @return the current status of the game.
+     */
+    String getStatus();
+
+    /**
+     * Return the amount of cards playing the game.
+     *
+     * @return the amount of cards playing the game.
+     */
+    int getCardCount();
+
+    /**
+     * Return the amount of numbers extracted so far.
+     *
+     * @return the extraction count of the game.
+     */
+    int getExtractionCount();
+
+    /**
+     * Return the amount of extractions measured by the metrics object.
+     *
+     * @return the amount of measured extractions.
+     */
+    long getMeasuredExtractions();
+
+    /**
+     * Return the mean time spent to process an extraction.
+     *
+     * @return the mean extraction latency in microseconds.
+     */
+    double getExtractionLatencyMeanMicros();
+
+    /**
+     * Return the median time spent to process an extraction.
+     *
+     * @return the 50th percentile of the extraction latency in microseconds.
+     */
+    double getExtractionLatencyP50Micros();
+
+    /**
+     * Return the 90th percentile of the time spent to process an extraction.
+     *
+     * @return the 90th percentile of the extraction latency in microseconds.
+     */
+    double getExtractionLatencyP90Micros();
+
+    /**
+     * Return the 99th percentile of the time spent to process an extraction.
+     *
+     * @return the 99th percentile of the extraction latency in microseconds.
+     */
+    double getExtractionLatencyP99Micros();
+
+    /**
+     * Return the longest time spent to process an extraction.
+     *
+     * @return the maximum extraction latency in microseconds.
+     */
+    double getExtractionLatencyMaxMicros();
+
+    /**
+     * Return the amount of cards that matched the last extracted number.
+     *
+     * @return the amount of cards matched by the last extraction.
+     */
+    int getLastCardsMatched();
+
+    /**
+     * Return the mean amount of cards matching each extracted number.
+     *
+     * @return the mean amount of cards matched per extraction.
+     */
+    double getMeanCardsMatched();
+
+    /**
+     * Return the greatest amount of cards matching a single extracted number.
+     *
+     * @return the maximum amount of cards matched per extraction.
+     */
+    int getMaxCardsMatched();
+
+    /**
+     * Return the amount of cards that became candidate to an award at the
+     * last extraction.
+     *
+     * @return the amount of candidates of the last extraction.
+     */
+    int getLastCandidates();
+
+    /**
+     * Return the amount of cards that became candidate to an award, summed
+     * over all the measured extractions.
+     *
+     * @return the total amount of candidates.
+     */
+    long getTotalCandidates();
+
+    /**
+     * Return the amount of extractions after which two or more cards were
+     * contending the same award.
+     *
+     * @return the amount of contended extractions.
+     */
+    long getContentions();
+
+    /**
+     * Discard all the statistics collected so far.
+     */
+    void resetStatistics();
+}           // End Of File - Rel.(1.1)
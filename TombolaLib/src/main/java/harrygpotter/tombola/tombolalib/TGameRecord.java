@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A TGameRecord object is the archived form of a tombola game: the file of
+ * the cards that played it, the extraction sequence (or the seed of the
+ * {@linkplain TSacchetto} that produced it), the award list and, for each
+ * award, the recorded outcome, that is the extraction at which it has been
+ * won and the labels of the winners, as chosen when contentions have been
+ * resolved.&nbsp;Cards added to the game after it started (see
+ * {@linkplain TGame#addLateCard(TCard)}) are not in the card file, so their
+ * numbers are recorded too, together with the extraction after which they
+ * joined.&nbsp;Records are what the {@linkplain TGameAuditor} verifies.<br>
+ * Records are saved as small text files, with the same conventions of the
+ * {@linkplain TSetFactoryCheckpoint} files: an autodetect line, then one line
+ * for each item, fields separated by ';'.&nbsp;The card file is stored as
+ * written when the record has been built; if it is a relative path, it is
+ * resolved against the directory of the record file, so an archive directory
+ * can be moved as a whole.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TGameAuditor
+ * @see TGameSolver
+ * @since 1.8
+ */
+public class TGameRecord {
+
+    private static final String AUTODETECT_SEQUENCE = "##$#";
+    private static final String FILE_TYPE = "GAME_RECORD";
+    private static final String GAME_TAG = "G";
+    private static final String SEED_TAG = "S";
+    private static final String SEQUENCE_TAG = "X";
+    private static final String AWARD_TAG = "A";
+    private static final String LATE_CARD_TAG = "L";
+    private static final String SEPARATOR = ";";
+    private static final String LABEL_SEPARATOR = ",";
+    private static final Charset STANDARD_CHARSET = Charset.forName("UTF-8");
+
+    private final String gameId;
+    private final String cardFile;
+    private final boolean seeded;
+    private final long randomSeed;
+    private final int[] extractionOrder;
+    private final TAwardList awards = new TAwardList();
+    private final List<Integer> winningOrdinals = new ArrayList<>();
+    private final List<Integer> winningNumbers = new ArrayList<>();
+    private final List<List<String>> winnerLabels = new ArrayList<>();
+    private final TCardList lateCards = new TCardList();
+    private final List<Integer> joinOrdinals = new ArrayList<>();
+    private Path baseDirectory = null;
+
+    private TGameRecord(String gameId, String cardFile, boolean seeded, long randomSeed, int[] extractionOrder) {
+        if (gameId == null || gameId.isEmpty() || cardFile == null || cardFile.isEmpty()) {
+            throw new TTombolaRuntimeException("<ERROR!> A game record needs both a game id and a card file.");
+        }
+        checkField(gameId);
+        checkField(cardFile);
+        this.gameId = gameId;
+        this.cardFile = cardFile;
+        this.seeded = seeded;
+        this.randomSeed = randomSeed;
+        this.extractionOrder = extractionOrder;
+    }
+
+    /**
+     * Build the record of a game, as it is at the moment of the call
+     * (usually when it is over).&nbsp;The extraction sequence is always
+     * recorded; the seed of the sacchetto is recorded too when it still
+     * reproduces the sequence, that is when no number has been manually
+     * extracted.
+     *
+     * @param game the game to record.&nbsp;Its late cards, if any, are
+     * recorded with their numbers.
+     * @param cardFile the file containing the cards of the game, as it must
+     * be written within the record: relative paths are resolved against the
+     * directory of the record file.
+     * @return the record of the game.
+     */
+    public static TGameRecord fromGame(TGame game, String cardFile) {
+        int[] extracted = game.getSacchetto().getExtractedAsArray();
+        if (extracted == null) {
+            extracted = new int[0];
+        }
+        long seed = game.getSacchetto().getRandomSeed();
+        int[] seedOrder = new TSacchetto(seed).getExtractionOrder();
+        boolean seeded = Arrays.equals(extracted, Arrays.copyOf(seedOrder, extracted.length));
+        TGameRecord record = new TGameRecord(game.getId(), cardFile, seeded, seed, extracted);
+        for (TAward aw : game.getAwards()) {
+            List<String> labels = new ArrayList<>(aw.getWinnerList().size());
+            for (TCard c : aw.getWinnerList()) {
+                checkField(c.getLabel());
+                labels.add(c.getLabel());
+            }
+            record.addAward(aw.getLabel(), aw.getCategory(),
+                    aw.isAssigned() ? aw.getWinningOrdinal() : 0, aw.isAssigned() ? aw.getWinningNumber() : 0, labels);
+        }
+        for (TCard c : game.getCards()) {
+            int join = game.getJoinOrdinal(c);
+            if (join > 0) {
+                record.addLateCard(c, join);
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Read a game record from a file.
+     *
+     * @param fileName the full or relative path of the record file.
+     * @return the record read from the file.
+     * @throws IOException if issues raise when reading the file.
+     * @throws TTombolaRuntimeException if the file is not a valid game
+     * record.
+     */
+    public static TGameRecord readRecordFile(String fileName) throws IOException {
+        Path path = Paths.get(fileName);
+        TGameRecord record = null;
+        String game = null;
+        String seed = null;
+        String sequence = null;
+        List<String[]> awardLines = new ArrayList<>();
+        List<String[]> lateLines = new ArrayList<>();
+        try (BufferedReader br = TUtils.newBufferedReader(path, STANDARD_CHARSET)) {
+            String line = br.readLine();
+            if (line == null || !line.startsWith(AUTODETECT_SEQUENCE) || !line.endsWith(FILE_TYPE)) {
+                throw new TTombolaRuntimeException("<ERROR!> The file " + fileName + " is not a TombolaLib game record file.");
+            }
+            while ((line = br.readLine()) != null) {
+                String[] tokens = line.split(SEPARATOR, -1);
+                if (tokens[0].equals(GAME_TAG) && tokens.length == 3) {
+                    game = line;
+                } else if (tokens[0].equals(SEED_TAG) && tokens.length == 2) {
+                    seed = tokens[1];
+                } else if (tokens[0].equals(SEQUENCE_TAG) && tokens.length == 2) {
+                    sequence = tokens[1];
+                } else if (tokens[0].equals(AWARD_TAG) && tokens.length == 6) {
+                    awardLines.add(tokens);
+                } else if (tokens[0].equals(LATE_CARD_TAG) && tokens.length == 5) {
+                    lateLines.add(tokens);
+                } else if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                    throw new TTombolaRuntimeException("<ERROR!> Unexpected line in the game record " + fileName + ": " + line);
+                }
+            }
+        }
+        if (game == null || (seed == null && sequence == null) || awardLines.isEmpty()) {
+            throw new TTombolaRuntimeException("<ERROR!> The game record " + fileName + " is not complete.");
+        }
+        try {
+            String[] g = game.split(SEPARATOR, -1);
+            record = new TGameRecord(g[1], g[2], seed != null, (seed != null ? Long.parseLong(seed) : 0),
+                    (sequence != null ? parseNumbers(sequence) : null));
+            // The award list keeps itself sorted by category: sort the lines the same (stable) way.
+            awardLines.sort((String[] one, String[] two) -> Integer.compare(Integer.parseInt(one[1]), Integer.parseInt(two[1])));
+            for (String[] a : awardLines) {
+                List<String> labels = (a[5].isEmpty() ? new ArrayList<>() : Arrays.asList(a[5].split(LABEL_SEPARATOR)));
+                record.addAward(a[2], Integer.parseInt(a[1]), Integer.parseInt(a[3]), Integer.parseInt(a[4]), labels);
+            }
+            for (String[] l : lateLines) {
+                int[] numbers = parseNumbers(l[4]);
+                if (numbers.length != 15) {
+                    throw new IllegalArgumentException("a late card must have 15 numbers");
+                }
+                int join = Integer.parseInt(l[1]);
+                if (join < 1 || join > TUtils.NOVANTA) {
+                    throw new IllegalArgumentException("late card joined at extraction " + join);
+                }
+                record.addLateCard(new TCard(l[2], numbers, Integer.parseInt(l[3]), true), join);
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new TTombolaRuntimeException("<ERROR!> Wrong value in the game record " + fileName + ": " + ex.getMessage());
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        record.baseDirectory = parent;
+        return record;
+    }
+
+    /**
+     * Write this record to a file, replacing it if it already exists.
+     *
+     * @param fileName the full or relative path of the record file.
+     * @throws IOException if issues raise when writing the file.
+     */
+    public void writeRecordFile(String fileName) throws IOException {
+        try (BufferedWriter bw = TUtils.newBufferedWriter(Paths.get(fileName), STANDARD_CHARSET)) {
+            bw.write(AUTODETECT_SEQUENCE + TUtils.LIB_NAME + SEPARATOR + TUtils.LIB_VERSION + SEPARATOR + FILE_TYPE + "\n");
+            bw.write("# Record of a tombola game. Any change will be reported by TGameAuditor.\n");
+            bw.write(GAME_TAG + SEPARATOR + gameId + SEPARATOR + cardFile + "\n");
+            if (seeded) {
+                bw.write(SEED_TAG + SEPARATOR + randomSeed + "\n");
+            }
+            if (extractionOrder != null) {
+                StringBuilder sb = new StringBuilder(SEQUENCE_TAG).append(SEPARATOR);
+                for (int i = 0; i < extractionOrder.length; i++) {
+                    sb.append(i == 0 ? "" : LABEL_SEPARATOR).append(extractionOrder[i]);
+                }
+                bw.write(sb.append("\n").toString());
+            }
+            for (int i = 0; i < awards.size(); i++) {
+                bw.write(AWARD_TAG + SEPARATOR + awards.get(i).getCategory() + SEPARATOR + awards.get(i).getLabel()
+                        + SEPARATOR + winningOrdinals.get(i) + SEPARATOR + winningNumbers.get(i)
+                        + SEPARATOR + String.join(LABEL_SEPARATOR, winnerLabels.get(i)) + "\n");
+            }
+            for (int i = 0; i < lateCards.size(); i++) {
+                TCard c = lateCards.get(i);
+                StringBuilder sb = new StringBuilder(LATE_CARD_TAG).append(SEPARATOR).append(joinOrdinals.get(i))
+                        .append(SEPARATOR).append(c.getLabel()).append(SEPARATOR).append(c.getJollyIndex()).append(SEPARATOR);
+                for (int p = 0; p < 15; p++) {
+                    sb.append(p == 0 ? "" : LABEL_SEPARATOR).append(c.getNumber(p));
+                }
+                bw.write(sb.append("\n").toString());
+            }
+        }
+    }
+
+    /**
+     * @return the id of the recorded game.
+     */
+    public String getGameId() {
+        return gameId;
+    }
+
+    /**
+     * @return the card file as written within the record.
+     */
+    public String getCardFile() {
+        return cardFile;
+    }
+
+    /**
+     * Return the path of the card file, resolving a relative one against the
+     * directory of the record file it has been read from.
+     *
+     * @return the path of the card file.
+     */
+    public Path getCardFilePath() {
+        Path path = Paths.get(cardFile);
+        return (baseDirectory == null || path.isAbsolute() ? path : baseDirectory.resolve(path)).normalize();
+    }
+
+    /**
+     * @return true if the seed of the sacchetto has been recorded.
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * @return the recorded seed of the sacchetto, meaningful only if
+     * {@linkplain TGameRecord#isSeeded()} returns true.
+     */
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    /**
+     * Return the recorded extraction sequence.
+     *
+     * @return a copy of the recorded extraction sequence, null if just the
+     * seed of the sacchetto has been recorded.
+     */
+    public int[] getExtractionOrder() {
+        return (extractionOrder == null ? null : extractionOrder.clone());
+    }
+
+    /**
+     * Return the extraction order the game must be replayed with: the
+     * recorded sequence if any, otherwise the whole order fixed by the
+     * recorded seed.
+     *
+     * @return the extraction order to replay.
+     */
+    public int[] getReplayOrder() {
+        return (extractionOrder != null ? extractionOrder.clone() : new TSacchetto(randomSeed).getExtractionOrder());
+    }
+
+    /**
+     * Return the recorded award list.&nbsp;Just labels and categories are
+     * meaningful: all the awards are available, the recorded outcome is
+     * returned by the other methods.
+     *
+     * @return the award list of the game.
+     */
+    public TAwardList getAwards() {
+        return awards;
+    }
+
+    /**
+     * @param awardIndex the index of the award within the award list.
+     * @return the recorded extraction count at which the award has been won,
+     * 0 if it has not been won.
+     */
+    public int getWinningOrdinal(int awardIndex) {
+        return winningOrdinals.get(awardIndex);
+    }
+
+    /**
+     * @param awardIndex the index of the award within the award list.
+     * @return the recorded number that let the award be won, 0 if it has not
+     * been won.
+     */
+    public int getWinningNumber(int awardIndex) {
+        return winningNumbers.get(awardIndex);
+    }
+
+    /**
+     * @param awardIndex the index of the award within the award list.
+     * @return the labels of the recorded winners of the award.
+     */
+    public List<String> getWinnerLabels(int awardIndex) {
+        return Collections.unmodifiableList(winnerLabels.get(awardIndex));
+    }
+
+    /**
+     * Return the cards that joined the game late, in the order they have been
+     * added to it.
+     *
+     * @return the (unmodifiable) list of the late cards, empty if all the
+     * cards of the game are in the card file.
+     */
+    public List<TCard> getLateCards() {
+        return Collections.unmodifiableList(lateCards);
+    }
+
+    /**
+     * @param lateCardIndex the index of the card within the late cards list.
+     * @return how many numbers had been extracted when the late card joined
+     * the game.
+     * @see TGame#getJoinOrdinal(TCard)
+     */
+    public int getJoinOrdinal(int lateCardIndex) {
+        return joinOrdinals.get(lateCardIndex);
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    private void addLateCard(TCard card, int join) {
+        checkField(card.getLabel());
+        lateCards.add(card);
+        joinOrdinals.add(join);
+    }
+
+    private void addAward(String label, int category, int ordinal, int number, List<String> labels) {
+        checkField(label);
+        awards.add(new TAward(label, category));
+        winningOrdinals.add(ordinal);
+        winningNumbers.add(number);
+        winnerLabels.add(new ArrayList<>(labels));
+    }
+
+    private static void checkField(String value) {
+        if (value == null || value.contains(SEPARATOR) || value.contains(LABEL_SEPARATOR) || value.contains("\n")) {
+            throw new TTombolaRuntimeException("<ERROR!> Value [" + value + "] cannot be saved in a game record.");
+        }
+    }
+
+    private static int[] parseNumbers(String values) {
+        if (values.isEmpty()) {
+            return new int[0];
+        }
+        String[] tokens = values.split(LABEL_SEPARATOR);
+        int[] result = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            result[i] = Integer.parseInt(tokens[i].trim());
+        }
+        return result;
+    }
+}           // End Of File - Rel.(1.1)
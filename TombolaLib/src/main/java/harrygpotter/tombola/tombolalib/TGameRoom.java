@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A TGameRoom object wraps a single {@linkplain TGame} hosted by a
+ * {@linkplain TGameHost}, together with everything the game needs to run
+ * unattended: its own ballot box, award list, card list and logger, and the
+ * period between two automatic number extractions.&nbsp;Rooms never share
+ * these objects, so that each game evolves in isolation from the others
+ * hosted by the same TGameHost.&nbsp;Contentions between cards reaching the
+ * same award are resolved randomly, using a random number generator owned by
+ * the room.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TGameHost
+ * @see TGame
+ */
+public class TGameRoom {
+
+    /**
+     * The possible statuses of a room hosted by a {@linkplain TGameHost}.
+     */
+    public static enum TRoomStatus {
+        /**
+         * The room has been created, but no number has been extracted jet.
+         */
+        CREATED,
+        /**
+         * Numbers are automatically extracted at each period.
+         */
+        RUNNING,
+        /**
+         * Automatic extractions are suspended, the room can be resumed.
+         */
+        PAUSED,
+        /**
+         * All the awards of the game have been won, no other number will be
+         * extracted.
+         */
+        ENDED,
+        /**
+         * The room has been closed before the end of the game, or because of an
+         * error, and it is no more managed by its host.
+         */
+        CLOSED
+    }
+
+    private final TGameHost host;
+    private final TGame game;
+    private final ITLogger logger;
+    private final Random resolver;
+    private final long periodMillis;
+    private TRoomStatus status = TRoomStatus.CREATED;
+    private ScheduledFuture<?> ticker = null;
+    private RuntimeException lastError = null;
+    private final List<ITRoomListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Only package visibility
+    TGameRoom(TGameHost host, String id, TCardList cards, TAwardList awards, ITLogger logger, long seed, long periodMillis) {
+        this.host = host;
+        this.logger = logger;
+        this.periodMillis = periodMillis;
+        this.resolver = new Random(seed);
+        this.game = new TGame(id);
+        this.game.setLogger(logger);
+        this.game.setSacchetto(new TSacchetto(seed));
+        this.game.setCards(cards);
+        this.game.setAwards(awards);
+    }
+
+    /**
+     * Return the id of the room, that is the id of the game it hosts.
+     *
+     * @return the id of the room.
+     */
+    public String getId() {
+        return game.getId();
+    }
+
+    /**
+     * Return the game hosted by this room.&nbsp;Please note that the game is
+     * driven by the scheduler of the {@linkplain TGameHost}: if you need to read
+     * its status while the room is running, synchronize on the room object.
+     *
+     * @return the TGame object hosted by this room.
+     */
+    public TGame getGame() {
+        return game;
+    }
+
+    /**
+     * Return the logger used by the game hosted by this room.
+     *
+     * @return the logger used by the game hosted by this room.
+     */
+    public ITLogger getLogger() {
+        return logger;
+    }
+
+    /**
+     * Return the period, in milliseconds, between two automatic number
+     * extractions.
+     *
+     * @return the period, in milliseconds, between two automatic number
+     * extractions.
+     */
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * Register an object that will be notified of each extraction and status
+     * change of the room.
+     *
+     * @param listener the object to notify.
+     */
+    public void addListener(ITRoomListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stop notifying the given object of the events of the room.
+     *
+     * @param listener the object to stop notifying.
+     */
+    public void removeListener(ITRoomListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Return the current status of the room.
+     *
+     * @return the current status of the room.
+     */
+    public synchronized TRoomStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Return the exception that caused the room to be closed, null if no error
+     * occurred during the game.
+     *
+     * @return the exception that caused the room to be closed, if any.
+     */
+    public synchronized RuntimeException getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Start, or resume after a pause, the automatic extraction of numbers: the
+     * first one is extracted after a whole period.
+     *
+     * @return true if the room has been started, false if it was already
+     * running, or if it is ended or closed.
+     */
+    public synchronized boolean start() {
+        if (status != TRoomStatus.CREATED && status != TRoomStatus.PAUSED) {
+            return false;
+        }
+        ScheduledExecutorService scheduler = host.getScheduler();
+        ticker = scheduler.scheduleAtFixedRate(this::tick, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        logger.gameLog(ITLogger.TLogLevel.INF, game.getId(), game.getExtractionCount(), game.getLastExtracted(),
+                String.format("Room %s. A number will be extracted every %d milliseconds", (status == TRoomStatus.CREATED ? "started" : "resumed"), periodMillis));
+        setStatus(TRoomStatus.RUNNING);
+        return true;
+    }
+
+    /**
+     * Suspend the automatic extraction of numbers.&nbsp;The room can be resumed
+     * later calling {@link TGameRoom#start()}.
+     *
+     * @return true if the room has been paused, false if it was not running.
+     */
+    public synchronized boolean pause() {
+        if (status != TRoomStatus.RUNNING) {
+            return false;
+        }
+        stopTicker();
+        setStatus(TRoomStatus.PAUSED);
+        logger.gameLog(ITLogger.TLogLevel.INF, game.getId(), game.getExtractionCount(), game.getLastExtracted(), "Room paused");
+        return true;
+    }
+
+    /**
+     * Close the room, stopping the game whatever its status is, and remove it
+     * from its host.
+     *
+     * @return true if the room has been closed, false if it was already closed.
+     */
+    public boolean close() {
+        synchronized (this) {
+            if (status == TRoomStatus.CLOSED) {
+                return false;
+            }
+            stopTicker();
+            setStatus(TRoomStatus.CLOSED);
+        }
+        host.removeRoom(this);
+        return true;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Executed by a thread of the host scheduler. Rooms are ticked by a few shared threads,
+    //  so a tick never waits for anything but the room it is working on.
+    private synchronized void tick() {
+        if (status != TRoomStatus.RUNNING) {
+            return;
+        }
+        try {
+            int count = game.getExtractionCount();
+            game.extractNumber(0);
+            // The loop is needed here because resolving a contention can move the losers
+            //  to the next award with the same category.
+            while (game.getStatus() == TGameStatus.RESOLVING) {
+                TAward aw = game.getFirstAwardToResolve();
+                game.resolveCandidates(resolver.nextInt(aw.getCandidatesList().size()));
+            }
+            if (game.getExtractionCount() > count && !listeners.isEmpty()) {
+                List<TAward> wonAwards = game.getAwards().getWonsByExtractionCount(game.getExtractionCount());
+                if (wonAwards == null) {
+                    wonAwards = Collections.emptyList();
+                }
+                for (ITRoomListener listener : listeners) {
+                    listener.numberExtracted(this, game.getLastExtracted(), game.getExtractionCount(), wonAwards);
+                }
+            }
+            if (game.getStatus() == TGameStatus.ENDED) {
+                stopTicker();
+                setStatus(TRoomStatus.ENDED);
+            }
+        } catch (RuntimeException rex) {
+            // An exception would silently cancel the periodic task: better to close the room.
+            logger.gameLog(ITLogger.TLogLevel.ERR, game.getId(), game.getExtractionCount(), game.getLastExtracted(),
+                    "Room closed because of an unexpected error: " + rex.getMessage());
+            lastError = rex;
+            stopTicker();
+            setStatus(TRoomStatus.CLOSED);
+            host.removeRoom(this);
+        }
+    }
+
+    private void setStatus(TRoomStatus newStatus) {
+        status = newStatus;
+        for (ITRoomListener listener : listeners) {
+            listener.statusChanged(this, newStatus);
+        }
+    }
+
+    private void stopTicker() {
+        if (ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,581 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fast-forward solver computing the whole outcome of a tombola game without
+ * playing it: given the cards, the awards and the extraction order (for
+ * example the one fixed by the seed of a {@linkplain TSacchetto}), it returns
+ * in a single pass the extraction ordinal at which each card reaches each
+ * category, the winners of all the awards, the contentions and the extraction
+ * at which the game is over.
+ * <p>
+ * The rank of each number in the extraction order is enough to know when
+ * each number of a card is checked and which score the card gets at that
+ * moment, so every card produces its 15 'score events' without looking at
+ * the other ones.&nbsp;Events are then sorted by extraction with a counting
+ * sort and a single linear pass applies the same rules of
+ * {@linkplain TGame}: the award list dispatch, lone winners first and then the
+ * contentions, passing the remaining candidates to the following award of
+ * the same category.&nbsp;Cards joining the game late (see
+ * {@linkplain TGame#addLateCard(TCard)}) are supported too: they just do not
+ * produce the events of the numbers extracted before they joined.&nbsp;Contentions are resolved as
+ * {@linkplain TGame#resolveCandidates(int)} with 0 would do, that is in favor
+ * of the first candidate card in card list order; all the contenders are
+ * anyway reported, see
+ * {@linkplain TGameSolver.TSolution#getContenders(int)}.&nbsp;Candidates are
+ * never denied, as if candidate confirmation were off.</p>
+ * <p>
+ * The cost is linear in the amount of cards (plus a term proportional to the
+ * amount of awards for each extraction), so what-if analysis on many
+ * extraction orders and post-game audits do not need all the state machine,
+ * logging and events of a real game.&nbsp;Neither the cards nor the awards
+ * passed to the solver are changed.</p>
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TGame
+ * @see TSacchetto#getExtractionOrder()
+ * @since 1.8
+ */
+public class TGameSolver {
+
+    // Layout of an event: card index, jolly flag (bit 5) and score (bits 0-4).
+    private static final int EVENT_SHIFT = 6;
+    private static final int EVENT_JOLLY = 1 << 5;
+    private static final int EVENT_SCORE = EVENT_JOLLY - 1;
+
+    // Rank of the numbers not extracted, greater than any extraction ordinal.
+    private static final int NEVER = Integer.MAX_VALUE;
+
+    private final TCardList cards;
+    private final TAwardList awards;
+    // Numbers and jolly positions of all the cards, copied in flat arrays so that each solve()
+    //  scans them sequentially instead of visiting each card object.
+    private final int[] numbers;
+    private final int[] jollies;
+    private final int[] joinOrdinals;
+
+    /**
+     * Build a solver for the given cards and awards.&nbsp;Awards are used
+     * just as a template (order, categories and labels): the solver always
+     * starts from all the awards still to be won.&nbsp;The numbers of the
+     * cards are copied here once, so that the same solver can quickly solve
+     * many extraction orders: build a new solver if the cards change.
+     *
+     * @param cards the cards playing the game.
+     * @param awards the awards of the game.
+     */
+    public TGameSolver(TCardList cards, TAwardList awards) {
+        this(cards, awards, null);
+    }
+
+    /**
+     * Build a solver for the given cards and awards, where some cards joined
+     * the game late.&nbsp;See {@linkplain TGameSolver#TGameSolver(TCardList, TAwardList)}.
+     *
+     * @param cards the cards playing the game, late cards included, in the
+     * order they have within the game card list.
+     * @param awards the awards of the game.
+     * @param joinOrdinals for each card, how many numbers had been extracted
+     * when it joined the game (see {@linkplain TGame#getJoinOrdinal(TCard)}):
+     * 0 for the cards playing from the start.&nbsp;Null if all the cards
+     * played from the start.
+     */
+    public TGameSolver(TCardList cards, TAwardList awards, int[] joinOrdinals) {
+        if (cards == null || cards.isEmpty()) {
+            throw new TTombolaRuntimeException("<ERROR!> The solver needs at least a card to play.");
+        }
+        if (awards == null || awards.isEmpty()) {
+            throw new TTombolaRuntimeException("<ERROR!> The solver needs at least an award to assign.");
+        }
+        if (joinOrdinals != null && joinOrdinals.length != cards.size()) {
+            throw new TTombolaRuntimeException("<ERROR!> The solver needs a join extraction for each card.");
+        }
+        this.cards = cards;
+        this.awards = awards;
+        this.joinOrdinals = (joinOrdinals == null ? new int[cards.size()] : joinOrdinals.clone());
+        this.numbers = new int[cards.size() * 15];
+        this.jollies = new int[cards.size()];
+        for (int c = 0; c < cards.size(); c++) {
+            TCard card = cards.get(c);
+            for (int p = 0; p < 15; p++) {
+                numbers[c * 15 + p] = card.getNumber(p);
+            }
+            jollies[c] = card.getJollyIndex();
+        }
+    }
+
+    /**
+     * Solve the game for the numbers that the given sacchetto is going to
+     * extract, from the first one.&nbsp;The sacchetto is not changed.
+     *
+     * @param sacchetto the ballot box fixing the extraction order.
+     * @return the outcome of the game.
+     */
+    public TSolution solve(TSacchetto sacchetto) {
+        return solve(sacchetto.getExtractionOrder());
+    }
+
+    /**
+     * Solve the game for the given extraction order.&nbsp;The order can be
+     * partial (less than 90 numbers), to know what happens up to a given
+     * extraction.
+     *
+     * @param order the extracted numbers, in extraction order: different
+     * numbers within the [1..90] range.
+     * @return the outcome of the game.
+     */
+    public TSolution solve(int[] order) {
+        int[] rank = rankNumbers(order);
+        int n = cards.size();
+        int[] ranks = new int[n * 15];
+        int[] reach = new int[n * 5];
+        int[] eventCount = new int[TUtils.NOVANTA + 2];
+        int[] scratch = new int[5];
+        for (int i = 0; i < ranks.length; i++) {
+            int t = rank[numbers[i]];
+            ranks[i] = t;
+            if (t != NEVER && t > joinOrdinals[i / 15]) {
+                eventCount[t]++;
+            }
+        }
+        for (int c = 0; c < n; c++) {
+            cardReach(ranks, c * 15, scratch, reach, c * 5);
+        }
+        // Counting sort of the events by extraction ordinal, keeping card order within the same extraction.
+        int[] start = new int[TUtils.NOVANTA + 2];
+        for (int t = 1; t <= TUtils.NOVANTA; t++) {
+            start[t + 1] = start[t] + eventCount[t];
+        }
+        int[] fill = Arrays.copyOf(start, start.length);
+        int[] events = new int[start[TUtils.NOVANTA + 1]];
+        for (int c = 0; c < n; c++) {
+            cardEvents(c, jollies[c], joinOrdinals[c], ranks, scratch, events, fill);
+        }
+        return play(order, events, start, reach);
+    }
+
+    // The single linear pass over the extractions, applying the rules of TGame.
+    private TSolution play(int[] order, int[] events, int[] start, int[] reach) {
+        int na = awards.size();
+        TSolution sol = new TSolution(awards, reach);
+        boolean[] assigned = new boolean[na];
+        int[] table = new int[TAward.TOMBOLA + 1];
+        int unassigned = dispatch(assigned, table);
+        IntList[] candidates = new IntList[na];
+        for (int a = 0; a < na; a++) {
+            candidates[a] = new IntList();
+        }
+        for (int t = 1; t <= order.length && unassigned > 0; t++) {
+            sol.extracted = t;
+            boolean touched = false;
+            for (int e = start[t]; e < start[t + 1]; e++) {
+                int a = table[events[e] & EVENT_SCORE];
+                if (a >= 0) {
+                    candidates[a].add(events[e]);
+                    touched = true;
+                }
+            }
+            if (!touched) {
+                continue;
+            }
+            int number = order[t - 1];
+            // Lone winners first...
+            for (int a = 0; a < na; a++) {
+                if (candidates[a].size == 1) {
+                    sol.assign(a, cards, candidates[a].get(0), t, number);
+                    assigned[a] = true;
+                    candidates[a].clear();
+                }
+            }
+            // ...then contentions, resolved in favor of the first candidate in card order.
+            for (int a = 0; a < na; a++) {
+                if (candidates[a].size > 1) {
+                    sol.contention(a, candidates[a].size, t);
+                }
+            }
+            for (int a = 0; a < na; a++) {
+                IntList cl = candidates[a];
+                if (cl.size > 1) {
+                    sol.contenders(a, cards, cl);
+                    sol.assign(a, cards, cl.get(0), t, number);
+                    assigned[a] = true;
+                    if (a < na - 1 && awards.get(a + 1).getCategory() == awards.get(a).getCategory()) {
+                        IntList next = candidates[a + 1];
+                        for (int i = 1; i < cl.size; i++) {
+                            next.add(cl.get(i));
+                        }
+                        // A lone remaining candidate wins right away, otherwise the loop resolves it.
+                        if (next.size == 1) {
+                            sol.assign(a + 1, cards, next.get(0), t, number);
+                            assigned[a + 1] = true;
+                            next.clear();
+                        }
+                    }
+                    cl.clear();
+                }
+            }
+            unassigned = dispatch(assigned, table);
+            if (unassigned == 0) {
+                sol.endOrdinal = t;
+            }
+        }
+        return sol;
+    }
+
+    // Same table of TAwardList.refreshDispatchTable(), built on the solver own award status.
+    private int dispatch(boolean[] assigned, int[] table) {
+        Arrays.fill(table, -1);
+        int unassigned = 0;
+        for (int i = awards.size() - 1; i >= 0; i--) {
+            if (!assigned[i]) {
+                unassigned++;
+                for (int score = awards.get(i).getCategory(); score < table.length; score += 5) {
+                    table[score] = i;
+                }
+            }
+        }
+        return unassigned;
+    }
+
+    private static int[] rankNumbers(int[] order) {
+        if (order == null || order.length > TUtils.NOVANTA) {
+            throw new TTombolaRuntimeException("<ERROR!> The extraction order must contain at most 90 numbers.");
+        }
+        int[] rank = new int[TUtils.NOVANTA + 1];
+        Arrays.fill(rank, NEVER);
+        for (int i = 0; i < order.length; i++) {
+            int number = order[i];
+            if (number < 1 || number > TUtils.NOVANTA || rank[number] != NEVER) {
+                throw new TTombolaRuntimeException("<ERROR!> Wrong or repeated number " + number + " in the extraction order.");
+            }
+            rank[number] = i + 1;
+        }
+        return rank;
+    }
+
+    // Each card, on its own, gets a score when each of its numbers is extracted: the rank of
+    //  the number within its row plus 5 for each other row already completed. A late card has
+    //  no event for the numbers extracted before it joined the game.
+    private static void cardEvents(int c, int jollyIndex, int join, int[] ranks, int[] rowEnd, int[] events, int[] fill) {
+        int base = c * 15;
+        for (int r = 0; r < 3; r++) {
+            int end = 0;
+            for (int p = base + r * 5; p < base + r * 5 + 5; p++) {
+                end = Math.max(end, ranks[p]);
+            }
+            rowEnd[r] = end;
+        }
+        for (int p = 0; p < 15; p++) {
+            int t = ranks[base + p];
+            if (t == NEVER || t <= join) {
+                continue;
+            }
+            int r = p / 5;
+            int score = 0;
+            for (int q = base + r * 5; q < base + r * 5 + 5; q++) {
+                if (ranks[q] <= t) {
+                    score++;
+                }
+            }
+            for (int o = 0; o < 3; o++) {
+                if (o != r && rowEnd[o] < t) {
+                    score += 5;
+                }
+            }
+            int jolly = (score != 15 && p == jollyIndex) ? EVENT_JOLLY : 0;
+            events[fill[t]++] = (c << EVENT_SHIFT) | jolly | score;
+        }
+    }
+
+    // Store in reach[at..at+4] the ordinals at which the card reaches ambo, terno,
+    //  quaterna, quintina (best row) and tombola, 0 if it never does.
+    private static void cardReach(int[] ranks, int base, int[] scratch, int[] reach, int at) {
+        int tombola = 0;
+        for (int k = 0; k < 4; k++) {
+            reach[at + k] = NEVER;
+        }
+        for (int r = 0; r < 3; r++) {
+            for (int k = 0; k < 5; k++) {
+                scratch[k] = ranks[base + r * 5 + k];
+            }
+            sortFive(scratch);
+            for (int k = 1; k < 5; k++) {
+                reach[at + k - 1] = Math.min(reach[at + k - 1], scratch[k]);
+            }
+            tombola = Math.max(tombola, scratch[4]);
+        }
+        reach[at + 4] = tombola;
+        for (int k = 0; k < 5; k++) {
+            if (reach[at + k] == NEVER) {
+                reach[at + k] = 0;
+            }
+        }
+    }
+
+    // Optimal sorting network for five values, much cheaper than a general purpose sort.
+    private static void sortFive(int[] v) {
+        swapIfGreater(v, 0, 1);
+        swapIfGreater(v, 3, 4);
+        swapIfGreater(v, 2, 4);
+        swapIfGreater(v, 2, 3);
+        swapIfGreater(v, 0, 3);
+        swapIfGreater(v, 0, 2);
+        swapIfGreater(v, 1, 4);
+        swapIfGreater(v, 1, 3);
+        swapIfGreater(v, 1, 2);
+    }
+
+    private static void swapIfGreater(int[] v, int i, int j) {
+        if (v[i] > v[j]) {
+            int temp = v[i];
+            v[i] = v[j];
+            v[j] = temp;
+        }
+    }
+
+    // Minimal growable list of int, to keep candidates without boxing them.
+    private static final class IntList {
+
+        private int[] items = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        int get(int i) {
+            return items[i];
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * The outcome of a game computed by {@linkplain TGameSolver}.&nbsp;Awards
+     * are identified by their index within the award list passed to the
+     * solver, cards by their index within the card list.
+     */
+    public static class TSolution {
+
+        private final TAwardList awards;
+        private final int[] reach;
+        private final int[] winningOrdinal;
+        private final int[] winningNumber;
+        private final List<List<TCard>> winners;
+        private final List<List<Boolean>> withJolly;
+        private final List<List<TCard>> contenders;
+        private final int[][] winVector = new int[6][90];
+        private final int[][] conflictVector = new int[6][90];
+        private int extracted = 0;
+        private int endOrdinal = 0;
+
+        TSolution(TAwardList awards, int[] reach) {  // Only package visibility
+            int na = awards.size();
+            this.awards = awards;
+            this.reach = reach;
+            this.winningOrdinal = new int[na];
+            this.winningNumber = new int[na];
+            this.winners = new ArrayList<>(na);
+            this.withJolly = new ArrayList<>(na);
+            this.contenders = new ArrayList<>(na);
+            for (int a = 0; a < na; a++) {
+                winners.add(new ArrayList<>(1));
+                withJolly.add(new ArrayList<>(1));
+                contenders.add(Collections.emptyList());
+            }
+        }
+
+        private void assign(int a, TCardList cards, int event, int t, int number) {
+            TCard winner = cards.get(event >>> EVENT_SHIFT);
+            winners.get(a).add(winner);
+            withJolly.get(a).add((event & EVENT_JOLLY) != 0);
+            winningOrdinal[a] = t;
+            winningNumber[a] = number;
+            int index = categoryIndex(awards.get(a).getCategory());
+            winVector[index][t - 1]++;
+            winVector[5][t - 1]++;
+        }
+
+        private void contention(int a, int candidates, int t) {
+            int index = categoryIndex(awards.get(a).getCategory());
+            conflictVector[index][t - 1] += candidates - 1;
+            conflictVector[5][t - 1] += candidates - 1;
+        }
+
+        private void contenders(int a, TCardList cards, IntList cl) {
+            List<TCard> list = new ArrayList<>(cl.size);
+            for (int i = 0; i < cl.size; i++) {
+                list.add(cards.get(cl.get(i) >>> EVENT_SHIFT));
+            }
+            contenders.set(a, list);
+        }
+
+        private static int categoryIndex(int category) {
+            return (category < 6 ? category - 2 : 4);
+        }
+
+        /**
+         * Return the award list the game has been solved for.
+         *
+         * @return the award list passed to the solver.
+         */
+        public TAwardList getAwards() {
+            return awards;
+        }
+
+        /**
+         * Return the amount of extractions played before the game was over,
+         * or all the extractions of the given order if it was not.
+         *
+         * @return the amount of played extractions.
+         */
+        public int getExtractionCount() {
+            return extracted;
+        }
+
+        /**
+         * Return true if all the awards have been won within the given
+         * extraction order.
+         *
+         * @return true if the game is over.
+         */
+        public boolean isGameOver() {
+            return endOrdinal > 0;
+        }
+
+        /**
+         * Return the extraction count at which the last award has been won, 0
+         * if the game is not over within the given extraction order.
+         *
+         * @return the extraction count at which the game is over.
+         */
+        public int getEndOrdinal() {
+            return endOrdinal;
+        }
+
+        /**
+         * Return the extraction count at which a card reaches a category,
+         * whatever the awards: on its best row for AMBO, TERNO, QUATERNA and
+         * QUINTINA, on the whole card for TOMBOLA.&nbsp;Extractions after the
+         * end of the game are considered too.
+         *
+         * @param cardIndex the index of the card within the card list.
+         * @param category one of the TAward category constants.
+         * @return the extraction count at which the card reaches the
+         * category, 0 if it does not within the given extraction order.
+         */
+        public int getReachOrdinal(int cardIndex, int category) {
+            if (category != TAward.TOMBOLA && (category < TAward.AMBO || category > TAward.QUINTINA)) {
+                throw new TTombolaRuntimeException("<ERROR!> Unknown award category " + category + ".");
+            }
+            return reach[cardIndex * 5 + categoryIndex(category)];
+        }
+
+        /**
+         * Return the extraction count at which an award has been won.
+         *
+         * @param awardIndex the index of the award within the award list.
+         * @return the extraction count at which the award has been won, 0 if
+         * it has not been won.
+         */
+        public int getWinningOrdinal(int awardIndex) {
+            return winningOrdinal[awardIndex];
+        }
+
+        /**
+         * Return the number whose extraction let an award be won.
+         *
+         * @param awardIndex the index of the award within the award list.
+         * @return the number that let the award be won, 0 if it has not been
+         * won.
+         */
+        public int getWinningNumber(int awardIndex) {
+            return winningNumber[awardIndex];
+        }
+
+        /**
+         * Return the winners of an award.
+         *
+         * @param awardIndex the index of the award within the award list.
+         * @return the list of the cards winning the award, empty if it has not
+         * been won.
+         */
+        public List<TCard> getWinners(int awardIndex) {
+            return Collections.unmodifiableList(winners.get(awardIndex));
+        }
+
+        /**
+         * Return, for each winner of an award, true if it won using its
+         * jolly, as {@linkplain TAward#getWithJollyList()} does.
+         *
+         * @param awardIndex the index of the award within the award list.
+         * @return the jolly flags of the winners of the award.
+         */
+        public List<Boolean> getWithJollyList(int awardIndex) {
+            return Collections.unmodifiableList(withJolly.get(awardIndex));
+        }
+
+        /**
+         * Return the cards that contended an award, in card list order, when
+         * two or more of them could win it at the same extraction: the first
+         * one is the winner chosen by the solver, the others are the
+         * alternatives a manual resolution could choose.
+         *
+         * @param awardIndex the index of the award within the award list.
+         * @return the contenders of the award, empty if there has been no
+         * contention.
+         */
+        public List<TCard> getContenders(int awardIndex) {
+            return Collections.unmodifiableList(contenders.get(awardIndex));
+        }
+
+        /**
+         * Return the amount of awards won at each extraction, with the same
+         * layout of {@linkplain TGame#getWinVector()}.
+         *
+         * @return the win vector of the game.
+         */
+        public int[][] getWinVector() {
+            return winVector;
+        }
+
+        /**
+         * Return the amount of extra candidates to the same award at each
+         * extraction, with the same layout of
+         * {@linkplain TGame#getConflictVector()}.
+         *
+         * @return the conflict vector of the game.
+         */
+        public int[][] getConflictVector() {
+            return conflictVector;
+        }
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,634 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import static harrygpotter.tombola.tombolalib.TUtils.NOVANTA;
+import java.io.ByteArrayOutputStream;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A TGameStateCodec object encodes the state of a {@linkplain TGame} in a
+ * compact binary form, so that displays and remote viewers can follow the game
+ * exchanging just a few bytes after each extraction.&nbsp;Each time
+ * {@link TGameStateCodec#update()} finds the game changed, a new version of the
+ * state is published together with a <i>delta</i> message leading from the
+ * previous version to the new one: the numbers extracted since then, the cards
+ * matching them (as ranges of card indexes) and the awards whose status has
+ * changed.&nbsp;Late joiners start from a <i>snapshot</i> message containing
+ * the whole published state.&nbsp;Both kinds of message can be applied to a
+ * {@linkplain TGameStateCodec.TStateView} to rebuild the state on the other
+ * side.
+ * <p>
+ * Messages start with the bytes 'T', 'G', the format version and the kind of
+ * message; all the integers are unsigned variable length integers (7 bits per
+ * byte, least significant group first) and numbers are single bytes:</p>
+ * <pre>
+ * snapshot: version, cardCount, count, number[count], awardCount, award[awardCount]
+ * delta:    baseVersion, version, cardCount, count, number[count],
+ *           rangeCount, (gap, length)[rangeCount], changedCount, (awardIndex, award)[changedCount]
+ * award:    status, winningOrdinal + 1, winnerCount, (cardIndex + 1)[winnerCount]
+ * </pre>
+ * <p>
+ * Matched card ranges are sorted, the gap being the distance from the end of
+ * the previous range (or from card 0).&nbsp;When the state cannot be expressed
+ * as a delta (for example after a rollback) a snapshot is published in its
+ * place.&nbsp;The game must not be changed while update() runs: call it from
+ * the thread driving the game, after each extraction.</p>
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TGame
+ * @see TGameStateCodec.TStateView
+ */
+public class TGameStateCodec {
+
+    /**
+     * Version of the format of the messages produced by this class.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Kind of the messages containing the whole state of the game.
+     */
+    public static final int KIND_SNAPSHOT = 1;
+
+    /**
+     * Kind of the messages containing the changes between two versions.
+     */
+    public static final int KIND_DELTA = 2;
+
+    private static final int HEADER_0 = 'T';
+    private static final int HEADER_1 = 'G';
+    private static final TAward.TAwardStatus[] STATUSES = TAward.TAwardStatus.values();
+
+    private final TGame game;
+    private final Map<TCard, Integer> cardIndexes = new IdentityHashMap<>();
+    // postings[n-1] is the bitmap of the cards containing n: bit i is set for the i-th card.
+    private long[][] postings = new long[NOVANTA][0];
+    private int cardCount = 0;
+
+    // The published state: it changes only within update().
+    private long version = 0;
+    private int count = 0;
+    private final int[] numbers = new int[NOVANTA];
+    private int[] awardStatus = new int[0];
+    private int[] awardOrdinal = new int[0];
+    private int[][] awardWinners = new int[0][];
+    private byte[] lastDelta = null;
+    private byte[] snapshot = null;
+
+    /**
+     * Build a codec following the game passed as input parameter.&nbsp;The
+     * first version of the state is published at once.
+     *
+     * @param game the game to follow.
+     */
+    public TGameStateCodec(TGame game) {
+        this.game = game;
+        update();
+    }
+
+    /**
+     * Return the current version of the published state, starting from 1.
+     *
+     * @return the current version of the published state.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Compare the game with the published state and, if something has changed,
+     * publish a new version of the state and the delta message leading to it.
+     *
+     * @return true if a new version has been published.
+     */
+    public synchronized boolean update() {
+        boolean cardsChanged = refreshCards();
+        TSacchetto sacchetto = game.getSacchetto();
+        int newCount = (sacchetto == null ? 0 : sacchetto.getExtractedCount());
+        boolean prefixKept = newCount >= count;
+        for (int i = 0; prefixKept && i < count; i++) {
+            prefixKept = (sacchetto.getExtractedAt(i) == numbers[i]);
+        }
+        TAwardList awards = game.getAwards();
+        int awardCount = (awards == null ? 0 : awards.size());
+        boolean[] changed = new boolean[awardCount];
+        int changedCount = 0;
+        boolean awardsResized = awardCount != awardStatus.length;
+        for (int i = 0; i < awardCount; i++) {
+            TAward aw = awards.get(i);
+            changed[i] = awardsResized || aw.getStatus().ordinal() != awardStatus[i]
+                    || aw.getWinningOrdinal() != awardOrdinal[i] || aw.getWinnerList().size() != awardWinners[i].length;
+            changedCount += (changed[i] ? 1 : 0);
+        }
+        if (version > 0 && prefixKept && newCount == count && changedCount == 0 && !cardsChanged) {
+            return false;
+        }
+
+        ByteArrayOutputStream delta = new ByteArrayOutputStream(64);
+        long baseVersion = version;
+        int baseCount = count;
+        if (awardsResized) {
+            awardStatus = new int[awardCount];
+            awardOrdinal = new int[awardCount];
+            awardWinners = new int[awardCount][];
+        }
+        for (int i = 0; i < newCount; i++) {
+            numbers[i] = sacchetto.getExtractedAt(i);
+        }
+        count = newCount;
+        for (int i = 0; i < awardCount; i++) {
+            if (changed[i]) {
+                TAward aw = awards.get(i);
+                awardStatus[i] = aw.getStatus().ordinal();
+                awardOrdinal[i] = aw.getWinningOrdinal();
+                List<TCard> winners = aw.getWinnerList();
+                awardWinners[i] = new int[winners.size()];
+                for (int w = 0; w < winners.size(); w++) {
+                    awardWinners[i][w] = cardIndexes.getOrDefault(winners.get(w), -1);
+                }
+            }
+        }
+        version++;
+        snapshot = encodeSnapshot();
+        if (baseVersion == 0 || !prefixKept || awardsResized) {
+            // Not expressible as a delta: clients must start again from the whole state.
+            lastDelta = snapshot;
+            return true;
+        }
+        writeHeader(delta, KIND_DELTA);
+        writeVarint(delta, baseVersion);
+        writeVarint(delta, version);
+        writeVarint(delta, cardCount);
+        writeVarint(delta, count - baseCount);
+        for (int i = baseCount; i < count; i++) {
+            delta.write(numbers[i]);
+        }
+        writeMatchedRanges(delta, baseCount);
+        writeVarint(delta, changedCount);
+        for (int i = 0; i < awardCount; i++) {
+            if (changed[i]) {
+                writeVarint(delta, i);
+                writeAward(delta, i);
+            }
+        }
+        lastDelta = delta.toByteArray();
+        return true;
+    }
+
+    /**
+     * Return the message leading from the previous version of the state to the
+     * current one.&nbsp;It is a snapshot message if the change could not be
+     * expressed as a delta.
+     *
+     * @return the message leading to the current version of the state.
+     */
+    public synchronized byte[] getDelta() {
+        return lastDelta;
+    }
+
+    /**
+     * Return a message containing the whole published state, to be sent to the
+     * viewers joining the game late.
+     *
+     * @return a snapshot message of the current version of the state.
+     */
+    public synchronized byte[] getSnapshot() {
+        return snapshot;
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    // Rebuild the card postings if the card list has changed (late cards are appended).
+    private boolean refreshCards() {
+        TCardList cards = game.getCards();
+        int size = (cards == null ? 0 : cards.size());
+        if (size == cardCount && (size == 0 || cardIndexes.get(cards.get(size - 1)) != null)) {
+            return false;
+        }
+        int words = (size + 63) >>> 6;
+        postings = new long[NOVANTA][words];
+        cardIndexes.clear();
+        for (int i = 0; i < size; i++) {
+            TCard c = cards.get(i);
+            cardIndexes.put(c, i);
+            for (int k = 0; k < 15; k++) {
+                int n = c.getNumber(k);
+                postings[n - 1][i >>> 6] |= 1L << i;
+            }
+        }
+        cardCount = size;
+        return true;
+    }
+
+    private void writeMatchedRanges(ByteArrayOutputStream out, int fromMoment) {
+        long[] matched = new long[postings.length > 0 ? postings[0].length : 0];
+        for (int i = fromMoment; i < count; i++) {
+            long[] p = postings[numbers[i] - 1];
+            for (int w = 0; w < matched.length; w++) {
+                matched[w] |= p[w];
+            }
+        }
+        // Two passes: the first one just counts the ranges.
+        for (int pass = 0; pass < 2; pass++) {
+            int ranges = 0;
+            int end = 0;
+            int i = nextBit(matched, 0, true);
+            while (i >= 0) {
+                int j = nextBit(matched, i, false);
+                if (j < 0) {
+                    j = cardCount;
+                }
+                if (pass == 1) {
+                    writeVarint(out, i - end);
+                    writeVarint(out, j - i);
+                }
+                ranges++;
+                end = j;
+                i = nextBit(matched, j, true);
+            }
+            if (pass == 0) {
+                writeVarint(out, ranges);
+            }
+        }
+    }
+
+    // Return the index of the first bit, from 'from' on, set (or clear) in the bitmap; -1 if none.
+    private int nextBit(long[] bitmap, int from, boolean set) {
+        int w = from >>> 6;
+        if (w >= bitmap.length) {
+            return -1;
+        }
+        long word = (set ? bitmap[w] : ~bitmap[w]) & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int result = (w << 6) + Long.numberOfTrailingZeros(word);
+                return (result < cardCount ? result : -1);
+            }
+            if (++w >= bitmap.length) {
+                return -1;
+            }
+            word = (set ? bitmap[w] : ~bitmap[w]);
+        }
+    }
+
+    private byte[] encodeSnapshot() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        writeHeader(out, KIND_SNAPSHOT);
+        writeVarint(out, version);
+        writeVarint(out, cardCount);
+        writeVarint(out, count);
+        for (int i = 0; i < count; i++) {
+            out.write(numbers[i]);
+        }
+        writeVarint(out, awardStatus.length);
+        for (int i = 0; i < awardStatus.length; i++) {
+            writeAward(out, i);
+        }
+        return out.toByteArray();
+    }
+
+    private void writeAward(ByteArrayOutputStream out, int i) {
+        out.write(awardStatus[i]);
+        writeVarint(out, awardOrdinal[i] + 1);
+        writeVarint(out, awardWinners[i].length);
+        for (int w : awardWinners[i]) {
+            writeVarint(out, w + 1);
+        }
+    }
+
+    private static void writeHeader(ByteArrayOutputStream out, int kind) {
+        out.write(HEADER_0);
+        out.write(HEADER_1);
+        out.write(FORMAT_VERSION);
+        out.write(kind);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * The state of a game rebuilt on the receiving side, applying the messages
+     * produced by a {@linkplain TGameStateCodec}: a snapshot first, and then
+     * the deltas in order.
+     */
+    public static class TStateView {
+
+        private long version = 0;
+        private int cardCount = 0;
+        private int count = 0;
+        private final int[] numbers = new int[NOVANTA];
+        private final long[] extractedMask = new long[2];
+        private int[] awardStatus = new int[0];
+        private int[] awardOrdinal = new int[0];
+        private int[][] awardWinners = new int[0][];
+        private int[] lastMatched = new int[0];
+
+        /**
+         * Apply a message to this view.&nbsp;A snapshot is always applied, a
+         * delta only if it starts from the current version of the view.
+         *
+         * @param message the message produced by a TGameStateCodec.
+         *
+         * @return true if the message has been applied, false if it is a delta
+         * not starting from the current version: in this case a snapshot is
+         * needed.
+         *
+         * @throws TTombolaRuntimeException if the message is malformed or
+         * truncated: in this case the view is left unchanged.
+         */
+        public synchronized boolean apply(byte[] message) {
+            if (message == null || message.length < 4 || message[0] != HEADER_0 || message[1] != HEADER_1 || message[2] != FORMAT_VERSION) {
+                throw new TTombolaRuntimeException("<ERROR!> Not a game state message, or unsupported format version.");
+            }
+            TMessageReader reader = new TMessageReader(message);
+            if (message[3] == KIND_SNAPSHOT) {
+                applySnapshot(reader);
+                return true;
+            }
+            if (message[3] != KIND_DELTA) {
+                throw new TTombolaRuntimeException("<ERROR!> Unknown kind of game state message: " + message[3]);
+            }
+            if (reader.readVarint() != version) {
+                return false;
+            }
+            applyDelta(reader);
+            return true;
+        }
+
+        /**
+         * Return the version of the state held by this view, 0 if no message
+         * has been applied jet.
+         *
+         * @return the version of the state held by this view.
+         */
+        public synchronized long getVersion() {
+            return version;
+        }
+
+        /**
+         * Return the number of cards playing the game.
+         *
+         * @return the number of cards playing the game.
+         */
+        public synchronized int getCardCount() {
+            return cardCount;
+        }
+
+        /**
+         * Return how many numbers have been extracted.
+         *
+         * @return how many numbers have been extracted.
+         */
+        public synchronized int getExtractedCount() {
+            return count;
+        }
+
+        /**
+         * Return the number extracted at the given moment, starting from 0.
+         *
+         * @param moment the extraction moment, from 0 to getExtractedCount() - 1.
+         *
+         * @return the number extracted at the given moment, -1 if there is none.
+         */
+        public synchronized int getExtractedAt(int moment) {
+            return (moment >= 0 && moment < count ? numbers[moment] : -1);
+        }
+
+        /**
+         * Return true if the given number has been extracted.
+         *
+         * @param number a number between 1 and 90.
+         *
+         * @return true if the given number has been extracted.
+         */
+        public synchronized boolean isExtracted(int number) {
+            return number >= 1 && number <= NOVANTA && (extractedMask[(number - 1) >>> 6] & (1L << (number - 1))) != 0;
+        }
+
+        /**
+         * Return the number of awards of the game.
+         *
+         * @return the number of awards of the game.
+         */
+        public synchronized int getAwardCount() {
+            return awardStatus.length;
+        }
+
+        /**
+         * Return the status of the i-th award of the game.
+         *
+         * @param i the index of the award, in the order of the game award list.
+         *
+         * @return the status of the award.
+         */
+        public synchronized TAward.TAwardStatus getAwardStatus(int i) {
+            return STATUSES[awardStatus[i]];
+        }
+
+        /**
+         * Return the extraction count at which the i-th award has been won, -1
+         * if it has not been won jet.
+         *
+         * @param i the index of the award, in the order of the game award list.
+         *
+         * @return the extraction count at which the award has been won.
+         */
+        public synchronized int getAwardWinningOrdinal(int i) {
+            return awardOrdinal[i];
+        }
+
+        /**
+         * Return the indexes, within the game card list, of the cards that won
+         * the i-th award.
+         *
+         * @param i the index of the award, in the order of the game award list.
+         *
+         * @return the indexes of the winning cards, -1 for unknown cards.
+         */
+        public synchronized int[] getAwardWinners(int i) {
+            return awardWinners[i].clone();
+        }
+
+        /**
+         * Return the indexes of the cards matching the numbers carried by the
+         * last applied delta, an empty array after a snapshot.
+         *
+         * @return the indexes of the cards matching the last extracted numbers.
+         */
+        public synchronized int[] getLastMatchedCards() {
+            return lastMatched.clone();
+        }
+
+        // The whole message is decoded into local variables, and the view is changed only at the end:
+        //  a malformed message leaves it as it was.
+        private void applySnapshot(TMessageReader m) {
+            long newVersion = m.readVarint();
+            int newCardCount = m.readLength(Integer.MAX_VALUE);
+            int[] newNumbers = new int[NOVANTA];
+            long[] newMask = new long[2];
+            int newCount = readNumbers(m, newNumbers, newMask, 0);
+            int awardCount = m.readLength(m.remaining());
+            int[] newStatus = new int[awardCount];
+            int[] newOrdinal = new int[awardCount];
+            int[][] newWinners = new int[awardCount][];
+            for (int i = 0; i < awardCount; i++) {
+                readAward(m, i, newStatus, newOrdinal, newWinners);
+            }
+            version = newVersion;
+            cardCount = newCardCount;
+            count = newCount;
+            System.arraycopy(newNumbers, 0, numbers, 0, NOVANTA);
+            extractedMask[0] = newMask[0];
+            extractedMask[1] = newMask[1];
+            awardStatus = newStatus;
+            awardOrdinal = newOrdinal;
+            awardWinners = newWinners;
+            lastMatched = new int[0];
+        }
+
+        private void applyDelta(TMessageReader m) {
+            long newVersion = m.readVarint();
+            int newCardCount = m.readLength(Integer.MAX_VALUE);
+            int[] newNumbers = numbers.clone();
+            long[] newMask = extractedMask.clone();
+            int newCount = readNumbers(m, newNumbers, newMask, count);
+            int ranges = m.readLength(Math.min(newCardCount, m.remaining()));
+            int[] starts = new int[ranges];
+            int[] lengths = new int[ranges];
+            int end = 0;
+            for (int r = 0; r < ranges; r++) {
+                starts[r] = end + m.readLength(newCardCount - end);
+                lengths[r] = m.readLength(newCardCount - starts[r]);
+                end = starts[r] + lengths[r];
+            }
+            int total = 0;
+            for (int r = 0; r < ranges; r++) {
+                total += lengths[r];
+            }
+            int[] newMatched = new int[total];
+            for (int r = 0, k = 0; r < ranges; r++) {
+                for (int c = 0; c < lengths[r]; c++) {
+                    newMatched[k++] = starts[r] + c;
+                }
+            }
+            int[] newStatus = awardStatus.clone();
+            int[] newOrdinal = awardOrdinal.clone();
+            int[][] newWinners = awardWinners.clone();
+            int changed = m.readLength(newStatus.length);
+            for (int c = 0; c < changed; c++) {
+                readAward(m, m.readLength(newStatus.length - 1), newStatus, newOrdinal, newWinners);
+            }
+            version = newVersion;
+            cardCount = newCardCount;
+            count = newCount;
+            System.arraycopy(newNumbers, 0, numbers, 0, NOVANTA);
+            extractedMask[0] = newMask[0];
+            extractedMask[1] = newMask[1];
+            lastMatched = newMatched;
+            awardStatus = newStatus;
+            awardOrdinal = newOrdinal;
+            awardWinners = newWinners;
+        }
+
+        // Append the numbers carried by the message to the first count ones, returning the new count.
+        private static int readNumbers(TMessageReader m, int[] numbers, long[] mask, int count) {
+            int n = m.readLength(NOVANTA - count);
+            for (int i = 0; i < n; i++) {
+                int number = m.readByte();
+                if (number < 1 || number > NOVANTA || (mask[(number - 1) >>> 6] & (1L << (number - 1))) != 0) {
+                    throw new TTombolaRuntimeException("<ERROR!> Corrupted game state message: invalid extracted number " + number + ".");
+                }
+                numbers[count++] = number;
+                mask[(number - 1) >>> 6] |= 1L << (number - 1);
+            }
+            return count;
+        }
+
+        private static void readAward(TMessageReader m, int i, int[] status, int[] ordinal, int[][] winners) {
+            int code = m.readByte();
+            if (code >= STATUSES.length) {
+                throw new TTombolaRuntimeException("<ERROR!> Corrupted game state message: invalid award status " + code + ".");
+            }
+            status[i] = code;
+            ordinal[i] = m.readLength(NOVANTA + 1) - 1;
+            int[] w = new int[m.readLength(m.remaining())];
+            for (int k = 0; k < w.length; k++) {
+                w[k] = m.readLength(Integer.MAX_VALUE) - 1;
+            }
+            winners[i] = w;
+        }
+    }
+
+    // Bounds checked reading of a message: any truncation or out of range value becomes a
+    //  TTombolaRuntimeException, before anything is allocated with it.
+    private static final class TMessageReader {
+
+        private final byte[] m;
+        private int pos = 4;
+
+        TMessageReader(byte[] m) {
+            this.m = m;
+        }
+
+        int remaining() {
+            return m.length - pos;
+        }
+
+        int readByte() {
+            if (pos >= m.length) {
+                throw new TTombolaRuntimeException("<ERROR!> Truncated game state message.");
+            }
+            return m[pos++] & 0xFF;
+        }
+
+        long readVarint() {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                if (shift > 63) {
+                    throw new TTombolaRuntimeException("<ERROR!> Corrupted game state message: varint too long.");
+                }
+                b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        // A count, a length or an index, that must be within [0, max].
+        int readLength(int max) {
+            long value = readVarint();
+            if (value < 0 || value > max) {
+                throw new TTombolaRuntimeException("<ERROR!> Corrupted game state message: value " + value + " out of range [0, " + max + "].");
+            }
+            return (int) value;
+        }
+    }
+}           // End Of File - Rel.(1.1)
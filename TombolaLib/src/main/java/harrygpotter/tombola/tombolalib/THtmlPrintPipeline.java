@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.OpenOption;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A THtmlPrintPipeline object prints cards with the template of a
+ * {@linkplain THtmlPrinter}, rendering the card blocks in parallel while they
+ * are written, in order, on the output file.&nbsp;Cards can come from a list
+ * of series in memory or can be streamed directly from a card file, that is
+ * never loaded as a whole; the output can be split in many files of a given
+ * amount of pages (that is of card blocks, as each block of the provided
+ * templates fills a page), easier to open and print with a browser than a
+ * single huge file.
+ * <p>
+ * The thread reading the cards groups them in blocks and submits each block
+ * to a {@linkplain ForkJoinPool}; the rendered blocks are written in the same
+ * order, keeping at most a few blocks per thread in flight, so the memory
+ * used does not depend on the amount of cards.&nbsp;When the output is split,
+ * each file gets the header and the footer of the template and is named after
+ * the output file with a progressive number: Cards.html becomes
+ * Cards_001.html, Cards_002.html and so on.</p>
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see THtmlPrinter
+ * @see TFileFormatter#streamSeriesFile(String, TCardFormat, java.util.function.Consumer)
+ * @since 1.8
+ */
+public class THtmlPrintPipeline {
+
+    private static final Charset STANDARD_CHARSET = Charset.forName("UTF-8");
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    private final THtmlPrinter printer;
+    private final ForkJoinPool pool;
+    private int pagesPerFile = 0;
+    private final List<String> outputFiles = new ArrayList<>();
+
+    /**
+     * Build a pipeline rendering the cards on the common ForkJoinPool.
+     *
+     * @param printer the printer providing the template and its settings.
+     */
+    public THtmlPrintPipeline(THtmlPrinter printer) {
+        this(printer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Build a pipeline rendering the cards on the given pool.
+     *
+     * @param printer the printer providing the template and its settings.
+     * @param pool the pool rendering the card blocks.
+     */
+    public THtmlPrintPipeline(THtmlPrinter printer, ForkJoinPool pool) {
+        if (printer == null || pool == null) {
+            throw new TTombolaRuntimeException("<ERROR!> The print pipeline needs a valid printer and pool.");
+        }
+        this.printer = printer;
+        this.pool = pool;
+    }
+
+    /**
+     * Split the output in many files, each one containing at most the given
+     * amount of pages (card blocks).
+     *
+     * @param pagesPerFile the maximum amount of pages of each output file, 0
+     * to write all the pages on a single file.
+     */
+    public void setPagesPerFile(int pagesPerFile) {
+        if (pagesPerFile < 0) {
+            throw new TTombolaRuntimeException("<ERROR!> The amount of pages per file cannot be negative.");
+        }
+        this.pagesPerFile = pagesPerFile;
+    }
+
+    /**
+     * @return the maximum amount of pages of each output file, 0 if the
+     * output is not split.
+     */
+    public int getPagesPerFile() {
+        return pagesPerFile;
+    }
+
+    /**
+     * @return the names of the files written by the last print, in order.
+     */
+    public List<String> getOutputFiles() {
+        return Collections.unmodifiableList(outputFiles);
+    }
+
+    /**
+     * Print the cards of a list of series, from the first to the last one.
+     *
+     * @param tsl the whole list of series to be printed.
+     * @param first the index of the first card to print.
+     * @param last the index of the last card to print, a negative value to
+     * print up to the last card of the list.
+     * @param outFilename the absolute or relative name of the html output
+     * file, used as base name if the output is split.
+     * @param options file writing options (i.e. overwrite, append, etc.)
+     * @return the number of printed cards if everything goes ok, a negative
+     * value otherwise, as {@linkplain THtmlPrinter#printHtml(TSeriesList, int, int, String, OpenOption)}
+     * does.
+     * @throws IOException if something goes wrong when writing the files.
+     */
+    public int print(TSeriesList tsl, int first, int last, String outFilename, OpenOption options) throws IOException {
+        if (tsl == null || tsl.size() < 1) {
+            return -1;
+        }
+        if (outFilename == null || outFilename.length() < 1) {
+            return -2;
+        }
+        THtmlPrinter.TCompiledTemplate template = printer.compileTemplate();
+        if (template == null) {
+            return -3;
+        }
+        TRun run = new TRun(template, printer.documentParams(tsl), first, last, outFilename, options);
+        try {
+            for (int s = 0; s < tsl.size() && !run.isOver(); s++) {
+                run.accept(tsl.get(s));
+            }
+            return run.finish();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            run.abort();
+        }
+    }
+
+    /**
+     * Print the cards of a card file, streaming them from the file: the file
+     * is never loaded as a whole and its series are not compared each other.
+     *
+     * @param cardFile the full or relative path of the card file.
+     * @param format the format of the card file, or AUTO (or null) to detect
+     * it.
+     * @param first the index of the first card to print.
+     * @param last the index of the last card to print, a negative value to
+     * print up to the last card of the file.
+     * @param outFilename the absolute or relative name of the html output
+     * file, used as base name if the output is split.
+     * @param options file writing options (i.e. overwrite, append, etc.)
+     * @return the number of printed cards if everything goes ok, a negative
+     * value otherwise, as {@linkplain THtmlPrinter#printHtml(TSeriesList, int, int, String, OpenOption)}
+     * does.
+     * @throws IOException if something goes wrong when reading the card file
+     * or writing the files.
+     */
+    public int print(String cardFile, TCardFormat format, int first, int last, String outFilename, OpenOption options) throws IOException {
+        if (cardFile == null) {
+            return -1;
+        }
+        if (outFilename == null || outFilename.length() < 1) {
+            return -2;
+        }
+        THtmlPrinter.TCompiledTemplate template = printer.compileTemplate();
+        if (template == null) {
+            return -3;
+        }
+        TSeriesList info = new TSeriesList(cardFile);
+        info.setMakeSixMethod("Just read from another file");
+        info.setSetFactoryMethod("Just read from another file");
+        TRun run = new TRun(template, printer.documentParams(info), first, last, outFilename, options);
+        try {
+            int series = new TFileFormatter().streamSeriesFile(cardFile, format, run::accept);
+            return (series > 0 ? run.finish() : -1);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            run.abort();
+        }
+    }
+
+    // Name of the output file with the given index, when the output is split.
+    private String shardName(String outFilename, int index) {
+        if (pagesPerFile == 0) {
+            return outFilename;
+        }
+        // The extension of compressed files is kept as well: Cards.html.gz becomes Cards_001.html.gz
+        String name = outFilename;
+        String compressed = "";
+        if (name.toLowerCase().endsWith(TUtils.GZIP_EXTENSION)) {
+            compressed = name.substring(name.length() - TUtils.GZIP_EXTENSION.length());
+            name = name.substring(0, name.length() - TUtils.GZIP_EXTENSION.length());
+        }
+        int dot = name.lastIndexOf('.');
+        int slash = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+        String suffix = String.format("_%03d", index + 1);
+        return (dot > slash ? name.substring(0, dot) + suffix + name.substring(dot) : name + suffix) + compressed;
+    }
+
+    // State of a single print: blocks being filled, rendered and written.
+    private class TRun {
+
+        private final THtmlPrinter.TCompiledTemplate template;
+        private final Map<String, String> params;
+        private final int first;
+        private final int last;
+        private final String outFilename;
+        private final OpenOption options;
+        private final String header;
+        private final String footer;
+        private final int maxInFlight;
+        private final Deque<ForkJoinTask<String>> inFlight = new ArrayDeque<>();
+
+        private TCard[] pending;
+        private int pendingCount = 0;
+        private int cardIndex = 0;
+        private int printed = 0;
+        private int submitted = 0;
+        private int written = 0;
+        private BufferedWriter bw = null;
+
+        private TRun(THtmlPrinter.TCompiledTemplate template, Map<String, String> params, int first, int last, String outFilename, OpenOption options) {
+            this.template = template;
+            this.params = params;
+            this.first = Math.max(0, first);
+            this.last = (last < 0 ? Integer.MAX_VALUE : last);
+            this.outFilename = outFilename;
+            this.options = options;
+            this.header = template.renderHeader(params);
+            this.footer = template.renderFooter(params);
+            this.maxInFlight = BLOCKS_PER_THREAD * pool.getParallelism();
+            this.pending = new TCard[template.getCardsPerBlock()];
+            outputFiles.clear();
+        }
+
+        private boolean isOver() {
+            return cardIndex > last;
+        }
+
+        private void accept(TSeries series) {
+            for (int c = 0; c < 6; c++, cardIndex++) {
+                if (cardIndex >= first && cardIndex <= last) {
+                    pending[pendingCount++] = series.getCard(c);
+                    printed++;
+                    if (pendingCount == pending.length) {
+                        submit();
+                    }
+                }
+            }
+        }
+
+        private void submit() {
+            TCard[] cards = pending;
+            int block = submitted++;
+            String output = shardName(outFilename, pagesPerFile == 0 ? 0 : block / pagesPerFile);
+            inFlight.add(pool.submit(() -> {
+                TFlightEvents.THtmlBlockEvent ev = TFlightEvents.beginHtmlBlock();
+                StringBuilder sb = new StringBuilder(template.getBodyLength() + 1024);
+                template.renderBlock(sb, params, cards);
+                THtmlPrinter.blockDone(ev, output, block, cards.length, sb.length());
+                return sb.toString();
+            }));
+            pending = new TCard[pending.length];
+            pendingCount = 0;
+            while (inFlight.size() >= maxInFlight) {
+                writeNext();
+            }
+        }
+
+        // Write the oldest rendered block, waiting for it if needed, opening a new file when the current one is full.
+        private void writeNext() {
+            String block = inFlight.poll().join();
+            try {
+                if (bw == null || (pagesPerFile > 0 && written % pagesPerFile == 0)) {
+                    openNext();
+                }
+                bw.write(block);
+                written++;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void openNext() throws IOException {
+            closeCurrent();
+            String name = shardName(outFilename, outputFiles.size());
+            bw = TUtils.newBufferedWriter(Paths.get(name), STANDARD_CHARSET, options);
+            outputFiles.add(name);
+            bw.write(header);
+        }
+
+        private void closeCurrent() throws IOException {
+            if (bw != null) {
+                bw.write(footer);
+                bw.close();
+                bw = null;
+            }
+        }
+
+        private int finish() throws IOException {
+            if (pendingCount > 0) {
+                // The last block is not full: the remaining places are printed as empty cards.
+                submit();
+            }
+            while (!inFlight.isEmpty()) {
+                writeNext();
+            }
+            if (outputFiles.isEmpty()) {
+                openNext();
+            }
+            closeCurrent();
+            return printed;
+        }
+
+        // Release the output file and the blocks still in flight after an error; nothing to do after finish().
+        private void abort() {
+            inFlight.forEach((task) -> task.cancel(false));
+            inFlight.clear();
+            if (bw != null) {
+                try {
+                    bw.close();
+                } catch (IOException ex) {
+                    // Already failing: the first exception is the meaningful one.
+                }
+                bw = null;
+            }
+        }
+    }
+}           // End Of File - Rel.(1.1)
@@ -22,15 +22,18 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * This class has the responsibilities to help tombolalib library users to print
@@ -63,13 +66,19 @@ public class THtmlPrinter {
 
     private static final String TAG_TEMPLATE_HEADER_IDENTIFIER = "TombolaLib;1.1;HTML-PRINT-CARDS-TEMPLATE;";
 
+    // Styles of the cells of a card, the names of the CSS classes used by the templates.
+    static final String STYLE_NORMAL = "number-normal";         // Only package visibility
+    static final String STYLE_EMPTY = "number-empty";           // Only package visibility
+    static final String STYLE_MARKED = "number-marked";         // Only package visibility
+    static final String STYLE_JOLLY = "jolly-cell";             // Only package visibility
+    static final String STYLE_JOLLY_MARKED = "jolly-marked";    // Only package visibility
+
     private DateTimeFormatter dt_formatter = DateTimeFormatter.ofPattern("yyyy/MM/dd");
     private DateTimeFormatter ts_formatter = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
-    private final Charset standard_charset = Charset.forName("UTF-8");
+    private static final Charset STANDARD_CHARSET = Charset.forName("UTF-8");
 
-    private THtmlTemplate tht = null;
+    private final THtmlTemplateRegistry registry;
     private String templateFilePath = null;
-    private final Map<String, String> params = new HashMap<>();
 
     private String noNumberTag = TAG_BLANK;
     // TODO(2.0) private boolean highlightMatched = true;
@@ -87,11 +96,40 @@ public class THtmlPrinter {
      * valid template file to use.
      */
     public THtmlPrinter(String templateFilePath) {
+        this(templateFilePath, THtmlTemplateRegistry.getSharedRegistry());
+    }
+
+    /**
+     * Build a printer taking its template from the given registry, that reads
+     * and compiles the template file just once, as long as it does not
+     * change.&nbsp;Printers built with the other constructor share the same
+     * registry.
+     *
+     * @param templateFilePath relative or absolute complete path specifying the
+     * valid template file to use.
+     * @param registry the registry caching the template.
+     */
+    public THtmlPrinter(String templateFilePath, THtmlTemplateRegistry registry) {
         if (templateFilePath == null || templateFilePath.length() < 1) {
             throw new IllegalArgumentException("<ERROR> Template file cannot be null or empty.");
         }
+        if (registry == null) {
+            throw new IllegalArgumentException("<ERROR> Template registry cannot be null.");
+        }
         this.templateFilePath = templateFilePath;
-        tht = new THtmlTemplate();
+        this.registry = registry;
+    }
+
+    /**
+     * Return the description of the template used by this printer, as read
+     * from its header.
+     *
+     * @return the template description, null if the template file is not a
+     * valid template.
+     * @throws IOException if the template file cannot be read.
+     */
+    public THtmlTemplate getTemplate() throws IOException {
+        return registry.getTemplate(templateFilePath);
     }
 
     /**
@@ -125,106 +163,35 @@ public class THtmlPrinter {
         if (outFilename == null || outFilename.length() < 1) {
             return -2;
         }
+        TCompiledTemplate template = compileTemplate();
+        if (template == null) {
+            return -3;
+        }
+        if (first < 0) {
+            first = 0;
+        }
+        if (last >= tsl.size() * 6) {
+            last = tsl.size() * 6 - 1;
+        }
         int count = 0;
-        Path templateToRead = Paths.get(templateFilePath);
-        try ( BufferedReader br = Files.newBufferedReader(templateToRead, this.standard_charset)) {
-            String line;
-            String parsedLine;
-            StringBuilder headerTarget = new StringBuilder();
-            StringBuilder footerTarget = new StringBuilder();
-            StringBuilder bodySource = new StringBuilder();
-
-            // Cycle 1. Read and parse the first 'fixed part' of the template file.
-            initParamMap(tsl);
-            boolean exitFlag = false;
-            boolean valid_template = false;
-            boolean skip_line = false;
-            while (!exitFlag && ((line = br.readLine()) != null)) {
-                if (line.contains(TAG_START)) {
-                    // There is something to parse
-                    if (line.contains(TAG_START + TAG_CARDBLOCK_START)) {
-                        // Skip the line, but change template section
-                        // TODO(2.0) Read here the repetition value?
-                        exitFlag = true;
-                        skip_line = true;
-                    } else if (line.contains(TAG_START + TAG_TEMPLATE_HEADER_IDENTIFIER)) {
-                        valid_template = parseTemplateHeader(line);
-                    }
-                    parsedLine = parseLine(line);
-                } else {
-                    parsedLine = line;
-                }
-                if (skip_line) {
-                    skip_line = !skip_line;
-                } else {
-                    headerTarget.append(parsedLine).append("\n");
-                }
-            }
-
-            if (!valid_template) {
-                return -3;
-            }
-
-            // headerSource is ready to be flushed to the printed file.
-            Path path = Paths.get(outFilename);
-            BufferedWriter bw = Files.newBufferedWriter(path, standard_charset, options);
-            bw.write(headerTarget.toString());
-
-            // Cycle 2.a // Just read the body source to be repeated
-            exitFlag = false;
-            skip_line = false;
-            while (!exitFlag && ((line = br.readLine()) != null)) {
-                if (line.contains(TAG_START + TAG_CARDBLOCK_END)) {
-                    // Skip the line, but change template section
-                    // Read here the repetition value?
-                    exitFlag = true;
-                    skip_line = true;
-                }
-                if (skip_line) {
-                    skip_line = !skip_line;
-                } else {
-                    bodySource.append(line).append("\n");
+        int cardsPerBlock = template.getCardsPerBlock();
+        Map<String, String> params = documentParams(tsl);
+        try (BufferedWriter bw = TUtils.newBufferedWriter(Paths.get(outFilename), STANDARD_CHARSET, options)) {
+            bw.write(template.renderHeader(params));
+            StringBuilder bodyTarget = new StringBuilder();
+            for (int c = first, block = 0; c <= last; c += cardsPerBlock, block++) {
+                TFlightEvents.THtmlBlockEvent ev = TFlightEvents.beginHtmlBlock();
+                TCard[] cards = new TCard[cardsPerBlock];
+                for (int i = 0; i < cardsPerBlock && c + i <= last; i++) {
+                    cards[i] = tsl.get((c + i) / 6).getCard((c + i) % 6);
+                    count++;
                 }
+                bodyTarget.setLength(0);
+                template.renderBlock(bodyTarget, params, cards);
+                bw.append(bodyTarget);
+                blockDone(ev, outFilename, block, cardsPerBlock, bodyTarget.length());
             }
-
-            // Cycle 2.b Here are within the 'repeatable body' of the template
-            if (first < 0) {
-                first = 0;
-            }
-            if (last >= tsl.size() * 6) {
-                last = tsl.size() * 6 - 1;
-            }
-            // int totalCards = tsl.size() * 6;
-            int totalCards = last - first + 1;
-            int numBlocks;
-            int cardsPerBlock = tht.getCardsPerBlock();
-            if ((totalCards % cardsPerBlock) == 0) {
-                numBlocks = totalCards / cardsPerBlock;
-            } else {
-                numBlocks = 1 + (totalCards / cardsPerBlock);
-            }
-            if (numBlocks > 0) {
-                for (int i = 0; i < numBlocks; i++) {
-                    StringBuilder bodyTarget = new StringBuilder();
-                    updateParamMap(tsl, i, first);
-                    bodyTarget.append(parseLine(bodySource.toString()));
-                    bw.write(bodyTarget.toString());
-                    count += cardsPerBlock;
-                }   // End for numBlocks
-            }   // End if (numBlocks>0)
-
-            // Cycle 3. Read, parse and write the last 'fixed part' of the template file.
-            exitFlag = false;
-            while (!exitFlag && (line = br.readLine()) != null) {
-                if (line.contains(TAG_START)) {
-                    // There is something to parse
-                    footerTarget.append(parseLine(line)).append("\n");
-                } else {
-                    footerTarget.append(parseLine(line)).append("\n");
-                }
-            }
-            bw.write(footerTarget.toString());
-            bw.close();
+            bw.write(template.renderFooter(params));
         }
         return count;
     }
@@ -294,9 +261,71 @@ public class THtmlPrinter {
     }
 
     // ----------------------------------------------------------------------
+    // From here on, package only accessible methods, used by THtmlPrintPipeline...
+
+    /**
+     * Get the compiled template from the registry, so that each card block can
+     * be rendered by a single pass, also concurrently by many threads.&nbsp;
+     * The current no number tag and jolly highlight settings are captured by
+     * the compiled template.
+     *
+     * @return the compiled template, null if the template is not valid.
+     * @throws IOException if the template file cannot be read.
+     */
+    TCompiledTemplate compileTemplate() throws IOException {
+        return registry.compile(templateFilePath, noNumberTag, highlightJolly);
+    }
+
+    /**
+     * Read a template file, splitting it in its three sections and parsing
+     * its header.
+     *
+     * @param templateToRead the path of the template file.
+     * @return the sections of the template, null if it is not a valid
+     * template.
+     * @throws IOException if the template file cannot be read.
+     */
+    static TTemplateSource readTemplate(Path templateToRead) throws IOException {
+        THtmlTemplate tht = new THtmlTemplate();
+        tht.setSourceFilePath(templateToRead.toString());
+        StringBuilder headerSource = new StringBuilder();
+        StringBuilder bodySource = new StringBuilder();
+        StringBuilder footerSource = new StringBuilder();
+        boolean valid_template = false;
+        try (BufferedReader br = TUtils.newBufferedReader(templateToRead, STANDARD_CHARSET)) {
+            String line;
+            // Cycle 1. The first 'fixed part' of the template file, up to the card block start tag.
+            while ((line = br.readLine()) != null) {
+                if (line.contains(TAG_START + TAG_CARDBLOCK_START)) {
+                    break;
+                }
+                if (line.contains(TAG_START + TAG_TEMPLATE_HEADER_IDENTIFIER)) {
+                    valid_template = parseTemplateHeader(tht, line);
+                }
+                headerSource.append(line).append("\n");
+            }
+            if (!valid_template) {
+                return null;
+            }
+            // Cycle 2. The 'repeatable body' of the template, up to the card block end tag.
+            while ((line = br.readLine()) != null) {
+                if (line.contains(TAG_START + TAG_CARDBLOCK_END)) {
+                    break;
+                }
+                bodySource.append(line).append("\n");
+            }
+            // Cycle 3. The last 'fixed part' of the template file.
+            while ((line = br.readLine()) != null) {
+                footerSource.append(line).append("\n");
+            }
+        }
+        return new TTemplateSource(tht, headerSource.toString(), bodySource.toString(), footerSource.toString());
+    }
+
     // Prepare the initial "document scoped" tag-parameter couples that could be 
     //  potentially used within the template
-    private void initParamMap(TSeriesList tsl) {
+    Map<String, String> documentParams(TSeriesList tsl) {
+        Map<String, String> params = new HashMap<>();
         params.put("Author", "Harry G. Potter");
         params.put("SeriesListName", tsl.getName());
         params.put("SeriesListTitle", tsl.getName());
@@ -308,50 +337,55 @@ public class THtmlPrinter {
         params.put("GenerationSeed", "" + tsl.getMakeSixSeed());
         params.put("GenerationMethod", tsl.getSetFactoryMethod());
         params.put("GenerationDuration", TUtils.prettyMilliseconds(tsl.getCreationElapsedMillis()));
+        return params;
     }
 
-    // Update the "substitution map object at each card block iteration, so that proper numbers
-    //  are used to prepare cards.
-    private void updateParamMap(TSeriesList tsl, int blockNum, int offset) {
-        int cardsPerBlock = tht.getCardsPerBlock();
-        for (int i = 0; i < cardsPerBlock; i++) {
-            int cardIndex = (blockNum * cardsPerBlock) + i + offset;
-            int seriesIndex = cardIndex / 6;
-            int cardPos = cardIndex % 6;
-            TCard cCard = tsl.get(seriesIndex).getCard(cardPos);
-            params.put("C[" + i + "].L", cCard.getLabel());
-            for (int row = 0; row < 3; row++) {
-                for (int col = 0; col < 9; col++) {
-                    if (cCard.getNumber(row, col) != 0) {
-                        params.put("C[" + i + "].N[" + row + "," + col + "]", "" + cCard.getNumber(row, col));
-                    } else {
-                        params.put("C[" + i + "].N[" + row + "," + col + "]", this.noNumberTag);
-                    }
-                    String numberStyle = "number-normal";
-                    if (cCard.getNumber(row, col) == 0) {
-                        numberStyle = "number-empty";
-                    }
-                    if (cCard.isMatched(row, col)) {
-                        numberStyle = "number-marked";
-                    }
-                    if (cCard.isJolly(row, col) && highlightJolly) {
-                        numberStyle = "jolly-cell";
-                        if (cCard.isMatched(row, col)) {
-                            numberStyle = "jolly-marked";
-                        }
-                    }
-                    // TODO(2.0) Number styles alternative or additive?
-                    // TODO(2.0) Use costants instead of literals for better maintenance?
-                    params.put("C[" + i + "].Style[" + row + "," + col + "]", numberStyle);
-                }
+    /**
+     * Return the style (the CSS class of the provided templates) of a cell of
+     * a card, also used by the other card renderers to draw it the same way.
+     *
+     * @param card the card, null for an empty place of a block.
+     * @param row the row of the cell, in the [0..2] range.
+     * @param col the column of the cell, in the [0..8] range.
+     * @param highlightJolly true if the jolly number must be highlighted.
+     * @return one of the STYLE_ constants.
+     */
+    static String cellStyle(TCard card, int row, int col, boolean highlightJolly) {
+        if (card == null) {
+            return STYLE_EMPTY;
+        }
+        String numberStyle = STYLE_NORMAL;
+        if (card.getNumber(row, col) == 0) {
+            numberStyle = STYLE_EMPTY;
+        }
+        if (card.isMatched(row, col)) {
+            numberStyle = STYLE_MARKED;
+        }
+        if (card.isJolly(row, col) && highlightJolly) {
+            numberStyle = STYLE_JOLLY;
+            if (card.isMatched(row, col)) {
+                numberStyle = STYLE_JOLLY_MARKED;
             }
         }
+        // TODO(2.0) Number styles alternative or additive?
+        return numberStyle;
+    }
+
+    // Commit the Flight Recorder event of a rendered card block, if enabled.
+    static void blockDone(TFlightEvents.THtmlBlockEvent ev, String output, int block, int cards, int characters) {
+        if (ev != null) {
+            ev.output = output;
+            ev.block = block;
+            ev.cards = cards;
+            ev.characters = characters;
+            ev.commit();
+        }
     }
 
     // Parse the initial part (header) of the template, that is the section that is NOT
     //  repeated at each card block, but printet only at the very beginning of the html file.
     // ${"LibraryName"; "Library Version"; "GENERAL TEMPLATE TYPE NAME"; "Template name"; "Cards x block"}
-    private boolean parseTemplateHeader(String hLine) {
+    private static boolean parseTemplateHeader(THtmlTemplate tht, String hLine) {
         boolean result = false;
         StringTokenizer st = new StringTokenizer(hLine, ";");
         int counter = 0;
@@ -377,21 +411,13 @@ public class THtmlPrinter {
                         tht.setName(sToken);
                         break;
                     case 4:
-                        tht.setType(THtmlTemplate.THtmlTemplateType.valueOf(sToken));
-                        switch (tht.getType()) {
-                            case A4_ONECARD_L:
-                                tht.setCardsPerBlock(1);
-                                break;
-                            case A4_TWOCARDS_P:
-                                tht.setCardsPerBlock(2);
-                                break;
-                            case A4_THREECARDS_P:
-                                tht.setCardsPerBlock(3);
-                            case A4_FOURCARDS_L:
-                                tht.setCardsPerBlock(4);
-                            case A4_SIXCARDS_P:
-                                tht.setCardsPerBlock(6);
+                        try {
+                            tht.setType(THtmlTemplate.THtmlTemplateType.valueOf(sToken.trim()));
+                        } catch (IllegalArgumentException ex) {
+                            // Not a known template type: the template is not valid.
+                            return false;
                         }
+                        tht.setCardsPerBlock(tht.getType().getCardsPerPage());
                         result = (tht.getCardsPerBlock() > 0);
                         break;
                     default:
@@ -404,22 +430,184 @@ public class THtmlPrinter {
         return result;
     }
 
-    // Parse a single line of the template, substituting all tags found in it
-    private String parseLine(String line) {
-        String parsedLine = line;
-        // String parsedLine = new String(line); ???
-        StringTokenizer st = new StringTokenizer(parsedLine, "${");
-        while (st.hasMoreTokens()) {
-            String sToken = st.nextToken();
-            if (sToken != null && sToken.contains("}")) {
-                sToken = sToken.substring(0, sToken.indexOf("}"));
-                String newStr = params.get(sToken);
-                if (newStr != null) {
-                    parsedLine = parsedLine.replace("${" + sToken + "}", newStr);
+    /**
+     * A template file as read, split in its three sections, along with the
+     * description parsed from its header.
+     */
+    static final class TTemplateSource {
+
+        private final THtmlTemplate template;
+        private final String header;
+        private final String body;
+        private final String footer;
+
+        private TTemplateSource(THtmlTemplate template, String header, String body, String footer) {
+            this.template = template;
+            this.header = header;
+            this.body = body;
+            this.footer = footer;
+        }
+
+        THtmlTemplate getTemplate() {
+            return template;
+        }
+
+        TCompiledTemplate compile(String noNumberTag, boolean highlightJolly) {
+            return new TCompiledTemplate(template.getCardsPerBlock(), header, body, footer, noNumberTag, highlightJolly);
+        }
+    }
+
+    /**
+     * A template split in its three sections, each compiled as a sequence of
+     * literal text and placeholders: document scoped placeholders are looked
+     * up in the parameter map, card placeholders (C[i].L, C[i].N[r,c] and
+     * C[i].Style[r,c]) are evaluated directly on the cards of the block, so
+     * that no map is filled for each block.&nbsp;Placeholders without a value
+     * are left in the output as they are.&nbsp;Once created, it can be used
+     * concurrently by many threads.
+     */
+    static final class TCompiledTemplate {
+
+        private static final Pattern CARD_TAG = Pattern.compile("C\\[(\\d+)\\]\\.(?:(L)|N\\[(\\d),(\\d)\\]|Style\\[(\\d),(\\d)\\])");
+        private static final int KIND_DOCUMENT = 0;
+        private static final int KIND_LABEL = 1;
+        private static final int KIND_NUMBER = 2;
+        private static final int KIND_STYLE = 3;
+
+        private final int cardsPerBlock;
+        private final String noNumberTag;
+        private final boolean highlightJolly;
+        private final TSection header;
+        private final TSection body;
+        private final TSection footer;
+
+        TCompiledTemplate(int cardsPerBlock, String header, String body, String footer, String noNumberTag, boolean highlightJolly) {
+            this.cardsPerBlock = cardsPerBlock;
+            this.noNumberTag = noNumberTag;
+            this.highlightJolly = highlightJolly;
+            this.header = new TSection(header, cardsPerBlock);
+            this.body = new TSection(body, cardsPerBlock);
+            this.footer = new TSection(footer, cardsPerBlock);
+        }
+
+        int getCardsPerBlock() {
+            return cardsPerBlock;
+        }
+
+        int getBodyLength() {
+            return body.length;
+        }
+
+        String renderHeader(Map<String, String> params) {
+            StringBuilder sb = new StringBuilder(header.length);
+            render(header, sb, params, null);
+            return sb.toString();
+        }
+
+        String renderFooter(Map<String, String> params) {
+            StringBuilder sb = new StringBuilder(footer.length);
+            render(footer, sb, params, null);
+            return sb.toString();
+        }
+
+        // Render a block of cards: null cards (after the last one) are printed as empty cards.
+        void renderBlock(StringBuilder sb, Map<String, String> params, TCard[] cards) {
+            render(body, sb, params, cards);
+        }
+
+        private void render(TSection section, StringBuilder sb, Map<String, String> params, TCard[] cards) {
+            for (int i = 0; i < section.keys.length; i++) {
+                sb.append(section.literals[i]);
+                int kind = section.kinds[i];
+                if (kind == KIND_DOCUMENT || cards == null) {
+                    String value = params.get(section.keys[i]);
+                    sb.append(value != null ? value : TAG_START + section.keys[i] + TAG_END);
+                    continue;
+                }
+                TCard card = cards[section.cards[i]];
+                int row = section.rows[i];
+                int col = section.cols[i];
+                if (kind == KIND_LABEL) {
+                    sb.append(card != null ? card.getLabel() : "");
+                } else if (kind == KIND_NUMBER) {
+                    int number = (card != null ? card.getNumber(row, col) : 0);
+                    if (number != 0) {
+                        sb.append(number);
+                    } else {
+                        sb.append(noNumberTag);
+                    }
+                } else {
+                    sb.append(cellStyle(card, row, col, highlightJolly));
+                }
+            }
+            sb.append(section.literals[section.keys.length]);
+        }
+
+        // A section of the template: literals[i] precedes the placeholder i, the last literal follows the last one.
+        private static final class TSection {
+
+            private final String[] literals;
+            private final String[] keys;
+            private final int[] kinds;
+            private final int[] cards;
+            private final int[] rows;
+            private final int[] cols;
+            private final int length;
+
+            private TSection(String source, int cardsPerBlock) {
+                List<String> literalList = new ArrayList<>();
+                List<String> keyList = new ArrayList<>();
+                int from = 0;
+                int scan = 0;
+                int tag;
+                while ((tag = source.indexOf(TAG_START, scan)) >= 0) {
+                    int end = source.indexOf(TAG_END, tag + TAG_START.length());
+                    if (end < 0) {
+                        break;
+                    }
+                    String key = source.substring(tag + TAG_START.length(), end);
+                    if (key.indexOf('$') >= 0 || key.indexOf('{') >= 0) {
+                        // Not a placeholder, just text containing the tag start sequence.
+                        scan = tag + 1;
+                        continue;
+                    }
+                    literalList.add(source.substring(from, tag));
+                    keyList.add(key);
+                    from = end + TAG_END.length();
+                    scan = from;
+                }
+                literalList.add(source.substring(from));
+                this.literals = literalList.toArray(new String[0]);
+                this.keys = keyList.toArray(new String[0]);
+                this.kinds = new int[keys.length];
+                this.cards = new int[keys.length];
+                this.rows = new int[keys.length];
+                this.cols = new int[keys.length];
+                this.length = source.length();
+                for (int i = 0; i < keys.length; i++) {
+                    Matcher m = CARD_TAG.matcher(keys[i]);
+                    if (!m.matches() || Integer.parseInt(m.group(1)) >= cardsPerBlock) {
+                        kinds[i] = KIND_DOCUMENT;
+                        continue;
+                    }
+                    cards[i] = Integer.parseInt(m.group(1));
+                    if (m.group(2) != null) {
+                        kinds[i] = KIND_LABEL;
+                    } else if (m.group(3) != null) {
+                        kinds[i] = KIND_NUMBER;
+                        rows[i] = Integer.parseInt(m.group(3));
+                        cols[i] = Integer.parseInt(m.group(4));
+                    } else {
+                        kinds[i] = KIND_STYLE;
+                        rows[i] = Integer.parseInt(m.group(5));
+                        cols[i] = Integer.parseInt(m.group(6));
+                    }
+                    if (rows[i] > 2 || cols[i] > 8) {
+                        kinds[i] = KIND_DOCUMENT;
+                    }
                 }
             }
         }
-        return parsedLine;
     }
 
 }           // End Of File - Rel.(1.1)
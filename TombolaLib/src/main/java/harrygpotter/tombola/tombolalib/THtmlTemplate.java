@@ -18,8 +18,6 @@
  */
 package harrygpotter.tombola.tombolalib;
 
-import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -31,12 +29,38 @@ import java.util.List;
  */
 public class THtmlTemplate {
 
+    /**
+     * The page layouts of the templates: the amount of cards printed on each
+     * A4 sheet and its orientation (L for landscape, P for portrait).
+     */
     public static enum THtmlTemplateType {
-        A4_ONECARD_L,
-        A4_TWOCARDS_P,
-        A4_THREECARDS_P,
-        A4_FOURCARDS_L,
-        A4_SIXCARDS_P,
+        A4_ONECARD_L(1, true),
+        A4_TWOCARDS_P(2, false),
+        A4_THREECARDS_P(3, false),
+        A4_FOURCARDS_L(4, true),
+        A4_SIXCARDS_P(6, false);
+
+        private final int cardsPerPage;
+        private final boolean landscape;
+
+        private THtmlTemplateType(int cardsPerPage, boolean landscape) {
+            this.cardsPerPage = cardsPerPage;
+            this.landscape = landscape;
+        }
+
+        /**
+         * @return the amount of cards printed on each page.
+         */
+        public int getCardsPerPage() {
+            return cardsPerPage;
+        }
+
+        /**
+         * @return true if the sheet is used in landscape orientation.
+         */
+        public boolean isLandscape() {
+            return landscape;
+        }
     }
 
     private String name;
@@ -86,30 +110,17 @@ public class THtmlTemplate {
     }
 
     /**
-     * TODO(2.0) !!!Incomplete method!!! Search for templates in a file system directory
-     * 
+     * Search for templates in some file system directories (not in their
+     * subdirectories) or files, parsing their headers.&nbsp;Templates are
+     * cached by the shared {@linkplain THtmlTemplateRegistry}: searching again
+     * reads just the files that changed in the meanwhile.
+     *
      * @param searchPaths the paths to search in.
-     * @return the list of THtmlTemplate present within the search path
+     * @return the list of valid THtmlTemplate present within the search path,
+     * the ones of a directory ordered by file name.
      */
     public static List<THtmlTemplate> searchTemplates(String[] searchPaths) {
-        List<THtmlTemplate> result = new ArrayList<>();
-        for (String path : searchPaths) {
-            if (path != null) {
-                File f = new File(path);
-                if (f.isDirectory()) {
-                    String[] elems = f.list();
-                    for (String elem : elems) {
-                        THtmlTemplate t = new THtmlTemplate();
-                        t.setName(elem);
-                        result.add(t);
-                    }
-                } else if (f.isFile()) {
-                }
-            }
-        }
-        return result;
+        return THtmlTemplateRegistry.getSharedRegistry().searchTemplates(searchPaths);
     }
 
-    // TODO(2.0) private static THtmlTemplateType analizeHtmlTemplate(String templateName)
-    
 }           // End Of File - Rel.(1.1)
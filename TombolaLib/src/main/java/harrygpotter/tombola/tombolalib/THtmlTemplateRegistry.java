@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A THtmlTemplateRegistry caches the HTML templates used to print cards, so
+ * that many print jobs using the same templates read and parse them just
+ * once.&nbsp;For each template file it keeps the description parsed from the
+ * header and the compiled template, for each combination of no number tag
+ * and jolly highlight used by the printers; templates are keyed by their
+ * absolute path and by the modification time and size of their file, so a
+ * template is read again only when its file changes.&nbsp;The list of the
+ * files of a directory is cached as well, until an entry is added or removed.
+ * <p>
+ * All {@linkplain THtmlPrinter} objects share the same registry, unless
+ * another one is passed at construction time, as well as
+ * {@linkplain THtmlTemplate#searchTemplates(String[])}.&nbsp;A registry can
+ * be used concurrently by many threads.</p>
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see THtmlPrinter
+ * @see THtmlTemplate
+ * @since 1.8
+ */
+public class THtmlTemplateRegistry {
+
+    private static final THtmlTemplateRegistry SHARED_REGISTRY = new THtmlTemplateRegistry();
+
+    private final Map<Path, TEntry> templates = new ConcurrentHashMap<>();
+    private final Map<Path, TDirectory> directories = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry shared by all the printers and by
+     * {@linkplain THtmlTemplate#searchTemplates(String[])}.
+     */
+    public static THtmlTemplateRegistry getSharedRegistry() {
+        return SHARED_REGISTRY;
+    }
+
+    /**
+     * Return the description of a template, read from its file only if it has
+     * never been read or if it has changed since the last time.
+     *
+     * @param templateFilePath the absolute or relative path of the template.
+     * @return the template description, null if the file is not a valid
+     * template.
+     * @throws IOException if the template file cannot be read.
+     */
+    public THtmlTemplate getTemplate(String templateFilePath) throws IOException {
+        TEntry entry = lookup(Paths.get(templateFilePath));
+        return (entry.source == null ? null : entry.source.getTemplate());
+    }
+
+    /**
+     * Search for valid templates in some directories (not in their
+     * subdirectories) or files: only the files that changed since the last
+     * search are read again.
+     *
+     * @param searchPaths the directories and files to search in; null
+     * elements and paths that do not exist are ignored.
+     * @return the list of the valid templates found, in the order of the
+     * search paths, the ones of a directory ordered by file name.
+     */
+    public List<THtmlTemplate> searchTemplates(String... searchPaths) {
+        List<THtmlTemplate> result = new ArrayList<>();
+        if (searchPaths == null) {
+            return result;
+        }
+        for (String searchPath : searchPaths) {
+            if (searchPath == null) {
+                continue;
+            }
+            Path path = Paths.get(searchPath);
+            List<Path> files = (Files.isDirectory(path) ? listDirectory(path) : Collections.singletonList(path));
+            for (Path file : files) {
+                try {
+                    TEntry entry = lookup(file);
+                    if (entry.source != null) {
+                        result.add(entry.source.getTemplate());
+                    }
+                } catch (IOException ex) {
+                    // Unreadable or vanished files are not templates.
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the amount of template files currently cached, valid or not.
+     */
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * Forget all the cached templates and directories, that will be read
+     * again when needed.
+     */
+    public void clear() {
+        templates.clear();
+        directories.clear();
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    /**
+     * Return the compiled template with the given settings, compiling it only
+     * the first time they are used after the template file has been read.
+     *
+     * @param templateFilePath the absolute or relative path of the template.
+     * @param noNumberTag the string printed in the cells without a number.
+     * @param highlightJolly true if the jolly numbers are highlighted.
+     * @return the compiled template, null if the file is not a valid template.
+     * @throws IOException if the template file cannot be read.
+     */
+    THtmlPrinter.TCompiledTemplate compile(String templateFilePath, String noNumberTag, boolean highlightJolly) throws IOException {
+        TEntry entry = lookup(Paths.get(templateFilePath));
+        if (entry.source == null) {
+            return null;
+        }
+        return entry.compiled.computeIfAbsent((highlightJolly ? "J" : "-") + noNumberTag, k -> entry.source.compile(noNumberTag, highlightJolly));
+    }
+
+    // Return the cached entry of a template file, reading it again if its file has changed.
+    private TEntry lookup(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        TEntry entry = templates.get(key);
+        if (entry == null || !entry.lastModified.equals(attributes.lastModifiedTime()) || entry.size != attributes.size()) {
+            // Two threads may read the same changed file at the same time: both entries are equal, the last one wins.
+            THtmlPrinter.TTemplateSource source;
+            try {
+                source = THtmlPrinter.readTemplate(key);
+            } catch (CharacterCodingException ex) {
+                // Not even a text file, surely not a template.
+                source = null;
+            }
+            entry = new TEntry(attributes.lastModifiedTime(), attributes.size(), source);
+            templates.put(key, entry);
+        }
+        return entry;
+    }
+
+    // Return the regular files of a directory, ordered by name, listing it again only if it has changed.
+    private List<Path> listDirectory(Path directory) {
+        Path key = directory.toAbsolutePath().normalize();
+        try {
+            FileTime lastModified = Files.getLastModifiedTime(key);
+            TDirectory cached = directories.get(key);
+            if (cached != null && cached.lastModified.equals(lastModified)) {
+                return cached.files;
+            }
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(key)) {
+                for (Path file : ds) {
+                    if (Files.isRegularFile(file)) {
+                        files.add(file);
+                    }
+                }
+            }
+            Collections.sort(files);
+            files = Collections.unmodifiableList(files);
+            directories.put(key, new TDirectory(lastModified, files));
+            return files;
+        } catch (IOException ex) {
+            directories.remove(key);
+            return Collections.emptyList();
+        }
+    }
+
+    // A template file as last read, with its compiled variants.
+    private static final class TEntry {
+
+        private final FileTime lastModified;
+        private final long size;
+        private final THtmlPrinter.TTemplateSource source;
+        private final Map<String, THtmlPrinter.TCompiledTemplate> compiled = new ConcurrentHashMap<>();
+
+        private TEntry(FileTime lastModified, long size, THtmlPrinter.TTemplateSource source) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.source = source;
+        }
+    }
+
+    // A directory as last listed.
+    private static final class TDirectory {
+
+        private final FileTime lastModified;
+        private final List<Path> files;
+
+        private TDirectory(FileTime lastModified, List<Path> files) {
+            this.lastModified = lastModified;
+            this.files = files;
+        }
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,529 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * This class draws cards on PNG images, to be sent to the players who join a
+ * game remotely.&nbsp;Each card is drawn as in the provided print templates:
+ * the label on top, then the 3x9 grid with dark empty cells, green marked
+ * numbers and the jolly number within a red border.&nbsp;Images can be
+ * written one per card, named after the card label, or one per series, a
+ * sprite sheet with its six cards on three rows of two cards each.
+ * <p>
+ * Cards are drawn with Java2D, that works on headless servers too, and images
+ * are rendered and written in parallel on a {@linkplain ForkJoinPool}.&nbsp;
+ * Each thread reuses its own image buffers and its own PNG encoder, that
+ * writes the few colors of a card as a palette and compresses them at the
+ * best speed: images are small and an entire set of thousands of cards is
+ * written in seconds.</p>
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TPdfPrinter
+ * @see THtmlPrinter
+ * @since 1.8
+ */
+public class TImagePrinter {
+
+    private static final int DEFAULT_CELL_SIZE = 48;
+    private static final int MIN_CELL_SIZE = 16;
+    private static final int MAX_CELL_SIZE = 256;
+    // Height of a cell and of the label strip relative to the cell width, as on PDF.
+    private static final double CELL_RATIO = 0.9;
+    private static final double LABEL_RATIO = 0.6;
+    private static final double NUMBER_RATIO = 0.5;
+
+    private static final Color PANEL_COLOR = new Color(211, 211, 211);
+    private static final Color EMPTY_COLOR = new Color(168, 168, 168);
+    private static final Color MARKED_COLOR = new Color(0, 128, 0);
+    private static final Color JOLLY_COLOR = Color.RED;
+
+    private final ForkJoinPool pool;
+    private int cellSize = DEFAULT_CELL_SIZE;
+    private boolean highlightJolly = true;
+
+    /**
+     * Build a printer drawing the images on the common ForkJoinPool.
+     */
+    public TImagePrinter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Build a printer drawing the images on the given pool.
+     *
+     * @param pool the ForkJoinPool running the rendering tasks.
+     */
+    public TImagePrinter(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new TTombolaRuntimeException("<ERROR!> A ForkJoinPool must be provided to print card images.");
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * @return the width in pixels of a cell of the cards.
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Set the size of the images, through the width in pixels of a cell of
+     * the cards: a card is as large as nine cells.
+     *
+     * @param cellSize the width of a cell, in the [16..256] range (default
+     * 48).
+     */
+    public void setCellSize(int cellSize) {
+        if (cellSize < MIN_CELL_SIZE || cellSize > MAX_CELL_SIZE) {
+            throw new TTombolaRuntimeException(String.format("<ERROR!> The size of a cell must be in the [%d..%d] range.", MIN_CELL_SIZE, MAX_CELL_SIZE));
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Allow the highlights of jolly numbers.
+     *
+     * @param highlightJolly true to draw a red border around the jolly number
+     * of each card, false to draw it as the other numbers.
+     */
+    public void enableJolly(boolean highlightJolly) {
+        this.highlightJolly = highlightJolly;
+    }
+
+    /**
+     * @return true if jolly numbers are highlighted, false otherwise.
+     */
+    public boolean isJollyEnabled() {
+        return this.highlightJolly;
+    }
+
+    /**
+     * Draw a card on a new image.
+     *
+     * @param card the card to draw.
+     * @return the image of the card.
+     */
+    public BufferedImage renderCard(TCard card) {
+        TCanvas canvas = new TCanvas(new TLayout(cellSize), false);
+        canvas.drawCard(card);
+        return canvas.image;
+    }
+
+    /**
+     * Write the cards of a list of series on PNG images, one per card, named
+     * after the card label (or after its index in the list, if the card has
+     * no label).
+     *
+     * @param tsl the whole list of series.
+     * @param first the index of the first card to draw.
+     * @param last the index of the last card to draw, a negative value to
+     * draw up to the last card of the list.
+     * @param outDirectory the directory where images are written, created if
+     * missing.&nbsp;Existing images are overwritten.
+     * @return the number of written images if everything goes ok, -1 if the
+     * list of series is null or empty, -2 if the output directory is null or
+     * empty.
+     * @throws IOException if something goes wrong when writing the images.
+     */
+    public int printCards(TSeriesList tsl, int first, int last, String outDirectory) throws IOException {
+        if (tsl == null || tsl.size() < 1) {
+            return -1;
+        }
+        if (outDirectory == null || outDirectory.length() < 1) {
+            return -2;
+        }
+        int from = Math.max(0, first);
+        int to = (last < 0 ? tsl.size() * 6 - 1 : Math.min(last, tsl.size() * 6 - 1));
+        Path dir = Files.createDirectories(Paths.get(outDirectory));
+        TLayout layout = new TLayout(cellSize);
+        ThreadLocal<TCanvas> canvases = ThreadLocal.withInitial(() -> new TCanvas(layout, false));
+        return run(from, to, i -> {
+            TCard card = tsl.get(i / 6).getCard(i % 6);
+            String name = (card.getLabel() != null ? card.getLabel() : String.format("C%05d", i));
+            TCanvas canvas = canvases.get();
+            canvas.drawCard(card);
+            canvas.write(dir.resolve(fileName(name)));
+        });
+    }
+
+    /**
+     * Write the series of a list on PNG images, one sprite sheet per series
+     * holding its six cards, named after the series index in the list (i.e.
+     * S00000.png for the first one).
+     *
+     * @param tsl the whole list of series.
+     * @param first the index of the first series to draw.
+     * @param last the index of the last series to draw, a negative value to
+     * draw up to the last series of the list.
+     * @param outDirectory the directory where images are written, created if
+     * missing.&nbsp;Existing images are overwritten.
+     * @return the number of written images if everything goes ok, -1 if the
+     * list of series is null or empty, -2 if the output directory is null or
+     * empty.
+     * @throws IOException if something goes wrong when writing the images.
+     */
+    public int printSeries(TSeriesList tsl, int first, int last, String outDirectory) throws IOException {
+        if (tsl == null || tsl.size() < 1) {
+            return -1;
+        }
+        if (outDirectory == null || outDirectory.length() < 1) {
+            return -2;
+        }
+        int from = Math.max(0, first);
+        int to = (last < 0 ? tsl.size() - 1 : Math.min(last, tsl.size() - 1));
+        Path dir = Files.createDirectories(Paths.get(outDirectory));
+        TLayout layout = new TLayout(cellSize);
+        ThreadLocal<TCanvas> canvases = ThreadLocal.withInitial(() -> new TCanvas(layout, true));
+        return run(from, to, i -> {
+            TCanvas canvas = canvases.get();
+            canvas.drawSeries(tsl.get(i));
+            canvas.write(dir.resolve(String.format("S%05d.png", i)));
+        });
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    // Run a task for each index in [from, to] on the pool, returning the amount of indexes.
+    private int run(int from, int to, TImageTask task) throws IOException {
+        if (to < from) {
+            return 0;
+        }
+        try {
+            pool.submit(() -> IntStream.rangeClosed(from, to).parallel().forEach(i -> {
+                try {
+                    task.draw(i);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            })).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Card image printing interrupted.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) ex.getCause()).getCause();
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+        return to - from + 1;
+    }
+
+    // Keep just the characters safe in a file name.
+    private static String fileName(String label) {
+        StringBuilder sb = new StringBuilder(label.length() + 4);
+        for (char c : label.toCharArray()) {
+            sb.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' ? c : '_');
+        }
+        return sb.append(".png").toString();
+    }
+
+    private interface TImageTask {
+
+        void draw(int index) throws IOException;
+    }
+
+    // Sizes in pixels of a card, of its parts and of a sprite sheet.
+    private static final class TLayout {
+
+        private final int cellWidth;
+        private final int cellHeight;
+        private final int labelHeight;
+        private final int cardWidth;
+        private final int cardHeight;
+        private final int gap;
+        private final Font numberFont;
+        private final Font labelFont;
+
+        private TLayout(int cellSize) {
+            this.cellWidth = cellSize;
+            this.cellHeight = (int) Math.round(cellSize * CELL_RATIO);
+            this.labelHeight = (int) Math.round(cellHeight * LABEL_RATIO);
+            this.cardWidth = 9 * cellWidth + 1;
+            this.cardHeight = labelHeight + 3 * cellHeight + 1;
+            this.gap = cellSize / 4;
+            this.numberFont = new Font(Font.SANS_SERIF, Font.BOLD, (int) Math.round(cellHeight * NUMBER_RATIO));
+            this.labelFont = new Font(Font.SANS_SERIF, Font.BOLD, (int) Math.round(labelHeight * 0.6));
+        }
+    }
+
+    // The buffers of a thread: the image, its graphics and the PNG encoder, reused for each drawing.
+    private final class TCanvas {
+
+        private final TLayout layout;
+        private final BufferedImage image;
+        private final Graphics2D g;
+        private final FontMetrics numberMetrics;
+        private final FontMetrics labelMetrics;
+        private final TPngEncoder encoder = new TPngEncoder();
+
+        private TCanvas(TLayout layout, boolean sheet) {
+            this.layout = layout;
+            int width = (sheet ? 2 * layout.cardWidth + 3 * layout.gap : layout.cardWidth);
+            int height = (sheet ? 3 * layout.cardHeight + 4 * layout.gap : layout.cardHeight);
+            this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            this.g = image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            this.numberMetrics = g.getFontMetrics(layout.numberFont);
+            this.labelMetrics = g.getFontMetrics(layout.labelFont);
+        }
+
+        private void drawCard(TCard card) {
+            drawCard(card, 0, 0);
+        }
+
+        private void drawSeries(TSeries series) {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            for (int c = 0; c < 6; c++) {
+                drawCard(series.getCard(c), layout.gap + (c % 2) * (layout.cardWidth + layout.gap),
+                        layout.gap + (c / 2) * (layout.cardHeight + layout.gap));
+            }
+        }
+
+        private void drawCard(TCard card, int x, int y) {
+            int cw = layout.cellWidth;
+            int ch = layout.cellHeight;
+            int lh = layout.labelHeight;
+            // Label strip
+            g.setColor(PANEL_COLOR);
+            g.fillRect(x, y, layout.cardWidth, lh);
+            g.setColor(Color.BLACK);
+            g.drawRect(x, y, layout.cardWidth - 1, lh);
+            g.setFont(layout.labelFont);
+            g.drawString("Card: " + card.getLabel(), x + lh / 3, y + (lh + labelMetrics.getAscent() - labelMetrics.getDescent()) / 2);
+            // Cells
+            g.setFont(layout.numberFont);
+            int baseline = (ch + numberMetrics.getAscent() - numberMetrics.getDescent()) / 2;
+            for (int row = 0; row < 3; row++) {
+                int cy = y + lh + row * ch;
+                for (int col = 0; col < 9; col++) {
+                    int cx = x + col * cw;
+                    String style = THtmlPrinter.cellStyle(card, row, col, highlightJolly);
+                    boolean marked = style.equals(THtmlPrinter.STYLE_MARKED) || style.equals(THtmlPrinter.STYLE_JOLLY_MARKED);
+                    g.setColor(style.equals(THtmlPrinter.STYLE_EMPTY) ? EMPTY_COLOR : (marked ? MARKED_COLOR : Color.WHITE));
+                    g.fillRect(cx, cy, cw, ch);
+                    g.setColor(Color.BLACK);
+                    g.drawRect(cx, cy, cw, ch);
+                    if (style.equals(THtmlPrinter.STYLE_JOLLY) || style.equals(THtmlPrinter.STYLE_JOLLY_MARKED)) {
+                        int border = Math.max(2, cw / 16);
+                        g.setColor(JOLLY_COLOR);
+                        g.fillRect(cx + 2, cy + 2, cw - 3, border);
+                        g.fillRect(cx + 2, cy + ch - 1 - border, cw - 3, border);
+                        g.fillRect(cx + 2, cy + 2, border, ch - 3);
+                        g.fillRect(cx + cw - 1 - border, cy + 2, border, ch - 3);
+                    }
+                    int number = card.getNumber(row, col);
+                    if (number != 0) {
+                        String text = Integer.toString(number);
+                        g.setColor(marked ? Color.WHITE : Color.BLACK);
+                        g.drawString(text, cx + (cw - numberMetrics.stringWidth(text)) / 2, cy + baseline);
+                    }
+                }
+            }
+        }
+
+        private void write(Path file) throws IOException {
+            encoder.encode(image);
+            try (OutputStream os = Files.newOutputStream(file)) {
+                encoder.writeTo(os);
+            }
+        }
+    }
+
+    // A minimal PNG encoder reusing its buffers: a palette image when there are up to 256 colors, a RGB one otherwise.
+    private static final class TPngEncoder {
+
+        private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+        private static final int HASH_SIZE = 1024;
+
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private final int[] hashKeys = new int[HASH_SIZE];
+        private final int[] hashValues = new int[HASH_SIZE];
+        private final int[] palette = new int[256];
+        private byte[] raw = new byte[0];
+        private byte[] out = new byte[64 * 1024];
+        private int length;
+
+        private void encode(BufferedImage image) {
+            int width = image.getWidth();
+            int height = image.getHeight();
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            if (raw.length < height * (1 + 3 * width)) {
+                raw = new byte[height * (1 + 3 * width)];
+            }
+            int colors = indexPixels(pixels, width, height);
+            int rawLength = (colors > 0 ? height * (1 + width) : rgbPixels(pixels, width, height));
+            length = 0;
+            put(SIGNATURE, 0, SIGNATURE.length);
+            int start = beginChunk("IHDR", 13);
+            putInt(width);
+            putInt(height);
+            put((byte) 8);
+            put((byte) (colors > 0 ? 3 : 2));
+            put((byte) 0);
+            put((byte) 0);
+            put((byte) 0);
+            endChunk(start);
+            if (colors > 0) {
+                start = beginChunk("PLTE", 3 * colors);
+                for (int i = 0; i < colors; i++) {
+                    put((byte) (palette[i] >> 16));
+                    put((byte) (palette[i] >> 8));
+                    put((byte) palette[i]);
+                }
+                endChunk(start);
+            }
+            // The IDAT length is known once the data are compressed: it is written after them.
+            start = beginChunk("IDAT", 0);
+            deflater.reset();
+            deflater.setInput(raw, 0, rawLength);
+            deflater.finish();
+            while (!deflater.finished()) {
+                ensure(16 * 1024);
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            int dataLength = length - start - 8;
+            out[start] = (byte) (dataLength >> 24);
+            out[start + 1] = (byte) (dataLength >> 16);
+            out[start + 2] = (byte) (dataLength >> 8);
+            out[start + 3] = (byte) dataLength;
+            endChunk(start);
+            start = beginChunk("IEND", 0);
+            endChunk(start);
+        }
+
+        private void writeTo(OutputStream os) throws IOException {
+            os.write(out, 0, length);
+        }
+
+        // Fill raw with the palette indexes of the pixels, returning the amount of colors or 0 if they are too many.
+        private int indexPixels(int[] pixels, int width, int height) {
+            Arrays.fill(hashKeys, 0);
+            int colors = 0;
+            int p = 0;
+            int last = -1;
+            int lastIndex = 0;
+            for (int y = 0; y < height; y++) {
+                raw[p++] = 0;
+                for (int x = 0, offset = y * width; x < width; x++) {
+                    int rgb = pixels[offset + x] | 0xFF000000;
+                    if (rgb != last) {
+                        int h = (rgb * 0x9E3779B1) >>> 22;
+                        while (hashKeys[h] != 0 && hashKeys[h] != rgb) {
+                            h = (h + 1) & (HASH_SIZE - 1);
+                        }
+                        if (hashKeys[h] == 0) {
+                            if (colors == palette.length) {
+                                return 0;
+                            }
+                            hashKeys[h] = rgb;
+                            hashValues[h] = colors;
+                            palette[colors++] = rgb;
+                        }
+                        last = rgb;
+                        lastIndex = hashValues[h];
+                    }
+                    raw[p++] = (byte) lastIndex;
+                }
+            }
+            return colors;
+        }
+
+        // Fill raw with the RGB components of the pixels, returning the length of the data.
+        private int rgbPixels(int[] pixels, int width, int height) {
+            int p = 0;
+            for (int y = 0; y < height; y++) {
+                raw[p++] = 0;
+                for (int x = 0, offset = y * width; x < width; x++) {
+                    int rgb = pixels[offset + x];
+                    raw[p++] = (byte) (rgb >> 16);
+                    raw[p++] = (byte) (rgb >> 8);
+                    raw[p++] = (byte) rgb;
+                }
+            }
+            return p;
+        }
+
+        private int beginChunk(String type, int dataLength) {
+            int start = length;
+            putInt(dataLength);
+            for (int i = 0; i < 4; i++) {
+                put((byte) type.charAt(i));
+            }
+            return start;
+        }
+
+        // Append the CRC of the chunk type and data.
+        private void endChunk(int start) {
+            crc.reset();
+            crc.update(out, start + 4, length - start - 4);
+            putInt((int) crc.getValue());
+        }
+
+        private void putInt(int value) {
+            put((byte) (value >> 24));
+            put((byte) (value >> 16));
+            put((byte) (value >> 8));
+            put((byte) value);
+        }
+
+        private void put(byte value) {
+            ensure(1);
+            out[length++] = value;
+        }
+
+        private void put(byte[] values, int offset, int count) {
+            ensure(count);
+            System.arraycopy(values, offset, out, length, count);
+            length += count;
+        }
+
+        private void ensure(int count) {
+            if (length + count > out.length) {
+                out = Arrays.copyOf(out, Math.max(2 * out.length, length + count));
+            }
+        }
+    }
+}           // End Of File - Rel.(1.1)
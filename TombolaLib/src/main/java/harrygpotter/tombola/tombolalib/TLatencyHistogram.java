@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size, thread safe histogram of durations expressed in nanoseconds,
+ * used by the JMX metrics objects to publish latency percentiles.&nbsp;Values
+ * are grouped in log-linear buckets: each power of two is split into 16
+ * sub-buckets, so that any percentile is reported with a relative error
+ * lower than 1/16, whatever the order of magnitude of the measures.&nbsp;The
+ * record operation creates no object and takes no lock, thus it can be
+ * invoked on the hot paths of the library.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TGameMetrics
+ * @see TSetFactoryMetrics
+ * @since 1.8
+ */
+class TLatencyHistogram {   // Only package visibility
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a new measure.&nbsp;Negative values are considered as zero.
+     *
+     * @param nanos the duration to record, in nanoseconds.
+     */
+    void record(long nanos) {
+        long v = nanos < 0 ? 0 : nanos;
+        counts.incrementAndGet(indexOf(v));
+        total.incrementAndGet();
+        sum.addAndGet(v);
+        long m = max.get();
+        while (v > m && !max.compareAndSet(m, v)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Return the amount of measures recorded since the creation of the object
+     * or the last {@link TLatencyHistogram#reset()} invocation.
+     *
+     * @return the amount of recorded measures.
+     */
+    long getCount() {
+        return total.get();
+    }
+
+    /**
+     * Return the greatest recorded measure, 0 if nothing has been recorded.
+     *
+     * @return the greatest recorded measure, in nanoseconds.
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Return the mean of the recorded measures, 0 if nothing has been
+     * recorded.
+     *
+     * @return the mean of the recorded measures, in nanoseconds.
+     */
+    double getMean() {
+        long n = total.get();
+        return n == 0 ? 0.0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Return an estimation of the given percentile of the recorded measures,
+     * that is the upper bound of the first bucket reaching it, 0 if nothing
+     * has been recorded.&nbsp;The result never exceeds the greatest recorded
+     * measure.
+     *
+     * @param percentile the percentile to estimate, in the (0..100] range.
+     * @return the estimated percentile, in nanoseconds.
+     */
+    long getPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new TTombolaRuntimeException("<ERROR!> Percentile must be in the (0..100] range.");
+        }
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Discard all the recorded measures.&nbsp;Measures recorded concurrently
+     * with the reset may be partially lost.
+     */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    private static int indexOf(long v) {
+        if (v < SUB_BUCKETS) {
+            return (int) v;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int shift = exp - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((v >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS;
+        long low = (SUB_BUCKETS + sub) << shift;
+        return low + (1L << shift) - 1;
+    }
+}           // End Of File - Rel.(1.1)
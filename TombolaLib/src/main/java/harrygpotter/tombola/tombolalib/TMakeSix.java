@@ -54,7 +54,7 @@ public class TMakeSix {
     private static final long MAX_RANDOM_ITERATIONS = 5000000; // Five millions
 
     private long randomSeed;
-    private Random r;
+    private TMakeSixRandom r;
     private long generatedCardCounter = 0;
     private int[] randomBox = new int[90];
     // private boolean forcing[];  // TODO(3.0) add the "force preferred numbers functionality?"
@@ -79,7 +79,7 @@ public class TMakeSix {
     public TMakeSix(long seed, boolean avoidEmptyColumn) {
         this.randomSeed = seed;
         this.flagAvoidEmptyColumn = avoidEmptyColumn;
-        r = new Random(randomSeed);
+        r = new TMakeSixRandom(randomSeed);
         fill();
     }
 
@@ -231,6 +231,42 @@ public class TMakeSix {
         return new TSeries(prepareSix());
     }
 
+    // Only package visibility: used by TDistributedSetFactory to draw the seeds of its workers
+    //  from this generator, whose state is saved within the checkpoints.
+    long nextSeed() {
+        return this.r.nextLong();
+    }
+
+    // Only package visibility: used by TSetFactoryCheckpoint to save the generator state.
+    long getRandomState() {
+        return this.r.getState();
+    }
+
+    // Only package visibility: used by TSetFactoryCheckpoint to save the generator state.
+    int[] getRandomBox() {
+        return this.randomBox;
+    }
+
+    /**
+     * Restore the internal state of this object as it was saved within a
+     * checkpoint file, so that the following invocations of
+     * {@link TMakeSix#prepareSix()} produce exactly the same series the
+     * interrupted generation process would have produced.
+     *
+     * @param randomState the 48 bits state of the random number generator
+     * @param randomBox the content of the 90 numbers working array
+     * @param cardCounter the number of cards already generated
+     * @see TSetFactoryCheckpoint
+     */
+    void restoreState(long randomState, int[] randomBox, long cardCounter) {
+        if (randomBox == null || randomBox.length != TUtils.NOVANTA) {
+            throw new TTombolaRuntimeException("<FATAL> Impossible to restore a TMakeSix object with a wrong numbers box");
+        }
+        this.r.setState(randomState);
+        this.randomBox = Arrays.copyOf(randomBox, TUtils.NOVANTA);
+        this.generatedCardCounter = cardCounter;
+    }
+
     /**
      * Fill the randomBox array with numbers from 1 to 90, in ascending order
      */
@@ -334,4 +370,45 @@ public class TMakeSix {
         }
         return -1;
     }
+
+    // A java.util.Random producing exactly the same sequences (the algorithm is fixed by its
+    //  specification), whose 48 bits state can be saved and restored as a plain number: no Java
+    //  serialization is needed to write or read a checkpoint.  nextGaussian() is never used here.
+    static final class TMakeSixRandom extends Random {    // Only package visibility
+
+        private static final long MULTIPLIER = 0x5DEECE66DL;
+        private static final long ADDEND = 0xBL;
+        // Only package visibility
+        static final long MASK = (1L << 48) - 1;
+
+        // Set by setSeed(), invoked by the Random constructor: it must not have an initializer.
+        private long state;
+
+        TMakeSixRandom(long seed) {
+            super(seed);
+        }
+
+        @Override
+        public synchronized void setSeed(long seed) {
+            super.setSeed(seed);
+            this.state = (seed ^ MULTIPLIER) & MASK;
+        }
+
+        @Override
+        protected synchronized int next(int bits) {
+            this.state = (this.state * MULTIPLIER + ADDEND) & MASK;
+            return (int) (this.state >>> (48 - bits));
+        }
+
+        synchronized long getState() {
+            return this.state;
+        }
+
+        synchronized void setState(long state) {
+            if (state < 0 || state > MASK) {
+                throw new TTombolaRuntimeException("<FATAL> Impossible to restore a random number generator with a wrong state");
+            }
+            this.state = state;
+        }
+    }
 }           // End Of File - Rel.(1.1)
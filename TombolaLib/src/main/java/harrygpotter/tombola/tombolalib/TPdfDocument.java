@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Minimal writer of PDF files, just what {@linkplain TPdfPrinter} needs: pages
+ * made of vector graphics and text in the standard Helvetica fonts, that
+ * every PDF reader provides, so nothing has to be embedded.&nbsp;Each page is
+ * written (and its content compressed) as soon as it is added: only the
+ * position of each object is kept, to write the cross reference table at the
+ * end, so the memory used does not depend on the content of the
+ * document.&nbsp;The page tree object, written last, gets a number reserved
+ * at the beginning.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TPdfPrinter
+ * @since 1.8
+ */
+final class TPdfDocument implements Closeable {
+
+    /**
+     * Name of the regular font within the page contents.
+     */
+    static final String FONT_REGULAR = "/F1";
+
+    /**
+     * Name of the bold font within the page contents.
+     */
+    static final String FONT_BOLD = "/F2";
+
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final String RESOURCES = "<< /Font << " + FONT_REGULAR + " 3 0 R " + FONT_BOLD + " 4 0 R >> >>";
+
+    private final TCountingStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] buffer = new byte[64 * 1024];
+    private final String title;
+    private long[] offsets = new long[1024];
+    private int objects = 0;
+    // Kids of the page tree, as text: a few bytes for each page.
+    private final StringBuilder kids = new StringBuilder();
+    private int pages = 0;
+
+    /**
+     * Start a new document on the given stream.
+     *
+     * @param os the stream where the document is written, closed by
+     * {@linkplain TPdfDocument#close()}.
+     * @param title the title of the document.
+     * @throws IOException if the stream cannot be written.
+     */
+    TPdfDocument(OutputStream os, String title) throws IOException {
+        this.out = new TCountingStream(new BufferedOutputStream(os, 64 * 1024));
+        this.title = title;
+        write("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+        startObject(CATALOG);
+        write("<< /Type /Catalog /Pages " + PAGES + " 0 R >>\nendobj\n");
+        objects = PAGES;       // Reserved for the page tree, written at the end.
+        startObject(++objects);
+        write("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\nendobj\n");
+        startObject(++objects);
+        write("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>\nendobj\n");
+    }
+
+    /**
+     * Add a page to the document.
+     *
+     * @param width the width of the page, in points.
+     * @param height the height of the page, in points.
+     * @param content the content stream of the page, made of PDF operators.
+     * @throws IOException if the stream cannot be written.
+     */
+    void addPage(double width, double height, CharSequence content) throws IOException {
+        byte[] raw = content.toString().getBytes(StandardCharsets.ISO_8859_1);
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int contentObject = ++objects;
+        startObject(contentObject);
+        // The length is written after the stream, as an indirect object.
+        write("<< /Length " + (contentObject + 1) + " 0 R /Filter /FlateDecode >>\nstream\n");
+        long start = out.count;
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+        long length = out.count - start;
+        write("\nendstream\nendobj\n");
+        startObject(++objects);
+        write(length + "\nendobj\n");
+        int pageObject = ++objects;
+        startObject(pageObject);
+        write("<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + number(width) + " " + number(height)
+                + "] /Resources " + RESOURCES + " /Contents " + contentObject + " 0 R >>\nendobj\n");
+        kids.append(pageObject).append(" 0 R ");
+        pages++;
+    }
+
+    /**
+     * @return the amount of pages added so far.
+     */
+    int getPageCount() {
+        return pages;
+    }
+
+    /**
+     * Write the page tree, the document information and the cross reference
+     * table, then close the stream.
+     *
+     * @throws IOException if the stream cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            startObject(PAGES);
+            write("<< /Type /Pages /Count " + pages + " /Kids [" + kids + "] >>\nendobj\n");
+            int info = ++objects;
+            startObject(info);
+            write("<< /Title " + text(title) + " /Producer " + text(TUtils.LIB_NAME + " " + TUtils.LIB_VERSION)
+                    + " /CreationDate " + text("D:" + ZonedDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")))
+                    + " >>\nendobj\n");
+            long xref = out.count;
+            StringBuilder sb = new StringBuilder(20 * (objects + 1) + 128);
+            sb.append("xref\n0 ").append(objects + 1).append("\n0000000000 65535 f \n");
+            for (int i = 1; i <= objects; i++) {
+                String offset = Long.toString(offsets[i]);
+                for (int p = offset.length(); p < 10; p++) {
+                    sb.append('0');
+                }
+                sb.append(offset).append(" 00000 n \n");
+            }
+            sb.append("trailer\n<< /Size ").append(objects + 1).append(" /Root ").append(CATALOG)
+                    .append(" 0 R /Info ").append(info).append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+            write(sb);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    /**
+     * Append a number to a content stream, with at most two decimals.
+     *
+     * @param sb the content stream.
+     * @param value the number to append.
+     * @return the same content stream.
+     */
+    static StringBuilder number(StringBuilder sb, double value) {
+        long cents = Math.round(value * 100);
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        sb.append(cents / 100);
+        long decimals = cents % 100;
+        if (decimals != 0) {
+            sb.append('.').append(decimals / 10);
+            if (decimals % 10 != 0) {
+                sb.append(decimals % 10);
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Return a text as a PDF string literal: parentheses and backslashes are
+     * escaped, characters not available in the standard fonts are replaced
+     * by a question mark.
+     *
+     * @param s the text.
+     * @return the string literal, parentheses included.
+     */
+    static String text(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('(');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 32 || c > 255 || (c > 126 && c < 160)) {
+                sb.append('?');
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append(')').toString();
+    }
+
+    private static String number(double value) {
+        return number(new StringBuilder(), value).toString();
+    }
+
+    private void startObject(int n) throws IOException {
+        if (n >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, 2 * n);
+        }
+        offsets[n] = out.count;
+        write(n + " 0 obj\n");
+    }
+
+    private void write(CharSequence s) throws IOException {
+        out.write(s.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    // An output stream counting the bytes written, to know the position of each object.
+    private static final class TCountingStream extends FilterOutputStream {
+
+        private long count = 0;
+
+        private TCountingStream(OutputStream os) {
+            super(os);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Paths;
+
+/**
+ * This class prints cards directly on a PDF file, ready to be sent to a print
+ * shop, without any browser in the loop.&nbsp;Cards are laid out on A4 sheets
+ * following the same page layouts of the HTML templates (see
+ * {@linkplain THtmlTemplate.THtmlTemplateType}): one card on a landscape
+ * sheet, two, three or six cards on a portrait one, four cards on a landscape
+ * one.&nbsp;Each card is drawn as in the provided templates: the label on
+ * top, then the 3x9 grid with dark empty cells, green marked numbers and the
+ * jolly number within a red border.
+ * <p>
+ * The PDF file is written using just the JDK: text uses the standard
+ * Helvetica fonts, so no font is embedded and each page takes a few
+ * kilobytes.&nbsp;Pages are written as soon as they are full, so cards can be
+ * streamed from a card file, that is never loaded as a whole, using constant
+ * memory.</p>
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see THtmlPrinter
+ * @see THtmlTemplate.THtmlTemplateType
+ * @since 1.8
+ */
+public class TPdfPrinter {
+
+    // A4 sheet size and margins, in points (1/72 of inch).
+    private static final double A4_SHORT = 595.28;
+    private static final double A4_LONG = 841.89;
+    private static final double MARGIN = 28.35;
+    private static final double FOOTER = 14;
+    private static final double GAP = 12;
+    // Height of the label strip and size of the number font, relative to the height of a cell.
+    private static final double LABEL_RATIO = 0.6;
+    private static final double NUMBER_RATIO = 0.5;
+    // Width of a digit of the Helvetica fonts, relative to the font size.
+    private static final double DIGIT_WIDTH = 0.556;
+
+    private final THtmlTemplate.THtmlTemplateType layout;
+    private boolean highlightJolly = true;
+
+    /**
+     * Build a printer laying out the cards as the templates of the given
+     * type.
+     *
+     * @param layout the page layout to use.
+     */
+    public TPdfPrinter(THtmlTemplate.THtmlTemplateType layout) {
+        if (layout == null) {
+            throw new TTombolaRuntimeException("<ERROR!> A page layout must be provided to print cards on PDF.");
+        }
+        this.layout = layout;
+    }
+
+    /**
+     * @return the page layout used by this printer.
+     */
+    public THtmlTemplate.THtmlTemplateType getLayout() {
+        return layout;
+    }
+
+    /**
+     * Allow the highlights on printed paper of jolly numbers.
+     *
+     * @param highlightJolly true to draw a red border around the jolly number
+     * of each card, false to draw it as the other numbers.
+     */
+    public void enableJolly(boolean highlightJolly) {
+        this.highlightJolly = highlightJolly;
+    }
+
+    /**
+     * @return true if jolly numbers are highlighted, false otherwise.
+     */
+    public boolean isJollyEnabled() {
+        return this.highlightJolly;
+    }
+
+    /**
+     * Print the cards of a list of series on a PDF file, from the first to
+     * the last one.
+     *
+     * @param tsl the whole list of series to be printed.
+     * @param first the index of the first card to print.
+     * @param last the index of the last card to print, a negative value to
+     * print up to the last card of the list.
+     * @param outFilename the absolute or relative name of the PDF file.
+     * @param options file writing options (i.e. overwrite, append, etc.)
+     * @return the number of printed cards if everything goes ok, -1 if the
+     * list of series is null or empty, -2 if the output filename is null or
+     * empty.
+     * @throws IOException if something goes wrong when writing the file.
+     */
+    public int printPdf(TSeriesList tsl, int first, int last, String outFilename, OpenOption options) throws IOException {
+        if (tsl == null || tsl.size() < 1) {
+            return -1;
+        }
+        if (outFilename == null || outFilename.length() < 1) {
+            return -2;
+        }
+        try (TRun run = new TRun(tsl.getName(), first, last, outFilename, options)) {
+            for (int s = 0; s < tsl.size() && !run.isOver(); s++) {
+                run.accept(tsl.get(s));
+            }
+            return run.finish();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Print the cards of a card file on a PDF file, streaming them from the
+     * card file: it is never loaded as a whole and its series are not
+     * compared each other.
+     *
+     * @param cardFile the full or relative path of the card file.
+     * @param format the format of the card file, or AUTO (or null) to detect
+     * it.
+     * @param first the index of the first card to print.
+     * @param last the index of the last card to print, a negative value to
+     * print up to the last card of the file.
+     * @param outFilename the absolute or relative name of the PDF file.
+     * @param options file writing options (i.e. overwrite, append, etc.)
+     * @return the number of printed cards if everything goes ok, -1 if the
+     * card file is null, -2 if the output filename is null or empty.
+     * @throws IOException if something goes wrong when reading the card file
+     * or writing the PDF file.
+     */
+    public int printPdf(String cardFile, TCardFormat format, int first, int last, String outFilename, OpenOption options) throws IOException {
+        if (cardFile == null) {
+            return -1;
+        }
+        if (outFilename == null || outFilename.length() < 1) {
+            return -2;
+        }
+        try (TRun run = new TRun(cardFile, first, last, outFilename, options)) {
+            new TFileFormatter().streamSeriesFile(cardFile, format, run::accept);
+            return run.finish();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    // Draw a card with its top left corner in (x, top), cells of the given size.
+    private void drawCard(StringBuilder sb, TCard card, double x, double top, double cw, double ch) {
+        double lh = ch * LABEL_RATIO;
+        double width = 9 * cw;
+        double bottom = top - lh - 3 * ch;
+        // Panel and label strip
+        sb.append("0.83 g ");
+        rect(sb, x, bottom, width, lh + 3 * ch).append("f\n0 G 1 w ");
+        rect(sb, x, top - lh, width, lh).append("S\n0 g BT ").append(TPdfDocument.FONT_BOLD).append(' ');
+        TPdfDocument.number(sb, lh * 0.6).append(" Tf 1 0 0 1 ");
+        TPdfDocument.number(sb, x + lh * 0.3).append(' ');
+        TPdfDocument.number(sb, top - lh * 0.75).append(" Tm ").append(TPdfDocument.text("Card: " + card.getLabel())).append(" Tj ET\n");
+        // Cells
+        double size = ch * NUMBER_RATIO;
+        for (int row = 0; row < 3; row++) {
+            double cy = top - lh - (row + 1) * ch;
+            for (int col = 0; col < 9; col++) {
+                double cx = x + col * cw;
+                String style = THtmlPrinter.cellStyle(card, row, col, highlightJolly);
+                boolean marked = style.equals(THtmlPrinter.STYLE_MARKED) || style.equals(THtmlPrinter.STYLE_JOLLY_MARKED);
+                boolean jolly = style.equals(THtmlPrinter.STYLE_JOLLY) || style.equals(THtmlPrinter.STYLE_JOLLY_MARKED);
+                sb.append(style.equals(THtmlPrinter.STYLE_EMPTY) ? "0.66 g " : (marked ? "0 0.5 0 rg " : "1 g "));
+                rect(sb, cx, cy, cw, ch).append("f 0.75 w ");
+                rect(sb, cx, cy, cw, ch).append("S\n");
+                if (jolly) {
+                    sb.append("1 0 0 RG 2 w ");
+                    rect(sb, cx + 2, cy + 2, cw - 4, ch - 4).append("S 0 G\n");
+                }
+                int number = card.getNumber(row, col);
+                if (number != 0) {
+                    int digits = (number < 10 ? 1 : 2);
+                    sb.append(marked ? "1 g" : "0 g").append(" BT ").append(TPdfDocument.FONT_BOLD).append(' ');
+                    TPdfDocument.number(sb, size).append(" Tf 1 0 0 1 ");
+                    TPdfDocument.number(sb, cx + (cw - digits * DIGIT_WIDTH * size) / 2).append(' ');
+                    TPdfDocument.number(sb, cy + (ch - 0.7 * size) / 2).append(" Tm (").append(number).append(") Tj ET\n");
+                }
+            }
+        }
+    }
+
+    private static StringBuilder rect(StringBuilder sb, double x, double y, double w, double h) {
+        TPdfDocument.number(sb, x).append(' ');
+        TPdfDocument.number(sb, y).append(' ');
+        TPdfDocument.number(sb, w).append(' ');
+        return TPdfDocument.number(sb, h).append(" re ");
+    }
+
+    // State of a single print: the document being written and the cards of the current page.
+    private class TRun implements AutoCloseable {
+
+        private final String title;
+        private final int first;
+        private final int last;
+        private final TPdfDocument document;
+        private final TCard[] pending = new TCard[layout.getCardsPerPage()];
+        private final StringBuilder content = new StringBuilder(32 * 1024);
+        private final double pageWidth;
+        private final double pageHeight;
+        private final int columns;
+        private final int rows;
+        private int pendingCount = 0;
+        private int cardIndex = 0;
+        private int printed = 0;
+
+        private TRun(String title, int first, int last, String outFilename, OpenOption options) throws IOException {
+            this.title = title;
+            this.first = Math.max(0, first);
+            this.last = (last < 0 ? Integer.MAX_VALUE : last);
+            this.pageWidth = (layout.isLandscape() ? A4_LONG : A4_SHORT);
+            this.pageHeight = (layout.isLandscape() ? A4_SHORT : A4_LONG);
+            this.columns = (layout.getCardsPerPage() == 4 ? 2 : 1);
+            this.rows = layout.getCardsPerPage() / columns;
+            this.document = new TPdfDocument(Files.newOutputStream(Paths.get(outFilename), options), title);
+        }
+
+        private boolean isOver() {
+            return cardIndex > last;
+        }
+
+        private void accept(TSeries series) {
+            for (int c = 0; c < 6; c++, cardIndex++) {
+                if (cardIndex >= first && cardIndex <= last) {
+                    pending[pendingCount++] = series.getCard(c);
+                    printed++;
+                    if (pendingCount == pending.length) {
+                        writePage();
+                    }
+                }
+            }
+        }
+
+        private void writePage() {
+            double slotWidth = (pageWidth - 2 * MARGIN) / columns;
+            double slotHeight = (pageHeight - 2 * MARGIN - FOOTER) / rows;
+            double cw = (slotWidth - GAP) / 9;
+            double ch = Math.min(0.9 * cw, (slotHeight - GAP) / (3 + LABEL_RATIO));
+            double cardWidth = 9 * cw;
+            double cardHeight = (3 + LABEL_RATIO) * ch;
+            content.setLength(0);
+            for (int i = 0; i < pendingCount; i++) {
+                double x = MARGIN + (i % columns) * slotWidth + (slotWidth - cardWidth) / 2;
+                double top = pageHeight - MARGIN - (i / columns) * slotHeight - (slotHeight - cardHeight) / 2;
+                drawCard(content, pending[i], x, top, cw, ch);
+            }
+            content.append("0 g BT ").append(TPdfDocument.FONT_REGULAR).append(" 8 Tf 1 0 0 1 ");
+            TPdfDocument.number(content, MARGIN).append(' ');
+            TPdfDocument.number(content, MARGIN - 4).append(" Tm ")
+                    .append(TPdfDocument.text(title + " - " + (document.getPageCount() + 1))).append(" Tj ET\n");
+            try {
+                document.addPage(pageWidth, pageHeight, content);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            pendingCount = 0;
+        }
+
+        private int finish() {
+            if (pendingCount > 0) {
+                // The last page is not full: the remaining places are left blank.
+                writePage();
+            }
+            return printed;
+        }
+
+        @Override
+        public void close() throws IOException {
+            document.close();
+        }
+    }
+}           // End Of File - Rel.(1.1)
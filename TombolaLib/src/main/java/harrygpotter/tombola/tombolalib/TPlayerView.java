@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A TPlayerView object collects the state of all the cards owned by a player
+ * (see {@linkplain TCard#getOwner()}) during a tombola game: the best score
+ * reached by each card, the awards won and how many cards are just one number
+ * away from an award.&nbsp;Views are created and kept up to date by
+ * {@linkplain TGame}, that updates them incrementally only for the cards
+ * matching each extracted number, so that a player screen can be refreshed
+ * without scanning the whole list of cards.<br>
+ * Just like the cards, a view is updated by the thread driving the game: read
+ * it from the same thread, or after the extraction has been completed.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TGame#getPlayerView(String)
+ * @see TCardList#getByOwner(String)
+ */
+public class TPlayerView {
+
+    private final String owner;
+    private final List<TCard> cards;
+    private int[] bestScores;
+    private int[] totalScores;
+    // bestHistogram[s] counts the cards whose best row score is s; nearTombola the ones with 14 numbers matched.
+    private final int[] bestHistogram = new int[6];
+    private int nearTombola = 0;
+    private final List<TAward> awardsWon = new ArrayList<>();
+
+    // Only package visibility
+    TPlayerView(String owner, List<TCard> cards) {
+        this.owner = owner;
+        this.cards = new ArrayList<>(cards.size());
+        this.bestScores = new int[Math.max(cards.size(), 1)];
+        this.totalScores = new int[bestScores.length];
+        for (TCard c : cards) {
+            addCard(c);
+        }
+    }
+
+    /**
+     * Return the name of the player owning the cards of this view.
+     *
+     * @return the name of the player.
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Return the (unmodifiable) list of the cards owned by the player.&nbsp;The
+     * position of a card within this list is the index used by
+     * {@linkplain TPlayerView#getCardBestScore(int)} and
+     * {@linkplain TPlayerView#getCardTotalScore(int)}.
+     *
+     * @return the list of the cards owned by the player.
+     */
+    public List<TCard> getCards() {
+        return Collections.unmodifiableList(cards);
+    }
+
+    /**
+     * Return the highest score reached on a single row by any card of the
+     * player, within [0,5] range.
+     *
+     * @return the best row score among the cards of the player.
+     */
+    public int getBestScore() {
+        int s = bestHistogram.length - 1;
+        while (s > 0 && bestHistogram[s] == 0) {
+            s--;
+        }
+        return s;
+    }
+
+    /**
+     * Return the highest score reached on a single row by the i-th card of the
+     * player.
+     *
+     * @param i the position of the card within {@linkplain TPlayerView#getCards()}.
+     *
+     * @return the best row score of the card.
+     */
+    public int getCardBestScore(int i) {
+        return bestScores[i];
+    }
+
+    /**
+     * Return the count of numbers matched on the i-th card of the player.
+     *
+     * @param i the position of the card within {@linkplain TPlayerView#getCards()}.
+     *
+     * @return the total score of the card.
+     */
+    public int getCardTotalScore(int i) {
+        return totalScores[i];
+    }
+
+    /**
+     * Return how many cards of the player have exactly the given best row
+     * score.
+     *
+     * @param score a score within [0,5] range.
+     *
+     * @return how many cards have the given best row score.
+     */
+    public int getCardCountByBestScore(int score) {
+        return (score < 0 || score >= bestHistogram.length ? 0 : bestHistogram[score]);
+    }
+
+    /**
+     * Return how many cards of the player are just one number away from
+     * reaching the given award category: for instance, the cards with three
+     * numbers matched on their best row for {@linkplain TAward#QUATERNA}, or
+     * with fourteen numbers matched for {@linkplain TAward#TOMBOLA}.
+     *
+     * @param category the award category, such as {@linkplain TAward#TERNO}.
+     *
+     * @return how many cards are one number away from the category, 0 if the
+     * category is not valid.
+     */
+    public int getCardsOneNumberAway(int category) {
+        if (category == TAward.TOMBOLA) {
+            return nearTombola;
+        }
+        return (category >= TAward.AMBO && category <= TAward.QUINTINA ? bestHistogram[category - 1] : 0);
+    }
+
+    /**
+     * Return the (unmodifiable) list of the awards won by the cards of the
+     * player, in the order they have been won.
+     *
+     * @return the list of the awards won by the player.
+     */
+    public List<TAward> getAwardsWon() {
+        return Collections.unmodifiableList(awardsWon);
+    }
+
+    // Only package visibility
+    void update(int i, int bestScore, int totalScore) {
+        bestHistogram[bestScores[i]]--;
+        bestHistogram[bestScore]++;
+        nearTombola += (totalScore == 14 ? 1 : 0) - (totalScores[i] == 14 ? 1 : 0);
+        bestScores[i] = bestScore;
+        totalScores[i] = totalScore;
+    }
+
+    // Only package visibility
+    int addCard(TCard card) {
+        int i = cards.size();
+        if (i == bestScores.length) {
+            bestScores = Arrays.copyOf(bestScores, i * 2);
+            totalScores = Arrays.copyOf(totalScores, i * 2);
+        }
+        cards.add(card);
+        bestScores[i] = card.getBestRowScore();
+        totalScores[i] = card.getTotalScore();
+        bestHistogram[bestScores[i]]++;
+        nearTombola += (totalScores[i] == 14 ? 1 : 0);
+        return i;
+    }
+
+    // Only package visibility
+    void addAward(TAward award) {
+        awardsWon.add(award);
+    }
+
+    // Only package visibility
+    boolean removeAward(TAward award) {
+        return awardsWon.remove(award);
+    }
+}           // End Of File - Rel.(1.1)
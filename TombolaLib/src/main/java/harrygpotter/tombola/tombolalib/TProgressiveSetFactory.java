@@ -57,28 +57,37 @@ public class TProgressiveSetFactory extends TAbstractSetFactory {
         // Chech if the status change can be done in the more general "requirestart" method
         status = TStatus.RUNNING;
         int start = seriesList.size();
-        ts_startExecution = System.currentTimeMillis();
-        iterationCounter = 0;
+        prepareExecution();
         // TODO(2.0) please review this method... completed in a hurry
         seriesList.setMakeSixSeed(this.seriesBuilder.getRandomSeed());
         seriesList.setMakeSixMethod(TMakeSix.MAKESIX_METHOD_NAME);
         seriesList.setSetFactoryMethod(this.getMethodName());
         while (seriesList.size() < desiredSeries) {
-            TSeries sx = new TSeries(this.seriesBuilder.prepareSix());
+            TSeries sx = nextCandidate();
             this.iterationCounter++;
             this.tp_Elapsed = System.currentTimeMillis() - ts_startExecution;
 
             int i = 0;
             int temp1 = 0;
             int temp2 = 0;
+            TFlightEvents.TSeriesScreeningEvent screening = TFlightEvents.beginSeriesScreening();
             while (i < seriesList.size()) {
                 if (checkForStop() < 0) {
+                    flushCheckpoint();
                     return;
                 }
                 temp1 = sx.compareByCard(seriesList.get(i));
                 temp2 = sx.compareByRow(seriesList.get(i));
                 if (temp1 > this.maxepc || temp2 > this.maxepr) {
-                    sx = new TSeries(this.seriesBuilder.prepareSix());
+                    if (temp1 > this.maxepc) {
+                        this.rejectedByEpc++;
+                        screeningDone(screening, TFlightEvents.SCREENING_REJECTED_EPC, i + 1);
+                    } else {
+                        this.rejectedByEpr++;
+                        screeningDone(screening, TFlightEvents.SCREENING_REJECTED_EPR, i + 1);
+                    }
+                    sx = nextCandidate();
+                    screening = TFlightEvents.beginSeriesScreening();
                     sx.resetCompareResult(); // Maybe this call can be deleted
                     seriesList.resetAllCompareResult();
                     i = 0;
@@ -86,11 +95,22 @@ public class TProgressiveSetFactory extends TAbstractSetFactory {
                     i++;
                 }
             }
+            if (isAlreadyIssued(sx)) {
+                // At least a card has been already sold in a previous set: start again.
+                this.rejectedAsIssued++;
+                screeningDone(screening, TFlightEvents.SCREENING_REJECTED_ISSUED, seriesList.size());
+                seriesList.resetAllCompareResult();
+                continue;
+            }
+            screeningDone(screening, TFlightEvents.SCREENING_ACCEPTED, seriesList.size());
             seriesList.add(sx);
+            seriesAccepted();
             seriesList.setMakeSixCounter(this.seriesBuilder.getCardCounter());
             int setSize = seriesList.size();
             logger.verbose("[OK. " + setSize + "/" + setSize * 6 + "] ");
+            saveCheckpoint(false);
         }
+        flushCheckpoint();
         seriesList.compareByCard();
         seriesList.compareByRow();
         seriesList.sortBestToWorstByCard();
@@ -199,6 +199,40 @@ public class TSacchetto {
         }
     }
 
+    /**
+     * Return the number extracted at the given moment (i.e.&nbsp;extraction
+     * count, starting from 0 for the first extracted number), -1 if the
+     * extraction has not happened jet.&nbsp;Unlike the methods returning all
+     * the extracted numbers, it does not create any object.
+     *
+     * @param moment the moment of the extraction, from 0 to
+     * {@link TSacchetto#getExtractedCount()} - 1.
+     * @return the number extracted at the given moment, -1 if no number has
+     * been extracted at that moment.
+     */
+    public int getExtractedAt(int moment) {
+        if (moment < 0 || moment >= pos) {
+            return -1;
+        }
+        return numbers[moment];
+    }
+
+    /**
+     * Return all the 90 numbers in the order by which they are going to come
+     * out from the sacchetto: the already extracted ones first, then the ones
+     * that the next {@linkplain TSacchetto#extract()} invocations will
+     * return.&nbsp;The order of the numbers still in the sacchetto is fixed
+     * by the random seed, but a manual extraction, a shake or a rollback
+     * changes it.
+     *
+     * @return a new array containing the 90 numbers in extraction order.
+     *
+     * @see TGameSolver
+     */
+    public int[] getExtractionOrder() {
+        return Arrays.copyOf(numbers, NOVANTA);
+    }
+
     /**
      * Return an array containing the numbers already extracted from the
      * sacchetto, in the same order by which they come out from the ballot box,
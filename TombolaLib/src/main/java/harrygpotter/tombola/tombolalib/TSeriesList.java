@@ -564,4 +564,21 @@ public class TSeriesList extends ArrayList<TSeries> implements List<TSeries>, Se
         });
         return new TSeriesListStats(maxepc_distribution, maxepr_distribution);
     }
+
+    /**
+     * Evaluate, in parallel, the full quality analysis of this list of series:
+     * histograms of the equal numbers of all the couples of cards and rows,
+     * the worst couples, number and decade frequencies and blank cells
+     * layouts.&nbsp;Unlike {@linkplain TSeriesList#seriesListStatistics()}, it
+     * does not require any previous comparison.
+     *
+     * @param worstPairs how many couples of cards sharing more numbers must be
+     * reported.
+     * @return the analysis of this list of series.
+     *
+     * @see TSeriesListAnalysis
+     */
+    public TSeriesListAnalysis seriesListAnalysis(int worstPairs) {
+        return TSeriesListAnalysis.analyze(this, worstPairs);
+    }
 }           // End Of File - Rel.(1.1)
@@ -0,0 +1,507 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A TSeriesListAnalysis object collects, in a single parallel pass, the
+ * evidence about the quality of a whole list of series that
+ * {@linkplain TSeriesListStats} does not keep: the histogram of the equal
+ * numbers of every couple of cards (and of their best couple of rows), the
+ * couples of cards sharing more numbers, how many times each number is on the
+ * cards, on each row and as jolly, how the numbers of the cards fill each
+ * column (decade) and how many different layouts of blank cells the cards
+ * use.&nbsp;The result can be printed or saved as a plain text report.
+ * <p>
+ * Each card is reduced to the 90 bits map of its numbers and of each of its
+ * rows (the same map of {@linkplain TCardFingerprint}), so comparing two cards
+ * costs a few AND and bit count operations.&nbsp;The couples of cards are
+ * split among the threads of a {@linkplain ForkJoinPool}, each one
+ * accumulating its own histograms and worst couples, merged at the
+ * end.&nbsp;The analysis is a snapshot: cards changed later are not
+ * considered.</p>
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TSeriesListStats
+ * @see TCardSimilarityIndex
+ * @since 1.8
+ */
+public class TSeriesListAnalysis {
+
+    private static final Charset STANDARD_CHARSET = Charset.forName("UTF-8");
+
+    private final TCard[] cards;
+    private final int seriesCount;
+    // 90 bits maps of the numbers of each card (lo: 1..64, hi: 65..90) and of each of its rows.
+    private final long[] cardLo;
+    private final long[] cardHi;
+    private final long[] rowLo;
+    private final long[] rowHi;
+
+    private final long[] epcHistogram = new long[16];
+    private final long[] eprHistogram = new long[6];
+    private final int[] numberFrequency = new int[TUtils.NOVANTA];
+    private final int[] jollyFrequency = new int[TUtils.NOVANTA];
+    private final int[][] rowFrequency = new int[TUtils.NOVANTA][3];
+    private final int[][] columnFill = new int[9][4];
+    private final Map<Integer, Integer> patterns = new HashMap<>();
+    private final Map<Integer, Integer> rowPatterns = new HashMap<>();
+    private List<TCardPair> worstPairs;
+    private long elapsedMillisecs;
+
+    private TSeriesListAnalysis(TSeriesList seriesList) {
+        TCardList list = new TCardList(seriesList);
+        this.cards = list.toArray(new TCard[0]);
+        this.seriesCount = seriesList.size();
+        int n = cards.length;
+        this.cardLo = new long[n];
+        this.cardHi = new long[n];
+        this.rowLo = new long[3 * n];
+        this.rowHi = new long[3 * n];
+    }
+
+    /**
+     * Analyze a list of series on the common ForkJoinPool.
+     *
+     * @param seriesList the series to analyze.
+     * @param worstPairs how many couples of cards sharing more numbers must be
+     * reported.
+     * @return the result of the analysis.
+     */
+    public static TSeriesListAnalysis analyze(TSeriesList seriesList, int worstPairs) {
+        return analyze(seriesList, worstPairs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Analyze a list of series on the given pool.
+     *
+     * @param seriesList the series to analyze.
+     * @param worstPairs how many couples of cards sharing more numbers must be
+     * reported.
+     * @param pool the pool running the comparisons between the cards.
+     * @return the result of the analysis.
+     */
+    public static TSeriesListAnalysis analyze(TSeriesList seriesList, int worstPairs, ForkJoinPool pool) {
+        if (seriesList == null || seriesList.isEmpty()) {
+            throw new TTombolaRuntimeException("<ERROR!> There are no series to analyze.");
+        }
+        if (worstPairs < 0) {
+            throw new TTombolaRuntimeException("<ERROR!> The amount of worst couples of cards cannot be negative.");
+        }
+        long start = System.currentTimeMillis();
+        TSeriesListAnalysis result = new TSeriesListAnalysis(seriesList);
+        result.prepare();
+        int n = result.cards.length;
+        TPairScan scan = pool.submit(() -> IntStream.range(0, n).parallel().collect(
+                () -> new TPairScan(result, worstPairs), TPairScan::scan, TPairScan::merge)).join();
+        System.arraycopy(scan.epc, 0, result.epcHistogram, 0, 16);
+        System.arraycopy(scan.epr, 0, result.eprHistogram, 0, 6);
+        List<TCardPair> worst = new ArrayList<>(scan.worst);
+        worst.sort(TCardPair.WORST_FIRST);
+        result.worstPairs = Collections.unmodifiableList(worst);
+        result.elapsedMillisecs = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * @return the amount of analyzed cards.
+     */
+    public int getCardCount() {
+        return cards.length;
+    }
+
+    /**
+     * @return the amount of analyzed series.
+     */
+    public int getSeriesCount() {
+        return seriesCount;
+    }
+
+    /**
+     * Return the histogram of the equal numbers of the couples of cards: the
+     * element N is the amount of couples of different cards sharing exactly N
+     * numbers.&nbsp;Couples of cards of the same series are counted too (they
+     * never share a number).
+     *
+     * @return the histogram of the equal numbers per card, 16 elements.
+     */
+    public long[] getEqualPerCardHistogram() {
+        return epcHistogram;
+    }
+
+    /**
+     * Return the histogram of the equal numbers of the rows: the element N is
+     * the amount of couples of different cards whose most similar couple of
+     * rows shares exactly N numbers.
+     *
+     * @return the histogram of the equal numbers per row, 6 elements.
+     */
+    public long[] getEqualPerRowHistogram() {
+        return eprHistogram;
+    }
+
+    /**
+     * @return the amount of couples of cards compared.
+     */
+    public long getPairCount() {
+        return (long) cards.length * (cards.length - 1) / 2;
+    }
+
+    /**
+     * @return the couples of cards sharing more numbers, the worst first: by
+     * equal numbers per card, then by equal numbers per row.
+     */
+    public List<TCardPair> getWorstPairs() {
+        return worstPairs;
+    }
+
+    /**
+     * @param number a tombola number, in the [1..90] range.
+     * @return the amount of cards containing the number.
+     */
+    public int getNumberFrequency(int number) {
+        return numberFrequency[number - 1];
+    }
+
+    /**
+     * @param number a tombola number, in the [1..90] range.
+     * @return the amount of cards having the number as jolly.
+     */
+    public int getJollyFrequency(int number) {
+        return jollyFrequency[number - 1];
+    }
+
+    /**
+     * @param number a tombola number, in the [1..90] range.
+     * @param row a row index, in the [0..2] range.
+     * @return the amount of cards containing the number on the given row.
+     */
+    public int getRowFrequency(int number, int row) {
+        return rowFrequency[number - 1][row];
+    }
+
+    /**
+     * Return how the cards fill a column, that is a decade of numbers (1-9,
+     * 10-19, ... 80-90).
+     *
+     * @param column the column index, in the [0..8] range.
+     * @return a 4 elements vector: the element K is the amount of cards
+     * having exactly K numbers in the column.
+     */
+    public int[] getColumnFill(int column) {
+        return columnFill[column];
+    }
+
+    /**
+     * @param column the column index, in the [0..8] range.
+     * @return the amount of numbers of all the cards within the column.
+     */
+    public int getDecadeFrequency(int column) {
+        int total = 0;
+        for (int k = 1; k < 4; k++) {
+            total += k * columnFill[column][k];
+        }
+        return total;
+    }
+
+    /**
+     * @return the amount of different layouts of blank cells (on the whole
+     * card) used by the cards.
+     */
+    public int getBlankPatternCount() {
+        return patterns.size();
+    }
+
+    /**
+     * @return the amount of different layouts of blank cells used by the rows
+     * of the cards, at most 126.
+     */
+    public int getRowPatternCount() {
+        return rowPatterns.size();
+    }
+
+    /**
+     * @return the amount of cards using the most common layout of blank
+     * cells.
+     */
+    public int getMostCommonPatternCount() {
+        return patterns.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    /**
+     * Return the Shannon entropy, in bits, of the layouts of blank cells used
+     * by the cards: 0 if all the cards use the same layout, log2 of the
+     * amount of cards if each card uses a different one.
+     *
+     * @return the entropy of the blank cells layouts.
+     */
+    public double getBlankPatternEntropy() {
+        double entropy = 0;
+        for (int count : patterns.values()) {
+            double p = (double) count / cards.length;
+            entropy -= p * Math.log(p) / Math.log(2);
+        }
+        return entropy;
+    }
+
+    /**
+     * @return the time spent by the analysis, in milliseconds.
+     */
+    public long getElapsedMillisecs() {
+        return elapsedMillisecs;
+    }
+
+    /**
+     * Print the report of the analysis.
+     *
+     * @param ps the PrintStream object where to print the report.
+     * @return the same PrintStream object passed as input.
+     */
+    public PrintStream printReport(PrintStream ps) {
+        ps.printf("Series: %d, cards: %d, couples of cards compared: %d (in %s)%n",
+                seriesCount, cards.length, getPairCount(), TUtils.prettyMilliseconds(elapsedMillisecs));
+        ps.println("\nCouples of cards by equal numbers per card:");
+        for (int i = 0; i < 16; i++) {
+            if (epcHistogram[i] > 0) {
+                ps.printf("  %2d equal numbers: %12d%n", i, epcHistogram[i]);
+            }
+        }
+        ps.println("\nCouples of cards by equal numbers on their most similar rows:");
+        for (int i = 0; i < 6; i++) {
+            if (eprHistogram[i] > 0) {
+                ps.printf("  %2d equal numbers: %12d%n", i, eprHistogram[i]);
+            }
+        }
+        ps.printf("%nWorst %d couples of cards:%n", worstPairs.size());
+        for (TCardPair pair : worstPairs) {
+            ps.printf("  [%s] - [%s]: %2d equal numbers, %d on a row%n", pair.getFirst().getLabel(), pair.getSecond().getLabel(),
+                    pair.getEqualPerCard(), pair.getEqualPerRow());
+        }
+        ps.println("\nNumbers: cards containing them (on row 0/1/2), cards having them as jolly:");
+        for (int n = 1; n <= TUtils.NOVANTA; n++) {
+            ps.printf("  %2d: %8d (%d/%d/%d) %8d%n", n, numberFrequency[n - 1],
+                    rowFrequency[n - 1][0], rowFrequency[n - 1][1], rowFrequency[n - 1][2], jollyFrequency[n - 1]);
+        }
+        ps.println("\nDecades: numbers within the column, cards with 0/1/2/3 numbers in the column:");
+        for (int c = 0; c < 9; c++) {
+            ps.printf("  %2d-%2d: %8d (%d/%d/%d/%d)%n", (c == 0 ? 1 : 10 * c), (c == 8 ? 90 : 10 * c + 9), getDecadeFrequency(c),
+                    columnFill[c][0], columnFill[c][1], columnFill[c][2], columnFill[c][3]);
+        }
+        ps.printf("%nBlank cells layouts: %d different on the cards (the most common one used by %d cards, entropy %.2f bits), %d different on the rows.%n",
+                getBlankPatternCount(), getMostCommonPatternCount(), getBlankPatternEntropy(), getRowPatternCount());
+        return ps;
+    }
+
+    /**
+     * Save the report of the analysis on a text file, replacing it if it
+     * already exists.
+     *
+     * @param fileName the full or relative path of the report file.
+     * @throws IOException if issues raise when writing the file.
+     */
+    public void writeReport(String fileName) throws IOException {
+        try (PrintStream ps = new PrintStream(TUtils.newOutputStream(Paths.get(fileName), false), false, STANDARD_CHARSET.name())) {
+            printReport(ps);
+            if (ps.checkError()) {
+                throw new IOException("Cannot write the report on " + fileName);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    // Bit maps, frequencies and layouts, evaluated once for each card.
+    private void prepare() {
+        for (int i = 0; i < cards.length; i++) {
+            TCard card = cards[i];
+            int pattern = 0;
+            int[] columns = new int[9];
+            for (int p = 0; p < 15; p++) {
+                int number = card.getNumber(p);
+                int row = p / 5;
+                int column = Math.min(number / 10, 8);
+                if (number <= 64) {
+                    cardLo[i] |= 1L << (number - 1);
+                    rowLo[3 * i + row] |= 1L << (number - 1);
+                } else {
+                    cardHi[i] |= 1L << (number - 65);
+                    rowHi[3 * i + row] |= 1L << (number - 65);
+                }
+                numberFrequency[number - 1]++;
+                rowFrequency[number - 1][row]++;
+                columns[column]++;
+                pattern |= 1 << (9 * row + column);
+            }
+            jollyFrequency[card.getNumber(card.getJollyIndex()) - 1]++;
+            for (int c = 0; c < 9; c++) {
+                columnFill[c][columns[c]]++;
+            }
+            patterns.merge(pattern, 1, Integer::sum);
+            for (int r = 0; r < 3; r++) {
+                rowPatterns.merge((pattern >>> (9 * r)) & 0x1FF, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * A couple of cards, with the amount of numbers they share.
+     */
+    public static class TCardPair {
+
+        static final Comparator<TCardPair> WORST_FIRST = (TCardPair one, TCardPair two) -> {
+            if (one.epc != two.epc) {
+                return Integer.compare(two.epc, one.epc);
+            }
+            if (one.epr != two.epr) {
+                return Integer.compare(two.epr, one.epr);
+            }
+            return (one.i != two.i ? Integer.compare(one.i, two.i) : Integer.compare(one.j, two.j));
+        };
+
+        private final TCard first;
+        private final TCard second;
+        private final int i;
+        private final int j;
+        private final int epc;
+        private final int epr;
+
+        TCardPair(TCard first, TCard second, int i, int j, int epc, int epr) {  // Only package visibility
+            this.first = first;
+            this.second = second;
+            this.i = i;
+            this.j = j;
+            this.epc = epc;
+            this.epr = epr;
+        }
+
+        /**
+         * @return the first card of the couple.
+         */
+        public TCard getFirst() {
+            return first;
+        }
+
+        /**
+         * @return the second card of the couple.
+         */
+        public TCard getSecond() {
+            return second;
+        }
+
+        /**
+         * @return the amount of numbers shared by the two cards.
+         */
+        public int getEqualPerCard() {
+            return epc;
+        }
+
+        /**
+         * @return the amount of numbers shared by the most similar rows of
+         * the two cards.
+         */
+        public int getEqualPerRow() {
+            return epr;
+        }
+    }
+
+    // Partial result of the comparisons of a subset of the cards with all the following ones.
+    private static class TPairScan {
+
+        private final TSeriesListAnalysis a;
+        private final int limit;
+        private final long[] epc = new long[16];
+        private final long[] epr = new long[6];
+        // The worst couples found so far, the least bad one at the head.
+        private final PriorityQueue<TCardPair> worst;
+
+        private TPairScan(TSeriesListAnalysis a, int limit) {
+            this.a = a;
+            this.limit = limit;
+            this.worst = new PriorityQueue<>(Math.max(1, limit + 1), TCardPair.WORST_FIRST.reversed());
+        }
+
+        private void scan(int i) {
+            long[] cLo = a.cardLo;
+            long[] cHi = a.cardHi;
+            long[] rLo = a.rowLo;
+            long[] rHi = a.rowHi;
+            long lo = cLo[i];
+            long hi = cHi[i];
+            int ri = 3 * i;
+            for (int j = i + 1; j < cLo.length; j++) {
+                int e = Long.bitCount(lo & cLo[j]) + Long.bitCount(hi & cHi[j]);
+                int r = e;
+                if (e > 1) {
+                    // Two or more equal numbers: look for the couple of rows sharing most of them.
+                    int rj = 3 * j;
+                    r = 0;
+                    for (int x = 0; x < 3; x++) {
+                        long xl = rLo[ri + x];
+                        long xh = rHi[ri + x];
+                        for (int y = 0; y < 3; y++) {
+                            r = Math.max(r, Long.bitCount(xl & rLo[rj + y]) + Long.bitCount(xh & rHi[rj + y]));
+                        }
+                    }
+                }
+                epc[e]++;
+                epr[r]++;
+                if (limit > 0 && (worst.size() < limit || isWorse(e, r, worst.peek()))) {
+                    worst.add(new TCardPair(a.cards[i], a.cards[j], i, j, e, r));
+                    if (worst.size() > limit) {
+                        worst.poll();
+                    }
+                }
+            }
+        }
+
+        // Ties are resolved in favor of the couple found first, so the result does not depend on the threads.
+        private static boolean isWorse(int e, int r, TCardPair least) {
+            return e > least.epc || (e == least.epc && r > least.epr);
+        }
+
+        private void merge(TPairScan other) {
+            for (int k = 0; k < 16; k++) {
+                epc[k] += other.epc[k];
+            }
+            for (int k = 0; k < 6; k++) {
+                epr[k] += other.epr[k];
+            }
+            for (TCardPair pair : other.worst) {
+                worst.add(pair);
+                if (worst.size() > limit) {
+                    worst.poll();
+                }
+            }
+        }
+    }
+}           // End Of File - Rel.(1.1)
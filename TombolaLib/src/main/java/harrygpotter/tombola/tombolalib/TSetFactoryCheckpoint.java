@@ -0,0 +1,453 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A TSetFactoryCheckpoint object saves, on an append-only text file, the
+ * progress of a long running series generation process, so that it can be
+ * resumed later if the process (or the whole machine) is interrupted.&nbsp;It
+ * is used by the {@linkplain TAbstractSetFactory} class, when a checkpoint
+ * file has been set with the
+ * {@linkplain ITSetFactory#setCheckpointFile(String, long)} method, and by the
+ * {@linkplain ITSetFactory#resumeFromCheckpoint(TSetFactoryCheckpoint)} method
+ * to restart the process where it was interrupted.<br>
+ * Each time a generation process (re)starts, a session line is appended to the
+ * file, followed by all the series already in the list.&nbsp;After that, each
+ * checkpoint appends only the series accepted since the previous one and a
+ * state line containing the iteration counters, the quality parameters and the
+ * exact internal state of the {@linkplain TMakeSix} object, captured when the
+ * last series was accepted.&nbsp;Resuming from the checkpoint therefore
+ * produces the same series an uninterrupted process would have produced.<br>
+ * State lines are the only commit points of the file: lines written after the
+ * last complete state line (for instance because the process was killed while
+ * writing) are simply ignored when reading the file back.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see ITSetFactory
+ * @see TAbstractSetFactory
+ * @see TMakeSix
+ * @since 1.8
+ */
+public class TSetFactoryCheckpoint {
+
+    /**
+     * Default interval, in milliseconds, between two checkpoints written while
+     * the series generation process is running.
+     */
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 60 * 1000; // 1 minute
+
+    private static final String AUTODETECT_SEQUENCE = "##$#";
+    private static final String FILE_TYPE = "CHECKPOINT";
+    private static final String SESSION_TAG = "H";
+    private static final String SERIES_TAG = "S";
+    private static final String STATE_TAG = "K";
+    private static final String END_TAG = "OK";
+    private static final String SEPARATOR = ";";
+    private static final String NUMBER_SEPARATOR = ",";
+    private static final int STATE_FIELDS = 11;
+    private static final Charset STANDARD_CHARSET = Charset.forName("UTF-8");
+
+    private final String fileName;
+
+    // State captured when the last series was accepted (or read from the file)
+    private TSeriesList seriesList = null;
+    private int seriesCount = 0;
+    private long iterations = 0;
+    private long elapsedMillisecs = 0;
+    private int maxepc = 0;
+    private int maxepr = 0;
+    private long cardCounter = 0;
+    private int desiredSeries = 0;
+    private int[] randomBox = null;
+    private long randomState = 0;
+
+    // Session information
+    private String setFactoryMethod = null;
+    private long randomSeed = 0;
+    private boolean avoidEmptyColumn = true;
+
+    private String pendingSession = null;
+    private int writtenSeries = 0;
+
+    /**
+     * Create a new checkpoint object that will append its data to the
+     * specified file.&nbsp;The file is created when the first checkpoint is
+     * written, if it does not exist already.
+     *
+     * @param fileName the full or relative path of the checkpoint file.
+     */
+    public TSetFactoryCheckpoint(String fileName) {
+        if (fileName == null || fileName.trim().length() == 0) {
+            throw new TTombolaRuntimeException("<ERROR!> A valid file name must be provided for the checkpoint file.");
+        }
+        this.fileName = fileName;
+    }
+
+    /**
+     * Read a checkpoint file and return the last state successfully committed
+     * within it.&nbsp;Lines following the last complete state line are
+     * ignored.
+     *
+     * @param fileName the full or relative path of the checkpoint file.
+     * @return a TSetFactoryCheckpoint object containing the last committed
+     * state, or null if the file does not contain any complete checkpoint.
+     * @throws IOException if issues raise when reading the file.
+     */
+    public static TSetFactoryCheckpoint readCheckpointFile(String fileName) throws IOException {
+        TSetFactoryCheckpoint result = null;
+        Map<Integer, TSeries> pending = new HashMap<>();
+        String session = null;
+        String line;
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(fileName), STANDARD_CHARSET)) {
+            line = br.readLine();
+            if (line == null || !line.startsWith(AUTODETECT_SEQUENCE) || !line.endsWith(FILE_TYPE)) {
+                throw new TTombolaRuntimeException("[ERROR] The file " + fileName + " is not a TombolaLib checkpoint file.");
+            }
+            while ((line = br.readLine()) != null) {
+                String[] tokens = line.split(SEPARATOR, -1);
+                try {
+                    if (tokens[0].equals(SESSION_TAG) && tokens.length == 5) {
+                        session = line;
+                        pending.clear();
+                    } else if (tokens[0].equals(SERIES_TAG) && tokens.length == 8 && session != null) {
+                        pending.put(Integer.parseInt(tokens[1]), stringToSeries(tokens, 2));
+                    } else if (tokens[0].equals(STATE_TAG) && tokens.length == STATE_FIELDS
+                            && tokens[STATE_FIELDS - 1].equals(END_TAG) && session != null) {
+                        TSetFactoryCheckpoint cp = parseState(fileName, session, tokens, pending);
+                        if (cp != null) {
+                            result = cp;
+                        }
+                    }
+                    // Anything else (comments, empty or truncated lines) is skipped.
+                } catch (IllegalArgumentException | TTombolaRuntimeException ex) {
+                    // A damaged line is not a commit point: simply skip it.
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the name of the file used to save the checkpoints.
+     */
+    public String getFileName() {
+        return this.fileName;
+    }
+
+    /**
+     * @return the list of series saved on the last checkpoint.
+     */
+    public TSeriesList getSeriesList() {
+        return this.seriesList;
+    }
+
+    /**
+     * @return the number of series to generate, as set when the last
+     * checkpoint was saved.
+     */
+    public int getDesiredSeries() {
+        return this.desiredSeries;
+    }
+
+    /**
+     * @return the max equal numbers allowed per card when the last checkpoint
+     * was saved.
+     */
+    public int getMaxEqualPerCard() {
+        return this.maxepc;
+    }
+
+    /**
+     * @return the max equal numbers allowed per row when the last checkpoint
+     * was saved.
+     */
+    public int getMaxEqualPerRow() {
+        return this.maxepr;
+    }
+
+    /**
+     * @return the number of iterations already performed by the generation
+     * process.
+     */
+    public long getIterations() {
+        return this.iterations;
+    }
+
+    /**
+     * @return the time, in milliseconds, already spent by the generation
+     * process.
+     */
+    public long getElapsedMillisecs() {
+        return this.elapsedMillisecs;
+    }
+
+    /**
+     * @return the name of the generation heuristic that saved the checkpoint
+     * (see {@linkplain ITSetFactory#getMethodName()}).
+     */
+    public String getSetFactoryMethod() {
+        return this.setFactoryMethod;
+    }
+
+    /**
+     * @return the seed originally used by the TMakeSix object of the
+     * generation process.
+     */
+    public long getRandomSeed() {
+        return this.randomSeed;
+    }
+
+    /**
+     * @return true if the TMakeSix object of the generation process avoided
+     * cards with empty columns.
+     */
+    public boolean isEmptyColumnAvoided() {
+        return this.avoidEmptyColumn;
+    }
+
+    // From here on, package only accessible methods, used by TAbstractSetFactory...
+    // ----------------------------------------------------------------------------------
+    /**
+     * Prepare a TMakeSix object restored to the exact state it had when the
+     * last checkpoint was captured.
+     *
+     * @return a TMakeSix object ready to continue the series generation.
+     */
+    TMakeSix prepareSeriesBuilder() {
+        TMakeSix builder = new TMakeSix(this.randomSeed, this.avoidEmptyColumn);
+        builder.restoreState(this.randomState, this.randomBox, this.cardCounter);
+        return builder;
+    }
+
+    /**
+     * Mark the beginning of a new generation session: the next write will
+     * append a session line and the whole content of the series list.
+     *
+     * @param factoryMethod the name of the generation heuristic.
+     * @param builder the TMakeSix object used by the generation process.
+     */
+    void startSession(String factoryMethod, TMakeSix builder) {
+        this.setFactoryMethod = factoryMethod;
+        this.randomSeed = builder.getRandomSeed();
+        this.avoidEmptyColumn = builder.isEmptyColumnAvoided();
+        this.pendingSession = SESSION_TAG + SEPARATOR + factoryMethod + SEPARATOR + this.randomSeed
+                + SEPARATOR + this.avoidEmptyColumn + SEPARATOR
+                + ZonedDateTime.now().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        this.writtenSeries = 0;
+    }
+
+    /**
+     * Capture the current state of a generation process.&nbsp;It must be
+     * called when the series list is in a consistent state, that is soon
+     * after a new series has been accepted, so that resuming reproduces the
+     * same following series.
+     */
+    void capture(TSeriesList list, TMakeSix builder, long iterations, long elapsed, int maxepc, int maxepr, int desiredSeries) {
+        this.seriesList = list;
+        this.seriesCount = list.size();
+        this.iterations = iterations;
+        this.elapsedMillisecs = elapsed;
+        this.maxepc = maxepc;
+        this.maxepr = maxepr;
+        this.desiredSeries = desiredSeries;
+        this.cardCounter = builder.getCardCounter();
+        this.randomBox = builder.getRandomBox().clone();
+        this.randomState = builder.getRandomState();
+    }
+
+    /**
+     * Append the last captured state to the checkpoint file, together with all
+     * the series not written jet.&nbsp;The file is synchronized on the
+     * storage device before returning.
+     *
+     * @throws IOException if issues raise when writing the file.
+     */
+    void write() throws IOException {
+        if (this.seriesList == null) {
+            return;
+        }
+        File file = new File(this.fileName);
+        boolean newFile = !file.exists() || file.length() == 0;
+        boolean needNewLine = !newFile && !endsWithNewLine(file);
+        try (FileOutputStream fos = new FileOutputStream(file, true);
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(fos, STANDARD_CHARSET))) {
+            if (newFile) {
+                bw.write(AUTODETECT_SEQUENCE + TUtils.LIB_NAME + SEPARATOR + TUtils.LIB_VERSION + SEPARATOR + FILE_TYPE + "\n");
+                bw.write("# Checkpoint file of a series generation process. Do not edit it by hand.\n");
+            } else if (needNewLine) {
+                // Terminate a line left incomplete by an interrupted write.
+                bw.write("\n");
+            }
+            if (this.pendingSession != null) {
+                bw.write(this.pendingSession + "\n");
+                this.pendingSession = null;
+            }
+            for (int i = this.writtenSeries; i < this.seriesCount; i++) {
+                bw.write(SERIES_TAG + SEPARATOR + i + SEPARATOR + seriesToString(this.seriesList.get(i)) + "\n");
+            }
+            bw.write(formatState() + "\n");
+            bw.flush();
+            fos.getFD().sync();
+        }
+        this.writtenSeries = this.seriesCount;
+    }
+
+    /**
+     * Compact text representation of a series, used both by the checkpoint
+     * files and by the distributed generation protocol: six fields separated
+     * by ';', each containing the 15 numbers and the jolly index of a card
+     * separated by ','.
+     *
+     * @param series the series to represent
+     * @return the text representation of the series
+     * @see TSetFactoryCheckpoint#stringToSeries(String[], int)
+     */
+    static String seriesToString(TSeries series) {
+        StringBuilder sb = new StringBuilder(6 * 16 * 3);
+        for (int c = 0; c < 6; c++) {
+            TCard card = series.getCard(c);
+            if (c > 0) {
+                sb.append(SEPARATOR);
+            }
+            for (int i = 0; i < 15; i++) {
+                sb.append(card.getNumber(i)).append(NUMBER_SEPARATOR);
+            }
+            sb.append(card.getJollyIndex());
+        }
+        return sb.toString();
+    }
+
+    private String formatState() {
+        StringBuilder sb = new StringBuilder(STATE_TAG);
+        sb.append(SEPARATOR).append(this.seriesCount)
+                .append(SEPARATOR).append(this.iterations)
+                .append(SEPARATOR).append(this.elapsedMillisecs)
+                .append(SEPARATOR).append(this.maxepc)
+                .append(SEPARATOR).append(this.maxepr)
+                .append(SEPARATOR).append(this.cardCounter)
+                .append(SEPARATOR).append(this.desiredSeries)
+                .append(SEPARATOR);
+        for (int i = 0; i < this.randomBox.length; i++) {
+            sb.append(i == 0 ? "" : NUMBER_SEPARATOR).append(this.randomBox[i]);
+        }
+        sb.append(SEPARATOR).append(this.randomState).append(SEPARATOR).append(END_TAG);
+        return sb.toString();
+    }
+
+    /**
+     * Rebuild a series from its text representation, already split in fields
+     * using the ';' separator.
+     *
+     * @param tokens the fields of the line containing the series
+     * @param offset the index of the field containing the first card
+     * @return the rebuilt (and verified) series
+     * @throws IllegalArgumentException if the fields do not contain a valid
+     * series
+     * @see TSetFactoryCheckpoint#seriesToString(TSeries)
+     */
+    static TSeries stringToSeries(String[] tokens, int offset) {
+        if (tokens.length < offset + 6) {
+            throw new IllegalArgumentException("Wrong series representation");
+        }
+        TCard[] cards = new TCard[6];
+        for (int c = 0; c < 6; c++) {
+            String[] values = tokens[c + offset].split(NUMBER_SEPARATOR);
+            if (values.length != 16) {
+                throw new IllegalArgumentException("Wrong card representation");
+            }
+            int[] numbers = new int[15];
+            for (int i = 0; i < 15; i++) {
+                numbers[i] = Integer.parseInt(values[i]);
+            }
+            cards[c] = new TCard("", numbers, Integer.parseInt(values[15]), true);
+        }
+        TSeries series = new TSeries(cards);
+        if (series.verifySeries() > -1) {
+            throw new IllegalArgumentException("Wrong series representation");
+        }
+        return series;
+    }
+
+    private static TSetFactoryCheckpoint parseState(String fileName, String session, String[] tokens, Map<Integer, TSeries> pending) {
+        int count = Integer.parseInt(tokens[1]);
+        TSeriesList list = new TSeriesList(fileName);
+        for (int i = 0; i < count; i++) {
+            TSeries s = pending.get(i);
+            if (s == null) {
+                return null;
+            }
+            list.add(s);
+        }
+        String[] box = tokens[8].split(NUMBER_SEPARATOR);
+        if (box.length != TUtils.NOVANTA) {
+            return null;
+        }
+        String[] header = session.split(SEPARATOR, -1);
+        TSetFactoryCheckpoint cp = new TSetFactoryCheckpoint(fileName);
+        cp.setFactoryMethod = header[1];
+        cp.randomSeed = Long.parseLong(header[2]);
+        cp.avoidEmptyColumn = Boolean.parseBoolean(header[3]);
+        cp.seriesCount = count;
+        cp.iterations = Long.parseLong(tokens[2]);
+        cp.elapsedMillisecs = Long.parseLong(tokens[3]);
+        cp.maxepc = Integer.parseInt(tokens[4]);
+        cp.maxepr = Integer.parseInt(tokens[5]);
+        cp.cardCounter = Long.parseLong(tokens[6]);
+        cp.desiredSeries = Integer.parseInt(tokens[7]);
+        cp.randomBox = new int[TUtils.NOVANTA];
+        for (int i = 0; i < TUtils.NOVANTA; i++) {
+            cp.randomBox[i] = Integer.parseInt(box[i]);
+        }
+        cp.randomState = Long.parseLong(tokens[9]);
+        if (cp.randomState < 0 || cp.randomState > TMakeSix.TMakeSixRandom.MASK) {
+            return null;
+        }
+        list.setMakeSixSeed(cp.randomSeed);
+        list.setMakeSixMethod(TMakeSix.MAKESIX_METHOD_NAME);
+        list.setMakeSixCounter(cp.cardCounter);
+        list.setSetFactoryMethod(cp.setFactoryMethod);
+        list.compareByCard();
+        list.compareByRow();
+        cp.seriesList = list;
+        return cp;
+    }
+
+    private static boolean endsWithNewLine(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+}           // End Of File - Rel.(1.1)
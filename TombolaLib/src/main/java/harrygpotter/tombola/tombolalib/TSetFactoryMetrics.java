@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Standard MBean publishing, through JMX, the health of a set factory: the
+ * candidate generation rate, the reasons candidates are rejected for (maxEPC,
+ * maxEPR or card archive checks), the current maxEPC and maxEPR values and
+ * the latency to find each accepted series.&nbsp;Values are read from the set
+ * factory only when a JMX client asks for them, so the generation process
+ * is not slowed down.&nbsp;Use
+ * {@linkplain TSetFactoryMetrics#register(TAbstractSetFactory, String)} to
+ * make them visible to standard tools like jconsole or VisualVM.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TSetFactoryMetricsMBean
+ * @see TGameMetrics
+ * @since 1.8
+ */
+public class TSetFactoryMetrics implements TSetFactoryMetricsMBean {
+
+    /**
+     * Domain of the JMX object names of all the MBeans registered by
+     * TombolaLib.
+     */
+    public static final String JMX_DOMAIN = "harrygpotter.tombola";
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final TAbstractSetFactory factory;
+
+    /**
+     * Build the metrics object of a set factory.
+     *
+     * @param factory the set factory to monitor.
+     */
+    public TSetFactoryMetrics(TAbstractSetFactory factory) {
+        if (factory == null) {
+            throw new TTombolaRuntimeException("<ERROR!> A set factory is required to build its metrics.");
+        }
+        this.factory = factory;
+    }
+
+    /**
+     * Register the metrics of a set factory on the platform MBean server,
+     * with the object name
+     * <code>harrygpotter.tombola:type=SetFactory,name=&lt;name&gt;</code>.
+     *
+     * @param factory the set factory to monitor.
+     * @param name the name identifying the set factory among the registered
+     * ones.
+     * @return the object name used to register the metrics, to be passed to
+     * {@linkplain TSetFactoryMetrics#unregister(ObjectName)}.
+     */
+    public static ObjectName register(TAbstractSetFactory factory, String name) {
+        return registerMBean(new TSetFactoryMetrics(factory), "SetFactory", name);
+    }
+
+    /**
+     * Remove from the platform MBean server the metrics registered with the
+     * given object name.&nbsp;Nothing is done if no MBean is registered with
+     * that name.
+     *
+     * @param objectName the name returned by the register method.
+     */
+    public static void unregister(ObjectName objectName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (objectName != null && server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException jme) {
+            throw new TTombolaRuntimeException("<ERROR!> Impossible to unregister the MBean " + objectName + ": " + jme.getMessage());
+        }
+    }
+
+    // Shared by all the metrics objects of the library.
+    static ObjectName registerMBean(Object mbean, String type, String name) {   // Only package visibility
+        if (name == null || name.isEmpty()) {
+            throw new TTombolaRuntimeException("<ERROR!> A name is required to register the MBean.");
+        }
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+            return objectName;
+        } catch (JMException jme) {
+            throw new TTombolaRuntimeException("<ERROR!> Impossible to register the MBean for <" + name + ">: " + jme.getMessage());
+        }
+    }
+
+    @Override
+    public String getMethodName() {
+        return factory.getMethodName();
+    }
+
+    @Override
+    public String getStatus() {
+        return String.valueOf(factory.getStatus());
+    }
+
+    @Override
+    public int getDesiredSeries() {
+        return factory.getDesideredSeries();
+    }
+
+    @Override
+    public int getAcceptedSeries() {
+        TSeriesList list = factory.getSeriesList();
+        return list == null ? 0 : list.size();
+    }
+
+    @Override
+    public int getMaxEqualPerCard() {
+        return factory.getMaxEqualPerCard();
+    }
+
+    @Override
+    public int getMaxEqualPerRow() {
+        return factory.getMaxEqualPerRow();
+    }
+
+    @Override
+    public long getCandidates() {
+        return factory.candidateCounter;
+    }
+
+    @Override
+    public double getCandidatesPerSecond() {
+        if (factory.ts_runStart == 0) {
+            return 0.0;
+        }
+        ITSetFactory.TStatus st = factory.getStatus();
+        long end = (st == ITSetFactory.TStatus.RUNNING || st == ITSetFactory.TStatus.STOPPING)
+                ? System.currentTimeMillis() : factory.ts_EndExecution;
+        long elapsed = end - factory.ts_runStart;
+        return elapsed <= 0 ? 0.0 : factory.candidateCounter * 1000.0 / elapsed;
+    }
+
+    @Override
+    public long getRejectedByEpc() {
+        return factory.rejectedByEpc;
+    }
+
+    @Override
+    public long getRejectedByEpr() {
+        return factory.rejectedByEpr;
+    }
+
+    @Override
+    public long getRejectedAsIssued() {
+        return factory.rejectedAsIssued;
+    }
+
+    @Override
+    public long getElapsedMillisecs() {
+        return factory.getElapsedMillisecs();
+    }
+
+    @Override
+    public double getAcceptanceLatencyMeanMillis() {
+        return factory.getAcceptanceLatency().getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getAcceptanceLatencyP50Millis() {
+        return factory.getAcceptanceLatency().getPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getAcceptanceLatencyP90Millis() {
+        return factory.getAcceptanceLatency().getPercentile(90) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getAcceptanceLatencyP99Millis() {
+        return factory.getAcceptanceLatency().getPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getAcceptanceLatencyMaxMillis() {
+        return factory.getAcceptanceLatency().getMax() / NANOS_PER_MILLI;
+    }
+}           // End Of File - Rel.(1.1)
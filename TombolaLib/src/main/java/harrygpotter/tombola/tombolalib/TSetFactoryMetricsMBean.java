@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+/**
+ * JMX management interface of {@link TSetFactoryMetrics}, listing the
+ * attributes published for a running set factory.&nbsp;Counters refer to the
+ * current (or last) execution of the generation process, durations are
+ * expressed in milliseconds.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TSetFactoryMetrics
+ * @since 1.8
+ */
+public interface TSetFactoryMetricsMBean {
+
+    /**
+     * Return the name of the heuristic used by the set factory.
+     *
+     * @return the name of the heuristic used by the set factory.
+     */
+    String getMethodName();
+
+    /**
+     * Return the current status of the set factory, as a String.
+     *
+     * @return the current status of the set factory.
+     */
+    String getStatus();
+
+    /**
+     * Return the amount of series the set factory has to generate.
+     *
+     * @return the amount of desired series.
+     */
+    int getDesiredSeries();
+
+    /**
+     * Return the amount of series already in the series list.
+     *
+     * @return the amount of accepted series.
+     */
+    int getAcceptedSeries();
+
+    /**
+     * Return the maximum amount of equal numbers allowed between two cards.
+     *
+     * @return the current maxEPC value.
+     */
+    int getMaxEqualPerCard();
+
+    /**
+     * Return the maximum amount of equal numbers allowed between two rows.
+     *
+     * @return the current maxEPR value.
+     */
+    int getMaxEqualPerRow();
+
+    /**
+     * Return the amount of candidate series generated in this execution.
+     *
+     * @return the amount of generated candidate series.
+     */
+    long getCandidates();
+
+    /**
+     * Return the average generation rate of candidate series in this
+     * execution.
+     *
+     * @return the amount of candidate series generated per second.
+     */
+    double getCandidatesPerSecond();
+
+    /**
+     * Return the amount of candidates discarded because a card shared too
+     * many numbers with a card of an already accepted series.
+     *
+     * @return the amount of candidates rejected by the maxEPC check.
+     */
+    long getRejectedByEpc();
+
+    /**
+     * Return the amount of candidates discarded because a row shared too many
+     * numbers with a row of an already accepted series (while cards were
+     * acceptable).
+     *
+     * @return the amount of candidates rejected by the maxEPR check.
+     */
+    long getRejectedByEpr();
+
+    /**
+     * Return the amount of candidates discarded because at least one of their
+     * cards was already present in the card archive.
+     *
+     * @return the amount of candidates rejected as already issued.
+     */
+    long getRejectedAsIssued();
+
+    /**
+     * Return the time elapsed since the generation process has been started.
+     *
+     * @return the elapsed time in milliseconds.
+     */
+    long getElapsedMillisecs();
+
+    /**
+     * Return the mean time spent to find a new acceptable series.
+     *
+     * @return the mean acceptance latency in milliseconds.
+     */
+    double getAcceptanceLatencyMeanMillis();
+
+    /**
+     * Return the median time spent to find a new acceptable series.
+     *
+     * @return the 50th percentile of the acceptance latency in milliseconds.
+     */
+    double getAcceptanceLatencyP50Millis();
+
+    /**
+     * Return the 90th percentile of the time spent to find a new acceptable
+     * series.
+     *
+     * @return the 90th percentile of the acceptance latency in milliseconds.
+     */
+    double getAcceptanceLatencyP90Millis();
+
+    /**
+     * Return the 99th percentile of the time spent to find a new acceptable
+     * series.
+     *
+     * @return the 99th percentile of the acceptance latency in milliseconds.
+     */
+    double getAcceptanceLatencyP99Millis();
+
+    /**
+     * Return the longest time spent to find a new acceptable series.
+     *
+     * @return the maximum acceptance latency in milliseconds.
+     */
+    double getAcceptanceLatencyMaxMillis();
+}           // End Of File - Rel.(1.1)
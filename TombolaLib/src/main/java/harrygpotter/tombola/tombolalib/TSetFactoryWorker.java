@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+
+/**
+ * A TSetFactoryWorker object is the "remote arm" of a
+ * {@linkplain TDistributedSetFactory}: it listens on a TCP port, receives from
+ * the coordinator the series already accepted in the list and, on request,
+ * generates and pre-screens candidate series against them, returning the first
+ * one respecting MaxEPC/MaxEPR limits.&nbsp;Workers can run in the same JVM of
+ * the coordinator, in other processes of the same machine or on other
+ * machines.<br>
+ * The protocol is line based, each message being a single UTF-8 text line
+ * whose fields are separated by ';':
+ * <ul>
+ * <li><code>I;seed;avoidEmptyColumn</code>: coordinator starts a new session.
+ * The worker clears its snapshot and prepares a new {@linkplain TMakeSix}
+ * object with the given seed. Worker replies <code>OK</code>;</li>
+ * <li><code>A;series</code>: a series accepted by the coordinator, to add to the
+ * local snapshot. No reply;</li>
+ * <li><code>N;budget;maxepc;maxepr</code>: generate at most <i>budget</i>
+ * candidates, stopping at the first one respecting the limits against the local
+ * snapshot. Worker replies <code>C;iterations;series</code> if a candidate
+ * has been found, <code>E;iterations</code> otherwise;</li>
+ * <li><code>Q</code>: coordinator closes the session.</li>
+ * </ul>
+ * Pay attention: workers do not implement any form of authentication, so they
+ * should be exposed only on trusted networks.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @see TDistributedSetFactory
+ * @see TMakeSix
+ * @since 1.8
+ */
+public class TSetFactoryWorker implements Runnable {
+
+    // Only package visibility: protocol shared with TDistributedSetFactory
+    static final String MSG_INIT = "I";
+    static final String MSG_ACCEPTED = "A";
+    static final String MSG_NEXT = "N";
+    static final String MSG_CANDIDATE = "C";
+    static final String MSG_EXHAUSTED = "E";
+    static final String MSG_QUIT = "Q";
+    static final String MSG_OK = "OK";
+    static final String SEPARATOR = ";";
+    static final Charset STANDARD_CHARSET = Charset.forName("UTF-8");
+
+    private final ServerSocket serverSocket;
+    private ITLogger logger;
+    private volatile boolean closed = false;
+
+    /**
+     * Create a worker listening on the specified port of all the local
+     * network interfaces.
+     *
+     * @param port the TCP port to listen on.&nbsp;Use 0 to let the operating
+     * system choose a free port (see {@linkplain TSetFactoryWorker#getPort()}).
+     * @throws IOException if the port cannot be opened.
+     */
+    public TSetFactoryWorker(int port) throws IOException {
+        this(port, null);
+    }
+
+    /**
+     * Create a worker listening on the specified port and local address.
+     *
+     * @param port the TCP port to listen on.&nbsp;Use 0 to let the operating
+     * system choose a free port.
+     * @param bindAddress the local address to listen on (for instance the
+     * loopback one), or null to listen on all the local interfaces.
+     * @throws IOException if the port cannot be opened.
+     */
+    public TSetFactoryWorker(int port, InetAddress bindAddress) throws IOException {
+        this.serverSocket = new ServerSocket(port, 4, bindAddress);
+        this.logger = TSimpleLogger.getLoggerByName(TSimpleLogger.NULL_LOGGER);
+    }
+
+    /**
+     * @return the TCP port the worker is listening on.
+     */
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Set the logger used to trace worker sessions and errors.
+     *
+     * @param logger the logger to use.
+     */
+    public void setLogger(ITLogger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Accept coordinator connections until
+     * {@linkplain TSetFactoryWorker#close()} is invoked.&nbsp;Each connection
+     * is served by its own (daemon) thread, so a coordinator can open several
+     * connections to the same worker to use more than one of its cores.
+     */
+    @Override
+    public void run() {
+        while (!closed) {
+            try {
+                Socket s = serverSocket.accept();
+                Thread t = new Thread(() -> session(s), "TSetFactoryWorker-" + s.getPort());
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException ioe) {
+                if (!closed) {
+                    logger.error("Worker stopped accepting connections: " + ioe.getMessage());
+                    close();
+                }
+            }
+        }
+    }
+
+    private void session(Socket socket) {
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            logger.info("Worker session started with coordinator " + s.getRemoteSocketAddress());
+            serve(s);
+            logger.info("Worker session ended with coordinator " + s.getRemoteSocketAddress());
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Worker session aborted: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Stop accepting new coordinator connections and release the listening
+     * port.
+     */
+    public void close() {
+        this.closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException ioe) {
+            // Nothing to do, we are closing anyway.
+        }
+    }
+
+    private void serve(Socket s) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), STANDARD_CHARSET));
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), STANDARD_CHARSET));
+        TSeriesList snapshot = new TSeriesList("Worker snapshot");
+        TMakeSix builder = null;
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] tokens = line.split(SEPARATOR, -1);
+            switch (tokens[0]) {
+                case MSG_INIT:
+                    snapshot.clear();
+                    builder = new TMakeSix(Long.parseLong(tokens[1]), Boolean.parseBoolean(tokens[2]));
+                    out.write(MSG_OK + "\n");
+                    out.flush();
+                    break;
+                case MSG_ACCEPTED:
+                    snapshot.add(TSetFactoryCheckpoint.stringToSeries(tokens, 1));
+                    break;
+                case MSG_NEXT:
+                    if (builder == null) {
+                        throw new TTombolaRuntimeException("<ERROR!> Candidate requested before session initialization.");
+                    }
+                    out.write(search(snapshot, builder, Long.parseLong(tokens[1]), Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3])) + "\n");
+                    out.flush();
+                    break;
+                case MSG_QUIT:
+                    return;
+                default:
+                    throw new TTombolaRuntimeException("<ERROR!> Unknown message from coordinator [" + tokens[0] + "].");
+            }
+        }
+    }
+
+    // Same generate-control-regenerate approach of TProgressiveSetFactory, limited to budget candidates.
+    private String search(TSeriesList snapshot, TMakeSix builder, long budget, int maxepc, int maxepr) {
+        long iterations = 0;
+        while (iterations < budget) {
+            TSeries sx = new TSeries(builder.prepareSix());
+            iterations++;
+            boolean good = true;
+            for (int i = 0; good && i < snapshot.size(); i++) {
+                good = sx.compareByCard(snapshot.get(i)) <= maxepc && sx.compareByRow(snapshot.get(i)) <= maxepr;
+            }
+            if (good) {
+                return MSG_CANDIDATE + SEPARATOR + iterations + SEPARATOR + TSetFactoryCheckpoint.seriesToString(sx);
+            }
+        }
+        return MSG_EXHAUSTED + SEPARATOR + iterations;
+    }
+}           // End Of File - Rel.(1.1)
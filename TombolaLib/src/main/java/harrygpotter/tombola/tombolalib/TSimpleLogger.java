@@ -20,11 +20,17 @@ package harrygpotter.tombola.tombolalib;
 
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TSimpleLogger is a quite simple class helping to manage the important task of
@@ -93,11 +99,15 @@ public class TSimpleLogger implements ITLogger {
     public static final String NULL_LOGGER = "NullLogger";
 
     private static Map<String, TSimpleLogger> loggers = new HashMap<>();
+    // Compressed logs not closed yet: a single shutdown hook completes them when the JVM exits.
+    private static final Set<TSimpleLogger> openCompressedLoggers = ConcurrentHashMap.newKeySet();
+    private static Thread closingHook = null;
     private DateTimeFormatter dt_formatter = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss.SSS");
     private String loggerName;
     private TLogLevel logLevel;
     private PrintStream logStream;
-    
+    private boolean ownedStream = false;
+
     /**
      * Return the identifying name of this logger object
      * 
@@ -283,7 +293,12 @@ public class TSimpleLogger implements ITLogger {
      * @param logName the name to uniquely identify the logger object
      * @param level the initial level of message upon which log messages are
      * effectively traced
-     * @param filename the text filename where log messages will be spooled to
+     * @param filename the text filename where log messages will be spooled
+     * to, compressed if its name has the {@linkplain TUtils#GZIP_EXTENSION}
+     * extension: each message is flushed, so the log can be read while it is
+     * written, and the file is completed when the logger is closed (see
+     * {@linkplain TSimpleLogger#close()}) or, at the latest, when the JVM
+     * exits.
      * @throws FileNotFoundException is for some reason it will not be possible
      * to open the filename passed as argument.
      */
@@ -317,7 +332,41 @@ public class TSimpleLogger implements ITLogger {
         dt_formatter = DateTimeFormatter.ofPattern(format);
     }
 
+    /**
+     * Close the file this logger writes to, if it has been prepared with a
+     * file name, and unregister the logger, if its name is still bound to
+     * it.&nbsp;For compressed logs, this writes the gzip trailer at once,
+     * instead of waiting for the JVM to exit.&nbsp;Loggers writing to a
+     * PrintStream provided by the caller (i.e. System.out) are just
+     * unregistered: the stream is left open.
+     */
+    public void close() {
+        synchronized (TSimpleLogger.class) {
+            loggers.remove(this.loggerName, this);
+            openCompressedLoggers.remove(this);
+            if (openCompressedLoggers.isEmpty() && closingHook != null) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(closingHook);
+                } catch (IllegalStateException ex) {
+                    // The JVM is already shutting down: the hook is running.
+                }
+                closingHook = null;
+            }
+        }
+        if (this.ownedStream) {
+            this.logStream.close();
+        }
+    }
+
     // --- Private zone ------------------------------------------------------------
+    private static synchronized void registerCompressed(TSimpleLogger logger) {
+        if (closingHook == null) {
+            closingHook = new Thread(() -> openCompressedLoggers.forEach(l -> l.logStream.close()), "TSimpleLogger-close");
+            Runtime.getRuntime().addShutdownHook(closingHook);
+        }
+        openCompressedLoggers.add(logger);
+    }
+
     private TSimpleLogger(String name, TLogLevel level, String fileName) throws FileNotFoundException {
         if (name == null || name.length() < 1) {
             throw new TTombolaRuntimeException("<FATAL!> TLogger name must be not null and not empty.");
@@ -325,7 +374,21 @@ public class TSimpleLogger implements ITLogger {
         this.loggerName = name;
         this.logLevel = ((level == null) ? TLogLevel.VER : level);
         if (fileName != null && fileName.length() > 0) {
-            this.logStream = new PrintStream(new FileOutputStream(fileName, true));
+            Path path = Paths.get(fileName);
+            if (TUtils.isCompressed(path)) {
+                try {
+                    this.logStream = new PrintStream(TUtils.newOutputStream(path, true, StandardOpenOption.CREATE, StandardOpenOption.APPEND), true);
+                } catch (IOException ex) {
+                    FileNotFoundException fnf = new FileNotFoundException("Cannot open the log file " + fileName);
+                    fnf.initCause(ex);
+                    throw fnf;
+                }
+                // The gzip trailer is written when the stream is closed.
+                registerCompressed(this);
+            } else {
+                this.logStream = new PrintStream(new FileOutputStream(fileName, true));
+            }
+            this.ownedStream = true;
         }
     }
 
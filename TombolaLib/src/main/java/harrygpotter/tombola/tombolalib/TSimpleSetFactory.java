@@ -83,17 +83,30 @@ public class TSimpleSetFactory extends TAbstractSetFactory {
         // Generation begins from what is already present in the Series List
         int start = seriesList.size();
 
-        ts_startExecution = System.currentTimeMillis();
-        iterationCounter = 0;
+        prepareExecution();
 
         for (int i = start; i < desiredSeries; i++) {
-            this.seriesList.add(new TSeries(seriesBuilder.prepareSix()));
+            TSeries sx = nextCandidate();
             this.iterationCounter++;
+            TFlightEvents.TSeriesScreeningEvent screening = TFlightEvents.beginSeriesScreening();
+            while (isAlreadyIssued(sx)) {
+                this.rejectedAsIssued++;
+                screeningDone(screening, TFlightEvents.SCREENING_REJECTED_ISSUED, 0);
+                sx = nextCandidate();
+                this.iterationCounter++;
+                screening = TFlightEvents.beginSeriesScreening();
+            }
+            screeningDone(screening, TFlightEvents.SCREENING_ACCEPTED, 0);
+            this.seriesList.add(sx);
+            seriesAccepted();
             this.tp_Elapsed = System.currentTimeMillis() - ts_startExecution;
+            saveCheckpoint(false);
             if (checkForStop() < 0) {
+                flushCheckpoint();
                 return;
             }
         }
+        flushCheckpoint();
 
         // Maybe it is better have sort helper methods directly on TSeriesList class.
         // seriesSet.sort((s2,s1)-> new Integer(s1.getCurrentMEPC()).compareTo(new Integer(s2.getCurrentMEPC())));
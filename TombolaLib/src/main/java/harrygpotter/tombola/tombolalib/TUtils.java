@@ -18,6 +18,21 @@
  */
 package harrygpotter.tombola.tombolalib;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
 /**
  * General helper class for the whole TombolaLib library, containing some
  * general constants values&nbsp;(i.e.&nbsp;hard limits for the card generation
@@ -68,7 +83,20 @@ public class TUtils {
      *
      * @see TUtils#getSetFactoryByType(String)
      */
-    public static final String[] AVAILABLE_GENERATION_METHODS = {"RANDOM", "PROGRESSIVE"};
+    public static final String[] AVAILABLE_GENERATION_METHODS = {"RANDOM", "PROGRESSIVE", "DISTRIBUTED"};
+
+    /**
+     * The extension of compressed files: card files, print outputs and logs
+     * whose name ends with it are transparently read and written in the gzip
+     * format.
+     */
+    public static final String GZIP_EXTENSION = ".gz";
+
+    /**
+     * The size of the buffers used to read and write files, large enough to
+     * make the compression of big card sets and print outputs fast.
+     */
+    public static final int IO_BUFFER_SIZE = 64 * 1024;
 
     /**
      * Return an ITSetFactory interface implementing object providing the list of
@@ -91,10 +119,90 @@ public class TUtils {
                 return new TSimpleSetFactory();
             case "PROGRESSIVE":
                 return new TProgressiveSetFactory();
+            case "DISTRIBUTED":
+                return new TDistributedSetFactory();
         }
         return null;
     }
 
+    /**
+     * Check if a file is compressed, that is if its name ends with the
+     * {@linkplain TUtils#GZIP_EXTENSION} extension (in lower or uppercase).
+     *
+     * @param path the path of the file.
+     * @return true if the file is in the gzip format, false otherwise.
+     */
+    public static boolean isCompressed(Path path) {
+        Path fileName = path.getFileName();
+        return fileName != null && fileName.toString().toLowerCase().endsWith(GZIP_EXTENSION);
+    }
+
+    /**
+     * Open a text file for reading with a large buffer, decompressing it
+     * on-the-fly if its name has the {@linkplain TUtils#GZIP_EXTENSION}
+     * extension.
+     *
+     * @param path the path of the file to read.
+     * @param charset the charset of the text.
+     * @return a new BufferedReader reading the (uncompressed) text.
+     * @throws IOException if the file cannot be opened or it is not a valid
+     * gzip file.
+     */
+    public static BufferedReader newBufferedReader(Path path, Charset charset) throws IOException {
+        InputStream is = Files.newInputStream(path);
+        try {
+            if (isCompressed(path)) {
+                is = new GZIPInputStream(is, IO_BUFFER_SIZE);
+            }
+        } catch (IOException ex) {
+            is.close();
+            throw ex;
+        }
+        return new BufferedReader(new InputStreamReader(is, charset.newDecoder()), IO_BUFFER_SIZE);
+    }
+
+    /**
+     * Open a text file for writing with a large buffer, compressing it
+     * on-the-fly if its name has the {@linkplain TUtils#GZIP_EXTENSION}
+     * extension: to save a compressed file, just add the extension to its
+     * name.&nbsp;When appending to a compressed file, a new gzip member is
+     * added, and the file is still read as a whole.
+     *
+     * @param path the path of the file to write.
+     * @param charset the charset of the text.
+     * @param options file writing options (i.e. overwrite, append, etc.)
+     * @return a new BufferedWriter writing the text.
+     * @throws IOException if the file cannot be opened.
+     */
+    public static BufferedWriter newBufferedWriter(Path path, Charset charset, OpenOption... options) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(newOutputStream(path, false, options), charset.newEncoder()), IO_BUFFER_SIZE);
+    }
+
+    /**
+     * Open a file for writing with a large buffer, compressing it on-the-fly
+     * if its name has the {@linkplain TUtils#GZIP_EXTENSION} extension.
+     *
+     * @param path the path of the file to write.
+     * @param syncFlush if true, each flush of the stream also flushes the
+     * compressor, so that all the data written so far can be decompressed
+     * (i.e. for logs); ignored if the file is not compressed.
+     * @param options file writing options (i.e. overwrite, append, etc.)
+     * @return a new OutputStream writing the file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public static OutputStream newOutputStream(Path path, boolean syncFlush, OpenOption... options) throws IOException {
+        OutputStream os = Files.newOutputStream(path, options);
+        try {
+            if (isCompressed(path)) {
+                return new GZIPOutputStream(os, IO_BUFFER_SIZE, syncFlush);
+            }
+        } catch (IOException ex) {
+            os.close();
+            throw ex;
+        }
+        return new BufferedOutputStream(os, IO_BUFFER_SIZE);
+    }
+
     /**
      * Return the "tombola tens" to which the passed number belongs to.&nbsp;In
      * other words, return the column index on a tombola card of the number
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@linkplain TCardArchive} and {@linkplain TCardFingerprint}: cards
+ * added to the archive must be found again, also after the table has grown
+ * and the archive has been reopened, and issuing them again must follow the
+ * duplicate policy.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TCardArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static TSeriesList newSeriesList(String title, long seed, int size) {
+        TMakeSix builder = new TMakeSix(seed, true);
+        TSeriesList list = new TSeriesList(title);
+        for (int i = 0; i < size; i++) {
+            list.add(builder.prepareSeries());
+        }
+        list.prepareLabels();
+        return list;
+    }
+
+    @Test
+    public void fingerprintsIgnoreTheDisposition() {
+        TCard card = new TCard("F", 1L, true);
+        int[] numbers = new int[15];
+        for (int p = 0; p < 15; p++) {
+            numbers[14 - p] = card.getNumber(p);
+        }
+        TCardFingerprint fp = TCardFingerprint.of(numbers);
+        assertEquals(card.getFingerprint(), fp);
+        assertEquals(fp, TCardFingerprint.parse(fp.toString()));
+        assertEquals(15, fp.countEqualNumbers(card.getFingerprint()));
+        for (int n = 1; n <= TUtils.NOVANTA; n++) {
+            assertEquals(containsNumber(card, n), fp.contains(n));
+        }
+        TCard other = new TCard("G", 2L, true);
+        int equal = 0;
+        for (int p = 0; p < 15; p++) {
+            equal += (containsNumber(card, other.getNumber(p)) ? 1 : 0);
+        }
+        assertEquals(equal, fp.countEqualNumbers(other.getFingerprint()));
+        numbers[0] = 91;
+        assertThrows(TTombolaRuntimeException.class, () -> TCardFingerprint.of(numbers));
+    }
+
+    private static boolean containsNumber(TCard card, int n) {
+        for (int p = 0; p < 15; p++) {
+            if (card.getNumber(p) == n) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void cardsAreFoundAfterGrowingAndReopening() throws IOException {
+        String fileName = tempDir.resolve("cards.idx").toString();
+        Random random = new Random(2L);
+        List<TCard> added = new ArrayList<>();
+        Set<TCardFingerprint> distinct = new HashSet<>();
+        long initialSize;
+        try (TCardArchive archive = TCardArchive.open(fileName)) {
+            initialSize = Files.size(tempDir.resolve("cards.idx"));
+            // Enough cards to double the table twice.
+            for (int i = 0; i < 20000; i++) {
+                TCard card = new TCard("A" + i, random.nextLong(), true);
+                assertEquals(distinct.add(card.getFingerprint()), archive.add(card));
+                added.add(card);
+            }
+            assertEquals(distinct.size(), archive.size());
+            for (TCard card : added) {
+                assertTrue(archive.contains(card));
+                // The same numbers in another disposition are the same card.
+                assertFalse(archive.add(card.getFingerprint()));
+            }
+            assertEquals(distinct.size(), archive.size());
+        }
+        assertTrue(Files.size(tempDir.resolve("cards.idx")) > 3 * initialSize);
+        assertFalse(Files.exists(tempDir.resolve("cards.idx.tmp")));
+
+        try (TCardArchive archive = TCardArchive.open(fileName)) {
+            assertEquals(distinct.size(), archive.size());
+            for (TCard card : added) {
+                assertTrue(archive.contains(card));
+            }
+            // Cards never added are not found, even when the Bloom filter lets them reach the file.
+            int found = 0;
+            for (int i = 0; i < 20000; i++) {
+                TCard other = new TCard("B" + i, random.nextLong(), true);
+                found += (archive.contains(other) == distinct.contains(other.getFingerprint()) ? 0 : 1);
+            }
+            assertEquals(0, found);
+        }
+    }
+
+    @Test
+    public void notArchivesAreRefused() throws IOException {
+        Path notArchive = tempDir.resolve("not.idx");
+        Files.write(notArchive, "Just a text file, long enough to hold a header".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> TCardArchive.open(notArchive.toString()));
+    }
+
+    @Test
+    public void duplicatePoliciesAreApplied() throws IOException {
+        TSeriesList issued = newSeriesList("Issued", 3L, 10);
+        TSeriesList fresh = newSeriesList("Fresh", 4L, 10);
+        try (TCardArchive archive = TCardArchive.open(tempDir.resolve("cards.idx").toString())) {
+            TFileFormatter formatter = new TFileFormatter(TCardFormat.CSV_PLUS);
+            formatter.setCardArchive(archive, TCardArchive.TDuplicatePolicy.REJECT);
+            formatter.writeSeriesFile(tempDir.resolve("issued.csv").toString(), issued, TCardFormat.CSV_PLUS, StandardOpenOption.CREATE);
+            assertEquals(60, archive.size());
+            assertEquals(60, archive.findDuplicates(issued).size());
+            assertTrue(archive.findDuplicates(fresh).isEmpty());
+
+            // Issuing the same cards again is refused, and nothing is written.
+            Path again = tempDir.resolve("again.csv");
+            assertThrows(TTombolaRuntimeException.class,
+                    () -> formatter.writeSeriesFile(again.toString(), issued, TCardFormat.CSV_PLUS, StandardOpenOption.CREATE));
+            assertFalse(Files.exists(again));
+            assertEquals(60, archive.size());
+
+            // Flagged: the file is written, listing the duplicates, and only the new cards are archived.
+            TSeriesList mixed = newSeriesList("Mixed", 4L, 10);
+            mixed.add(issued.get(0));
+            formatter.setCardArchive(archive, TCardArchive.TDuplicatePolicy.FLAG);
+            Path flagged = tempDir.resolve("flagged.csv");
+            formatter.writeSeriesFile(flagged.toString(), mixed, TCardFormat.CSV_PLUS, StandardOpenOption.CREATE);
+            String content = new String(Files.readAllBytes(flagged), StandardCharsets.UTF_8);
+            assertTrue(content.contains("WARNING! 6 cards have already been issued"), content);
+            assertEquals(120, archive.size());
+            assertTrue(archive.containsAny(fresh.get(0)));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of the transparent gzip compression of the files whose name has the
+ * {@linkplain TUtils#GZIP_EXTENSION} extension: series files, generic text
+ * files and logs.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TCompressedFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<String> cards(TSeriesList list) {
+        List<String> result = new ArrayList<>();
+        list.forEach(s -> {
+            for (int c = 0; c < 6; c++) {
+                result.add(s.getCard(c).getLabel() + "=" + s.getCard(c).asString());
+            }
+        });
+        return result;
+    }
+
+    private static List<String> readLines(Path path) throws IOException {
+        try (BufferedReader br = TUtils.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return br.lines().collect(Collectors.toList());
+        }
+    }
+
+    // The comments contain the creation timestamp, so they may differ between two files.
+    private static List<String> readData(Path path) throws IOException {
+        return readLines(path).stream().filter(l -> !l.startsWith("#")).collect(Collectors.toList());
+    }
+
+    @Test
+    public void seriesFilesRoundTrip() throws IOException {
+        TMakeSix builder = new TMakeSix(11L, true);
+        TSeriesList list = new TSeriesList("Gz");
+        for (int i = 0; i < 200; i++) {
+            list.add(builder.prepareSeries());
+        }
+        list.prepareLabels();
+        TFileFormatter formatter = new TFileFormatter(TCardFormat.CSV_PLUS);
+        String plain = tempDir.resolve("series.csv").toString();
+        String compressed = plain + TUtils.GZIP_EXTENSION;
+        formatter.writeSeriesFile(plain, list, TCardFormat.CSV_PLUS, StandardOpenOption.CREATE);
+        formatter.writeSeriesFile(compressed, list, TCardFormat.CSV_PLUS, StandardOpenOption.CREATE);
+
+        // Really compressed, and with the same content once decompressed.
+        try (InputStream is = Files.newInputStream(tempDir.resolve("series.csv.gz"))) {
+            assertEquals(0x1f, is.read());
+            assertEquals(0x8b, is.read());
+        }
+        assertTrue(Files.size(tempDir.resolve("series.csv.gz")) < Files.size(tempDir.resolve("series.csv")));
+        assertEquals(readData(tempDir.resolve("series.csv")), readData(tempDir.resolve("series.csv.gz")));
+
+        List<String> expected = cards(list);
+        assertEquals(expected, cards(formatter.readSeriesFile(compressed, TCardFormat.AUTO)));
+        List<String> streamed = new ArrayList<>();
+        formatter.streamSeriesFile(compressed, TCardFormat.AUTO, s -> {
+            for (int c = 0; c < 6; c++) {
+                streamed.add(s.getCard(c).getLabel() + "=" + s.getCard(c).asString());
+            }
+        });
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    public void appendedMembersAreReadAsOneFile() throws IOException {
+        Path path = tempDir.resolve("text.txt.gz");
+        try (BufferedWriter bw = TUtils.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW)) {
+            bw.write("first\nsecond\n");
+        }
+        try (BufferedWriter bw = TUtils.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+            bw.write("third\n");
+        }
+        assertEquals(List.of("first", "second", "third"), readLines(path));
+    }
+
+    @Test
+    public void compressedLogsAreCompletedWhenClosed() throws IOException {
+        Path path = tempDir.resolve("log.txt.gz");
+        TSimpleLogger.prepareLogger("TCompressedFilesTest", ITLogger.TLogLevel.VER, path.toString());
+        TSimpleLogger logger = TSimpleLogger.getLoggerByName("TCompressedFilesTest");
+        logger.info("hello");
+        logger.info("compressed world");
+        logger.close();
+        assertEquals(null, TSimpleLogger.getLoggerByName("TCompressedFilesTest"));
+
+        List<String> lines = readLines(path);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).endsWith("[hello]"));
+        assertTrue(lines.get(1).endsWith("[compressed world]"));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Loopback tests of {@linkplain TDistributedSetFactory} and
+ * {@linkplain TSetFactoryWorker}: the coordinator and a worker run in the same
+ * JVM, talking through a TCP connection on the loopback address.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TDistributedSetFactoryTest {
+
+    private static final long SEED = 31415926L;
+    private static final int MAX_EPC = 5;
+    private static final int MAX_EPR = 3;
+    private static final int DESIRED = 12;
+
+    @TempDir
+    Path tempDir;
+
+    private TSetFactoryWorker worker;
+
+    @BeforeEach
+    public void startWorker() throws IOException {
+        worker = new TSetFactoryWorker(0, InetAddress.getLoopbackAddress());
+        Thread t = new Thread(worker, "TDistributedSetFactoryTest-worker");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @AfterEach
+    public void stopWorker() {
+        worker.close();
+    }
+
+    private static <T extends TAbstractSetFactory> T prepare(T factory, TSetFactoryCheckpoint checkpoint, int desiredSeries) {
+        factory.setLogger(TSimpleLogger.getLoggerByName(TSimpleLogger.NULL_LOGGER));
+        if (checkpoint != null) {
+            factory.resumeFromCheckpoint(checkpoint);
+        } else {
+            factory.setSeriesList(new TSeriesList("distributed"));
+            factory.setSeriesBuilder(new TMakeSix(SEED, true));
+        }
+        factory.setDesiredSeries(desiredSeries);
+        factory.setMaxEqualPerCard(MAX_EPC);
+        factory.setMaxEqualPerRow(MAX_EPR);
+        return factory;
+    }
+
+    private TDistributedSetFactory distributed(int connections, TSetFactoryCheckpoint checkpoint, int desiredSeries) {
+        TDistributedSetFactory factory = prepare(new TDistributedSetFactory(), checkpoint, desiredSeries);
+        for (int i = 0; i < connections; i++) {
+            factory.addWorker(InetAddress.getLoopbackAddress().getHostAddress(), worker.getPort());
+        }
+        // A small budget, so that the conversation goes on for several requests.
+        factory.setCandidateBudget(20);
+        return factory;
+    }
+
+    private static List<String> run(ITSetFactory factory) throws InterruptedException {
+        factory.requestStart();
+        factory.joinOnEnded();
+        assertEquals(ITSetFactory.TStatus.COMPLETED, factory.getStatus());
+        List<String> result = new ArrayList<>();
+        factory.getSeriesList().forEach(s -> result.add(TSetFactoryCheckpoint.seriesToString(s)));
+        return result;
+    }
+
+    private static void assertQuality(TSeriesList list) {
+        for (int i = 0; i < list.size(); i++) {
+            for (int j = i + 1; j < list.size(); j++) {
+                assertTrue(list.get(i).compareByCard(list.get(j)) <= MAX_EPC);
+                assertTrue(list.get(i).compareByRow(list.get(j)) <= MAX_EPR);
+            }
+        }
+    }
+
+    @Test
+    public void singleWorkerMatchesLocalGeneration() throws InterruptedException {
+        List<String> local = run(prepare(new TProgressiveSetFactory(), null, DESIRED));
+        assertEquals(DESIRED, local.size());
+        assertEquals(local, run(distributed(1, null, DESIRED)));
+    }
+
+    @Test
+    public void moreConnectionsProduceAValidList() throws InterruptedException {
+        TDistributedSetFactory factory = distributed(3, null, DESIRED);
+        assertEquals(DESIRED, run(factory).size());
+        assertQuality(factory.getSeriesList());
+    }
+
+    @Test
+    public void resumedProcessKeepsTheCheckpointedSeries() throws IOException, InterruptedException {
+        String fileName = tempDir.resolve("distributed.chk").toString();
+        TDistributedSetFactory interrupted = distributed(2, null, DESIRED / 2);
+        interrupted.setCheckpointFile(fileName, 0);
+        run(interrupted);
+        TSetFactoryCheckpoint checkpoint = TSetFactoryCheckpoint.readCheckpointFile(fileName);
+        assertNotNull(checkpoint);
+        List<String> saved = new ArrayList<>();
+        checkpoint.getSeriesList().forEach(s -> saved.add(TSetFactoryCheckpoint.seriesToString(s)));
+        assertEquals(DESIRED / 2, saved.size());
+
+        TDistributedSetFactory resumed = distributed(2, checkpoint, DESIRED);
+        List<String> result = run(resumed);
+        assertEquals(DESIRED, result.size());
+        assertTrue(result.containsAll(saved));
+        assertQuality(resumed.getSeriesList());
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@linkplain TFunFigureEngine}: after each extraction and each undo
+ * the values of the figures must be the ones computed by brute force from the
+ * sequence of the extracted numbers.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TFunFigureEngineTest {
+
+    private static boolean contains(TCard c, int n) {
+        for (int k = 0; k < 15; k++) {
+            if (c.getNumber(k) == n) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int roundHits(TCard c, List<Integer> sequence) {
+        int hits = 0;
+        for (int m = ((sequence.size() - 1) / TFunFigureEngine.ROUND_SIZE) * TFunFigureEngine.ROUND_SIZE; m < sequence.size(); m++) {
+            hits += (contains(c, sequence.get(m)) ? 1 : 0);
+        }
+        return hits;
+    }
+
+    private static void check(TFunFigureEngine engine, TCardList cards, List<Integer> sequence, long total, long[] lastSeen) {
+        int count = sequence.size();
+        int last = sequence.get(count - 1);
+
+        int best = 0;
+        for (TCard c : cards) {
+            best = Math.max(best, roundHits(c, sequence));
+        }
+        Object[] values = engine.getFigure("ROUND_TOP").getValues();
+        if (best > 0) {
+            assertEquals(best, (int) values[1]);
+            assertEquals(best, roundHits(cards.getByLabel((String) values[0]), sequence));
+        }
+
+        int streak = 0, longest = 0;
+        for (int i = 0; i < count; i++) {
+            streak = (i > 0 && TUtils.decina(sequence.get(i - 1)) == TUtils.decina(sequence.get(i)) ? streak + 1 : 1);
+            longest = Math.max(longest, streak);
+        }
+        values = engine.getFigure("DECADE_STREAK").getValues();
+        assertEquals(streak, (int) values[0]);
+        assertEquals(longest, (int) values[3]);
+
+        int nobody = 0;
+        for (int n : sequence) {
+            boolean any = false;
+            for (TCard c : cards) {
+                any |= contains(c, n);
+            }
+            nobody += (any ? 0 : 1);
+        }
+        values = engine.getFigure("NOBODY_HAS").getValues();
+        assertEquals(last, (int) values[0]);
+        assertEquals(nobody, (int) values[1]);
+
+        int number = -1;
+        long wait = -1;
+        for (int n = 1; n <= TUtils.NOVANTA; n++) {
+            if (!sequence.contains(n) && total - lastSeen[n - 1] > wait) {
+                wait = total - lastSeen[n - 1];
+                number = n;
+            }
+        }
+        values = engine.getFigure("LONGEST_WAIT").getValues();
+        if (number > 0) {
+            assertEquals(number, (int) values[0]);
+            assertEquals(wait, (long) values[1]);
+        }
+    }
+
+    @Test
+    public void figuresMatchTheBruteForceEvaluation() {
+        // Few cards, so that some numbers are on nobody's card.
+        TCardList cards = TGameFixture.labeledCards("F", 500, 8);
+        TFunFigureEngine engine = new TFunFigureEngine();
+        // lastSeen[n-1] is the value of total when n was extracted the last time, across all the games.
+        long total = 0;
+        long[] lastSeen = new long[TUtils.NOVANTA];
+        int undone = 0, nobodyHas = 0;
+        for (long seed = 1; seed <= 3; seed++) {
+            TGame game = TGameFixture.newGame("fun" + seed, seed, cards);
+            game.setEventBus(new TGameEventBus(64, Runnable::run));
+            game.addObserver(engine);
+            Random random = new Random(seed);
+            List<Integer> sequence = new ArrayList<>();
+            List<Long> previous = new ArrayList<>();
+            while (game.getStatus() != TGameStatus.ENDED) {
+                game.extractNumber();
+                while (game.getStatus() == TGameStatus.RESOLVING) {
+                    game.resolveCandidates(random.nextInt(game.getFirstAwardToResolve().getCandidatesList().size()));
+                }
+                int n = game.getLastExtracted();
+                sequence.add(n);
+                previous.add(lastSeen[n - 1]);
+                lastSeen[n - 1] = ++total;
+                if (game.getStatus() != TGameStatus.ENDED && random.nextInt(6) == 0) {
+                    assertEquals(TGameResultCode.NOWINNER, game.undoLastExtraction());
+                    int u = sequence.remove(sequence.size() - 1);
+                    lastSeen[u - 1] = previous.remove(previous.size() - 1);
+                    total--;
+                    undone++;
+                }
+                if (!sequence.isEmpty()) {
+                    check(engine, cards, sequence, total, lastSeen);
+                    nobodyHas += (int) engine.getFigure("NOBODY_HAS").getValues()[1];
+                }
+            }
+            game.removeObserver(engine);
+        }
+        assertTrue(undone > 0);
+        assertTrue(nobodyHas > 0);
+    }
+}
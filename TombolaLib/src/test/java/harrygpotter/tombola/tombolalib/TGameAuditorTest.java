@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@linkplain TGameAuditor}: a recorded game, late cards included,
+ * must be verified, and a tampered record must not.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TGameAuditorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path recordFile;
+    private TGame game;
+    private final List<TCard> lateCards = new ArrayList<>();
+
+    // A game played on the cards of a file, with some cards joining it late.
+    @BeforeEach
+    public void playAndRecord() throws IOException {
+        TMakeSix builder = new TMakeSix(21L, true);
+        TSeriesList list = new TSeriesList("Audit");
+        for (int i = 0; i < 20; i++) {
+            list.add(builder.prepareSeries());
+        }
+        list.prepareLabels();
+        TFileFormatter formatter = new TFileFormatter(TCardFormat.CSV_PLUS);
+        formatter.writeSeriesFile(tempDir.resolve("cards.csv").toString(), list, TCardFormat.CSV_PLUS, StandardOpenOption.CREATE);
+
+        TCardList cards = new TCardList(formatter.readSeriesFile(tempDir.resolve("cards.csv").toString(), TCardFormat.AUTO));
+        game = TGameFixture.newGame("audit", 22L, cards);
+        for (int i = 0; game.getStatus() != TGameStatus.ENDED; i++) {
+            TGameFixture.play(game);
+            if (game.getExtractionCount() % 5 == 0 && lateCards.size() < 60) {
+                for (int k = 0; k < 10; k++) {
+                    TCard late = new TCard("LATE" + i + "-" + k, 2300L + i * 10 + k, true);
+                    if (game.addLateCard(late)) {
+                        lateCards.add(late);
+                    }
+                }
+            }
+        }
+        recordFile = tempDir.resolve("game.rec");
+        TGameRecord.fromGame(game, "cards.csv").writeRecordFile(recordFile.toString());
+    }
+
+    private TGameAuditor.TAuditResult audit() {
+        return new TGameAuditor().audit(Arrays.asList(recordFile.toString())).get(0);
+    }
+
+    // Replace the first line starting with the given prefix, through the given editor.
+    private void tamper(String prefix, UnaryOperator<String> editor) throws IOException {
+        List<String> lines = new ArrayList<>(Files.readAllLines(recordFile, StandardCharsets.UTF_8));
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).startsWith(prefix)) {
+                lines.set(i, editor.apply(lines.get(i)));
+                break;
+            }
+        }
+        Files.write(recordFile, lines, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void playedGamesAreVerified() throws IOException {
+        boolean lateWinner = false;
+        for (TAward aw : game.getAwards()) {
+            for (TCard w : aw.getWinnerList()) {
+                lateWinner |= lateCards.contains(w);
+            }
+        }
+        assertTrue(lateWinner, "Late cards must take part to the awards");
+
+        TGameRecord record = TGameRecord.readRecordFile(recordFile.toString());
+        assertEquals(lateCards.size(), record.getLateCards().size());
+        for (int i = 0; i < lateCards.size(); i++) {
+            TCard late = record.getLateCards().get(i);
+            assertEquals(lateCards.get(i).getLabel(), late.getLabel());
+            assertEquals(lateCards.get(i).asString(), late.asString());
+            assertEquals(game.getJoinOrdinal(lateCards.get(i)), record.getJoinOrdinal(i));
+        }
+        TGameAuditor.TAuditResult result = audit();
+        assertTrue(result.isVerified(), result.toString());
+        assertEquals("audit", result.getGameId());
+    }
+
+    @Test
+    public void tamperedRecordsAreReported() throws IOException {
+        // The tombola won one extraction earlier.
+        tamper("A;" + TAward.TOMBOLA + ";", line -> {
+            String[] f = line.split(";", -1);
+            f[3] = Integer.toString(Integer.parseInt(f[3]) - 1);
+            return String.join(";", f);
+        });
+        TGameAuditor.TAuditResult result = audit();
+        assertFalse(result.isVerified());
+        assertEquals(1, result.getDiscrepancies().size(), result.toString());
+    }
+
+    @Test
+    public void lateCardsJoiningEarlierAreReported() throws IOException {
+        // A late card that joined before it really did could have won other awards: moving all of
+        //  them to the start of the game changes the outcome.
+        List<String> lines = new ArrayList<>(Files.readAllLines(recordFile, StandardCharsets.UTF_8));
+        lines.replaceAll(line -> line.startsWith("L;") ? line.replaceFirst("^L;\\d+;", "L;1;") : line);
+        Files.write(recordFile, lines, StandardCharsets.UTF_8);
+        assertFalse(audit().isVerified());
+    }
+}
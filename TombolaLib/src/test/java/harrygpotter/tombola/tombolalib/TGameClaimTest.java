@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the claim verification of {@linkplain TGame}, also for the cards
+ * joining the game late.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TGameClaimTest {
+
+    private static TGame newGame(long seed, int size) {
+        return TGameFixture.newGame("claims" + seed, seed, TGameFixture.labeledCards("C", seed * 10000, size));
+    }
+
+    @Test
+    public void claimsBeforeTheGameAndOfUnknownCards() {
+        TGame game = newGame(1L, 60);
+        assertEquals(TClaimResult.NOT_STARTED, game.verifyClaim("C0", TAward.AMBO));
+        TGameFixture.play(game);
+        assertEquals(TClaimResult.UNKNOWN_CARD, game.verifyClaim("nobody", TAward.AMBO));
+        assertEquals(TClaimResult.UNKNOWN_CARD, game.verifyClaim(new TCard("C0"), TAward.AMBO));
+        assertEquals(TClaimResult.UNKNOWN_AWARD, game.verifyClaim("C0", 7));
+    }
+
+    @Test
+    public void winnersCanClaimTheirAwards() {
+        TGame game = newGame(2L, 300);
+        int checked = 0;
+        while (game.getStatus() != TGameStatus.ENDED) {
+            TGameFixture.play(game);
+            for (TAward aw : game.getAwards()) {
+                if (aw.getWinningOrdinal() == game.getExtractionCount()) {
+                    for (TCard winner : aw.getWinnerList()) {
+                        assertEquals(TClaimResult.VALID, game.verifyClaim(winner.getLabel(), aw.getCategory()));
+                        assertEquals(TClaimResult.VALID, game.verifyClaim(winner, aw.getCategory()));
+                        checked++;
+                    }
+                }
+            }
+        }
+        assertTrue(checked >= game.getAwards().size());
+    }
+
+    @Test
+    public void lateCardsCannotClaimAwardsReachedBeforeJoining() {
+        TGame game = newGame(3L, 200);
+        for (int i = 0; i < 30; i++) {
+            TGameFixture.play(game);
+        }
+        List<TCard> late = new ArrayList<>();
+        Map<TCard, int[]> joinRows = new HashMap<>();
+        for (int i = 0; late.size() < 20; i++) {
+            TCard card = new TCard("L" + i, 777L + i, true);
+            if (game.addLateCard(card)) {
+                late.add(card);
+                joinRows.put(card, new int[]{card.getScoreOnRow(0), card.getScoreOnRow(1), card.getScoreOnRow(2)});
+            }
+        }
+        assertTrue(!game.addLateCard(new TCard("C0", 1L, true)), "Labels of late cards must be unique");
+        int tooLate = 0;
+        while (game.getStatus() != TGameStatus.ENDED) {
+            TGameFixture.play(game);
+            for (TCard card : late) {
+                for (int category = TAward.AMBO; category <= TAward.QUINTINA; category++) {
+                    TClaimResult result = game.verifyClaim(card.getLabel(), category);
+                    boolean afterJoin = false;
+                    for (int row = 0; row < 3; row++) {
+                        afterJoin |= (card.getScoreOnRow(row) >= category && joinRows.get(card)[row] < category);
+                    }
+                    if (card.getBestRowScore() < category) {
+                        assertEquals(TClaimResult.NOT_REACHED, result);
+                    } else if (!afterJoin) {
+                        assertEquals(TClaimResult.TOO_LATE, result);
+                        tooLate++;
+                    } else {
+                        assertTrue(result == TClaimResult.VALID || result == TClaimResult.TOO_LATE);
+                    }
+                }
+            }
+        }
+        assertTrue(tooLate > 0);
+    }
+
+    @Test
+    public void lateCardsLookLikeCardsCheckedOneAtATime() {
+        TGame game = newGame(5L, 100);
+        assertEquals("C7", game.getCards().getByLabel("C7").getLabel());
+        int added = 0;
+        for (int i = 0; game.getStatus() != TGameStatus.ENDED; i++) {
+            TGameFixture.play(game);
+            TCard card = new TCard("L" + i, 900L + i, true);
+            if (!game.addLateCard(card)) {
+                continue;
+            }
+            added++;
+            TCard twin = new TCard("T" + i, 900L + i, true);
+            for (int m = 0; m < game.getExtractionCount(); m++) {
+                twin.checkExtraction(game.getSacchetto().getExtractedAt(m));
+            }
+            String where = "late card " + card.getLabel();
+            assertEquals(twin.getTotalScore(), card.getTotalScore(), where);
+            assertEquals(twin.getLastScore(), card.getLastScore(), where);
+            assertEquals(twin.getLastScoringRow(), card.getLastScoringRow(), where);
+            assertEquals(twin.hasLastScoreUsedJolly(), card.hasLastScoreUsedJolly(), where);
+            assertEquals(twin.getLastChecked(), card.getLastChecked(), where);
+            assertEquals(twin.getLastMatched(), card.getLastMatched(), where);
+            assertEquals(twin.getExtractionCheckCount(), card.getExtractionCheckCount(), where);
+            // The label index of the card list has been extended with the late card.
+            assertEquals(card, game.getCards().getByLabel(card.getLabel()), where);
+        }
+        assertTrue(added > 0);
+    }
+
+    @Test
+    public void concurrentReadersSeeTheGameMovingForward() throws InterruptedException {
+        TGame game = newGame(6L, 300);
+        TGameFixture.play(game);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int first = t;
+            Thread reader = new Thread(() -> {
+                try {
+                    // Numbers are never put back and cards never lose scores: what a reader has seen
+                    //  extracted or reached must stay so.
+                    boolean[] extracted = new boolean[TUtils.NOVANTA + 1];
+                    boolean[][] reached = new boolean[300][TAward.TOMBOLA + 1];
+                    for (int i = first; running.get(); i += 4) {
+                        int n = 1 + i % TUtils.NOVANTA;
+                        boolean now = game.isExtracted(n);
+                        if (extracted[n] && !now) {
+                            throw new AssertionError("Number " + n + " is not extracted any more");
+                        }
+                        extracted[n] = now;
+                        int c = i % 300;
+                        int category = (i % 5 == 4 ? TAward.TOMBOLA : TAward.AMBO + i % 5);
+                        TClaimResult result = game.verifyClaim("C" + c, category);
+                        if (result == TClaimResult.NOT_STARTED || result == TClaimResult.UNKNOWN_AWARD
+                                || result == TClaimResult.UNKNOWN_CARD) {
+                            throw new AssertionError("Unexpected claim result " + result + " for C" + c);
+                        }
+                        if (reached[c][category] && result == TClaimResult.NOT_REACHED) {
+                            throw new AssertionError("Card C" + c + " does not reach " + category + " any more");
+                        }
+                        reached[c][category] |= (result != TClaimResult.NOT_REACHED);
+                    }
+                } catch (Throwable th) {
+                    failure.compareAndSet(null, th);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        while (game.getStatus() != TGameStatus.ENDED) {
+            TGameFixture.play(game);
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        // Once the game is over, the claims agree with the cards.
+        for (TCard card : game.getCards()) {
+            TClaimResult result = game.verifyClaim(card, TAward.TOMBOLA);
+            assertEquals(card.getTotalScore() == 15, result != TClaimResult.NOT_REACHED, card.getLabel());
+        }
+    }
+
+    @Test
+    public void claimsAreVerifiedWhileLateCardsJoin() throws InterruptedException {
+        TGame game = newGame(4L, 500);
+        TGameFixture.play(game);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread operator = new Thread(() -> {
+            try {
+                int i = 0;
+                while (running.get()) {
+                    String label = (i % 2 == 0 ? "C" + (i % 500) : "L" + (i % 400));
+                    TClaimResult result = game.verifyClaim(label, TAward.AMBO + (i % 4));
+                    if (result == TClaimResult.NOT_STARTED || result == TClaimResult.UNKNOWN_AWARD) {
+                        throw new AssertionError("Unexpected claim result " + result + " for " + label);
+                    }
+                    i++;
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        operator.start();
+        for (int i = 0; i < 400 && game.getStatus() != TGameStatus.ENDED; i++) {
+            game.addLateCard(new TCard("L" + i, 5000L + i, true));
+            if (i % 10 == 0) {
+                TGameFixture.play(game);
+            }
+        }
+        running.set(false);
+        operator.join();
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+/**
+ * Helpers shared by the tests playing {@linkplain TGame} objects: a game is
+ * prepared with the given cards, a sacchetto initialized with the given seed
+ * and the simple double award list, and played resolving each contention in
+ * favour of the first candidate.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+final class TGameFixture {      // Only package visibility
+
+    private TGameFixture() {
+        // Just static helpers here.
+    }
+
+    // Only package visibility
+    static TGame newGame(String id, long seed, TCardList cards) {
+        TGame game = new TGame(id);
+        game.setLogger(TSimpleLogger.getLoggerByName(TSimpleLogger.NULL_LOGGER));
+        game.setSacchetto(new TSacchetto(seed));
+        game.setCards(cards);
+        game.setAwards(TAwardList.getSimpleDoubleAwardList());
+        return game;
+    }
+
+    // Cards labeled prefix0, prefix1, ... each one built from its own seed, starting from firstSeed.
+    // Only package visibility
+    static TCardList labeledCards(String prefix, long firstSeed, int size) {
+        TCardList cards = new TCardList();
+        for (int i = 0; i < size; i++) {
+            cards.add(new TCard(prefix + i, firstSeed + i, true));
+        }
+        return cards;
+    }
+
+    // Extract the next number, resolving the contentions in favour of the first candidate.
+    // Only package visibility
+    static void play(TGame game) {
+        game.extractNumber();
+        while (game.getStatus() == TGameStatus.RESOLVING) {
+            game.resolveCandidates(0);
+        }
+    }
+}
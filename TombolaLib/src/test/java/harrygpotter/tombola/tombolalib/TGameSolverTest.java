@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@linkplain TGameSolver}: the outcome computed without playing the
+ * game must be the one of a {@linkplain TGame} played with the same cards,
+ * awards and sacchetto, resolving each contention in favour of the first
+ * candidate.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TGameSolverTest {
+
+    private static TAwardList awardList(int kind) {
+        switch (kind) {
+            case 0:
+                return TAwardList.getSimpleSingleAwardList();
+            case 1:
+                return TAwardList.getSimpleDoubleAwardList();
+            default:
+                // Three ambos, a tombola before the quintina and a second tombola.
+                TAwardList list = new TAwardList();
+                list.add(new TAward("A1", TAward.AMBO));
+                list.add(new TAward("A2", TAward.AMBO));
+                list.add(new TAward("A3", TAward.AMBO));
+                list.add(new TAward("T1", TAward.TERNO));
+                list.add(new TAward("TOMB1", TAward.TOMBOLA));
+                list.add(new TAward("Q5", TAward.QUINTINA));
+                list.add(new TAward("TOMB2", TAward.TOMBOLA));
+                return list;
+        }
+    }
+
+    // The extraction ordinal at which the card reaches each category, evaluated number by number.
+    private static int[] reach(TCard card, int[] order) {
+        int[] rows = new int[3];
+        int[] result = new int[5];
+        int total = 0;
+        for (int t = 1; t <= TUtils.NOVANTA; t++) {
+            for (int p = 0; p < 15; p++) {
+                if (card.getNumber(p) == order[t - 1]) {
+                    rows[p / 5]++;
+                    total++;
+                }
+            }
+            int best = Math.max(rows[0], Math.max(rows[1], rows[2]));
+            for (int k = TAward.AMBO; k <= TAward.QUINTINA; k++) {
+                if (best >= k && result[k - TAward.AMBO] == 0) {
+                    result[k - TAward.AMBO] = t;
+                }
+            }
+            if (total == 15 && result[4] == 0) {
+                result[4] = t;
+            }
+        }
+        return result;
+    }
+
+    // Row of the win/conflict vectors holding the award category (row 5 is the total).
+    private static int row(TAward aw) {
+        return aw.getCategory() < TAward.TOMBOLA ? aw.getCategory() - TAward.AMBO : 4;
+    }
+
+    @Test
+    public void solverMatchesPlayedGames() {
+        Random random = new Random(1L);
+        int contended = 0;
+        for (int gi = 0; gi < 90; gi++) {
+            int series = 1 + random.nextInt(gi % 3 == 0 ? 200 : 20);
+            TMakeSix builder = new TMakeSix(random.nextLong(), true);
+            TCardList cards = new TCardList();
+            for (int i = 0; i < series; i++) {
+                for (TCard c : builder.prepareSix()) {
+                    cards.add(c);
+                }
+            }
+            if (gi % 5 == 0) {
+                cards.addAll(TBillboardCard.getWholeBillboard("B"));
+            }
+            int kind = gi % 3;
+            TSacchetto sacchetto = new TSacchetto(random.nextLong());
+            TGameSolver.TSolution solution = new TGameSolver(cards, awardList(kind)).solve(sacchetto);
+
+            TGame game = new TGame("solver" + gi);
+            game.setLogger(TSimpleLogger.getLoggerByName(TSimpleLogger.NULL_LOGGER));
+            game.setSacchetto(sacchetto);
+            game.setCards(cards);
+            game.setAwards(awardList(kind));
+            int[] order = sacchetto.getExtractionOrder();
+            int[][] conflicts = new int[6][90];
+            while (game.getStatus() != TGameStatus.ENDED) {
+                game.extractNumber();
+                // Right after the draw every contended award still holds all its candidates.
+                for (TAward aw : game.getAwards()) {
+                    int extra = aw.getCandidatesList().size() - 1;
+                    if (aw.getStatus() == TAward.TAwardStatus.CONTENDED && extra > 0) {
+                        conflicts[row(aw)][game.getExtractionCount() - 1] += extra;
+                        conflicts[5][game.getExtractionCount() - 1] += extra;
+                    }
+                }
+                while (game.getStatus() == TGameStatus.RESOLVING) {
+                    game.resolveCandidates(0);
+                }
+            }
+
+            String where = "game " + gi + ", award list " + kind;
+            assertEquals(game.getExtractionCount(), solution.getEndOrdinal(), where);
+            for (int i = 0; i < game.getAwards().size(); i++) {
+                TAward aw = game.getAwards().get(i);
+                assertEquals(aw.getWinningOrdinal(), solution.getWinningOrdinal(i), where);
+                assertEquals(aw.getWinningNumber(), solution.getWinningNumber(i), where);
+                assertEquals(aw.getWinnerList(), solution.getWinners(i), where);
+                assertEquals(aw.getWithJollyList(), solution.getWithJollyList(i), where);
+                contended += (solution.getContenders(i).isEmpty() ? 0 : 1);
+            }
+            int[][] wins = new int[6][90];
+            for (TAward aw : game.getAwards()) {
+                if (aw.getStatus() == TAward.TAwardStatus.ASSIGNED) {
+                    wins[row(aw)][aw.getWinningOrdinal() - 1] += aw.getWinnerList().size();
+                    wins[5][aw.getWinningOrdinal() - 1] += aw.getWinnerList().size();
+                }
+            }
+            assertArrayEquals(wins, solution.getWinVector(), where);
+            assertArrayEquals(conflicts, solution.getConflictVector(), where);
+            for (int c = 0; c < cards.size(); c++) {
+                int[] expected = reach(cards.get(c), order);
+                for (int k = 0; k < 4; k++) {
+                    assertEquals(expected[k], solution.getReachOrdinal(c, k + TAward.AMBO), where);
+                }
+                assertEquals(expected[4], solution.getReachOrdinal(c, TAward.TOMBOLA), where);
+            }
+        }
+        // Contentions must have been exercised too.
+        assertTrue(contended > 0);
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@linkplain TGameStateCodec}: a view rebuilt applying the snapshot
+ * and then the deltas, or joining late from a snapshot, must hold the same
+ * state of the game.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TGameStateCodecTest {
+
+    private static TGame newGame(long seed) {
+        TMakeSix builder = new TMakeSix(seed, true);
+        TCardList cards = new TCardList();
+        for (int i = 0; i < 30; i++) {
+            for (TCard c : builder.prepareSix()) {
+                cards.add(c);
+            }
+        }
+        return TGameFixture.newGame("codec" + seed, seed, cards);
+    }
+
+    private static void assertSameState(TGame game, TGameStateCodec codec, TGameStateCodec.TStateView view) {
+        TSacchetto sacchetto = game.getSacchetto();
+        assertEquals(codec.getVersion(), view.getVersion());
+        assertEquals(game.getCards().size(), view.getCardCount());
+        assertEquals(sacchetto.getExtractedCount(), view.getExtractedCount());
+        for (int i = 0; i < sacchetto.getExtractedCount(); i++) {
+            assertEquals(sacchetto.getExtractedAt(i), view.getExtractedAt(i));
+        }
+        for (int n = 1; n <= TUtils.NOVANTA; n++) {
+            assertEquals(game.isExtracted(n), view.isExtracted(n));
+        }
+        TAwardList awards = game.getAwards();
+        assertEquals(awards.size(), view.getAwardCount());
+        for (int i = 0; i < awards.size(); i++) {
+            TAward aw = awards.get(i);
+            assertEquals(aw.getStatus(), view.getAwardStatus(i));
+            assertEquals(aw.getWinningOrdinal(), view.getAwardWinningOrdinal(i));
+            int[] winners = view.getAwardWinners(i);
+            assertEquals(aw.getWinnerList().size(), winners.length);
+            for (int w = 0; w < winners.length; w++) {
+                assertTrue(game.getCards().get(winners[w]) == aw.getWinnerList().get(w));
+            }
+        }
+    }
+
+    @Test
+    public void deltasAndSnapshotsRebuildTheSameState() {
+        TGame game = newGame(5L);
+        TGameStateCodec codec = new TGameStateCodec(game);
+        TGameStateCodec.TStateView view = new TGameStateCodec.TStateView();
+        assertTrue(view.apply(codec.getSnapshot()));
+        assertSameState(game, codec, view);
+        TGameStateCodec.TStateView late = null;
+        int deltaBytes = 0;
+        while (game.getStatus() != TGameStatus.ENDED) {
+            TGameFixture.play(game);
+            assertTrue(codec.update());
+            byte[] delta = codec.getDelta();
+            assertEquals(TGameStateCodec.KIND_DELTA, delta[3]);
+            deltaBytes = Math.max(deltaBytes, delta.length);
+            assertTrue(view.apply(delta));
+            assertSameState(game, codec, view);
+
+            // The cards matching the last number, as rebuilt from the delta.
+            int number = game.getSacchetto().getLastExtracted();
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < game.getCards().size(); i++) {
+                if (game.getCards().get(i).isMatched(number)) {
+                    expected.add(i);
+                }
+            }
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), view.getLastMatchedCards());
+
+            if (late == null && game.getExtractionCount() == 40) {
+                late = new TGameStateCodec.TStateView();
+                assertTrue(late.apply(codec.getSnapshot()));
+            } else if (late != null) {
+                assertTrue(late.apply(delta));
+            }
+        }
+        assertNotNull(late);
+        assertSameState(game, codec, late);
+        assertFalse(codec.update());
+        assertTrue(deltaBytes < 128);
+    }
+
+    @Test
+    public void staleDeltasAreRefused() {
+        TGame game = newGame(6L);
+        TGameStateCodec codec = new TGameStateCodec(game);
+        TGameStateCodec.TStateView view = new TGameStateCodec.TStateView();
+        view.apply(codec.getSnapshot());
+        TGameFixture.play(game);
+        codec.update();
+        TGameFixture.play(game);
+        codec.update();
+        // The first delta has been lost: the second one cannot be applied.
+        assertFalse(view.apply(codec.getDelta()));
+        assertEquals(1, view.getVersion());
+        assertTrue(view.apply(codec.getSnapshot()));
+        assertSameState(game, codec, view);
+    }
+
+    @Test
+    public void undoPublishesASnapshot() {
+        TGame game = newGame(7L);
+        TGameStateCodec codec = new TGameStateCodec(game);
+        TGameStateCodec.TStateView view = new TGameStateCodec.TStateView();
+        view.apply(codec.getSnapshot());
+        while (game.getExtractionCount() < 30) {
+            TGameFixture.play(game);
+            codec.update();
+            assertTrue(view.apply(codec.getDelta()));
+        }
+        assertEquals(TGameResultCode.NOWINNER, game.undoLastExtraction());
+        assertTrue(codec.update());
+        // A rollback cannot be expressed as a delta.
+        assertEquals(TGameStateCodec.KIND_SNAPSHOT, codec.getDelta()[3]);
+        assertTrue(view.apply(codec.getDelta()));
+        assertSameState(game, codec, view);
+    }
+
+    // Everything a view exposes, as a string that can be compared.
+    private static String state(TGameStateCodec.TStateView view) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(view.getVersion()).append('/').append(view.getCardCount()).append('/').append(view.getExtractedCount()).append('|');
+        for (int i = 0; i < view.getExtractedCount(); i++) {
+            sb.append(view.getExtractedAt(i)).append(',');
+        }
+        for (int i = 0; i < view.getAwardCount(); i++) {
+            sb.append(view.getAwardStatus(i)).append(view.getAwardWinningOrdinal(i)).append(Arrays.toString(view.getAwardWinners(i)));
+        }
+        return sb.append(Arrays.toString(view.getLastMatchedCards())).toString();
+    }
+
+    private static byte[] message(int kind, long... varints) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('T');
+        out.write('G');
+        out.write(TGameStateCodec.FORMAT_VERSION);
+        out.write(kind);
+        for (long value : varints) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void malformedMessagesLeaveTheViewUnchanged() {
+        TGame game = newGame(8L);
+        TGameStateCodec codec = new TGameStateCodec(game);
+        TGameStateCodec.TStateView view = new TGameStateCodec.TStateView();
+        while (game.getExtractionCount() < 20) {
+            TGameFixture.play(game);
+            codec.update();
+        }
+        assertTrue(view.apply(codec.getSnapshot()));
+        TGameFixture.play(game);
+        codec.update();
+        byte[] delta = codec.getDelta();
+        byte[] snapshot = codec.getSnapshot();
+        String before = state(view);
+        for (byte[] complete : new byte[][]{delta, snapshot}) {
+            for (int length = 4; length < complete.length; length++) {
+                byte[] truncated = Arrays.copyOf(complete, length);
+                assertThrows(TTombolaRuntimeException.class, () -> view.apply(truncated), "length " + length);
+                assertEquals(before, state(view), "length " + length);
+            }
+        }
+        long version = view.getVersion();
+        // Negative lengths, an extracted number out of range and one extracted twice.
+        byte[][] corrupted = {
+            message(TGameStateCodec.KIND_DELTA, version, version + 1, 180, -1L),
+            message(TGameStateCodec.KIND_SNAPSHOT, version + 1, 180, 0, -5L),
+            message(TGameStateCodec.KIND_DELTA, version, version + 1, 180, 1, 91),
+            message(TGameStateCodec.KIND_DELTA, version, version + 1, 180, 1, view.getExtractedAt(0)),
+            message(TGameStateCodec.KIND_DELTA, version, version + 1, 180, 0, 1, 0, Integer.MAX_VALUE),
+            new byte[]{'T', 'G', (byte) TGameStateCodec.FORMAT_VERSION, (byte) TGameStateCodec.KIND_DELTA,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 1}
+        };
+        for (int i = 0; i < corrupted.length; i++) {
+            byte[] message = corrupted[i];
+            assertThrows(TTombolaRuntimeException.class, () -> view.apply(message), "message " + i);
+            assertEquals(before, state(view), "message " + i);
+        }
+        assertThrows(TTombolaRuntimeException.class, () -> view.apply(null));
+        assertTrue(view.apply(delta));
+        assertSameState(game, codec, view);
+    }
+}
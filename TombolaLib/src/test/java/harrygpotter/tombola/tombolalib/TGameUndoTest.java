@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@linkplain TGame#undoLastExtraction()}: undoing an extraction
+ * must bring back the cards, the billboard, the awards and the player views
+ * exactly as they were before it.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TGameUndoTest {
+
+    private static TGame newGame(long seed) {
+        TCardList cards = TGameFixture.labeledCards("L", seed * 1000, 300);
+        for (int i = 0; i < cards.size(); i++) {
+            cards.get(i).setOwner("P" + (i % 40));
+        }
+        TGame game = TGameFixture.newGame("undo" + seed, seed, cards);
+        game.setTabellone(TBillboardCard.getWholeBillboard("B"));
+        return game;
+    }
+
+    // Everything an undo must restore, as a string that can be compared.
+    private static String state(TGame game) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(game.getExtractionCount()).append('/').append(game.getLastExtracted()).append('/').append(game.getStatus()).append('|');
+        sb.append(Arrays.toString(game.getSacchetto().getExtractedAsArray())).append('|');
+        for (TCard c : game.getCards()) {
+            for (int k = 0; k < 15; k++) {
+                sb.append(c.isMatched(c.getNumber(k)) ? '1' : '0');
+            }
+            sb.append(c.getBestRowScore()).append(c.getTotalScore());
+        }
+        for (TCard c : game.getTabellone()) {
+            for (int k = 0; k < 15; k++) {
+                sb.append(c.isMatched(c.getNumber(k)) ? '1' : '0');
+            }
+        }
+        sb.append('|');
+        for (TAward aw : game.getAwards()) {
+            sb.append(aw.getStatus()).append(aw.getWinningOrdinal()).append(aw.getWinningNumber());
+            aw.getWinnerList().forEach(w -> sb.append(w.getLabel()));
+            sb.append(aw.getWithJollyList());
+            if (!aw.isAssigned()) {
+                sb.append(aw.getCandidatesList().size()).append(aw.getValidatingList().size()).append(';');
+            }
+        }
+        for (TPlayerView v : game.getPlayerViews()) {
+            sb.append(v.getOwner()).append(v.getBestScore());
+            for (int category : new int[]{TAward.AMBO, TAward.TERNO, TAward.QUATERNA, TAward.QUINTINA, TAward.TOMBOLA}) {
+                sb.append(v.getCardsOneNumberAway(category));
+            }
+            v.getAwardsWon().forEach(aw -> sb.append(aw.getLabel()));
+        }
+        for (int n = 1; n <= TUtils.NOVANTA; n++) {
+            sb.append(game.isExtracted(n) ? 'x' : '.');
+        }
+        return sb.toString();
+    }
+
+    private static void resolve(TGame game, Random random) {
+        while (game.getStatus() == TGameStatus.RESOLVING) {
+            game.resolveCandidates(random.nextInt(game.getFirstAwardToResolve().getCandidatesList().size()));
+        }
+    }
+
+    @Test
+    public void undoRestoresCardsAndAwards() {
+        for (long seed = 1; seed <= 10; seed++) {
+            TGame game = newGame(seed);
+            Random random = new Random(seed);
+            int undone = 0;
+            while (game.getStatus() != TGameStatus.ENDED) {
+                String before = state(game);
+                game.extractNumber();
+                if (game.getStatus() == TGameStatus.RESOLVING && random.nextInt(4) == 0) {
+                    // Undo while a contention is being resolved.
+                    assertEquals(TGameResultCode.NOWINNER, game.undoLastExtraction());
+                    assertEquals(before, state(game));
+                    undone++;
+                    continue;
+                }
+                resolve(game, random);
+                if (random.nextInt(4) == 0) {
+                    assertEquals(TGameResultCode.NOWINNER, game.undoLastExtraction());
+                    assertEquals(before, state(game));
+                    undone++;
+                }
+            }
+            assertTrue(undone > 0);
+        }
+    }
+
+    @Test
+    public void undoAfterTheEndAndBackToTheStart() {
+        TGame game = newGame(11L);
+        Random random = new Random(11L);
+        String before = null;
+        while (game.getStatus() != TGameStatus.ENDED) {
+            before = state(game);
+            game.extractNumber();
+            resolve(game, random);
+        }
+        // The tombola can be undone, and assigned again by the same number.
+        int last = game.getLastExtracted();
+        assertEquals(TGameResultCode.NOWINNER, game.undoLastExtraction());
+        assertEquals(before, state(game));
+        game.extractNumber(last);
+        while (game.getStatus() == TGameStatus.RESOLVING) {
+            game.resolveCandidates(0);
+        }
+        assertEquals(TGameStatus.ENDED, game.getStatus());
+
+        while (game.getExtractionCount() > 0) {
+            assertEquals(TGameResultCode.NOWINNER, game.undoLastExtraction());
+        }
+        assertEquals(TGameStatus.READY, game.getStatus());
+        assertEquals(TGameResultCode.WRONG_NUMBER, game.undoLastExtraction());
+        for (TCard c : game.getCards()) {
+            assertEquals(0, c.getTotalScore());
+            assertEquals(0, c.getExtractionCheckCount());
+        }
+        for (TAward aw : game.getAwards()) {
+            assertTrue(aw.getWinnerList().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@linkplain TSeriesListAnalysis}: the histograms, the worst couples
+ * of cards and the number frequencies must be the ones computed comparing the
+ * cards one number at a time, whatever the pool running the analysis.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TSeriesListAnalysisTest {
+
+    private static final int WORST = 10;
+
+    private static TSeriesList newSeriesList(long seed, int size) {
+        TMakeSix maker = new TMakeSix(seed, true);
+        TSeriesList seriesList = new TSeriesList("analysis" + seed);
+        for (int i = 0; i < size; i++) {
+            seriesList.add(maker.prepareSeries());
+        }
+        seriesList.prepareLabels();
+        return seriesList;
+    }
+
+    // Numbers shared by the given rows of the two cards, all the rows when row < 0.
+    private static int equalNumbers(TCard one, int rowOne, TCard two, int rowTwo) {
+        int equal = 0;
+        for (int u = (rowOne < 0 ? 0 : rowOne * 5); u < (rowOne < 0 ? 15 : rowOne * 5 + 5); u++) {
+            for (int v = (rowTwo < 0 ? 0 : rowTwo * 5); v < (rowTwo < 0 ? 15 : rowTwo * 5 + 5); v++) {
+                equal += (one.getNumber(u) == two.getNumber(v) ? 1 : 0);
+            }
+        }
+        return equal;
+    }
+
+    @Test
+    public void analysisMatchesTheBruteForceComparison() {
+        for (int size : new int[]{1, 40, 150}) {
+            TSeriesList seriesList = newSeriesList(size, size);
+            TCardList cards = new TCardList(seriesList);
+            long[] epc = new long[16];
+            long[] epr = new long[6];
+            // Each element is {equal per card, equal per row, first index, second index}.
+            List<int[]> pairs = new ArrayList<>();
+            for (int i = 0; i < cards.size(); i++) {
+                for (int j = i + 1; j < cards.size(); j++) {
+                    int card = equalNumbers(cards.get(i), -1, cards.get(j), -1);
+                    int row = 0;
+                    for (int p = 0; p < 3; p++) {
+                        for (int q = 0; q < 3; q++) {
+                            row = Math.max(row, equalNumbers(cards.get(i), p, cards.get(j), q));
+                        }
+                    }
+                    epc[card]++;
+                    epr[row]++;
+                    pairs.add(new int[]{card, row, i, j});
+                }
+            }
+            pairs.sort((one, two) -> one[0] != two[0] ? Integer.compare(two[0], one[0])
+                    : one[1] != two[1] ? Integer.compare(two[1], one[1])
+                    : one[2] != two[2] ? Integer.compare(one[2], two[2]) : Integer.compare(one[3], two[3]));
+
+            TSeriesListAnalysis analysis = seriesList.seriesListAnalysis(WORST);
+            TSeriesListAnalysis parallel = TSeriesListAnalysis.analyze(seriesList, WORST, new ForkJoinPool(4));
+            for (TSeriesListAnalysis a : new TSeriesListAnalysis[]{analysis, parallel}) {
+                assertEquals(cards.size(), a.getCardCount());
+                assertEquals(pairs.size(), a.getPairCount());
+                assertArrayEquals(epc, a.getEqualPerCardHistogram());
+                assertArrayEquals(epr, a.getEqualPerRowHistogram());
+                assertEquals(Math.min(WORST, pairs.size()), a.getWorstPairs().size());
+                for (int k = 0; k < a.getWorstPairs().size(); k++) {
+                    TSeriesListAnalysis.TCardPair pair = a.getWorstPairs().get(k);
+                    int[] expected = pairs.get(k);
+                    assertEquals(expected[0], pair.getEqualPerCard());
+                    assertEquals(expected[1], pair.getEqualPerRow());
+                    assertEquals(cards.get(expected[2]).getLabel(), pair.getFirst().getLabel());
+                    assertEquals(cards.get(expected[3]).getLabel(), pair.getSecond().getLabel());
+                }
+                for (int n = 1; n <= TUtils.NOVANTA; n++) {
+                    int frequency = 0;
+                    for (TCard c : cards) {
+                        for (int k = 0; k < 15; k++) {
+                            frequency += (c.getNumber(k) == n ? 1 : 0);
+                        }
+                    }
+                    assertEquals(frequency, a.getNumberFrequency(n));
+                }
+            }
+        }
+    }
+}
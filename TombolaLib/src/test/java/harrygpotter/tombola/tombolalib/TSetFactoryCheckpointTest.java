@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolalib;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@linkplain TSetFactoryCheckpoint}: resuming a generation process
+ * from a checkpoint must produce the same series an uninterrupted process
+ * would have produced.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TSetFactoryCheckpointTest {
+
+    private static final long SEED = 20181225L;
+    private static final int MAX_EPC = 5;
+    private static final int INTERRUPTED_AT = 6;
+    private static final int DESIRED = 14;
+
+    @TempDir
+    Path tempDir;
+
+    // A new factory starting from scratch, or resuming from the checkpoint if not null.
+    private static TSimpleSetFactory newFactory(int desiredSeries, TSetFactoryCheckpoint checkpoint) {
+        TSimpleSetFactory factory = new TSimpleSetFactory();
+        factory.setLogger(TSimpleLogger.getLoggerByName(TSimpleLogger.NULL_LOGGER));
+        if (checkpoint != null) {
+            factory.resumeFromCheckpoint(checkpoint);
+        } else {
+            factory.setSeriesList(new TSeriesList("checkpoint"));
+            factory.setSeriesBuilder(new TMakeSix(SEED, true));
+        }
+        factory.setDesiredSeries(desiredSeries);
+        factory.setMaxEqualPerCard(MAX_EPC);
+        return factory;
+    }
+
+    private static List<String> run(TSimpleSetFactory factory) throws InterruptedException {
+        factory.requestStart();
+        factory.joinOnEnded();
+        List<String> result = new ArrayList<>();
+        factory.getSeriesList().forEach(s -> result.add(TSetFactoryCheckpoint.seriesToString(s)));
+        // The list is sorted when the process ends, so compare the series regardless of their order.
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    public void randomGeneratorMatchesJavaUtilRandom() {
+        Random expected = new Random(SEED);
+        TMakeSix.TMakeSixRandom actual = new TMakeSix.TMakeSixRandom(SEED);
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(expected.nextInt(TUtils.NOVANTA), actual.nextInt(TUtils.NOVANTA));
+        }
+        TMakeSix.TMakeSixRandom restored = new TMakeSix.TMakeSixRandom(0);
+        restored.setState(actual.getState());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(expected.nextLong(), restored.nextLong());
+        }
+    }
+
+    @Test
+    public void resumedProcessProducesTheSameSeries() throws IOException, InterruptedException {
+        TSimpleSetFactory reference = newFactory(DESIRED, null);
+        List<String> expected = run(reference);
+        assertEquals(DESIRED, expected.size());
+
+        String fileName = tempDir.resolve("resume.chk").toString();
+        TSimpleSetFactory interrupted = newFactory(INTERRUPTED_AT, null);
+        interrupted.setCheckpointFile(fileName, 0);
+        run(interrupted);
+
+        TSetFactoryCheckpoint checkpoint = TSetFactoryCheckpoint.readCheckpointFile(fileName);
+        assertNotNull(checkpoint);
+        assertEquals(INTERRUPTED_AT, checkpoint.getSeriesList().size());
+        assertEquals(SEED, checkpoint.getRandomSeed());
+        assertEquals(expected, run(newFactory(DESIRED, checkpoint)));
+    }
+
+    @Test
+    public void damagedStateLinesAreIgnored() throws IOException, InterruptedException {
+        String fileName = tempDir.resolve("damaged.chk").toString();
+        TSimpleSetFactory factory = newFactory(INTERRUPTED_AT, null);
+        factory.setCheckpointFile(fileName, 0);
+        run(factory);
+        TSetFactoryCheckpoint good = TSetFactoryCheckpoint.readCheckpointFile(fileName);
+        assertNotNull(good);
+
+        // A state line with a random generator state out of range, then a truncated one.
+        String state = "K;" + (INTERRUPTED_AT + 1) + ";0;0;5;5;0;0;" + String.join(",", Collections.nCopies(TUtils.NOVANTA, "1"));
+        Files.write(new File(fileName).toPath(),
+                (state + ";" + Long.MAX_VALUE + ";OK\n" + state + ";12").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        TSetFactoryCheckpoint read = TSetFactoryCheckpoint.readCheckpointFile(fileName);
+        assertNotNull(read);
+        assertEquals(good.getSeriesList().size(), read.getSeriesList().size());
+        assertEquals(good.getIterations(), read.getIterations());
+    }
+}
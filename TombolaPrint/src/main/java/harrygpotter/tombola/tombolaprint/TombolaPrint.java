@@ -20,15 +20,21 @@ package harrygpotter.tombola.tombolaprint;
 
 import harrygpotter.tombola.tombolalib.TCardFormat;
 import harrygpotter.tombola.tombolalib.TFileFormatter;
+import harrygpotter.tombola.tombolalib.THtmlPrintPipeline;
 import harrygpotter.tombola.tombolalib.THtmlPrinter;
+import harrygpotter.tombola.tombolalib.THtmlTemplate;
+import harrygpotter.tombola.tombolalib.TImagePrinter;
 import harrygpotter.tombola.tombolalib.TMakeSix;
+import harrygpotter.tombola.tombolalib.TPdfPrinter;
 import harrygpotter.tombola.tombolalib.TSeries;
 import harrygpotter.tombola.tombolalib.TSeriesList;
 import harrygpotter.tombola.tombolalib.TUtils;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -44,6 +50,7 @@ public class TombolaPrint {
 
     private static final String TP_VERSION = "1.1";
     private static final String TP_DEFAULT_OUTPUT_FILENAME = "CardPrint001.html";
+    private static final THtmlTemplate.THtmlTemplateType TP_DEFAULT_PDF_LAYOUT = THtmlTemplate.THtmlTemplateType.A4_SIXCARDS_P;
 
     /**
      * TombolaPrint [first | first last ] -F=InputFile -T=templateName {other options}
@@ -70,6 +77,10 @@ public class TombolaPrint {
         boolean jollyOn = false;
         int first = -1;
         int last = -1;
+        int pagesPerFile = 0;
+        THtmlTemplate.THtmlTemplateType pdfLayout = TP_DEFAULT_PDF_LAYOUT;
+        String imageDirectory = null;
+        boolean seriesSheets = false;
 
         for (String arg : args) {
             boolean isNumber = false;
@@ -113,6 +124,39 @@ public class TombolaPrint {
                     case "O":   // Read the (O)utput file name (default extension html)
                         outputFile = argArg;
                         break;
+                    case "P":   // Split the output in files of (P)ages
+                        try {
+                            pagesPerFile = Integer.parseInt(argArg);
+                        } catch (NumberFormatException | NullPointerException ex) {
+                            pagesPerFile = -1;
+                        }
+                        if (pagesPerFile < 0) {
+                            System.err.println("<FATAL!> Option [-P] needs a valid amount of pages per file.");
+                            System.exit(-1);
+                        }
+                        break;
+                    case "A":   // Page (A)rrangement of cards on PDF output
+                        try {
+                            pdfLayout = THtmlTemplate.THtmlTemplateType.valueOf(argArg.toUpperCase());
+                        } catch (IllegalArgumentException | NullPointerException ex) {
+                            System.err.println("<FATAL!> Option [-A] needs one of the page layouts " + Arrays.toString(THtmlTemplate.THtmlTemplateType.values()) + ".");
+                            System.exit(-1);
+                        }
+                        break;
+                    case "G":   // Write (G)raphic images in the given directory
+                        imageDirectory = argArg;
+                        if (imageDirectory == null || imageDirectory.length() < 1) {
+                            System.err.println("<FATAL!> Option [-G] needs the directory where images are written.");
+                            System.exit(-1);
+                        }
+                        break;
+                    case "L":   // (L)ist the templates of a directory and exit
+                        listTemplates(argArg == null ? "." : argArg);
+                        System.exit(0);
+                        break;
+                    case "S":   // One image per (S)eries
+                        seriesSheets = true;
+                        break;
                     case "J":   // Activate verbose mode
                         jollyOn = true;
                         break;
@@ -128,36 +172,109 @@ public class TombolaPrint {
 
         }   // End of for args
         if (first<0) first = 0;
-        TSeriesList tsl = null;
 
-        System.out.print("Reading card series file: " + inputFile + "... ");
-        TFileFormatter tff = new TFileFormatter();
+        if (imageDirectory != null) {
+            printImages(inputFile, first, last, imageDirectory, seriesSheets, jollyOn);
+            return;
+        }
+        if (outputFile != null && outputFile.toLowerCase().endsWith(".pdf")) {
+            printPdf(inputFile, first, last, outputFile, pdfLayout, jollyOn);
+            return;
+        }
+
+        // Cards are streamed from the input file and printed in parallel: the file is never loaded as a whole.
+        THtmlPrinter thp = new THtmlPrinter(templateFile);
+        thp.enableJolly(jollyOn);
+        THtmlPrintPipeline pipeline = new THtmlPrintPipeline(thp);
+        pipeline.setPagesPerFile(pagesPerFile);
+        System.out.println(String.format("Start printing from card %d to card %s.", first, (last < 0 ? "the last one" : "" + last)));
+        System.out.println("Reading card series file: " + inputFile);
+        System.out.println("Using template file: " + templateFile);
+        System.out.println("Jolly numbers will be " + (jollyOn ? "" : "NOT ") + "highlighted.");
+        if (pagesPerFile > 0) {
+            System.out.println(String.format("Output will be split in files of %d pages.", pagesPerFile));
+        }
+        int printedCount = 0;
+        long start = System.currentTimeMillis();
+        try {
+            //TODO(1.2) Check for alread existing file...
+            printedCount = pipeline.print(inputFile, TCardFormat.AUTO, first, last, outputFile, StandardOpenOption.CREATE_NEW);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            printedCount = -1;
+        }
+        if (printedCount < 0) {
+            System.err.println("<ERROR> Impossible read cards for printing. Please retry. Thank you!\n");
+            System.exit(-3);
+        }
+        List<String> files = pipeline.getOutputFiles();
+        System.out.println(String.format("Hic sunt leones! Just printed %d cards on %s in %s.\nBest regards!\n", printedCount,
+                (files.size() == 1 ? "file " + files.get(0) : files.size() + " files, from " + files.get(0) + " to " + files.get(files.size() - 1)),
+                TUtils.prettyMilliseconds(System.currentTimeMillis() - start)));
+
+    }
+
+    // Cards are streamed from the input file and drawn on a PDF file, no template is needed.
+    private static void printPdf(String inputFile, int first, int last, String outputFile, THtmlTemplate.THtmlTemplateType layout, boolean jollyOn) {
+        TPdfPrinter tpp = new TPdfPrinter(layout);
+        tpp.enableJolly(jollyOn);
+        System.out.println(String.format("Start printing from card %d to card %s.", first, (last < 0 ? "the last one" : "" + last)));
+        System.out.println("Reading card series file: " + inputFile);
+        System.out.println("Using PDF page layout: " + layout);
+        System.out.println("Jolly numbers will be " + (jollyOn ? "" : "NOT ") + "highlighted.");
+        int printedCount = 0;
+        long start = System.currentTimeMillis();
         try {
-            tsl = tff.readSeriesFile(inputFile, TCardFormat.AUTO);
+            printedCount = tpp.printPdf(inputFile, TCardFormat.AUTO, first, last, outputFile, StandardOpenOption.CREATE_NEW);
         } catch (Exception ex) {
             ex.printStackTrace();
+            printedCount = -1;
         }
-        
+        if (printedCount < 0) {
+            System.err.println("<ERROR> Impossible read cards for printing. Please retry. Thank you!\n");
+            System.exit(-3);
+        }
+        System.out.println(String.format("Hic sunt leones! Just printed %d cards on file %s in %s.\nBest regards!\n", printedCount,
+                outputFile, TUtils.prettyMilliseconds(System.currentTimeMillis() - start)));
+    }
+
+    // Cards are drawn on PNG images, one per card or one per series, in parallel.
+    private static void printImages(String inputFile, int first, int last, String imageDirectory, boolean seriesSheets, boolean jollyOn) {
+        TImagePrinter tip = new TImagePrinter();
+        tip.enableJolly(jollyOn);
+        System.out.println(String.format("Start drawing from card %d to card %s.", first, (last < 0 ? "the last one" : "" + last)));
+        System.out.println("Reading card series file: " + inputFile);
+        System.out.println("Writing " + (seriesSheets ? "an image per series" : "an image per card") + " in directory: " + imageDirectory);
+        System.out.println("Jolly numbers will be " + (jollyOn ? "" : "NOT ") + "highlighted.");
         int printedCount = 0;
-        if (tsl != null && tsl.size()>0) {
-            System.out.println("[OK!]");
-            System.out.println(String.format("%d cards just loaded.", tsl.size()*6));
-            
-            last = ((last>(tsl.size()*6-1) || last<0) ? tsl.size()*6-1 : last);
-
-            THtmlPrinter thp = new THtmlPrinter(templateFile);
-            thp.enableJolly(jollyOn);
-            System.out.println(String.format("Start printing from card %d to card %d.", first, last));
-            System.out.println("Using template file: " + templateFile);
-            System.out.println("Jolly numbers will be " + (jollyOn ? "" : "NOT ") + "highlighted.");
-            //TODO(1.2) Check for alread existing file...
-            printedCount = thp.printHtml(tsl, first, last, outputFile, StandardOpenOption.CREATE_NEW);           
-            
-        } else {
+        long start = System.currentTimeMillis();
+        try {
+            // Series are just collected, there is no need to compare them.
+            TSeriesList tsl = new TSeriesList(inputFile);
+            new TFileFormatter().streamSeriesFile(inputFile, TCardFormat.AUTO, tsl::add);
+            if (seriesSheets) {
+                printedCount = tip.printSeries(tsl, first / 6, (last < 0 ? -1 : last / 6), imageDirectory);
+            } else {
+                printedCount = tip.printCards(tsl, first, last, imageDirectory);
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            printedCount = -1;
+        }
+        if (printedCount < 0) {
             System.err.println("<ERROR> Impossible read cards for printing. Please retry. Thank you!\n");
+            System.exit(-3);
         }
-        System.out.println("Hic sunt leones! Just printed " + printedCount + " cards on file "+outputFile+".\nBest regards!\n");
+        System.out.println(String.format("Hic sunt leones! Just drawn %d images in %s.\nBest regards!\n", printedCount,
+                TUtils.prettyMilliseconds(System.currentTimeMillis() - start)));
+    }
 
+    private static void listTemplates(String templateDirectory) {
+        List<THtmlTemplate> templates = THtmlTemplate.searchTemplates(new String[]{templateDirectory});
+        System.out.println(String.format("Found %d templates in %s", templates.size(), templateDirectory));
+        for (THtmlTemplate t : templates) {
+            System.out.println(String.format("  %-16s %s%n                   %s", t.getType(), t.getName(), t.getSourceFilePath()));
+        }
     }
 
     private static void printInitialBanner() {
@@ -175,11 +292,20 @@ public class TombolaPrint {
         System.out.println("  last                 The index of the last card to print (default = all cards within the input file)");
         System.out.println("  -I=<input_file>      Specify the input file from which read cards (mandatory parameter).");
         System.out.println("  -T=<template_file>   Specify the html+css template file name to use to generate printed cards.");
-        System.out.println("                       (mandatory parameters)\n");
+        System.out.println("                       (mandatory parameters, but for PDF output)\n");
 
         System.out.println("  options are case insensitive and can be used in the order you prefer.\n");
         System.out.println("  -O=<file_name>       Set the filename where generated html output is stored (default: " + TP_DEFAULT_OUTPUT_FILENAME + ")");
-        // TODO(1.2) System.out.println("  -L=<template_dir>    List the HTML/Css templates in the specified directory (default: ).");
+        System.out.println("                       If it ends with .pdf, cards are printed on a PDF file instead, without templates.");
+        System.out.println("                       If it ends with .gz, the output is compressed. Compressed input files are read as well.");
+        System.out.println("  -A=<layout>          Set the page layout of PDF output (default: " + TP_DEFAULT_PDF_LAYOUT + "), one of:");
+        System.out.println("                       " + Arrays.toString(THtmlTemplate.THtmlTemplateType.values()));
+        System.out.println("  -G=<directory>       Draw the cards on PNG images written in <directory> instead of printing them,");
+        System.out.println("                       an image per card named after its label.");
+        System.out.println("  -S                   With -G, draw an image per series, holding its six cards.");
+        System.out.println("  -P=<pages>           Split the output in files of <pages> pages each, named after the output file");
+        System.out.println("                       with a progressive number (default: 0, a single file)");
+        System.out.println("  -L=<template_dir>    List the HTML/Css templates in the specified directory and exit (default: current directory).");
         System.out.println("  -J                   If this option is present, jolly Numbers are NOT highlighted on the output html file.");
         System.out.println("  -H                   If this option is present, TombolaPrint prints this help and exit. No other options are considered.");
         System.out.println("  -U                   Use the Unattended mode, that is no interaction with the user are required");
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolaserver;
+
+import harrygpotter.tombola.tombolalib.TAward;
+import harrygpotter.tombola.tombolalib.TCard;
+import harrygpotter.tombola.tombolalib.TGame;
+import harrygpotter.tombola.tombolalib.TGameRoom;
+import java.util.List;
+
+/**
+ * Tiny helper building the JSON documents sent by TombolaServer to its
+ * clients.&nbsp;Documents are small and have a fixed shape, so they are
+ * written by hand and no JSON library is needed.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TRoomChannel
+ */
+final class TJson {    // Only package visibility
+
+    private TJson() {
+        // Just static helpers here.
+    }
+
+    // Only package visibility
+    static String quote(String s) {
+        if (s == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // Only package visibility
+    static String extraction(TGameRoom room, int number, int count, List<TAward> wonAwards) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("{\"room\":").append(quote(room.getId()))
+                .append(",\"count\":").append(count)
+                .append(",\"number\":").append(number)
+                .append(",\"awards\":[");
+        for (int i = 0; i < wonAwards.size(); i++) {
+            sb.append(i > 0 ? "," : "");
+            award(sb, wonAwards.get(i));
+        }
+        return sb.append("]}").toString();
+    }
+
+    // Only package visibility
+    static String status(TGameRoom room, TGameRoom.TRoomStatus status) {
+        return "{\"room\":" + quote(room.getId()) + ",\"status\":" + quote(status.name()) + "}";
+    }
+
+    // The caller must hold the room lock, so that the game does not change meanwhile.
+    // Only package visibility
+    static String snapshot(TGameRoom room) {
+        TGame game = room.getGame();
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("{\"room\":").append(quote(room.getId()))
+                .append(",\"status\":").append(quote(room.getStatus().name()))
+                .append(",\"periodMillis\":").append(room.getPeriodMillis())
+                .append(",\"cards\":").append(game.getCards().size())
+                .append(",\"count\":").append(game.getExtractionCount())
+                .append(",\"numbers\":[");
+        int[] extracted = game.getSacchetto().getExtractedAsArray();
+        for (int i = 0; extracted != null && i < extracted.length; i++) {
+            sb.append(i > 0 ? "," : "").append(extracted[i]);
+        }
+        sb.append("],\"awards\":[");
+        for (int i = 0; i < game.getAwards().size(); i++) {
+            sb.append(i > 0 ? "," : "");
+            award(sb, game.getAwards().get(i));
+        }
+        return sb.append("]}").toString();
+    }
+
+    // Only package visibility
+    static String roomSummary(TGameRoom room) {
+        return "{\"room\":" + quote(room.getId()) + ",\"status\":" + quote(room.getStatus().name())
+                + ",\"count\":" + room.getGame().getExtractionCount() + "}";
+    }
+
+    private static void award(StringBuilder sb, TAward aw) {
+        sb.append("{\"award\":").append(quote(aw.getLabel()))
+                .append(",\"category\":").append(aw.getCategory())
+                .append(",\"status\":").append(quote(aw.getStatus().name()));
+        if (aw.isAssigned()) {
+            sb.append(",\"number\":").append(aw.getWinningNumber())
+                    .append(",\"count\":").append(aw.getWinningOrdinal());
+        }
+        sb.append(",\"winners\":[");
+        List<TCard> winners = aw.getWinnerList();
+        for (int i = 0; i < winners.size(); i++) {
+            TCard c = winners.get(i);
+            sb.append(i > 0 ? "," : "").append("{\"card\":").append(quote(c.getLabel()))
+                    .append(",\"owner\":").append(quote(c.getOwner())).append('}');
+        }
+        sb.append("]}");
+    }
+}           // End Of File - Rel.(1.1)
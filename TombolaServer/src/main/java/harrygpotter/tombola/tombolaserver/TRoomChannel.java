@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolaserver;
+
+import com.sun.net.httpserver.HttpExchange;
+import harrygpotter.tombola.tombolalib.ITRoomListener;
+import harrygpotter.tombola.tombolalib.TAward;
+import harrygpotter.tombola.tombolalib.TGameRoom;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A TRoomChannel object pushes the events of a {@linkplain TGameRoom} to all
+ * the clients following it as a stream of server-sent events.&nbsp;Each event
+ * is encoded just once, when the room publishes it, and kept in a ring buffer
+ * holding the most recent events; each subscriber reads from the buffer at its
+ * own pace, writing at once all the events accumulated since its last write.
+ * <p>
+ * Writes are made by a pool of threads shared by all the channels, so the
+ * thread driving the room never waits for the network.&nbsp;A subscriber
+ * lagging more than the whole buffer is disconnected: it can reconnect
+ * sending the Last-Event-ID header and, if the events it missed are still in
+ * the buffer, it receives them, otherwise it receives a fresh snapshot of the
+ * room.</p>
+ * <p>
+ * The HTTP server embedded in the JDK has no write timeout, so a client that
+ * stops reading would keep a writer thread blocked forever: the
+ * {@linkplain TRoomChannel#checkWrites()} method, that should be called
+ * periodically, disconnects the subscribers whose write is taking longer than
+ * the write timeout of the channel.</p>
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TombolaServer
+ * @see ITRoomListener
+ */
+public class TRoomChannel implements ITRoomListener {
+
+    /**
+     * Default number of events kept in the buffer of each channel.
+     */
+    public static final int DEFAULT_BACKLOG = 256;
+
+    /**
+     * Default time, in milliseconds, a single write to a client can take
+     * before the client is disconnected.
+     */
+    public static final long DEFAULT_WRITE_TIMEOUT = 10000;
+
+    private final TGameRoom room;
+    private final Executor writers;
+    private final int maxSubscribers;
+    private final long writeTimeoutNanos;
+    private final byte[][] ring;
+    private final Set<TSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private long nextId = 1;                // Guarded by this
+    private volatile boolean finished = false;
+
+    /**
+     * Build a channel and register it as listener of the room.
+     *
+     * @param room the room whose events are pushed to the clients.
+     * @param writers the threads used to write events to the clients.
+     * @param backlog the number of recent events kept to feed slow clients.
+     * @param maxSubscribers the maximum number of clients allowed to follow the
+     * room at the same time.
+     */
+    public TRoomChannel(TGameRoom room, Executor writers, int backlog, int maxSubscribers) {
+        this(room, writers, backlog, maxSubscribers, DEFAULT_WRITE_TIMEOUT);
+    }
+
+    /**
+     * Build a channel with the given write timeout and register it as listener
+     * of the room.
+     *
+     * @param room the room whose events are pushed to the clients.
+     * @param writers the threads used to write events to the clients.
+     * @param backlog the number of recent events kept to feed slow clients.
+     * @param maxSubscribers the maximum number of clients allowed to follow the
+     * room at the same time.
+     * @param writeTimeout the time, in milliseconds, a single write to a client
+     * can take before the client is disconnected by
+     * {@linkplain TRoomChannel#checkWrites()}.
+     */
+    public TRoomChannel(TGameRoom room, Executor writers, int backlog, int maxSubscribers, long writeTimeout) {
+        this.room = room;
+        this.writers = writers;
+        this.maxSubscribers = maxSubscribers;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeout);
+        this.ring = new byte[Math.max(backlog, 2)][];
+        room.addListener(this);
+    }
+
+    /**
+     * Return the room whose events are pushed by this channel.
+     *
+     * @return the room whose events are pushed by this channel.
+     */
+    public TGameRoom getRoom() {
+        return room;
+    }
+
+    /**
+     * Return the number of clients currently following the room.
+     *
+     * @return the number of clients currently following the room.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void numberExtracted(TGameRoom room, int number, int count, List<TAward> wonAwards) {
+        publish("extraction", TJson.extraction(room, number, count, wonAwards));
+    }
+
+    @Override
+    public void statusChanged(TGameRoom room, TGameRoom.TRoomStatus status) {
+        publish("status", TJson.status(room, status));
+        if (status == TGameRoom.TRoomStatus.ENDED || status == TGameRoom.TRoomStatus.CLOSED) {
+            // Subscribers are disconnected as soon as they have received the last events.
+            finished = true;
+            signalAll();
+        }
+    }
+
+    /**
+     * Start pushing the events of the room on the exchange passed as input
+     * parameter.&nbsp;The first event sent is a snapshot of the whole room,
+     * unless the client is reconnecting and the events it missed are still in
+     * the buffer.&nbsp;The method returns at once, the exchange is then fed by
+     * the writer threads and closed when the room ends or the client goes away.
+     *
+     * @param exchange the HTTP exchange of the client.
+     * @param lastEventId the id of the last event received by the client before
+     * reconnecting, 0 for a new client.
+     *
+     * @return false if the channel has already too many subscribers, in this
+     * case nothing is sent on the exchange.
+     *
+     * @throws IOException if the response headers cannot be sent.
+     */
+    public boolean subscribe(HttpExchange exchange, long lastEventId) throws IOException {
+        if (subscribers.size() >= maxSubscribers) {
+            return false;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        TSubscriber subscriber;
+        // Holding the room lock no event can be published meanwhile: the snapshot and the
+        //  cursor of the subscriber are consistent, so no event is lost or sent twice.
+        synchronized (room) {
+            long next = getNextId();
+            if (lastEventId > 0 && lastEventId < next && lastEventId + ring.length >= next) {
+                subscriber = new TSubscriber(this, exchange, lastEventId + 1, null);
+            } else {
+                byte[] snapshot = encode(next - 1, "snapshot", TJson.snapshot(room));
+                subscriber = new TSubscriber(this, exchange, next, snapshot);
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.signal();
+        return true;
+    }
+
+    /**
+     * Send a comment line to all the subscribers that have received nothing
+     * since the last call, so that broken connections are detected and
+     * closed.&nbsp;It should be called periodically.
+     */
+    public void heartbeat() {
+        for (TSubscriber s : subscribers) {
+            s.ping();
+        }
+    }
+
+    /**
+     * Disconnect the subscribers whose write is in progress since more than
+     * the write timeout of the channel.&nbsp;It should be called periodically,
+     * at least twice within the write timeout.
+     */
+    public void checkWrites() {
+        for (TSubscriber s : subscribers) {
+            s.checkWrite(writeTimeoutNanos);
+        }
+    }
+
+    /**
+     * Disconnect all the subscribers and stop listening to the room.
+     */
+    public void close() {
+        room.removeListener(this);
+        finished = true;
+        signalAll();
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    // Only package visibility
+    Executor getWriters() {
+        return writers;
+    }
+
+    // Only package visibility
+    boolean isFinished() {
+        return finished;
+    }
+
+    // True when the room is over and all its subscribers have been disconnected.
+    // Only package visibility
+    boolean isDrained() {
+        return finished && subscribers.isEmpty();
+    }
+
+    // Only package visibility
+    synchronized long getNextId() {
+        return nextId;
+    }
+
+    // Return the encoded event with the given id, null if it is no more in the buffer.
+    // Only package visibility
+    synchronized byte[] getEvent(long id) {
+        if (id < 1 || id >= nextId || id + ring.length < nextId) {
+            return null;
+        }
+        return ring[(int) (id % ring.length)];
+    }
+
+    // Only package visibility
+    void unsubscribe(TSubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    private void publish(String type, String json) {
+        synchronized (this) {
+            long id = nextId;
+            ring[(int) (id % ring.length)] = encode(id, type, json);
+            nextId = id + 1;
+        }
+        signalAll();
+    }
+
+    private void signalAll() {
+        for (TSubscriber s : subscribers) {
+            s.signal();
+        }
+    }
+
+    private static byte[] encode(long id, String type, String json) {
+        return ("id: " + id + "\nevent: " + type + "\ndata: " + json + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolaserver;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A client following a room through a {@linkplain TRoomChannel}.&nbsp;It keeps
+ * the id of the next event to send and, each time it is signaled, writes in a
+ * single batch all the events published since its last write.&nbsp;At most a
+ * writer thread at a time works for a subscriber.&nbsp;A write taking longer
+ * than the write timeout of the channel is aborted by
+ * {@linkplain TSubscriber#checkWrite(long)}, interrupting the writer thread:
+ * the socket is closed, so that a client not reading its events can hold a
+ * writer thread only for a bounded time.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ * @see TRoomChannel
+ */
+final class TSubscriber {    // Only package visibility
+
+    private static final byte[] PING = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final TRoomChannel channel;
+    private final HttpExchange exchange;
+    private final OutputStream out;
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream(1024);
+    // Number of signals not yet handled: the thread moving it away from zero does the work.
+    private final AtomicInteger pendingSignals = new AtomicInteger();
+    private long cursor;
+    private byte[] first;
+    private volatile boolean pingRequested = false;
+    private volatile boolean closed = false;
+    // The thread writing on the socket and when it started, both guarded by this.
+    private Thread writer = null;
+    private long writeStarted = 0L;
+
+    // Only package visibility
+    TSubscriber(TRoomChannel channel, HttpExchange exchange, long cursor, byte[] first) {
+        this.channel = channel;
+        this.exchange = exchange;
+        this.out = exchange.getResponseBody();
+        this.cursor = cursor;
+        this.first = first;
+    }
+
+    // Only package visibility
+    void signal() {
+        if (pendingSignals.getAndIncrement() == 0) {
+            channel.getWriters().execute(this::drain);
+        }
+    }
+
+    // Only package visibility
+    void ping() {
+        pingRequested = true;
+        signal();
+    }
+
+    // Abort the write in progress, if it started more than timeoutNanos ago: interrupting a thread
+    //  blocked on a socket channel closes the channel, so the write fails at once.
+    // Only package visibility
+    synchronized void checkWrite(long timeoutNanos) {
+        if (writer != null && System.nanoTime() - writeStarted > timeoutNanos) {
+            closed = true;
+            writer.interrupt();
+            writer = null;
+        }
+    }
+
+    private void drain() {
+        int missed = pendingSignals.get();
+        do {
+            writeAvailable();
+            missed = pendingSignals.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void writeAvailable() {
+        if (closed) {
+            return;
+        }
+        try {
+            batch.reset();
+            if (first != null) {
+                batch.write(first);
+                first = null;
+            }
+            long next = channel.getNextId();
+            while (cursor < next) {
+                byte[] event = channel.getEvent(cursor);
+                if (event == null) {
+                    // Too slow: the events to send are no more in the buffer.
+                    close();
+                    return;
+                }
+                batch.write(event);
+                cursor++;
+            }
+            if (pingRequested && batch.size() == 0) {
+                batch.write(PING);
+            }
+            pingRequested = false;
+            if (batch.size() > 0) {
+                startWrite();
+                try {
+                    batch.writeTo(out);
+                    out.flush();
+                } finally {
+                    endWrite();
+                }
+            }
+            if (closed || (channel.isFinished() && cursor >= channel.getNextId())) {
+                close();
+            }
+        } catch (IOException ioe) {
+            // The client went away, or it was too slow reading its events.
+            close();
+        }
+    }
+
+    private synchronized void startWrite() {
+        writer = Thread.currentThread();
+        writeStarted = System.nanoTime();
+    }
+
+    private synchronized void endWrite() {
+        writer = null;
+        // The watchdog could have interrupted this thread just after the write completed:
+        //  the pooled thread must not carry the interrupt over to the next subscriber.
+        Thread.interrupted();
+    }
+
+    private void close() {
+        closed = true;
+        channel.unsubscribe(this);
+        exchange.close();
+    }
+}           // End Of File - Rel.(1.1)
@@ -0,0 +1,444 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolaserver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import harrygpotter.tombola.tombolalib.TAwardList;
+import harrygpotter.tombola.tombolalib.TCardFormat;
+import harrygpotter.tombola.tombolalib.TCardList;
+import harrygpotter.tombola.tombolalib.TFileFormatter;
+import harrygpotter.tombola.tombolalib.TGameHost;
+import harrygpotter.tombola.tombolalib.TGameRoom;
+import harrygpotter.tombola.tombolalib.TMakeSix;
+import harrygpotter.tombola.tombolalib.TSeriesList;
+import harrygpotter.tombola.tombolalib.TUtils;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command Line Interface tool running tombola games on a {@linkplain TGameHost}
+ * and letting the devices of the players on the local network follow them
+ * through HTTP.&nbsp;It uses just the HTTP server embedded in the JDK: each
+ * room can be inspected as a JSON document and followed as a stream of
+ * server-sent events, see {@linkplain TRoomChannel}.
+ * <p>
+ * Exposed resources:</p>
+ * <ul>
+ * <li>GET /rooms - the list of the rooms with their status;</li>
+ * <li>GET /rooms/&lt;id&gt; - a snapshot of the room: extracted numbers and
+ * awards;</li>
+ * <li>GET /rooms/&lt;id&gt;/events - the stream of the events of the
+ * room;</li>
+ * <li>POST /rooms/&lt;id&gt;/start, /pause, /close - control the room.</li>
+ * </ul>
+ * <p>
+ * The read only resources are open to every client, while the control ones
+ * are served only to the clients running on the same machine, unless a
+ * control token has been set (see
+ * {@linkplain TombolaServer#setControlToken(String)}): in this case every
+ * control request, from any address, must carry it in the
+ * <code>Authorization: Bearer &lt;token&gt;</code> header.&nbsp;The command
+ * line tool listens on the loopback address, unless told otherwise.</p>
+ *
+ * @author Harry G. Potter (harry.g.potter@gmail.com)
+ * @version 1.1
+ * @since 1.8
+ * @see TGameHost
+ * @see TRoomChannel
+ */
+public class TombolaServer {
+
+    private static final String TS_VERSION = "1.1";
+    private static final String TS_DEFAULT_ADDRESS = "127.0.0.1";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final int TS_DEFAULT_PORT = 8090;
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    private final TGameHost host;
+    private final HttpServer server;
+    private final ExecutorService writers;
+    private final ScheduledExecutorService heartbeat;
+    private final Map<String, TRoomChannel> channels = new ConcurrentHashMap<>();
+    private final int backlog;
+    private final int maxSubscribers;
+    private final long writeTimeout;
+    private volatile byte[] controlToken = null;
+
+    /**
+     * Build a server listening on the given address and port, whose rooms will
+     * be run by the given host.
+     *
+     * @param host the game host running the rooms.
+     * @param address the address to listen on, for example 0.0.0.0 or
+     * 127.0.0.1.
+     * @param port the TCP port to listen on, 0 to let the system choose one.
+     * @param backlog the number of recent events kept for each room.
+     * @param maxSubscribers the maximum number of clients following a room.
+     *
+     * @throws IOException if the server cannot be bound to the address.
+     */
+    public TombolaServer(TGameHost host, String address, int port, int backlog, int maxSubscribers) throws IOException {
+        this(host, address, port, backlog, maxSubscribers, TRoomChannel.DEFAULT_WRITE_TIMEOUT);
+    }
+
+    /**
+     * Build a server listening on the given address and port, whose rooms will
+     * be run by the given host, disconnecting the clients whose writes take
+     * longer than the given timeout.
+     *
+     * @param host the game host running the rooms.
+     * @param address the address to listen on, for example 0.0.0.0 or
+     * 127.0.0.1.
+     * @param port the TCP port to listen on, 0 to let the system choose one.
+     * @param backlog the number of recent events kept for each room.
+     * @param maxSubscribers the maximum number of clients following a room.
+     * @param writeTimeout the time, in milliseconds, a single write to a client
+     * can take before the client is disconnected.
+     *
+     * @throws IOException if the server cannot be bound to the address.
+     */
+    public TombolaServer(TGameHost host, String address, int port, int backlog, int maxSubscribers, long writeTimeout) throws IOException {
+        this.host = host;
+        this.backlog = backlog;
+        this.maxSubscribers = maxSubscribers;
+        this.writeTimeout = writeTimeout;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        this.writers = Executors.newFixedThreadPool(Math.max(4, 2 * cpus), daemonThreads("TombolaServer-writer"));
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(daemonThreads("TombolaServer-heartbeat"));
+        this.server = HttpServer.create(new InetSocketAddress(address, port), 1024);
+        this.server.createContext("/rooms", this::handle);
+        // Handlers never wait for the games: the stream of a room is fed by the writers.
+        this.server.setExecutor(Executors.newFixedThreadPool(Math.max(2, cpus), daemonThreads("TombolaServer-http")));
+    }
+
+    /**
+     * Make a room of the host reachable by the clients.
+     *
+     * @param room the room to publish.
+     */
+    public void publish(TGameRoom room) {
+        channels.computeIfAbsent(room.getId(), (id) -> new TRoomChannel(room, writers, backlog, maxSubscribers, writeTimeout));
+    }
+
+    /**
+     * Set the token the clients must send, as
+     * <code>Authorization: Bearer &lt;token&gt;</code> header, to start, pause
+     * or close a room.&nbsp;Without a token (the default) the control requests
+     * are accepted only from the loopback address.
+     *
+     * @param token the control token, null to accept the control requests
+     * from the loopback address only.
+     */
+    public void setControlToken(String token) {
+        if (token != null && token.trim().isEmpty()) {
+            throw new IllegalArgumentException("The control token cannot be empty.");
+        }
+        this.controlToken = (token == null ? null : token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Start accepting connections.
+     */
+    public void start() {
+        heartbeat.scheduleAtFixedRate(() -> channels.values().forEach(TRoomChannel::heartbeat),
+                HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        // The write watchdog: the embedded HTTP server has no write timeout of its own.
+        long watchdogPeriod = Math.max(writeTimeout / 4, 1);
+        heartbeat.scheduleAtFixedRate(() -> {
+            channels.values().forEach(TRoomChannel::checkWrites);
+            dropClosedRooms();
+        }, watchdogPeriod, watchdogPeriod, TimeUnit.MILLISECONDS);
+        server.start();
+    }
+
+    /**
+     * Return the port the server is listening on.
+     *
+     * @return the port the server is listening on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Disconnect all the clients and stop the server.&nbsp;Rooms are not
+     * closed, they belong to the game host.
+     */
+    public void stop() {
+        channels.values().forEach(TRoomChannel::close);
+        server.stop(0);
+        heartbeat.shutdownNow();
+        writers.shutdown();
+    }
+
+    /**
+     * TombolaServer -P=port -A=address -R=rooms -C=cards -T=period -K=token {other options}
+     *
+     * @param args the command line arguments
+     * @throws java.io.IOException if the server cannot be started.
+     */
+    public static void main(String[] args) throws IOException {
+        String address = TS_DEFAULT_ADDRESS;
+        String inputFile = null;
+        String token = null;
+        int port = TS_DEFAULT_PORT;
+        int nRooms = 1;
+        int nCards = 24;
+        long period = 5000;
+        int maxSubscribers = 10000;
+        long writeTimeout = TRoomChannel.DEFAULT_WRITE_TIMEOUT;
+
+        for (String arg : args) {
+            if (arg.length() < 2 || arg.charAt(0) != '-') {
+                System.err.println("<FATAL!> Parameter [" + arg + "] not recognized. Run TombolaServer -H to see the help.");
+                System.exit(-1);
+            }
+            arg = arg.substring(1);
+            String argArg = null;
+            if (arg.contains("=")) {
+                argArg = arg.substring(arg.indexOf("=") + 1);
+                arg = arg.substring(0, arg.indexOf("="));
+            }
+            try {
+                switch (arg.toUpperCase()) {
+                    case "A":   // Listening (A)ddress
+                        address = argArg;
+                        break;
+                    case "C":   // (C)ards playing in each room
+                        nCards = Integer.parseInt(argArg);
+                        break;
+                    case "I":   // (I)nput file with the cards playing in each room
+                        inputFile = argArg;
+                        break;
+                    case "K":   // (K)ey, that is the token, allowing to control the rooms from other machines
+                        token = argArg;
+                        if (token.trim().isEmpty()) {
+                            throw new NumberFormatException();
+                        }
+                        break;
+                    case "M":   // (M)aximum number of clients per room
+                        maxSubscribers = Integer.parseInt(argArg);
+                        break;
+                    case "P":   // Listening (P)ort
+                        port = Integer.parseInt(argArg);
+                        break;
+                    case "R":   // Number of (R)ooms
+                        nRooms = Integer.parseInt(argArg);
+                        break;
+                    case "T":   // (T)ime between two extractions, in milliseconds
+                        period = Long.parseLong(argArg);
+                        break;
+                    case "W":   // (W)rite timeout, in milliseconds
+                        writeTimeout = Long.parseLong(argArg);
+                        break;
+                    case "H":
+                        printInitialBanner();
+                        printInfo();
+                        System.exit(0);
+                        break;
+                    default:
+                        System.err.println("<FATAL!> Option [-" + arg + "] not recognized. Run TombolaServer -H to see the help.");
+                        System.exit(-1);
+                }
+            } catch (NumberFormatException | NullPointerException ex) {
+                System.err.println("<FATAL!> Option [-" + arg + "] needs a valid value. Run TombolaServer -H to see the help.");
+                System.exit(-1);
+            }
+        }
+        printInitialBanner();
+
+        TGameHost host = new TGameHost();
+        TombolaServer ts = new TombolaServer(host, address, port, TRoomChannel.DEFAULT_BACKLOG, maxSubscribers, writeTimeout);
+        ts.setControlToken(token);
+        TMakeSix builder = new TMakeSix(true);
+        for (int r = 1; r <= nRooms; r++) {
+            // Each room needs its own cards: they keep the status of the game they are playing.
+            TSeriesList seriesList;
+            if (inputFile != null) {
+                seriesList = new TFileFormatter().readSeriesFile(inputFile, TCardFormat.AUTO);
+            } else {
+                seriesList = new TSeriesList(String.format("Cards of room %03d", r));
+                while (seriesList.size() * 6 < nCards) {
+                    seriesList.add(builder.prepareSeries());
+                }
+                seriesList.prepareLabels();
+            }
+            TGameRoom room = host.createRoom(String.format("room%03d", r), new TCardList(seriesList), TAwardList.getSimpleDoubleAwardList(), period);
+            ts.publish(room);
+            room.start();
+        }
+        ts.start();
+        System.out.println(String.format("%d room(s) are playing, one number every %d milliseconds.", nRooms, period));
+        System.out.println(String.format("Follow them at http://%s:%d/rooms", address, ts.getPort()));
+        if (token == null) {
+            System.out.println("Rooms can be started, paused and closed only from this machine (use -K to allow other machines).");
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            ts.stop();
+            host.close();
+        }));
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    // Only package visibility
+    TRoomChannel getChannel(String roomId) {
+        return channels.get(roomId);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            // path[0] is empty, path[1] is "rooms"
+            String method = exchange.getRequestMethod().toUpperCase();
+            if (path.length == 2) {
+                if (!method.equals("GET")) {
+                    reply(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                    return;
+                }
+                StringBuilder sb = new StringBuilder("[");
+                List<TGameRoom> rooms = host.getRooms();
+                for (int i = 0; i < rooms.size(); i++) {
+                    sb.append(i > 0 ? "," : "").append(TJson.roomSummary(rooms.get(i)));
+                }
+                reply(exchange, 200, sb.append("]").toString());
+                return;
+            }
+            TRoomChannel channel = channels.get(path[2]);
+            if (channel == null || path.length > 4) {
+                reply(exchange, 404, "{\"error\":\"Room not found\"}");
+                return;
+            }
+            TGameRoom room = channel.getRoom();
+            String action = (path.length == 4 ? path[3] : "");
+            if (method.equals("GET") && action.isEmpty()) {
+                String snapshot;
+                synchronized (room) {
+                    snapshot = TJson.snapshot(room);
+                }
+                reply(exchange, 200, snapshot);
+            } else if (method.equals("GET") && action.equals("events")) {
+                long lastEventId = 0;
+                String header = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+                if (header != null) {
+                    try {
+                        lastEventId = Long.parseLong(header.trim());
+                    } catch (NumberFormatException nfe) {
+                        // A new client, then.
+                    }
+                }
+                if (!channel.subscribe(exchange, lastEventId)) {
+                    reply(exchange, 503, "{\"error\":\"Too many clients are following this room\"}");
+                }
+                // The exchange is not closed here: it now belongs to the channel.
+            } else if (method.equals("POST") && (action.equals("start") || action.equals("pause") || action.equals("close"))) {
+                if (!isControlAllowed(exchange)) {
+                    reply(exchange, 403, "{\"error\":\"Control requests need a valid token\"}");
+                    return;
+                }
+                boolean done = (action.equals("start") ? room.start() : (action.equals("pause") ? room.pause() : room.close()));
+                reply(exchange, (done ? 200 : 409), TJson.roomSummary(room));
+            } else {
+                reply(exchange, 405, "{\"error\":\"Method not allowed\"}");
+            }
+        } catch (RuntimeException rex) {
+            reply(exchange, 500, "{\"error\":" + TJson.quote(String.valueOf(rex.getMessage())) + "}");
+        }
+    }
+
+    private boolean isControlAllowed(HttpExchange exchange) {
+        byte[] token = this.controlToken;
+        if (token == null) {
+            return exchange.getRemoteAddress().getAddress().isLoopbackAddress();
+        }
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            return false;
+        }
+        // Constant time comparison, so the token cannot be guessed one character at a time.
+        return MessageDigest.isEqual(token, header.substring(BEARER_PREFIX.length()).trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Closed rooms are no more reachable: their channel is dropped once all the clients are gone.
+    private void dropClosedRooms() {
+        channels.forEach((id, channel) -> {
+            if (channel.getRoom().getStatus() == TGameRoom.TRoomStatus.CLOSED && channel.isDrained()) {
+                channels.remove(id, channel);
+                channel.close();
+            }
+        });
+    }
+
+    private static void reply(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return (Runnable r) -> {
+            Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static void printInitialBanner() {
+        System.out.println("\nHello Tombola World, we are on line!");
+        System.out.println("TombolaServer version: " + TS_VERSION);
+        System.out.println("Library: " + TUtils.LIB_NAME + ", version " + TUtils.LIB_VERSION);
+        System.out.println("--------------------------------------------------");
+    }
+
+    private static void printInfo() {
+        System.out.println("\nUsage:\n");
+        System.out.println("  TombolaServer {options flags ...}\n");
+        System.out.println("  options are case insensitive and can be used in the order you prefer.\n");
+        System.out.println("  -A=<address>         The address to listen on (default: " + TS_DEFAULT_ADDRESS + ", this machine only; 0.0.0.0 for all the interfaces)");
+        System.out.println("  -P=<port>            The TCP port to listen on (default: " + TS_DEFAULT_PORT + ")");
+        System.out.println("  -R=<rooms>           How many rooms to open (default: 1)");
+        System.out.println("  -C=<cards>           How many random cards play in each room, rounded up to whole series (default: 24)");
+        System.out.println("  -I=<input_file>      Read the cards playing in each room from the specified file, instead of generating them");
+        System.out.println("  -T=<milliseconds>    The time between two extractions in each room (default: 5000)");
+        System.out.println("  -M=<clients>         The maximum number of clients following a room (default: 10000)");
+        System.out.println("  -W=<milliseconds>    The time a write to a client can take before it is disconnected (default: " + TRoomChannel.DEFAULT_WRITE_TIMEOUT + ")");
+        System.out.println("  -K=<token>           The token allowing to control the rooms from other machines, sent as 'Authorization: Bearer <token>'");
+        System.out.println("                       header (default: none, rooms can be controlled only from this machine)");
+        System.out.println("  -H                   Print this help and exit. No other options are considered.");
+        System.out.println("\nResources: GET /rooms, GET /rooms/<id>, GET /rooms/<id>/events (server-sent events),");
+        System.out.println("           POST /rooms/<id>/start, POST /rooms/<id>/pause, POST /rooms/<id>/close");
+    }
+}           // End Of File - Rel.(1.1)
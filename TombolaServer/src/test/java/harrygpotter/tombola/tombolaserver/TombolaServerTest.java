@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2018 Harry G potter (harry.g.potter@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package harrygpotter.tombola.tombolaserver;
+
+import harrygpotter.tombola.tombolalib.TAwardList;
+import harrygpotter.tombola.tombolalib.TCardList;
+import harrygpotter.tombola.tombolalib.TGameHost;
+import harrygpotter.tombola.tombolalib.TGameRoom;
+import harrygpotter.tombola.tombolalib.TMakeSix;
+import harrygpotter.tombola.tombolalib.TSeriesList;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Loopback tests of {@linkplain TombolaServer}: clients follow a room through
+ * the stream of server-sent events, checking the order of the events, the
+ * resume through the Last-Event-ID header and the write timeout.
+ *
+ * @author Harry G. Potter harry.g.potter@gmail.com
+ * @version 1.1
+ * @since 1.8
+ */
+public class TombolaServerTest {
+
+    private static final Pattern COUNT = Pattern.compile("\"count\":(\\d+)");
+
+    private TGameHost host;
+    private TombolaServer server;
+    private TGameRoom room;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        host = new TGameHost(2);
+        TSeriesList seriesList = new TSeriesList("Loopback");
+        TMakeSix builder = new TMakeSix(11L, true);
+        for (int i = 0; i < 4; i++) {
+            seriesList.add(builder.prepareSeries());
+        }
+        seriesList.prepareLabels();
+        room = host.createRoom("room001", new TCardList(seriesList), TAwardList.getSimpleDoubleAwardList(), 15);
+        server = new TombolaServer(host, "127.0.0.1", 0, TRoomChannel.DEFAULT_BACKLOG, 16, 400);
+        server.publish(room);
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop();
+        host.close();
+    }
+
+    @Test
+    public void eventsAreReceivedInOrderByAllTheClients() throws IOException {
+        List<TEventReader> clients = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            clients.add(new TEventReader(0));
+        }
+        room.start();
+        for (TEventReader client : clients) {
+            TEvent event = client.next();
+            assertEquals("snapshot", event.type);
+            long lastId = event.id;
+            int lastCount = 0;
+            boolean ended = false;
+            while (!ended && (event = client.next()) != null) {
+                assertEquals(lastId + 1, event.id, "Event ids must be consecutive");
+                lastId = event.id;
+                if (event.type.equals("extraction")) {
+                    int count = count(event);
+                    assertEquals(lastCount + 1, count, "Extractions must be received in order");
+                    lastCount = count;
+                }
+                ended = event.data.contains("\"ENDED\"");
+            }
+            assertTrue(ended, "The stream must go on until the end of the game");
+            assertEquals(room.getGame().getExtractionCount(), lastCount);
+            client.close();
+        }
+    }
+
+    @Test
+    public void clientsResumeFromTheLastEventReceived() throws IOException {
+        room.start();
+        TEventReader client = new TEventReader(0);
+        TEvent event = client.next();
+        assertEquals("snapshot", event.type);
+        for (int i = 0; i < 5; i++) {
+            event = client.next();
+        }
+        long lastId = event.id;
+        int lastCount = (event.type.equals("extraction") ? count(event) : -1);
+        client.close();
+
+        TEventReader resumed = new TEventReader(lastId);
+        event = resumed.next();
+        assertNotEquals("snapshot", event.type, "The missed events are still in the buffer");
+        assertEquals(lastId + 1, event.id);
+        if (lastCount >= 0 && event.type.equals("extraction")) {
+            assertEquals(lastCount + 1, count(event));
+        }
+        resumed.close();
+    }
+
+    @Test
+    public void clientsNotReadingAreDisconnected() throws IOException, InterruptedException {
+        TRoomChannel channel = server.getChannel(room.getId());
+        TEventReader reader = new TEventReader(0);
+        AtomicInteger received = new AtomicInteger();
+        Thread follower = new Thread(() -> {
+            try {
+                while (reader.next() != null) {
+                    received.incrementAndGet();
+                }
+            } catch (IOException ioe) {
+                // Closed at the end of the test.
+            }
+        });
+        follower.start();
+        try (Socket stalled = new Socket()) {
+            // A client that never reads: the writes to it block as soon as the socket buffers are full.
+            stalled.setReceiveBufferSize(2048);
+            stalled.connect(new InetSocketAddress("127.0.0.1", server.getPort()));
+            OutputStream os = stalled.getOutputStream();
+            os.write("GET /rooms/room001/events HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            os.flush();
+            for (int i = 0; i < 100 && channel.getSubscriberCount() < 2; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, channel.getSubscriberCount());
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 200000 && channel.getSubscriberCount() > 1; i++) {
+                channel.statusChanged(room, TGameRoom.TRoomStatus.CREATED);
+                if (i % 100 == 99) {
+                    Thread.sleep(10);
+                }
+            }
+            for (int i = 0; i < 200 && channel.getSubscriberCount() > 1; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, channel.getSubscriberCount(), "The stalled client must be disconnected");
+            assertTrue(System.currentTimeMillis() - start < 10000);
+        }
+        int before = received.get();
+        channel.statusChanged(room, TGameRoom.TRoomStatus.CREATED);
+        for (int i = 0; i < 100 && received.get() == before; i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(received.get() > before, "The other clients must go on receiving events");
+        // Closing the channel ends the streams of the clients still following it.
+        channel.close();
+        follower.join(5000);
+        reader.close();
+    }
+
+    @Test
+    public void controlRequestsNeedTheTokenWhenSet() throws IOException {
+        // Without a token, the clients on the loopback address can control the rooms.
+        assertEquals(200, post("start", null));
+        server.setControlToken("s3cret");
+        assertEquals(403, post("pause", null));
+        assertEquals(403, post("pause", "guess"));
+        assertEquals(TGameRoom.TRoomStatus.RUNNING, room.getStatus());
+        assertEquals(200, post("pause", "s3cret"));
+        assertEquals(TGameRoom.TRoomStatus.PAUSED, room.getStatus());
+        // The read only resources are still open to everybody.
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + "/rooms/room001").openConnection();
+        assertEquals(200, connection.getResponseCode());
+        connection.disconnect();
+    }
+
+    @Test
+    public void closedRoomsAreDropped() throws IOException, InterruptedException {
+        TEventReader client = new TEventReader(0);
+        assertEquals(200, post("close", null));
+        // The client receives the last events, then the stream ends.
+        TEvent event;
+        while ((event = client.next()) != null && !event.data.contains("\"CLOSED\"")) {
+            assertNotEquals("extraction", event.type);
+        }
+        client.close();
+        for (int i = 0; i < 250 && server.getChannel(room.getId()) != null; i++) {
+            Thread.sleep(20);
+        }
+        assertNull(server.getChannel(room.getId()), "The channel of a closed room must be dropped");
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + "/rooms/room001").openConnection();
+        assertEquals(404, connection.getResponseCode());
+        connection.disconnect();
+    }
+
+    private int post(String action, String token) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.getPort() + "/rooms/room001/" + action);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        int code = connection.getResponseCode();
+        connection.disconnect();
+        return code;
+    }
+
+    private static int count(TEvent event) {
+        Matcher m = COUNT.matcher(event.data);
+        assertTrue(m.find());
+        return Integer.parseInt(m.group(1));
+    }
+
+    private static class TEvent {
+
+        long id = -1;
+        String type = "message";
+        String data = "";
+    }
+
+    // A minimal client of the stream of server-sent events of the room.
+    private class TEventReader {
+
+        private final HttpURLConnection connection;
+        private final BufferedReader in;
+
+        TEventReader(long lastEventId) throws IOException {
+            URL url = new URL("http://127.0.0.1:" + server.getPort() + "/rooms/room001/events");
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setReadTimeout(10000);
+            if (lastEventId > 0) {
+                connection.setRequestProperty("Last-Event-ID", Long.toString(lastEventId));
+            }
+            assertEquals(200, connection.getResponseCode());
+            in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        TEvent next() throws IOException {
+            TEvent event = new TEvent();
+            boolean empty = true;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    if (!empty) {
+                        return event;
+                    }
+                } else if (line.startsWith("id: ")) {
+                    event.id = Long.parseLong(line.substring(4));
+                    empty = false;
+                } else if (line.startsWith("event: ")) {
+                    event.type = line.substring(7);
+                    empty = false;
+                } else if (line.startsWith("data: ")) {
+                    event.data = line.substring(6);
+                    empty = false;
+                }
+            }
+            return null;
+        }
+
+        void close() {
+            connection.disconnect();
+        }
+    }
+}